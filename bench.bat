@@ -0,0 +1,11 @@
+//@ECHO OFF
+//JMH benchmarks - needs jmh-core, jmh-generator-annprocess, jopt-simple and commons-math3 jars in lib\
+//Benchmarks of ffm\bench are included when ffm.bat built out\adsffmmod (Java 22 or newer)
+//Arguments are passed to JMH, e.g.: bench.bat AdsManagerBenchmark -prof gc
+dir /B /S src\*.java > src.txt
+javac -d out -p lib\TcJavaToAds.jar --module-source-path src @src.txt
+dir /B /S bench\*.java > bench.txt
+if exist out\adsffmmod dir /B /S ffm\bench\*.java >> bench.txt
+javac -d out\bench -cp out\adscommod;out\adssimmod;out\adsffmmod;lib\* -processorpath lib\* @bench.txt
+java -cp out\bench;out\adscommod;out\adssimmod;out\adsffmmod;lib\* org.openjdk.jmh.Main %*
+pause
@@ -0,0 +1,10 @@
+#!/bin/sh
+#JMH benchmarks - needs jmh-core, jmh-generator-annprocess, jopt-simple and commons-math3 jars in lib/
+#Benchmarks of ffm/bench are included when ffm.sh built out/adsffmmod (Java 22 or newer)
+#Arguments are passed to JMH, e.g.: ./bench.sh AdsManagerBenchmark -prof gc
+set -e
+cd "$(dirname "$0")"
+javac -d out -p lib/TcJavaToAds.jar --module-source-path src $(find src -name '*.java')
+javac -d out/bench -cp "out/adscommod:out/adssimmod:out/adsffmmod:lib/*" -processorpath "lib/*" \
+  $(find bench -name '*.java') $([ -d out/adsffmmod ] && find ffm/bench -name '*.java')
+exec java -cp "out/bench:out/adscommod:out/adssimmod:out/adsffmmod:lib/*" org.openjdk.jmh.Main "$@"
@@ -0,0 +1,75 @@
+package adsbench;
+
+import adscom.SumResult;
+import adsexceptions.AdsException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* Latency and allocation of single AdsManager operations against in-process
+* simulator with no added latency, i.e. cost of the library itself.
+* Run with "-prof gc" to get allocation rate.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AdsManagerBenchmark {
+  private static final long INVALID_HANDLE = 0x7FFFFFFF;
+  private int next;
+
+  private int nextIndex(PlcState plc) {
+    next = (next + 1) % plc.symbolCount;
+    return next;
+  }
+
+  @Benchmark
+  public byte[] readByHandle(PlcState plc) {
+    return plc.manager.readByHandle(plc.handles[nextIndex(plc)], PlcState.SYMBOL_SIZE);
+  }
+
+  @Benchmark
+  public boolean writeByHandle(PlcState plc) {
+    return plc.manager.writeByHandle(plc.handles[nextIndex(plc)], plc.value);
+  }
+
+  @Benchmark
+  public byte[] readBySymbol(PlcState plc) {
+    return plc.manager.readBySymbol(plc.names[nextIndex(plc)], PlcState.SYMBOL_SIZE);
+  }
+
+  @Benchmark
+  public boolean writeBySymbol(PlcState plc) {
+    return plc.manager.writeBySymbol(plc.names[nextIndex(plc)], plc.value);
+  }
+
+  @Benchmark
+  public boolean getAndReleaseHandle(PlcState plc) {
+    return plc.manager.releaseHandle(plc.manager.getHandle(plc.names[nextIndex(plc)]));
+  }
+
+  @Benchmark
+  public long readInvalidHandle(PlcState plc) {
+    try {
+      plc.manager.readByHandle(INVALID_HANDLE, PlcState.SYMBOL_SIZE);
+      return 0;
+    } catch(AdsException e) {
+      return e.getErrId();
+    }
+  }
+
+  @Benchmark
+  public SumResult readManyAll(PlcState plc) {
+    return plc.manager.readMany(plc.handles, plc.sizes);
+  }
+}
@@ -0,0 +1,71 @@
+package adsbench;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* Many concurrent reads with simulated latency - asynchronous API versus blocking
+* reads on a thread pool, which is what callers had to do before.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AsyncBenchmark {
+  @Param({"1000"})
+  public int concurrent;
+
+  @Param({"16"})
+  public int poolThreads;
+
+  private ExecutorService pool;
+  private CompletableFuture<?>[] futures;
+  private Future<?>[] poolFutures;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    pool = Executors.newFixedThreadPool(poolThreads);
+    futures = new CompletableFuture<?>[concurrent];
+    poolFutures = new Future<?>[concurrent];
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    pool.shutdownNow();
+  }
+
+  @Benchmark
+  public void readAsync(PlcState plc) {
+    for(int i = 0; i < concurrent; i++)
+      futures[i] = plc.manager.readAsync(plc.handles[i % plc.symbolCount], PlcState.SYMBOL_SIZE);
+    CompletableFuture.allOf(futures).join();
+  }
+
+  @Benchmark
+  public void readOnThreadPool(PlcState plc) throws Exception {
+    for(int i = 0; i < concurrent; i++) {
+      long handle = plc.handles[i % plc.symbolCount];
+      poolFutures[i] = pool.submit(() -> plc.manager.readByHandle(handle, PlcState.SYMBOL_SIZE));
+    }
+    for(Future<?> future : poolFutures)
+      future.get();
+  }
+}
@@ -0,0 +1,83 @@
+package adsbench;
+
+import adscom.AdsManager;
+import adscom.SumResult;
+import adssim.AdsSimulator;
+import adssim.SimulatorTransport;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* Acquiring and releasing handles of many symbols, e.g. at application start.
+* Sequential calls pay one round trip per symbol, sum commands one per chunk.
+*/
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BulkHandleBenchmark {
+  @Param({"10000"})
+  public int symbolCount;
+
+  @Param({"50"})
+  public long latencyMicros;
+
+  private AdsSimulator simulator;
+  private AdsManager manager;
+  private List<String> names;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    simulator = new AdsSimulator();
+    String[] n = new String[symbolCount];
+    for(int i = 0; i < symbolCount; i++) {
+      n[i] = "MAIN.v" + i;
+      simulator.addSymbol(n[i], PlcState.SYMBOL_SIZE, "DINT");
+    }
+    names = Arrays.asList(n);
+    simulator.setLatency(latencyMicros, TimeUnit.MICROSECONDS);
+    manager = AdsManager.newInstance(new SimulatorTransport(simulator));
+    manager.openPort();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    manager.closePort();
+    simulator.close();
+  }
+
+  @Benchmark
+  public int sequential() {
+    long[] handles = new long[symbolCount];
+    for(int i = 0; i < symbolCount; i++)
+      handles[i] = manager.getHandle(names.get(i));
+    for(long handle : handles)
+      manager.releaseHandle(handle);
+    return handles.length;
+  }
+
+  @Benchmark
+  public int sumCommands() {
+    SumResult result = manager.getHandles(names);
+    long[] handles = new long[result.size()];
+    for(int i = 0; i < handles.length; i++)
+      handles[i] = result.getHandle(i);
+    return manager.releaseHandles(handles).size();
+  }
+}
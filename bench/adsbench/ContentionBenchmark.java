@@ -0,0 +1,46 @@
+package adsbench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* Many threads sharing one AdsManager. Simulated latency shows how much
+* of the round trip time is serialized by AdsManager locking.
+*/
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Thread)
+public class ContentionBenchmark {
+  private int next = (int)Thread.currentThread().getId();
+
+  @Benchmark
+  public byte[] readByHandle(PlcState plc) {
+    next = (next + 1) % plc.symbolCount;
+    return plc.manager.readByHandle(plc.handles[next], PlcState.SYMBOL_SIZE);
+  }
+
+  @Benchmark
+  public byte[] readBySymbol(PlcState plc) {
+    next = (next + 1) % plc.symbolCount;
+    return plc.manager.readBySymbol(plc.names[next], PlcState.SYMBOL_SIZE);
+  }
+
+  @Benchmark
+  public boolean writeBySymbol(PlcState plc) {
+    next = (next + 1) % plc.symbolCount;
+    return plc.manager.writeBySymbol(plc.names[next], plc.value);
+  }
+}
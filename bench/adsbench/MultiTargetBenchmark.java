@@ -0,0 +1,105 @@
+package adsbench;
+
+import adscom.AdsConnectionManager;
+import adscom.AdsManager;
+import adssim.AdsSimulator;
+import adssim.SimulatorTransport;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* One read from each of N simulated PLCs, issued from N threads. "serialized"
+* holds one global lock around every request, which is how a single shared
+* AdsManager behaves; "independent" uses AdsConnectionManager connections.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MultiTargetBenchmark {
+  private static final String SYMBOL = "MAIN.counter";
+
+  @Param({"1", "8", "40"})
+  public int targets;
+
+  @Param({"200"})
+  public long latencyMicros;
+
+  private final Object globalLock = new Object();
+  private Map<String, AdsSimulator> simulators;
+  private AdsConnectionManager connections;
+  private AdsManager[] managers;
+  private ExecutorService pool;
+  private Future<?>[] futures;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    simulators = new HashMap<>();
+    for(int i = 0; i < targets; i++) {
+      AdsSimulator simulator = new AdsSimulator().addSymbol(SYMBOL, 4, "DINT");
+      simulator.setLatency(latencyMicros, TimeUnit.MICROSECONDS);
+      simulators.put(netId(i), simulator);
+    }
+    connections = new AdsConnectionManager(netId -> new SimulatorTransport(simulators.get(netId), netId));
+    managers = new AdsManager[targets];
+    for(int i = 0; i < targets; i++)
+      managers[i] = connections.connect(netId(i), SimulatorTransport.SIMULATOR_ADS_PORT);
+    pool = Executors.newFixedThreadPool(targets);
+    futures = new Future<?>[targets];
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    pool.shutdownNow();
+    connections.close();
+    for(AdsSimulator simulator : simulators.values())
+      simulator.close();
+  }
+
+  @Benchmark
+  public void independent() throws Exception {
+    for(int i = 0; i < targets; i++) {
+      AdsManager manager = managers[i];
+      futures[i] = pool.submit(() -> manager.readBySymbol(SYMBOL, 4));
+    }
+    for(Future<?> future : futures)
+      future.get();
+  }
+
+  @Benchmark
+  public void serialized() throws Exception {
+    for(int i = 0; i < targets; i++) {
+      AdsManager manager = managers[i];
+      futures[i] = pool.submit(() -> {
+        synchronized(globalLock) {
+          return manager.readBySymbol(SYMBOL, 4);
+        }
+      });
+    }
+    for(Future<?> future : futures)
+      future.get();
+  }
+
+  private static String netId(int i) {
+    return "10.0." + (i / 256) + "." + (i % 256) + ".1.1";
+  }
+}
@@ -0,0 +1,146 @@
+package adsbench;
+
+import adscom.AdsManager;
+import adscom.PlcTypes;
+import adssim.AdsSimulator;
+import adssim.AmsTcpSimulatorServer;
+import adssim.SimulatorTransport;
+import adstransport.AdsTransport;
+import adstransport.AmsTcpTransport;
+import adstransport.JniAdsTransport;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* Cost of the binding itself: the same requests through FFM and JNI transports
+* to the stub ADS library (ffm/native/adsstub.c, built by ffm.sh) and through
+* pure Java transports to AdsSimulator - in process and over AMS/TCP loopback.
+* Both stand-ins answer from memory without latency.
+* "ffm" needs Java 22 or newer and out/adsffmmod (ffm.sh); "jni" needs TcJavaToAds
+* native library linked against the stub, i.e. the stub copied as TcAdsDll next to it.
+* Select available transports with e.g. "-p transport=ffm,java,tcp".
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--enable-native-access=ALL-UNNAMED"})
+@State(Scope.Thread)
+public class NativeTransportBenchmark {
+  private static final int SYMBOL_COUNT = 100;
+  private static final String BLOCK = "MAIN.block";
+
+  @Param({"ffm", "jni", "java", "tcp"})
+  public String transport;
+
+  @Param({"1024"})
+  public int blockSize;
+
+  @Param({"out/native"})
+  public String stubDir;
+
+  private AdsSimulator simulator;
+  private AmsTcpSimulatorServer server;
+  private AdsManager manager;
+  private long[] handles;
+  private long blockHandle;
+  private ByteBuffer heapBlock;
+  private ByteBuffer directBlock;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    simulator = new AdsSimulator();
+    for(int i = 0; i < SYMBOL_COUNT; i++)
+      simulator.addSymbol("MAIN.v" + i, PlcTypes.DINT_SIZE, "DINT");
+    simulator.addSymbol(BLOCK, blockSize, "ARRAY [1.." + blockSize + "] OF BYTE");
+
+    AdsTransport adsTransport;
+    switch(transport) {
+      case "ffm":
+        adsTransport = ffmTransport(Path.of(stubDir, System.mapLibraryName("adsstub")));
+        break;
+      case "jni":
+        adsTransport = new JniAdsTransport();
+        break;
+      case "java":
+        adsTransport = new SimulatorTransport(simulator);
+        break;
+      case "tcp":
+        server = new AmsTcpSimulatorServer(simulator, 0);
+        adsTransport = new AmsTcpTransport("127.0.0.1", server.getPort(), "1.2.3.4.1.1", "5.6.7.8.1.1",
+                                           AmsTcpTransport.DEFAULT_SOURCE_PORT);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown transport: " + transport);
+    }
+    manager = AdsManager.newInstance(adsTransport);
+    manager.openPort();
+
+    handles = new long[SYMBOL_COUNT];
+    for(int i = 0; i < SYMBOL_COUNT; i++)
+      handles[i] = manager.getHandle("MAIN.v" + i);
+    blockHandle = manager.getHandle(BLOCK);
+    heapBlock = ByteBuffer.allocate(blockSize);
+    directBlock = ByteBuffer.allocateDirect(blockSize);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    manager.closePort();
+    if(server != null) server.close();
+    simulator.close();
+  }
+
+  /**
+  * Method for creating FFM transport - bench is compiled without it, as it needs Java 22
+  * @return Transport loading the stub library
+  * @param library Path to the stub library
+  */
+  private static AdsTransport ffmTransport(Path library) throws Exception {
+    try {
+      return (AdsTransport)Class.forName("adsffm.FfmAdsTransport")
+        .getConstructor(Path.class, String.class).newInstance(library, null);
+    } catch(ClassNotFoundException e) {
+      throw new IllegalStateException("FFM transport not built - run ffm.sh with Java 22 or newer", e);
+    }
+  }
+
+  @Benchmark
+  public int readDInt() {
+    next = (next + 1) % SYMBOL_COUNT;
+    return manager.readDInt(handles[next]);
+  }
+
+  @Benchmark
+  public boolean writeDInt() {
+    next = (next + 1) % SYMBOL_COUNT;
+    return manager.writeDInt(handles[next], next);
+  }
+
+  @Benchmark
+  public int readBlockHeap() {
+    heapBlock.clear();
+    return manager.readByHandle(blockHandle, heapBlock);
+  }
+
+  @Benchmark
+  public int readBlockDirect() {
+    directBlock.clear();
+    return manager.readByHandle(blockHandle, directBlock);
+  }
+}
@@ -0,0 +1,90 @@
+package adsbench;
+
+import de.beckhoff.jni.tcads.AdsDevName;
+import de.beckhoff.jni.tcads.AdsState;
+import de.beckhoff.jni.tcads.AdsVersion;
+import adstransport.AdsTransport;
+import adstransport.NotificationSink;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+* Stand-in for JNI transport - every request blocks for the given latency inside a
+* monitor, which pins a virtual thread to its carrier (up to JDK 23) the same way
+* a native call does. Reads return zeros.
+*/
+public class PinningTransport implements AdsTransport {
+  private static final long ADSERR_DEVICE_SRVNOTSUPP = 0x701;
+  private final long latencyNanos;
+
+  /**
+  * Class constructor
+  * @param latencyNanos Duration of every request in nanoseconds
+  */
+  public PinningTransport(long latencyNanos) {
+    this.latencyNanos = latencyNanos;
+  }
+
+  private void block() {
+    Object nativeFrame = new Object();
+    synchronized(nativeFrame) {
+      LockSupport.parkNanos(latencyNanos);
+    }
+  }
+
+  @Override
+  public long open(int amsPort) { return 1;}
+
+  @Override
+  public long close() { return 0;}
+
+  @Override
+  public String getNetId() { return "127.0.0.1.1.1";}
+
+  @Override
+  public int getAmsPort() { return 851;}
+
+  @Override
+  public long read(long indexGroup, long indexOffset, ByteBuffer data) {
+    block();
+    data.position(data.limit());
+    return 0;
+  }
+
+  @Override
+  public long write(long indexGroup, long indexOffset, ByteBuffer data) {
+    block();
+    return 0;
+  }
+
+  @Override
+  public long readWrite(long indexGroup, long indexOffset, ByteBuffer readData, ByteBuffer writeData) {
+    block();
+    readData.position(readData.limit());
+    return 0;
+  }
+
+  @Override
+  public long readState(AdsState adsStateBuff, AdsState adsDevStateBuff) {
+    block();
+    return 0;
+  }
+
+  @Override
+  public long readDeviceInfo(AdsDevName devName, AdsVersion adsVersion) {
+    block();
+    return 0;
+  }
+
+  @Override
+  public long setTimeout(long adsTimeout) { return 0;}
+
+  @Override
+  public long addNotification(long indexGroup, long indexOffset, int length, int transMode,
+                              long maxDelay, long cycleTime, NotificationSink sink) {
+    return 0;
+  }
+
+  @Override
+  public long deleteNotification(long notificationHandle) { return ADSERR_DEVICE_SRVNOTSUPP;}
+}
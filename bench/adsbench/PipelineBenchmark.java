@@ -0,0 +1,96 @@
+package adsbench;
+
+import adssim.AdsSimulator;
+import adssim.AmsTcpSimulatorServer;
+import adssim.SimulatorTransport;
+import adstransport.AmsTcpTransport;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* Batch of reads over AMS/TCP with simulated link latency - one request at a time
+* versus all requests of the batch in flight.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PipelineBenchmark {
+  private static final int SYMBOL_SIZE = 4;
+
+  @Param({"200"})
+  public long latencyMicros;
+
+  @Param({"64"})
+  public int batch;
+
+  private AdsSimulator simulator;
+  private AmsTcpSimulatorServer server;
+  private AmsTcpTransport transport;
+  private long[] offsets;
+  private ByteBuffer[] buffers;
+  private CompletableFuture<?>[] futures;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    simulator = new AdsSimulator();
+    offsets = new long[batch];
+    buffers = new ByteBuffer[batch];
+    futures = new CompletableFuture<?>[batch];
+    for(int i = 0; i < batch; i++) {
+      simulator.addSymbol("MAIN.v" + i, SYMBOL_SIZE, "DINT");
+      offsets[i] = simulator.getIndexOffset("MAIN.v" + i);
+      buffers[i] = ByteBuffer.allocate(SYMBOL_SIZE);
+    }
+    simulator.setLatency(latencyMicros, TimeUnit.MICROSECONDS);
+
+    server = new AmsTcpSimulatorServer(simulator, 0);
+    transport = new AmsTcpTransport("127.0.0.1", server.getPort(), "1.2.3.4.1.1", "5.6.7.8.1.1",
+                                    AmsTcpTransport.DEFAULT_SOURCE_PORT);
+    transport.open(SimulatorTransport.SIMULATOR_ADS_PORT);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    transport.close();
+    server.close();
+    simulator.close();
+  }
+
+  @Benchmark
+  public long sequential() {
+    long errors = 0;
+    for(int i = 0; i < batch; i++) {
+      buffers[i].clear();
+      errors += transport.read(AdsSimulator.ADSIGRP_PLC_MEMORY, offsets[i], buffers[i]);
+    }
+    return errors;
+  }
+
+  @Benchmark
+  public long pipelined() {
+    for(int i = 0; i < batch; i++) {
+      buffers[i].clear();
+      futures[i] = transport.readAsync(AdsSimulator.ADSIGRP_PLC_MEMORY, offsets[i], buffers[i]);
+    }
+    CompletableFuture.allOf(futures).join();
+    return buffers[batch - 1].position();
+  }
+}
@@ -0,0 +1,62 @@
+package adsbench;
+
+import adscom.AdsManager;
+import adssim.AdsSimulator;
+import adssim.SimulatorTransport;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+* Simulated PLC with AdsManager connected through in-process transport.
+* Symbols are named "MAIN.v0" .. "MAIN.v{n-1}", 4 bytes each.
+*/
+@State(Scope.Benchmark)
+public class PlcState {
+  public static final int SYMBOL_SIZE = 4;
+
+  @Param({"1000"})
+  public int symbolCount;
+
+  @Param({"0"})
+  public long latencyMicros;
+
+  public AdsSimulator simulator;
+  public SimulatorTransport transport;
+  public AdsManager manager;
+  public String[] names;
+  public long[] handles;
+  public int[] sizes;
+  public byte[] value = {1, 2, 3, 4};
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    simulator = new AdsSimulator();
+    names = new String[symbolCount];
+    for(int i = 0; i < symbolCount; i++) {
+      names[i] = "MAIN.v" + i;
+      simulator.addSymbol(names[i], SYMBOL_SIZE, "DINT");
+    }
+    simulator.setLatency(latencyMicros, TimeUnit.MICROSECONDS);
+
+    transport = new SimulatorTransport(simulator);
+    manager = AdsManager.newInstance(transport);
+    manager.openPort();
+    handles = new long[symbolCount];
+    sizes = new int[symbolCount];
+    for(int i = 0; i < symbolCount; i++) {
+      handles[i] = manager.getHandle(names[i]);
+      sizes[i] = SYMBOL_SIZE;
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    manager.closePort();
+    simulator.close();
+  }
+}
@@ -0,0 +1,87 @@
+package adsbench;
+
+import adstransport.AdsTransport;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* Index group/offset access vs handle access of the same symbols: single reads,
+* sum reads of BATCH symbols and one read of the area all of them occupy in PLC memory.
+* Raw reads need no handle round trip when first touching a symbol - compare
+* "-p latencyMicros=0,100" to see what coalescing neighbours into one area read saves.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RawAccessBenchmark {
+  private static final int BATCH = 100;
+
+  private final ByteBuffer direct = ByteBuffer.allocateDirect(PlcState.SYMBOL_SIZE);
+  private final ByteBuffer area = ByteBuffer.allocateDirect(BATCH * PlcState.SYMBOL_SIZE);
+  private long[] offsets;
+  private long[] groups;
+  private long[] batchOffsets;
+  private long[] batchHandles;
+  private int[] batchSizes;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp(PlcState plc) {
+    offsets = new long[plc.symbolCount];
+    for(int i = 0; i < plc.symbolCount; i++)
+      offsets[i] = plc.simulator.getIndexOffset(plc.names[i]);
+    groups = new long[BATCH];
+    Arrays.fill(groups, AdsTransport.ADSIGRP_PLC_MEMORY);
+    batchOffsets = Arrays.copyOf(offsets, BATCH);
+    batchHandles = Arrays.copyOf(plc.handles, BATCH);
+    batchSizes = Arrays.copyOf(plc.sizes, BATCH);
+  }
+
+  private int nextIndex(PlcState plc) {
+    next = (next + 1) % plc.symbolCount;
+    return next;
+  }
+
+  @Benchmark
+  public int readByHandle(PlcState plc) {
+    direct.clear();
+    return plc.manager.readByHandle(plc.handles[nextIndex(plc)], direct);
+  }
+
+  @Benchmark
+  public int readRaw(PlcState plc) {
+    direct.clear();
+    return plc.manager.read(AdsTransport.ADSIGRP_PLC_MEMORY, offsets[nextIndex(plc)], direct);
+  }
+
+  @Benchmark
+  public Object readManyByHandle(PlcState plc) {
+    return plc.manager.readMany(batchHandles, batchSizes);
+  }
+
+  @Benchmark
+  public Object readManyRaw(PlcState plc) {
+    return plc.manager.readMany(groups, batchOffsets, batchSizes);
+  }
+
+  @Benchmark
+  public int readArea(PlcState plc) {
+    area.clear();
+    return plc.manager.read(AdsTransport.ADSIGRP_PLC_MEMORY, offsets[0], area);
+  }
+}
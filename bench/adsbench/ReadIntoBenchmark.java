@@ -0,0 +1,70 @@
+package adsbench;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* Allocation of reads returning new array vs reads into caller's buffer.
+* Run with "-prof gc" - gc.alloc.rate.norm is allocated bytes per read, expected
+* to be about 0 for every "into" benchmark after warm-up.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ReadIntoBenchmark {
+  private final ByteBuffer heap = ByteBuffer.allocate(PlcState.SYMBOL_SIZE);
+  private final ByteBuffer direct = ByteBuffer.allocateDirect(PlcState.SYMBOL_SIZE);
+  private final byte[] array = new byte[4 * PlcState.SYMBOL_SIZE];
+  private int next;
+
+  private int nextIndex(PlcState plc) {
+    next = (next + 1) % plc.symbolCount;
+    return next;
+  }
+
+  @Benchmark
+  public byte[] readByHandle(PlcState plc) {
+    return plc.manager.readByHandle(plc.handles[nextIndex(plc)], PlcState.SYMBOL_SIZE);
+  }
+
+  @Benchmark
+  public int readByHandleIntoHeap(PlcState plc) {
+    heap.clear();
+    return plc.manager.readByHandle(plc.handles[nextIndex(plc)], heap);
+  }
+
+  @Benchmark
+  public int readByHandleIntoDirect(PlcState plc) {
+    direct.clear();
+    return plc.manager.readByHandle(plc.handles[nextIndex(plc)], direct);
+  }
+
+  @Benchmark
+  public int readByHandleIntoArray(PlcState plc) {
+    int i = nextIndex(plc);
+    return plc.manager.readByHandle(plc.handles[i], array, (i % 4) * PlcState.SYMBOL_SIZE, PlcState.SYMBOL_SIZE);
+  }
+
+  @Benchmark
+  public byte[] readBySymbol(PlcState plc) {
+    return plc.manager.readBySymbol(plc.names[nextIndex(plc)], PlcState.SYMBOL_SIZE);
+  }
+
+  @Benchmark
+  public int readBySymbolIntoDirect(PlcState plc) {
+    direct.clear();
+    return plc.manager.readBySymbol(plc.names[nextIndex(plc)], direct);
+  }
+}
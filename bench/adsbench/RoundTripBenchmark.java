@@ -0,0 +1,68 @@
+package adsbench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* ADS round trips per symbol read. "uncached" drops the cached handle before
+* every read, which is how readBySymbol worked before the handle cache
+* (get handle, read, release handle).
+*/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RoundTripBenchmark {
+  /**
+  * Reported as rates next to the primary result - roundTrips / reads
+  * gives round trips per read
+  */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Counters {
+    public long reads;
+    public long roundTrips;
+
+    @Setup(Level.Iteration)
+    public void clean() {
+      reads = 0;
+      roundTrips = 0;
+    }
+  }
+
+  private int next;
+
+  @Benchmark
+  public byte[] readBySymbolCached(PlcState plc, Counters counters) {
+    next = (next + 1) % plc.symbolCount;
+    long before = plc.transport.getRoundTrips();
+    byte[] value = plc.manager.readBySymbol(plc.names[next], PlcState.SYMBOL_SIZE);
+    counters.roundTrips += plc.transport.getRoundTrips() - before;
+    counters.reads++;
+    return value;
+  }
+
+  @Benchmark
+  public byte[] readBySymbolUncached(PlcState plc, Counters counters) {
+    next = (next + 1) % plc.symbolCount;
+    long before = plc.transport.getRoundTrips();
+    plc.manager.invalidateHandle(plc.names[next]);
+    byte[] value = plc.manager.readBySymbol(plc.names[next], PlcState.SYMBOL_SIZE);
+    counters.roundTrips += plc.transport.getRoundTrips() - before;
+    counters.reads++;
+    return value;
+  }
+}
@@ -0,0 +1,99 @@
+package adsbench;
+
+import adscom.AdsManager;
+import adssim.AdsSimulator;
+import adssim.SimulatorTransport;
+import adstransport.SingleOwnerTransport;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* Many threads reading through one ADS port. "locked" holds a monitor around
+* every request, which is how threads share a single port without an owner;
+* "singleOwner" queues requests to SingleOwnerTransport, which sends queued
+* reads as sum reads. Sample time mode reports p99/p99.9 latency.
+*/
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(32)
+public class SingleOwnerBenchmark {
+  private static final int SYMBOL_COUNT = 1000;
+  private static final int SYMBOL_SIZE = 4;
+
+  @State(Scope.Benchmark)
+  public static class Port {
+    @Param({"100"})
+    public long latencyMicros;
+
+    public final Object portLock = new Object();
+    public AdsSimulator simulator;
+    public AdsManager locked;
+    public AdsManager singleOwner;
+    public long[] lockedHandles = new long[SYMBOL_COUNT];
+    public long[] ownerHandles = new long[SYMBOL_COUNT];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      simulator = new AdsSimulator();
+      for(int i = 0; i < SYMBOL_COUNT; i++)
+        simulator.addSymbol("MAIN.v" + i, SYMBOL_SIZE, "DINT");
+      simulator.setLatency(latencyMicros, TimeUnit.MICROSECONDS);
+
+      locked = AdsManager.newInstance(new SimulatorTransport(simulator));
+      locked.openPort();
+      singleOwner = AdsManager.newInstance(new SingleOwnerTransport(new SimulatorTransport(simulator)));
+      singleOwner.openPort();
+      for(int i = 0; i < SYMBOL_COUNT; i++) {
+        lockedHandles[i] = locked.getHandle("MAIN.v" + i);
+        ownerHandles[i] = singleOwner.getHandle("MAIN.v" + i);
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      locked.closePort();
+      singleOwner.closePort();
+      simulator.close();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    public int next = (int)(Thread.currentThread().getId() % SYMBOL_COUNT);
+
+    public int next() {
+      next = (next + 1) % SYMBOL_COUNT;
+      return next;
+    }
+  }
+
+  @Benchmark
+  public byte[] locked(Port port, Cursor cursor) {
+    int i = cursor.next();
+    synchronized(port.portLock) {
+      return port.locked.readByHandle(port.lockedHandles[i], SYMBOL_SIZE);
+    }
+  }
+
+  @Benchmark
+  public byte[] singleOwner(Port port, Cursor cursor) {
+    int i = cursor.next();
+    return port.singleOwner.readByHandle(port.ownerHandles[i], SYMBOL_SIZE);
+  }
+}
@@ -0,0 +1,125 @@
+package adsbench;
+
+import adscom.AdsManager;
+import adscom.DataType;
+import adscom.DataTypeTable;
+import adscom.PlcTypes;
+import adscom.StructCodec;
+import adssim.AdsSimulator;
+import adssim.SimulatorTransport;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* Decoding of a structure with fieldCount fields (BOOL, INT, DINT, REAL and LREAL
+* in turn) by compiled StructCodec vs decoding by hand the way consumers did,
+* finding every field in the uploaded type description by name on every read.
+* "decode" benchmarks measure conversion of the same bytes alone, "read" a whole
+* read from the simulator. Run with "-prof gc" to get allocation rate.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StructCodecBenchmark {
+  private static final String TYPE = "ST_Large";
+  private static final String SYMBOL = "MAIN.stLarge";
+  private static final String[] FIELD_TYPES = {"BOOL", "INT", "DINT", "REAL", "LREAL"};
+
+  @Param({"200"})
+  public int fieldCount;
+
+  private AdsSimulator simulator;
+  private AdsManager manager;
+  private DataType type;
+  private StructCodec codec;
+  private String[] fieldNames;
+  private byte[] data;
+  private Object[] values;
+  private int[] lrealFields;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    simulator = new AdsSimulator();
+    String[] fields = new String[fieldCount];
+    fieldNames = new String[fieldCount];
+    for(int i = 0; i < fieldCount; i++) {
+      fieldNames[i] = "field" + i;
+      fields[i] = fieldNames[i] + " : " + FIELD_TYPES[i % FIELD_TYPES.length];
+    }
+    simulator.addStructType(TYPE, fields);
+    simulator.addSymbol(SYMBOL, TYPE);
+
+    manager = AdsManager.newInstance(new SimulatorTransport(simulator));
+    manager.openPort();
+    DataTypeTable types = manager.uploadDataTypes();
+    type = types.get(TYPE);
+    codec = types.getCodec(TYPE);
+    values = new Object[codec.getFieldCount()];
+
+    data = new byte[codec.getSize()];
+    for(int i = 0; i < data.length; i++)
+      data[i] = (byte)(i * 31);
+    simulator.setValue(SYMBOL, data);
+
+    lrealFields = new int[fieldCount / FIELD_TYPES.length];
+    for(int i = 0; i < lrealFields.length; i++)
+      lrealFields[i] = codec.fieldIndex("field" + (i * FIELD_TYPES.length + 4));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    manager.closePort();
+    simulator.close();
+  }
+
+  @Benchmark
+  public Object[] decodeCodec() {
+    codec.decode(data, 0, values);
+    return values;
+  }
+
+  @Benchmark
+  public Object[] decodeByLookup() {
+    Object[] decoded = new Object[fieldNames.length];
+    for(int i = 0; i < fieldNames.length; i++) {
+      DataType field = type.getField(fieldNames[i]);
+      int offset = field.getOffset();
+      switch(field.getType()) {
+        case "BOOL": decoded[i] = PlcTypes.getBool(data, offset); break;
+        case "INT": decoded[i] = PlcTypes.getInt(data, offset); break;
+        case "DINT": decoded[i] = PlcTypes.getDInt(data, offset); break;
+        case "REAL": decoded[i] = PlcTypes.getReal(data, offset); break;
+        default: decoded[i] = PlcTypes.getLReal(data, offset); break;
+      }
+    }
+    return decoded;
+  }
+
+  @Benchmark
+  public double sumLRealsByOffset() {
+    double sum = 0;
+    for(int field : lrealFields)
+      sum += PlcTypes.getLReal(data, codec.getFieldOffset(field));
+    return sum;
+  }
+
+  @Benchmark
+  public Object[] readStruct() {
+    return manager.readStruct(SYMBOL, codec);
+  }
+}
@@ -0,0 +1,171 @@
+package adsbench;
+
+import adscom.AdsManager;
+import adscom.PlcField;
+import adscom.PlcTypes;
+import adscom.StructCodec;
+import adscom.StructMapper;
+import adssim.AdsSimulator;
+import adssim.SimulatorTransport;
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* Decoding and encoding of an axis status structure (16 fields) through StructMapper,
+* into a record and into a class, vs hand-written code with constant offsets and
+* vs StructCodec values. "decode"/"encode" benchmarks measure conversion of the same
+* bytes alone, "read" a whole read from the simulator.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StructMapperBenchmark {
+  private static final String TYPE = "ST_AxisStatus";
+  private static final String SYMBOL = "MAIN.stAxisStatus";
+
+  public record AxisStatus(boolean bEnabled, boolean bHomed, boolean bError, short nState, int nErrorId,
+                           double fActPos, double fSetPos, double fActVelo, double fSetVelo, double fActTorque,
+                           float fTemperature, int nCycles, long nTotalSteps, short nMode,
+                           @PlcField("fLagError") double lagError, float fOverride) {}
+
+  public static class AxisStatusBean {
+    boolean bEnabled;
+    boolean bHomed;
+    boolean bError;
+    short nState;
+    int nErrorId;
+    double fActPos;
+    double fSetPos;
+    double fActVelo;
+    double fSetVelo;
+    double fActTorque;
+    float fTemperature;
+    int nCycles;
+    long nTotalSteps;
+    short nMode;
+    double fLagError;
+    float fOverride;
+  }
+
+  private AdsSimulator simulator;
+  private AdsManager manager;
+  private StructCodec codec;
+  private StructMapper<AxisStatus> recordMapper;
+  private StructMapper<AxisStatusBean> classMapper;
+  private int[] offsets;
+  private byte[] data;
+  private byte[] out;
+  private Object[] values;
+  private AxisStatus status;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    simulator = new AdsSimulator();
+    simulator.addStructType(TYPE, "bEnabled : BOOL", "bHomed : BOOL", "bError : BOOL", "nState : INT",
+                            "nErrorId : UDINT", "fActPos : LREAL", "fSetPos : LREAL", "fActVelo : LREAL",
+                            "fSetVelo : LREAL", "fActTorque : LREAL", "fTemperature : REAL", "nCycles : DINT",
+                            "nTotalSteps : LINT", "nMode : INT", "fLagError : LREAL", "fOverride : REAL");
+    simulator.addSymbol(SYMBOL, TYPE);
+
+    manager = AdsManager.newInstance(new SimulatorTransport(simulator));
+    manager.openPort();
+    codec = manager.uploadDataTypes().getCodec(TYPE);
+    recordMapper = StructMapper.of(MethodHandles.lookup(), AxisStatus.class, codec);
+    classMapper = StructMapper.of(MethodHandles.lookup(), AxisStatusBean.class, codec);
+    offsets = new int[codec.getFieldCount()];
+    for(int i = 0; i < offsets.length; i++)
+      offsets[i] = codec.getFieldOffset(i);
+
+    data = new byte[codec.getSize()];
+    for(int i = 0; i < data.length; i++)
+      data[i] = (byte)(i * 31);
+    simulator.setValue(SYMBOL, data);
+    out = new byte[codec.getSize()];
+    values = new Object[codec.getFieldCount()];
+    status = recordMapper.decode(data, 0);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    manager.closePort();
+    simulator.close();
+  }
+
+  @Benchmark
+  public AxisStatus decodeHandWritten() {
+    byte[] d = data;
+    int[] o = offsets;
+    return new AxisStatus(PlcTypes.getBool(d, o[0]), PlcTypes.getBool(d, o[1]), PlcTypes.getBool(d, o[2]),
+                          PlcTypes.getInt(d, o[3]), PlcTypes.getDInt(d, o[4]), PlcTypes.getLReal(d, o[5]),
+                          PlcTypes.getLReal(d, o[6]), PlcTypes.getLReal(d, o[7]), PlcTypes.getLReal(d, o[8]),
+                          PlcTypes.getLReal(d, o[9]), PlcTypes.getReal(d, o[10]), PlcTypes.getDInt(d, o[11]),
+                          PlcTypes.getLInt(d, o[12]), PlcTypes.getInt(d, o[13]), PlcTypes.getLReal(d, o[14]),
+                          PlcTypes.getReal(d, o[15]));
+  }
+
+  @Benchmark
+  public AxisStatus decodeRecord() {
+    return recordMapper.decode(data, 0);
+  }
+
+  @Benchmark
+  public AxisStatusBean decodeClass() {
+    return classMapper.decode(data, 0);
+  }
+
+  @Benchmark
+  public Object[] decodeCodec() {
+    codec.decode(data, 0, values);
+    return values;
+  }
+
+  @Benchmark
+  public byte[] encodeHandWritten() {
+    byte[] d = out;
+    int[] o = offsets;
+    AxisStatus s = status;
+    PlcTypes.putBool(d, o[0], s.bEnabled());
+    PlcTypes.putBool(d, o[1], s.bHomed());
+    PlcTypes.putBool(d, o[2], s.bError());
+    PlcTypes.putInt(d, o[3], s.nState());
+    PlcTypes.putDInt(d, o[4], s.nErrorId());
+    PlcTypes.putLReal(d, o[5], s.fActPos());
+    PlcTypes.putLReal(d, o[6], s.fSetPos());
+    PlcTypes.putLReal(d, o[7], s.fActVelo());
+    PlcTypes.putLReal(d, o[8], s.fSetVelo());
+    PlcTypes.putLReal(d, o[9], s.fActTorque());
+    PlcTypes.putReal(d, o[10], s.fTemperature());
+    PlcTypes.putDInt(d, o[11], s.nCycles());
+    PlcTypes.putLInt(d, o[12], s.nTotalSteps());
+    PlcTypes.putInt(d, o[13], s.nMode());
+    PlcTypes.putLReal(d, o[14], s.lagError());
+    PlcTypes.putReal(d, o[15], s.fOverride());
+    return d;
+  }
+
+  @Benchmark
+  public byte[] encodeRecord() {
+    recordMapper.encode(status, out, 0);
+    return out;
+  }
+
+  @Benchmark
+  public AxisStatus readRecord() {
+    return manager.readStruct(SYMBOL, recordMapper);
+  }
+}
@@ -0,0 +1,76 @@
+package adsbench;
+
+import adscom.PlcTypes;
+import adscom.SumResult;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+* Sustained mixed load - typed reads and writes, array read, handle request and
+* release and sum read - from several threads, with transfer buffer pooling on
+* and off. Run with "-prof gc": gc.alloc.rate.norm is allocated bytes per cycle,
+* gc.count and gc.time the collections and time spent in them.
+*/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx256m"})
+@Threads(4)
+public class SustainedLoadBenchmark {
+  private static final String ARRAY = "MAIN.lrealArray";
+  private static final int ARRAY_LENGTH = 100;
+  private static final int MANY = 50;
+
+  @State(Scope.Benchmark)
+  public static class Load {
+    @Param({"true", "false"})
+    public boolean pooling;
+
+    public long arrayHandle;
+    public long[] manyHandles = new long[MANY];
+    public int[] manySizes = new int[MANY];
+
+    @Setup(Level.Trial)
+    public void setUp(PlcState plc) {
+      plc.manager.setBufferPooling(pooling);
+      plc.simulator.addSymbol(ARRAY, ARRAY_LENGTH * PlcTypes.LREAL_SIZE, "ARRAY OF LREAL");
+      arrayHandle = plc.manager.getHandle(ARRAY);
+      System.arraycopy(plc.handles, 0, manyHandles, 0, MANY);
+      Arrays.fill(manySizes, PlcState.SYMBOL_SIZE);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    public int next = (int)(Thread.currentThread().getId() % 1000);
+  }
+
+  @Benchmark
+  public void mixedCycle(PlcState plc, Load load, Cursor cursor, Blackhole bh) {
+    cursor.next = (cursor.next + 1) % plc.symbolCount;
+    long handle = plc.handles[cursor.next];
+
+    bh.consume(plc.manager.readDInt(handle));
+    bh.consume(plc.manager.writeDInt(handle, cursor.next));
+    bh.consume(plc.manager.readReal(plc.names[cursor.next]));
+    bh.consume(plc.manager.readLRealArray(load.arrayHandle, ARRAY_LENGTH));
+    bh.consume(plc.manager.releaseHandle(plc.manager.getHandle(plc.names[cursor.next])));
+    SumResult many = plc.manager.readMany(load.manyHandles, load.manySizes);
+    bh.consume(many);
+  }
+}
@@ -0,0 +1,97 @@
+package adsbench;
+
+import adscom.AdsManager;
+import adscom.SymbolTable;
+import adssim.AdsSimulator;
+import adssim.SimulatorTransport;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* Uploaded symbol table with a large PLC program (200k symbols): upload and index
+* build, name lookup, and symbol reads going to index group/offset vs through
+* the handle cache. Symbols are visited in scattered order, so with more symbols
+* than handle cache entries most handle reads request and release a handle.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx1g"})
+@State(Scope.Thread)
+public class SymbolTableBenchmark {
+  private static final int STRIDE = 7919; //Prime - scattered visiting order
+
+  @Param({"200000"})
+  public int symbolCount;
+
+  private AdsSimulator simulator;
+  private AdsManager byHandle;
+  private AdsManager byTable;
+  private SymbolTable table;
+  private String[] names;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    simulator = new AdsSimulator();
+    names = new String[symbolCount];
+    for(int i = 0; i < symbolCount; i++) {
+      names[i] = "MAIN.fbAxis" + (i / 100) + ".stStatus.nValue" + i;
+      simulator.addSymbol(names[i], 4, (i % 2 == 0) ? "DINT" : "ST_Status");
+    }
+    byHandle = AdsManager.newInstance(new SimulatorTransport(simulator));
+    byHandle.openPort();
+    byTable = AdsManager.newInstance(new SimulatorTransport(simulator));
+    byTable.openPort();
+    table = byTable.uploadSymbols();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    byHandle.closePort();
+    byTable.closePort();
+    simulator.close();
+  }
+
+  private String nextName() {
+    next = (next + STRIDE) % symbolCount;
+    return names[next];
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 3)
+  @Measurement(iterations = 5)
+  public SymbolTable upload() {
+    return byTable.uploadSymbols();
+  }
+
+  @Benchmark
+  public int lookup() {
+    return table.indexOf(nextName());
+  }
+
+  @Benchmark
+  public int readBySymbolHandle() {
+    return byHandle.readDInt(nextName());
+  }
+
+  @Benchmark
+  public int readBySymbolTable() {
+    return byTable.readDInt(nextName());
+  }
+}
@@ -0,0 +1,100 @@
+package adsbench;
+
+import adscom.PlcTypes;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* Typed accessors (PlcTypes decoding) vs reading byte[] and converting
+* through ByteBuffer. "decode" benchmarks measure conversion alone, the others
+* a whole read from the simulator. Run with "-prof gc" to get allocation rate.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TypedReadBenchmark {
+  private static final String ARRAY = "MAIN.lrealArray";
+
+  @Param({"100"})
+  public int arrayLength;
+
+  private byte[] arrayData;
+  private long arrayHandle;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp(PlcState plc) {
+    plc.simulator.addSymbol(ARRAY, arrayLength * PlcTypes.LREAL_SIZE, "ARRAY OF LREAL");
+    arrayHandle = plc.manager.getHandle(ARRAY);
+    arrayData = new byte[arrayLength * PlcTypes.LREAL_SIZE];
+    for(int i = 0; i < arrayLength; i++)
+      PlcTypes.putLReal(arrayData, i * PlcTypes.LREAL_SIZE, i * 0.5);
+  }
+
+  private int nextIndex(PlcState plc) {
+    next = (next + 1) % plc.symbolCount;
+    return next;
+  }
+
+  @Benchmark
+  public int decodeDIntByteBuffer(PlcState plc) {
+    return ByteBuffer.wrap(plc.value).order(ByteOrder.LITTLE_ENDIAN).getInt();
+  }
+
+  @Benchmark
+  public int decodeDIntPlcTypes(PlcState plc) {
+    return PlcTypes.getDInt(plc.value, 0);
+  }
+
+  @Benchmark
+  public double[] decodeLRealArrayByteBuffer() {
+    double[] values = new double[arrayLength];
+    ByteBuffer.wrap(arrayData).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(values);
+    return values;
+  }
+
+  @Benchmark
+  public double[] decodeLRealArrayPlcTypes() {
+    return PlcTypes.getLReals(arrayData, 0, arrayLength);
+  }
+
+  @Benchmark
+  public int readDIntByteBuffer(PlcState plc) {
+    byte[] data = plc.manager.readByHandle(plc.handles[nextIndex(plc)], PlcTypes.DINT_SIZE);
+    return ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN).getInt();
+  }
+
+  @Benchmark
+  public int readDInt(PlcState plc) {
+    return plc.manager.readDInt(plc.handles[nextIndex(plc)]);
+  }
+
+  @Benchmark
+  public double[] readLRealArrayByteBuffer(PlcState plc) {
+    byte[] data = plc.manager.readByHandle(arrayHandle, arrayLength * PlcTypes.LREAL_SIZE);
+    double[] values = new double[arrayLength];
+    ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(values);
+    return values;
+  }
+
+  @Benchmark
+  public double[] readLRealArray(PlcState plc) {
+    return plc.manager.readLRealArray(arrayHandle, arrayLength);
+  }
+}
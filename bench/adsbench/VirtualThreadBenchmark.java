@@ -0,0 +1,147 @@
+package adsbench;
+
+import adscom.AdsManager;
+import adstransport.HandoffTransport;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* 10k virtual threads reading through a transport which pins the carrier (JNI stand-in),
+* called directly or handed off to HandoffTransport I/O threads.
+* "reads" measures all reads, "probe" measures 1000 unrelated virtual thread tasks
+* started while the reads are in flight, i.e. whether carriers stay available.
+* Reads go through pooled transfer buffers, "poolHits" and "poolMisses" show how many
+* of them every virtual thread found in the pool.
+* Needs Java 21 or newer.
+*/
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VirtualThreadBenchmark {
+  private static final int PROBE_TASKS = 1000;
+
+  /**
+  * Transfer buffer pool counters of reads, reported next to the primary result
+  */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class PoolCounters {
+    public long poolHits;
+    public long poolMisses;
+
+    @Setup(Level.Iteration)
+    public void clean() {
+      poolHits = 0;
+      poolMisses = 0;
+    }
+
+    void add(Map<String, Long> before, Map<String, Long> after) {
+      poolHits += after.get("hits") - before.get("hits");
+      poolMisses += after.get("misses") - before.get("misses");
+    }
+  }
+
+  @Param({"10000"})
+  public int virtualThreads;
+
+  @Param({"1000"})
+  public long latencyMicros;
+
+  @Param({"64"})
+  public int ioThreads;
+
+  private ExecutorService virtual;
+  private AdsManager direct;
+  private AdsManager handoff;
+  private Future<?>[] reads;
+  private Future<?>[] probes;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    try {
+      virtual = (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch(NoSuchMethodException e) {
+      throw new IllegalStateException("Virtual threads need Java 21 or newer", e);
+    }
+    long latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+    direct = AdsManager.newInstance(new PinningTransport(latencyNanos));
+    direct.openPort();
+    handoff = AdsManager.newInstance(new HandoffTransport(new PinningTransport(latencyNanos), ioThreads));
+    handoff.openPort();
+    reads = new Future<?>[virtualThreads];
+    probes = new Future<?>[PROBE_TASKS];
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    virtual.shutdownNow();
+    direct.closePort();
+    handoff.closePort();
+  }
+
+  @TearDown(Level.Invocation)
+  public void awaitReads() throws Exception {
+    for(Future<?> read : reads)
+      if(read != null) read.get();
+  }
+
+  @Benchmark
+  public void readsPinned(PoolCounters counters) throws Exception {
+    Map<String, Long> before = direct.getBufferPoolStats();
+    startReads(direct);
+    awaitReads();
+    counters.add(before, direct.getBufferPoolStats());
+  }
+
+  @Benchmark
+  public void readsHandoff(PoolCounters counters) throws Exception {
+    Map<String, Long> before = handoff.getBufferPoolStats();
+    startReads(handoff);
+    awaitReads();
+    counters.add(before, handoff.getBufferPoolStats());
+  }
+
+  @Benchmark
+  public void probePinned() throws Exception {
+    startReads(direct);
+    probe();
+  }
+
+  @Benchmark
+  public void probeHandoff() throws Exception {
+    startReads(handoff);
+    probe();
+  }
+
+  private void startReads(AdsManager manager) {
+    for(int i = 0; i < virtualThreads; i++)
+      reads[i] = virtual.submit(() -> manager.readDInt(1));
+  }
+
+  private void probe() throws Exception {
+    for(int i = 0; i < PROBE_TASKS; i++)
+      probes[i] = virtual.submit(() -> Thread.yield());
+    for(Future<?> probe : probes)
+      probe.get();
+  }
+}
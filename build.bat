@@ -1,4 +1,5 @@
 //@ECHO OFF
+//Modules of src are compiled into out\<module>, e.g. out\adscommod and out\adssimmod
 dir /B /S src\*.java > src.txt
-javac -d out\adscommod -p lib\TcJavaToAds.jar @src.txt
+javac -d out -p lib\TcJavaToAds.jar --module-source-path src @src.txt
 pause
@@ -0,0 +1,10 @@
+//@ECHO OFF
+//FFM transport (needs Java 22 or newer) and stub ADS library for testing native transports without TwinCAT
+//Stub library is built into out\native - needs gcc (e.g. MinGW-w64)
+dir /B /S src\*.java > src.txt
+javac -d out -p lib\TcJavaToAds.jar --module-source-path src @src.txt
+dir /B /S ffm\src\*.java > ffm.txt
+javac -d out -p out;lib\TcJavaToAds.jar --module-source-path ffm\src @ffm.txt
+mkdir out\native
+gcc -O2 -shared -o out\native\adsstub.dll ffm\native\adsstub.c
+pause
@@ -0,0 +1,9 @@
+#!/bin/sh
+#FFM transport (needs Java 22 or newer) and stub ADS library for testing native transports without TwinCAT
+#Stub library is built into out/native - needs C compiler (cc)
+set -e
+cd "$(dirname "$0")"
+javac -d out -p lib/TcJavaToAds.jar --module-source-path src $(find src -name '*.java')
+javac -d out -p out:lib/TcJavaToAds.jar --module-source-path ffm/src $(find ffm/src -name '*.java')
+mkdir -p out/native
+cc -O2 -shared -fPIC -o out/native/libadsstub.so ffm/native/adsstub.c -lpthread
@@ -0,0 +1,127 @@
+package adsbench;
+
+import adscom.AdsManager;
+import adsffm.AdsSegments;
+import adsffm.FfmAdsTransport;
+import adssim.AdsSimulator;
+import adssim.AmsTcpSimulatorServer;
+import adssim.SimulatorTransport;
+import adstransport.AdsTransport;
+import adstransport.AmsTcpTransport;
+import adstransport.JniAdsTransport;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* Large PLC array (64 MB LREAL trace buffer by default) read and written as byte[]
+* vs through AdsSegments into an off-heap segment. Run with "-prof gc":
+* gc.alloc.rate.norm is heap allocated per transfer, i.e. the heap footprint of the copy.
+* Transports: "java" - AdsSimulator in process, "tcp" - AdsSimulator over AMS/TCP loopback
+* (maximum frame size raised to the array), "ffm" and "jni" - the stub ADS library
+* (ffm/native/adsstub.c, built by ffm.sh). "jni" needs TcJavaToAds native library linked
+* against the stub, i.e. the stub copied as TcAdsDll next to it; its reads allocate the
+* array even into a segment. Select transports with e.g. "-p transport=java,jni".
+* Needs Java 22 or newer, compiled only when ffm.sh built out/adsffmmod.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx512m", "--enable-native-access=ALL-UNNAMED"})
+@State(Scope.Benchmark)
+public class SegmentReadBenchmark {
+  private static final String TRACE = "MAIN.trace";
+
+  @Param({"java", "tcp", "ffm", "jni"})
+  public String transport;
+
+  @Param({"67108864"})
+  public int arraySize;
+
+  @Param({"out/native"})
+  public String stubDir;
+
+  private AdsSimulator simulator;
+  private AmsTcpSimulatorServer server;
+  private AdsManager manager;
+  private long handle;
+  private Arena arena;
+  private MemorySegment segment;
+  private byte[] array;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    simulator = new AdsSimulator();
+    simulator.addSymbol(TRACE, arraySize, "ARRAY [1.." + (arraySize / 8) + "] OF LREAL");
+    AdsTransport adsTransport;
+    switch(transport) {
+      case "java":
+        adsTransport = new SimulatorTransport(simulator);
+        break;
+      case "tcp":
+        server = new AmsTcpSimulatorServer(simulator, 0);
+        AmsTcpTransport tcpTransport = new AmsTcpTransport("127.0.0.1", server.getPort(), "1.2.3.4.1.1", "5.6.7.8.1.1",
+                                                           AmsTcpTransport.DEFAULT_SOURCE_PORT);
+        tcpTransport.setMaxFrameSize(arraySize + 1024);
+        adsTransport = tcpTransport;
+        break;
+      case "ffm":
+        adsTransport = new FfmAdsTransport(Path.of(stubDir, System.mapLibraryName("adsstub")), null);
+        break;
+      case "jni":
+        adsTransport = new JniAdsTransport();
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown transport: " + transport);
+    }
+    manager = AdsManager.newInstance(adsTransport);
+    manager.openPort();
+    handle = manager.getHandle(TRACE);
+    arena = Arena.ofShared();
+    segment = arena.allocate(arraySize, 8);
+    array = new byte[arraySize];
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    manager.closePort();
+    if(server != null) server.close();
+    simulator.close();
+    arena.close();
+  }
+
+  @Benchmark
+  public byte[] readByteArray() {
+    return manager.readByHandle(handle, arraySize);
+  }
+
+  @Benchmark
+  public int readIntoSegment() {
+    return AdsSegments.readInto(manager, handle, segment);
+  }
+
+  @Benchmark
+  public boolean writeByteArray() {
+    return manager.writeByHandle(handle, array);
+  }
+
+  @Benchmark
+  public boolean writeFromSegment() {
+    return AdsSegments.writeFrom(manager, handle, segment);
+  }
+}
@@ -0,0 +1,312 @@
+/*
+* Stand-in for the ADS client library (TcAdsDll / AdsLib) for testing and
+* benchmarking native transports without TwinCAT router.
+* Exports the functions used by FfmAdsTransport (and TcJavaToAds) with the
+* same signatures and answers them from process memory:
+* - 0xF003 (handle by name) returns handle of the name, new names get next free handle
+* - 0xF005 (value by handle) reads/writes SYMBOL_SIZE bytes of the handle's value,
+*   longer reads are padded with zeros and longer writes keep SYMBOL_SIZE bytes
+*   (transfers of large variables for benchmarks)
+* - 0xF006 (release handle) accepts any handle
+* - 0xF080/0xF081 (sum read/write) of the groups above
+* - any other index group reads/writes flat MEMORY_SIZE bytes at index offset
+* Notifications are sent once, right after they are added, from the calling thread.
+* Build: cc -O2 -shared -fPIC -o libadsstub.so adsstub.c -lpthread
+*/
+#include <stdint.h>
+#include <string.h>
+
+#ifdef _WIN32
+#include <windows.h>
+#define EXPORT __declspec(dllexport)
+#define CALLCONV __stdcall
+static SRWLOCK lock = SRWLOCK_INIT;
+#define LOCK() AcquireSRWLockExclusive(&lock)
+#define UNLOCK() ReleaseSRWLockExclusive(&lock)
+#else
+#include <pthread.h>
+#define EXPORT __attribute__((visibility("default")))
+#define CALLCONV
+static pthread_mutex_t lock = PTHREAD_MUTEX_INITIALIZER;
+#define LOCK() pthread_mutex_lock(&lock)
+#define UNLOCK() pthread_mutex_unlock(&lock)
+#endif
+
+#define MAX_PORTS 128
+#define MAX_SYMBOLS 4096
+#define MAX_NAME 128
+#define SYMBOL_SIZE 1024
+#define MEMORY_SIZE 65536
+
+#define IG_HNDBYNAME 0xF003
+#define IG_VALBYHND 0xF005
+#define IG_RELEASEHND 0xF006
+#define IG_SUMREAD 0xF080
+#define IG_SUMWRITE 0xF081
+
+#define ERR_NOERROR 0x0
+#define ERR_SRVNOTSUPP 0x701
+#define ERR_INVALIDOFFSET 0x703
+#define ERR_INVALIDSIZE 0x705
+#define ERR_NOTFOUND 0x710
+#define ERR_NOMEMORY 0x70A
+#define ERR_PORTNOTOPEN 0x748
+
+typedef struct {
+  uint8_t b[6];
+} AmsNetId;
+
+typedef struct {
+  AmsNetId netId;
+  uint16_t port;
+} AmsAddr;
+
+typedef struct {
+  uint8_t version;
+  uint8_t revision;
+  uint16_t build;
+} AdsVersion;
+
+typedef struct {
+  uint32_t cbLength;
+  uint32_t nTransMode;
+  uint32_t nMaxDelay;
+  uint32_t nCycleTime;
+} AdsNotificationAttrib;
+
+typedef struct {
+  int64_t nTimeStamp;
+  uint32_t hNotification;
+  uint32_t cbSampleSize;
+  uint8_t data[SYMBOL_SIZE];
+} AdsNotificationHeader;
+
+typedef void (CALLCONV *PAdsNotificationFuncEx)(AmsAddr* pAddr, AdsNotificationHeader* pNotification, uint32_t hUser);
+
+static int openPorts[MAX_PORTS];
+static char names[MAX_SYMBOLS][MAX_NAME];
+static uint8_t values[MAX_SYMBOLS][SYMBOL_SIZE];
+static uint32_t symbolCount;
+static uint8_t memory[MEMORY_SIZE];
+static uint32_t nextNotification = 1;
+
+static int isOpen(long port) {
+  return port > 0 && port <= MAX_PORTS && openPorts[port - 1];
+}
+
+static uint32_t getU32(const uint8_t* p) {
+  return (uint32_t)p[0] | (uint32_t)p[1] << 8 | (uint32_t)p[2] << 16 | (uint32_t)p[3] << 24;
+}
+
+static void putU32(uint8_t* p, uint32_t v) {
+  p[0] = (uint8_t)v; p[1] = (uint8_t)(v >> 8); p[2] = (uint8_t)(v >> 16); p[3] = (uint8_t)(v >> 24);
+}
+
+/* Area of index group/offset, NULL if out of range; called under lock */
+static uint8_t* area(uint32_t group, uint32_t offset, uint32_t length, long* err) {
+  if(group == IG_VALBYHND) {
+    if(offset == 0 || offset > symbolCount) { *err = ERR_NOTFOUND; return NULL; }
+    return values[offset - 1];
+  }
+  if((uint64_t)offset + length > MEMORY_SIZE) { *err = ERR_INVALIDOFFSET; return NULL; }
+  return memory + offset;
+}
+
+/* Plain read of one area; called under lock */
+static long readArea(uint32_t group, uint32_t offset, uint32_t length, uint8_t* data) {
+  long err = ERR_NOERROR;
+  uint8_t* src = area(group, offset, length, &err);
+  if(src == NULL) return err;
+  if(group == IG_VALBYHND && length > SYMBOL_SIZE) {
+    memcpy(data, src, SYMBOL_SIZE);
+    memset(data + SYMBOL_SIZE, 0, length - SYMBOL_SIZE);
+  } else memcpy(data, src, length);
+  return err;
+}
+
+/* Plain write of one area; called under lock */
+static long writeArea(uint32_t group, uint32_t offset, uint32_t length, const uint8_t* data) {
+  long err = ERR_NOERROR;
+  uint8_t* dst = area(group, offset, length, &err);
+  if(dst != NULL) memcpy(dst, data, (group == IG_VALBYHND && length > SYMBOL_SIZE) ? SYMBOL_SIZE : length);
+  return err;
+}
+
+/* Handle of the name, new names are added; called under lock */
+static long handleByName(const char* name, uint32_t length, uint32_t* handle) {
+  if(length == 0 || length >= MAX_NAME) return ERR_INVALIDSIZE;
+  for(uint32_t i = 0; i < symbolCount; i++)
+    if(strncmp(names[i], name, length) == 0 && names[i][length] == 0) {
+      *handle = i + 1;
+      return ERR_NOERROR;
+    }
+  if(symbolCount == MAX_SYMBOLS) return ERR_NOMEMORY;
+  memcpy(names[symbolCount], name, length);
+  names[symbolCount][length] = 0;
+  *handle = ++symbolCount;
+  return ERR_NOERROR;
+}
+
+EXPORT long CALLCONV AdsPortOpenEx(void) {
+  long port = 0;
+  LOCK();
+  for(int i = 0; i < MAX_PORTS; i++)
+    if(!openPorts[i]) {
+      openPorts[i] = 1;
+      port = i + 1;
+      break;
+    }
+  UNLOCK();
+  return port;
+}
+
+EXPORT long CALLCONV AdsPortCloseEx(long port) {
+  long err = ERR_PORTNOTOPEN;
+  LOCK();
+  if(isOpen(port)) {
+    openPorts[port - 1] = 0;
+    err = ERR_NOERROR;
+  }
+  UNLOCK();
+  return err;
+}
+
+EXPORT long CALLCONV AdsGetLocalAddressEx(long port, AmsAddr* pAddr) {
+  static const AmsNetId local = {{127, 0, 0, 1, 1, 1}};
+  if(!isOpen(port)) return ERR_PORTNOTOPEN;
+  pAddr->netId = local;
+  pAddr->port = (uint16_t)(30000 + port);
+  return ERR_NOERROR;
+}
+
+EXPORT long CALLCONV AdsSyncSetTimeoutEx(long port, long nMs) {
+  (void)nMs;
+  return isOpen(port) ? ERR_NOERROR : ERR_PORTNOTOPEN;
+}
+
+EXPORT long CALLCONV AdsSyncReadReqEx2(long port, AmsAddr* pAddr, uint32_t nIndexGroup, uint32_t nIndexOffset,
+                                       uint32_t nLength, void* pData, uint32_t* pcbReturn) {
+  (void)pAddr;
+  if(!isOpen(port)) return ERR_PORTNOTOPEN;
+  if(nIndexGroup == IG_HNDBYNAME || nIndexGroup == IG_RELEASEHND || nIndexGroup >= IG_SUMREAD)
+    return ERR_SRVNOTSUPP;
+  LOCK();
+  long err = readArea(nIndexGroup, nIndexOffset, nLength, pData);
+  UNLOCK();
+  if(pcbReturn != NULL) *pcbReturn = (err == ERR_NOERROR) ? nLength : 0;
+  return err;
+}
+
+EXPORT long CALLCONV AdsSyncWriteReqEx(long port, AmsAddr* pAddr, uint32_t nIndexGroup, uint32_t nIndexOffset,
+                                       uint32_t nLength, void* pData) {
+  (void)pAddr;
+  if(!isOpen(port)) return ERR_PORTNOTOPEN;
+  if(nIndexGroup == IG_RELEASEHND) return ERR_NOERROR;
+  if(nIndexGroup == IG_HNDBYNAME || nIndexGroup >= IG_SUMREAD) return ERR_SRVNOTSUPP;
+  LOCK();
+  long err = writeArea(nIndexGroup, nIndexOffset, nLength, pData);
+  UNLOCK();
+  return err;
+}
+
+EXPORT long CALLCONV AdsSyncReadWriteReqEx2(long port, AmsAddr* pAddr, uint32_t nIndexGroup, uint32_t nIndexOffset,
+                                            uint32_t nReadLength, void* pReadData,
+                                            uint32_t nWriteLength, void* pWriteData, uint32_t* pcbReturn) {
+  (void)pAddr;
+  uint8_t* read = pReadData;
+  const uint8_t* write = pWriteData;
+  uint32_t returned = 0;
+  long err = ERR_NOERROR;
+  if(!isOpen(port)) return ERR_PORTNOTOPEN;
+
+  LOCK();
+  if(nIndexGroup == IG_HNDBYNAME) {
+    uint32_t handle = 0;
+    if(nReadLength < 4) err = ERR_INVALIDSIZE;
+    else err = handleByName((const char*)write, (uint32_t)strnlen((const char*)write, nWriteLength), &handle);
+    if(err == ERR_NOERROR) {
+      putU32(read, handle);
+      returned = 4;
+    }
+  } else if(nIndexGroup == IG_SUMREAD || nIndexGroup == IG_SUMWRITE) {
+    //Sub-requests: group, offset, length (12 bytes), sum write data follow all of them
+    uint32_t count = nIndexOffset;
+    uint32_t dataOffset = count * 4;
+    const uint8_t* writeData = write + count * 12;
+    if(count * 12 > nWriteLength || dataOffset > nReadLength) err = ERR_INVALIDSIZE;
+    for(uint32_t i = 0; i < count && err == ERR_NOERROR; i++) {
+      const uint8_t* sub = write + i * 12;
+      uint32_t length = getU32(sub + 8);
+      long subErr;
+      if(nIndexGroup == IG_SUMREAD) {
+        if(dataOffset + length > nReadLength) { err = ERR_INVALIDSIZE; break; }
+        subErr = readArea(getU32(sub), getU32(sub + 4), length, read + dataOffset);
+        dataOffset += length;
+      } else {
+        if(writeData + length > write + nWriteLength) { err = ERR_INVALIDSIZE; break; }
+        subErr = writeArea(getU32(sub), getU32(sub + 4), length, writeData);
+        writeData += length;
+      }
+      putU32(read + i * 4, (uint32_t)subErr);
+    }
+    returned = (err == ERR_NOERROR) ? dataOffset : 0;
+  } else if(nIndexGroup == IG_RELEASEHND || nIndexGroup > IG_SUMWRITE) {
+    err = ERR_SRVNOTSUPP;
+  } else {
+    //Write then read back the same area
+    err = writeArea(nIndexGroup, nIndexOffset, nWriteLength, write);
+    if(err == ERR_NOERROR) err = readArea(nIndexGroup, nIndexOffset, nReadLength, read);
+    if(err == ERR_NOERROR) returned = nReadLength;
+  }
+  UNLOCK();
+
+  if(pcbReturn != NULL) *pcbReturn = returned;
+  return err;
+}
+
+EXPORT long CALLCONV AdsSyncReadStateReqEx(long port, AmsAddr* pAddr, uint16_t* pAdsState, uint16_t* pDeviceState) {
+  (void)pAddr;
+  if(!isOpen(port)) return ERR_PORTNOTOPEN;
+  *pAdsState = 5; //ADSSTATE_RUN
+  *pDeviceState = 0;
+  return ERR_NOERROR;
+}
+
+EXPORT long CALLCONV AdsSyncReadDeviceInfoReqEx(long port, AmsAddr* pAddr, char* pDevName, AdsVersion* pVersion) {
+  (void)pAddr;
+  if(!isOpen(port)) return ERR_PORTNOTOPEN;
+  memset(pDevName, 0, 16);
+  memcpy(pDevName, "AdsStub", 7);
+  pVersion->version = 1;
+  pVersion->revision = 0;
+  pVersion->build = 1;
+  return ERR_NOERROR;
+}
+
+EXPORT long CALLCONV AdsSyncAddDeviceNotificationReqEx(long port, AmsAddr* pAddr, uint32_t nIndexGroup, uint32_t nIndexOffset,
+                                                       AdsNotificationAttrib* pNoteAttrib, PAdsNotificationFuncEx pNoteFunc,
+                                                       uint32_t hUser, uint32_t* pNotification) {
+  AdsNotificationHeader header;
+  AmsAddr source;
+  if(!isOpen(port)) return ERR_PORTNOTOPEN;
+  if(pNoteAttrib->cbLength > SYMBOL_SIZE) return ERR_INVALIDSIZE;
+
+  LOCK();
+  long err = readArea(nIndexGroup, nIndexOffset, pNoteAttrib->cbLength, header.data);
+  header.hNotification = nextNotification++;
+  UNLOCK();
+  if(err != ERR_NOERROR) return err;
+
+  *pNotification = header.hNotification;
+  header.nTimeStamp = 0;
+  header.cbSampleSize = pNoteAttrib->cbLength;
+  source = *pAddr;
+  pNoteFunc(&source, &header, hUser);
+  return ERR_NOERROR;
+}
+
+EXPORT long CALLCONV AdsSyncDelDeviceNotificationReqEx(long port, AmsAddr* pAddr, uint32_t hNotification) {
+  (void)pAddr;
+  (void)hNotification;
+  return isOpen(port) ? ERR_NOERROR : ERR_PORTNOTOPEN;
+}
@@ -0,0 +1,80 @@
+package adsffm;
+
+import adscom.AdsManager;
+import adsexceptions.AdsException;
+import adsexceptions.AdsPortClosedException;
+import java.lang.foreign.MemorySegment;
+
+/**
+* Reading and writing ADS variables directly from and to memory segments, for large
+* PLC arrays (e.g. trace buffers) which should stay off heap - handed to files or
+* other native consumers without a byte[] copy.
+* The segment is viewed as ByteBuffer and passed to AdsManager, what a transfer costs
+* depends on the transport:
+* - FfmAdsTransport reads into and writes from native segments in place.
+* - SimulatorTransport copies between the segment and simulator memory, nothing is allocated.
+* - AmsTcpTransport copies through its frame buffers, which grow to the largest frame and
+*   are kept by the connection. Responses above the maximum frame size (setMaxFrameSize,
+*   8 MiB by default) close the connection, i.e. larger reads fail.
+* - JniAdsTransport copies through JNI buffers of its router ports, which are allocated per
+*   transfer above JniAdsTransport.MAX_RETAINED_SIZE, and every read allocates an array of
+*   the variable size (JNIByteBuffer.getByteArray()) - segments save no heap there.
+* One transfer is limited to Integer.MAX_VALUE bytes.
+*/
+public final class AdsSegments {
+  private AdsSegments() {}
+
+  /**
+  * Method for reading ADS variable by handle into memory segment
+  * @return Number of bytes read
+  * @param manager ADS manager of the target device
+  * @param symHandle Handle to ADS variable
+  * @param dst Segment receiving ADS variable value, its size determines size of the read
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  */
+  public static int readInto(AdsManager manager, long symHandle, MemorySegment dst)
+                      throws AdsPortClosedException, AdsException {
+    return manager.readByHandle(symHandle, dst.asByteBuffer());
+  }
+
+  /**
+  * Method for reading ADS variable by variable name (symbol) into memory segment
+  * @return Number of bytes read
+  * @param manager ADS manager of the target device
+  * @param varName Name of ADS variable
+  * @param dst Segment receiving ADS variable value, its size determines size of the read
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  */
+  public static int readInto(AdsManager manager, String varName, MemorySegment dst)
+                      throws AdsPortClosedException, AdsException {
+    return manager.readBySymbol(varName, dst.asByteBuffer());
+  }
+
+  /**
+  * Method for writing ADS variable by handle from memory segment
+  * @return True if successful
+  * @param manager ADS manager of the target device
+  * @param symHandle Handle to ADS variable
+  * @param src Segment holding new value, whole segment is written
+  * @exception AdsPortClosedException When ADS port has not been opened
+  */
+  public static boolean writeFrom(AdsManager manager, long symHandle, MemorySegment src)
+                           throws AdsPortClosedException {
+    return manager.writeByHandle(symHandle, src.asByteBuffer());
+  }
+
+  /**
+  * Method for writing ADS variable by variable name (symbol) from memory segment
+  * @return True if successful
+  * @param manager ADS manager of the target device
+  * @param varName Name of ADS variable
+  * @param src Segment holding new value, whole segment is written
+  * @exception AdsPortClosedException When ADS port has not been opened
+  */
+  public static boolean writeFrom(AdsManager manager, String varName, MemorySegment src)
+                           throws AdsPortClosedException {
+    return manager.writeBySymbol(varName, src.asByteBuffer());
+  }
+}
@@ -0,0 +1,624 @@
+package adsffm;
+
+import de.beckhoff.jni.tcads.AdsDevName;
+import de.beckhoff.jni.tcads.AdsState;
+import de.beckhoff.jni.tcads.AdsVersion;
+import adsexceptions.AdsException;
+import adstransport.AdsTransport;
+import adstransport.NotificationSink;
+import java.lang.foreign.AddressLayout;
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_INT_UNALIGNED;
+import static java.lang.foreign.ValueLayout.JAVA_LONG_UNALIGNED;
+import static java.lang.foreign.ValueLayout.JAVA_SHORT;
+
+/**
+* ADS transport calling ADS client library (TcAdsDll, AdsLib or compatible) directly
+* through Foreign Function and Memory API downcalls, alternative to JniAdsTransport.
+* Request data is passed to the library as MemorySegment - direct buffers are read
+* into and written from in place, heap buffers are copied through off-heap segments
+* of the router port. No JNI wrapper library is needed.
+* Like JniAdsTransport, every instance opens its own pool of router ports and runs
+* each request on a free port; notifications are registered on the first port.
+* Needs Java 22 or newer and native access enabled for module adsffmmod.
+* Class is thread-safe.
+*/
+public class FfmAdsTransport implements AdsTransport {
+  public static final String DEFAULT_LIBRARY = System.mapLibraryName("TcAdsDll");
+  public static final int DEFAULT_POOL_SIZE = 4;
+  public static final long DEFAULT_TIMEOUT = 5000;
+  private static final long ADS_TICKS_PER_MS = 10000;
+  private static final long ADSERR_CLIENT_SYNCTIMEOUT = 0x745;
+  private static final long ADSERR_CLIENT_PORTNOTOPEN = 0x748;
+  private static final int NET_ID_SIZE = 6;
+  private static final int AMS_ADDR_SIZE = 8; //AmsNetId, port (uint16)
+  private static final int DEV_NAME_SIZE = 16;
+  private static final int NOTIFICATION_ATTRIB_SIZE = 16; //cbLength, nTransMode, nMaxDelay, nCycleTime
+  private static final int NOTIFICATION_HEADER_SIZE = 16; //nTimeStamp, hNotification, cbSampleSize, data
+
+  private static final Linker LINKER = Linker.nativeLinker();
+  //C long of the platform: router port and error ID, 32 bit on Windows
+  private static final ValueLayout C_LONG = (ValueLayout)LINKER.canonicalLayouts().get("long");
+  private static final AddressLayout PTR = ValueLayout.ADDRESS;
+  //ADS unsigned long (Windows) / uint32_t (AdsLib) - index group, offset, lengths
+  private static final ValueLayout.OfInt U32 = JAVA_INT;
+
+  /**
+  * Router port of the pool with off-heap buffers reused by its requests
+  */
+  private static final class RouterPort {
+    final long port;
+    final MemorySegment returned;
+    MemorySegment readSeg = MemorySegment.NULL;
+    MemorySegment writeSeg = MemorySegment.NULL;
+
+    RouterPort(long port, Arena arena) {
+      this.port = port;
+      this.returned = arena.allocate(JAVA_INT);
+    }
+
+    /**
+    * Method for getting read segment of at least given size, grown on demand
+    * @return Off-heap segment
+    * @param size Required size in bytes
+    */
+    MemorySegment readSeg(int size) {
+      if(size > readSeg.byteSize())
+        readSeg = Arena.ofAuto().allocate(Math.max(size, 2 * readSeg.byteSize()));
+      return readSeg;
+    }
+
+    /**
+    * Method for getting write segment filled with remaining bytes of data, grown on demand.
+    * Position of data is not changed
+    * @return Off-heap segment
+    * @param data Data to be written
+    */
+    MemorySegment writeSeg(ByteBuffer data) {
+      int size = data.remaining();
+      if(size > writeSeg.byteSize())
+        writeSeg = Arena.ofAuto().allocate(Math.max(size, 2 * writeSeg.byteSize()));
+      writeSeg.copyFrom(MemorySegment.ofBuffer(data));
+      return writeSeg;
+    }
+  }
+
+  //Library functions, port and error ID types adapted to Java long
+  private final MethodHandle portOpen;
+  private final MethodHandle portClose;
+  private final MethodHandle getLocalAddress;
+  private final MethodHandle syncReadReq;
+  private final MethodHandle syncWriteReq;
+  private final MethodHandle syncReadWriteReq;
+  private final MethodHandle syncReadStateReq;
+  private final MethodHandle syncReadDeviceInfoReq;
+  private final MethodHandle syncSetTimeout;
+  private final MethodHandle syncAddDeviceNotificationReq;
+  private final MethodHandle syncDelDeviceNotificationReq;
+
+  private final Arena arena = Arena.ofAuto(); //Library, AMS address, port buffers and callback stub
+  private final byte[] netId;
+  private final int poolSize;
+  private final MemorySegment amsAddr;
+  private final BlockingQueue<RouterPort> idlePorts;
+  private final Map<Integer, NotificationSink> sinks = new ConcurrentHashMap<>();
+  private final Map<Long, Integer> sinkUsers = new ConcurrentHashMap<>();
+  private final AtomicInteger nextUser = new AtomicInteger(1);
+  private final ReentrantLock lock = new ReentrantLock(); //Pool open/close and callback stub creation
+  private MemorySegment callback;
+  private volatile RouterPort[] ports;
+  private volatile long timeout = DEFAULT_TIMEOUT;
+
+  /**
+  * Class constructor. Loads DEFAULT_LIBRARY from library path and targets local AMS net ID
+  */
+  public FfmAdsTransport() {
+    this(null, null, DEFAULT_POOL_SIZE);
+  }
+
+  /**
+  * Class constructor with default pool size
+  * @param library Path to ADS client library (null - DEFAULT_LIBRARY from library path)
+  * @param netId Target AMS net ID in String format (null - local AMS net ID)
+  */
+  public FfmAdsTransport(Path library, String netId) {
+    this(library, netId, DEFAULT_POOL_SIZE);
+  }
+
+  /**
+  * Class constructor
+  * @param library Path to ADS client library (null - DEFAULT_LIBRARY from library path)
+  * @param netId Target AMS net ID in String format (null - local AMS net ID)
+  * @param poolSize Number of router ports, i.e. maximum number of concurrent requests
+  * @exception IllegalArgumentException On invalid arguments, fail to load library or missing function
+  */
+  public FfmAdsTransport(Path library, String netId, int poolSize) {
+    if(poolSize < 1) throw new IllegalArgumentException("Pool size must be positive: " + poolSize);
+    this.netId = (netId != null) ? parseNetId(netId) : null;
+    this.poolSize = poolSize;
+    this.idlePorts = new ArrayBlockingQueue<>(poolSize); //No allocation per request
+    this.amsAddr = arena.allocate(AMS_ADDR_SIZE, 2);
+
+    SymbolLookup lookup = (library != null) ? SymbolLookup.libraryLookup(library, arena)
+                                            : SymbolLookup.libraryLookup(DEFAULT_LIBRARY, arena);
+    MethodType request = MethodType.methodType(long.class, long.class, MemorySegment.class, int.class, int.class, int.class);
+    portOpen = downcall(lookup, "AdsPortOpenEx", FunctionDescriptor.of(C_LONG),
+                        MethodType.methodType(long.class));
+    portClose = downcall(lookup, "AdsPortCloseEx", FunctionDescriptor.of(C_LONG, C_LONG),
+                         MethodType.methodType(long.class, long.class));
+    getLocalAddress = downcall(lookup, "AdsGetLocalAddressEx", FunctionDescriptor.of(C_LONG, C_LONG, PTR),
+                               MethodType.methodType(long.class, long.class, MemorySegment.class));
+    syncReadReq = downcall(lookup, "AdsSyncReadReqEx2",
+                           FunctionDescriptor.of(C_LONG, C_LONG, PTR, U32, U32, U32, PTR, PTR),
+                           request.appendParameterTypes(MemorySegment.class, MemorySegment.class));
+    syncWriteReq = downcall(lookup, "AdsSyncWriteReqEx",
+                            FunctionDescriptor.of(C_LONG, C_LONG, PTR, U32, U32, U32, PTR),
+                            request.appendParameterTypes(MemorySegment.class));
+    syncReadWriteReq = downcall(lookup, "AdsSyncReadWriteReqEx2",
+                                FunctionDescriptor.of(C_LONG, C_LONG, PTR, U32, U32, U32, PTR, U32, PTR, PTR),
+                                request.appendParameterTypes(MemorySegment.class, int.class, MemorySegment.class,
+                                                             MemorySegment.class));
+    syncReadStateReq = downcall(lookup, "AdsSyncReadStateReqEx", FunctionDescriptor.of(C_LONG, C_LONG, PTR, PTR, PTR),
+                                MethodType.methodType(long.class, long.class, MemorySegment.class,
+                                                      MemorySegment.class, MemorySegment.class));
+    syncReadDeviceInfoReq = downcall(lookup, "AdsSyncReadDeviceInfoReqEx",
+                                     FunctionDescriptor.of(C_LONG, C_LONG, PTR, PTR, PTR),
+                                     MethodType.methodType(long.class, long.class, MemorySegment.class,
+                                                           MemorySegment.class, MemorySegment.class));
+    syncSetTimeout = downcall(lookup, "AdsSyncSetTimeoutEx", FunctionDescriptor.of(C_LONG, C_LONG, C_LONG),
+                              MethodType.methodType(long.class, long.class, long.class));
+    syncAddDeviceNotificationReq = downcall(lookup, "AdsSyncAddDeviceNotificationReqEx",
+                                            FunctionDescriptor.of(C_LONG, C_LONG, PTR, U32, U32, PTR, PTR, U32, PTR),
+                                            MethodType.methodType(long.class, long.class, MemorySegment.class,
+                                                                  int.class, int.class, MemorySegment.class,
+                                                                  MemorySegment.class, int.class, MemorySegment.class));
+    syncDelDeviceNotificationReq = downcall(lookup, "AdsSyncDelDeviceNotificationReqEx",
+                                            FunctionDescriptor.of(C_LONG, C_LONG, PTR, U32),
+                                            MethodType.methodType(long.class, long.class, MemorySegment.class, int.class));
+  }
+
+  @Override
+  public long open(int amsPort) throws AdsException {
+    lock.lock();
+    try {
+      long errId;
+      if(ports != null) {
+        amsAddr.set(JAVA_SHORT, NET_ID_SIZE, (short)amsPort);
+        return ports[0].port;
+      }
+
+      //Open all router ports of the pool
+      long[] opened = new long[poolSize];
+      for(int i = 0; i < poolSize; i++) {
+        opened[i] = (long)portOpen.invokeExact();
+        if(opened[i] == 0) {
+          closePorts(opened);
+          throw new AdsException(ADSERR_CLIENT_PORTNOTOPEN);
+        }
+        errId = (long)syncSetTimeout.invokeExact(opened[i], timeout); //Ignored like in JniAdsTransport
+      }
+
+      //Ports opened - get AMS address
+      errId = (long)getLocalAddress.invokeExact(opened[0], amsAddr);
+      if(errId != 0) {
+        closePorts(opened);
+        throw new AdsException(errId);
+      }
+      if(netId != null)
+        MemorySegment.copy(netId, 0, amsAddr, JAVA_BYTE, 0, NET_ID_SIZE);
+      amsAddr.set(JAVA_SHORT, NET_ID_SIZE, (short)amsPort);
+
+      RouterPort[] pool = new RouterPort[poolSize];
+      for(int i = 0; i < poolSize; i++) {
+        pool[i] = new RouterPort(opened[i], arena);
+        idlePorts.add(pool[i]);
+      }
+      ports = pool;
+      return opened[0];
+    } catch(AdsException e) {
+      throw e;
+    } catch(Throwable e) {
+      throw failure(e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public long close() {
+    lock.lock();
+    try {
+      sinks.clear();
+      sinkUsers.clear();
+
+      RouterPort[] pool = ports;
+      if(pool == null) return 0;
+      ports = null;
+      idlePorts.clear(); //Ports still in use are not returned to the pool
+      long[] opened = new long[pool.length];
+      for(int i = 0; i < pool.length; i++)
+        opened[i] = pool[i].port;
+      return closePorts(opened);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public String getNetId() {
+    StringBuilder id = new StringBuilder();
+    for(int i = 0; i < NET_ID_SIZE; i++) {
+      if(i > 0) id.append('.');
+      id.append(Byte.toUnsignedInt(amsAddr.get(JAVA_BYTE, i)));
+    }
+    return id.toString();
+  }
+
+  @Override
+  public int getAmsPort() {
+    return Short.toUnsignedInt(amsAddr.get(JAVA_SHORT, NET_ID_SIZE));
+  }
+
+  /**
+  * Method for getting number of router ports in the pool
+  * @return Pool size
+  */
+  public int getPoolSize() {
+    return poolSize;
+  }
+
+  @Override
+  public long read(long indexGroup, long indexOffset, ByteBuffer data) {
+    RouterPort port = acquirePort();
+    if(port == null) return portError();
+
+    try {
+      int length = data.remaining();
+      boolean inPlace = data.isDirect() && !data.isReadOnly();
+      MemorySegment dataSeg = inPlace ? MemorySegment.ofBuffer(data) : port.readSeg(length);
+      long errId = (long)syncReadReq.invokeExact(port.port, amsAddr, (int)indexGroup, (int)indexOffset,
+                                                 length, dataSeg, port.returned);
+      if(errId == 0) received(data, dataSeg, inPlace, port.returned);
+      return errId;
+    } catch(Throwable e) {
+      throw failure(e);
+    } finally {
+      releasePort(port);
+    }
+  }
+
+  @Override
+  public long write(long indexGroup, long indexOffset, ByteBuffer data) {
+    RouterPort port = acquirePort();
+    if(port == null) return portError();
+
+    try {
+      MemorySegment dataSeg = data.isDirect() ? MemorySegment.ofBuffer(data) : port.writeSeg(data);
+      return (long)syncWriteReq.invokeExact(port.port, amsAddr, (int)indexGroup, (int)indexOffset,
+                                            data.remaining(), dataSeg);
+    } catch(Throwable e) {
+      throw failure(e);
+    } finally {
+      releasePort(port);
+    }
+  }
+
+  @Override
+  public long readWrite(long indexGroup, long indexOffset, ByteBuffer readData, ByteBuffer writeData) {
+    RouterPort port = acquirePort();
+    if(port == null) return portError();
+
+    try {
+      int readLength = readData.remaining();
+      boolean inPlace = readData.isDirect() && !readData.isReadOnly();
+      MemorySegment readSeg = inPlace ? MemorySegment.ofBuffer(readData) : port.readSeg(readLength);
+      MemorySegment writeSeg = writeData.isDirect() ? MemorySegment.ofBuffer(writeData) : port.writeSeg(writeData);
+      long errId = (long)syncReadWriteReq.invokeExact(port.port, amsAddr, (int)indexGroup, (int)indexOffset,
+                                                      readLength, readSeg, writeData.remaining(), writeSeg,
+                                                      port.returned);
+      if(errId == 0) received(readData, readSeg, inPlace, port.returned);
+      return errId;
+    } catch(Throwable e) {
+      throw failure(e);
+    } finally {
+      releasePort(port);
+    }
+  }
+
+  @Override
+  public long readState(AdsState adsStateBuff, AdsState adsDevStateBuff) {
+    RouterPort port = acquirePort();
+    if(port == null) return portError();
+
+    try(Arena call = Arena.ofConfined()) {
+      MemorySegment adsState = call.allocate(JAVA_SHORT);
+      MemorySegment devState = call.allocate(JAVA_SHORT);
+      long errId = (long)syncReadStateReq.invokeExact(port.port, amsAddr, adsState, devState);
+      if(errId == 0) {
+        adsStateBuff.setState(adsState.get(JAVA_SHORT, 0));
+        adsDevStateBuff.setState(devState.get(JAVA_SHORT, 0));
+      }
+      return errId;
+    } catch(Throwable e) {
+      throw failure(e);
+    } finally {
+      releasePort(port);
+    }
+  }
+
+  @Override
+  public long readDeviceInfo(AdsDevName devName, AdsVersion adsVersion) {
+    RouterPort port = acquirePort();
+    if(port == null) return portError();
+
+    try(Arena call = Arena.ofConfined()) {
+      MemorySegment name = call.allocate(DEV_NAME_SIZE + 1); //Zeroed - name is always terminated
+      MemorySegment version = call.allocate(4, 2); //version, revision, build (uint16)
+      long errId = (long)syncReadDeviceInfoReq.invokeExact(port.port, amsAddr, name, version);
+      if(errId == 0) {
+        devName.setDevName(name.getString(0, StandardCharsets.ISO_8859_1));
+        adsVersion.setVersion(version.get(JAVA_BYTE, 0));
+        adsVersion.setRevision(version.get(JAVA_BYTE, 1));
+        adsVersion.setBuild(version.get(JAVA_SHORT, 2));
+      }
+      return errId;
+    } catch(Throwable e) {
+      throw failure(e);
+    } finally {
+      releasePort(port);
+    }
+  }
+
+  @Override
+  public long setTimeout(long adsTimeout) {
+    timeout = adsTimeout;
+    RouterPort[] pool = ports;
+    if(pool == null) return 0;
+
+    long errId = 0;
+    try {
+      for(RouterPort port : pool) {
+        long portErrId = (long)syncSetTimeout.invokeExact(port.port, adsTimeout);
+        if(portErrId != 0) errId = portErrId;
+      }
+    } catch(Throwable e) {
+      throw failure(e);
+    }
+    return errId;
+  }
+
+  @Override
+  public long addNotification(long indexGroup, long indexOffset, int length, int transMode,
+                              long maxDelay, long cycleTime, NotificationSink sink) throws AdsException {
+    RouterPort[] pool = ports;
+    if(pool == null) throw new AdsException(ADSERR_CLIENT_PORTNOTOPEN);
+
+    int user = nextUser.getAndIncrement();
+    long errId;
+    long notificationHandle;
+    try(Arena call = Arena.ofConfined()) {
+      MemorySegment attrib = call.allocate(NOTIFICATION_ATTRIB_SIZE, 4);
+      attrib.set(JAVA_INT, 0, length);
+      attrib.set(JAVA_INT, 4, transMode);
+      attrib.set(JAVA_INT, 8, (int)(maxDelay * ADS_TICKS_PER_MS)); //ADS times in 100 ns ticks
+      attrib.set(JAVA_INT, 12, (int)(cycleTime * ADS_TICKS_PER_MS));
+      MemorySegment handleSeg = call.allocate(JAVA_INT);
+
+      sinks.put(user, sink); //Register first - notification may arrive before request returns
+      errId = (long)syncAddDeviceNotificationReq.invokeExact(pool[0].port, amsAddr, (int)indexGroup, (int)indexOffset,
+                                                              attrib, callback(), user, handleSeg);
+      notificationHandle = Integer.toUnsignedLong(handleSeg.get(JAVA_INT, 0));
+    } catch(Throwable e) {
+      sinks.remove(user);
+      throw failure(e);
+    }
+    if(errId != 0) {
+      sinks.remove(user);
+      throw new AdsException(errId);
+    }
+    sinkUsers.put(notificationHandle, user);
+    return notificationHandle;
+  }
+
+  @Override
+  public long deleteNotification(long notificationHandle) {
+    Integer user = sinkUsers.remove(notificationHandle);
+    if(user != null) sinks.remove(user);
+
+    RouterPort[] pool = ports;
+    if(pool == null) return ADSERR_CLIENT_PORTNOTOPEN;
+    try {
+      return (long)syncDelDeviceNotificationReq.invokeExact(pool[0].port, amsAddr, (int)notificationHandle);
+    } catch(Throwable e) {
+      throw failure(e);
+    }
+  }
+
+  /**
+  * Method for finding library function and creating its downcall handle. Port and
+  * error ID (C long) are cast to Java long, so handles are invoked alike on all platforms
+  * @return Method handle of the given type
+  * @param lookup Library symbols
+  * @param name Function name
+  * @param descriptor Native signature
+  * @param type Java signature, C long as long
+  * @exception IllegalArgumentException If library does not export the function
+  */
+  private static MethodHandle downcall(SymbolLookup lookup, String name, FunctionDescriptor descriptor, MethodType type) {
+    MemorySegment function = lookup.find(name)
+      .orElseThrow(() -> new IllegalArgumentException("ADS library does not export " + name));
+    return MethodHandles.explicitCastArguments(LINKER.downcallHandle(function, descriptor), type);
+  }
+
+  /**
+  * Method for getting native notification callback, created on first use
+  * @return Upcall stub calling onEvent
+  * @exception ReflectiveOperationException Never - onEvent is declared below
+  */
+  private MemorySegment callback() throws ReflectiveOperationException {
+    lock.lock();
+    try {
+      if(callback == null) {
+        MethodHandle onEvent = MethodHandles.lookup()
+          .findVirtual(FfmAdsTransport.class, "onEvent",
+                       MethodType.methodType(void.class, MemorySegment.class, MemorySegment.class, int.class))
+          .bindTo(this);
+        callback = LINKER.upcallStub(onEvent, FunctionDescriptor.ofVoid(PTR, PTR, U32), arena);
+      }
+      return callback;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+  * Method for completing read buffer after successful request
+  * @param data Read buffer, its position is advanced by returned bytes
+  * @param dataSeg Segment passed to the library
+  * @param inPlace True if dataSeg is the memory of data
+  * @param returned Number of returned bytes (uint32)
+  */
+  private static void received(ByteBuffer data, MemorySegment dataSeg, boolean inPlace, MemorySegment returned) {
+    int count = returned.get(JAVA_INT, 0);
+    if(!inPlace)
+      MemorySegment.copy(dataSeg, 0, MemorySegment.ofBuffer(data), 0, count);
+    data.position(data.position() + count);
+  }
+
+  /**
+  * Method for taking free router port from the pool, waits up to ADS timeout
+  * @return Router port (null - pool closed or no port freed in time)
+  */
+  private RouterPort acquirePort() {
+    if(ports == null) return null;
+
+    RouterPort port = idlePorts.poll();
+    if(port == null) {
+      try {
+        port = idlePorts.poll(timeout, TimeUnit.MILLISECONDS);
+      } catch(InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    return port;
+  }
+
+  /**
+  * Method for returning router port to the pool
+  * @param port Router port
+  */
+  private void releasePort(RouterPort port) {
+    //Port of closed pool is already closed, do not mix it into reopened pool
+    RouterPort[] pool = ports;
+    if(pool == null) return;
+    for(RouterPort p : pool)
+      if(p == port) {
+        idlePorts.offer(port);
+        return;
+      }
+  }
+
+  /**
+  * Method for getting error of request which did not get router port
+  * @return ADS error ID
+  */
+  private long portError() {
+    return (ports == null) ? ADSERR_CLIENT_PORTNOTOPEN : ADSERR_CLIENT_SYNCTIMEOUT;
+  }
+
+  /**
+  * Method for closing router ports
+  * @return ADS error ID of the last failed close (0 - no error)
+  * @param opened Router ports, 0 entries are skipped
+  */
+  private long closePorts(long[] opened) {
+    long errId = 0;
+    try {
+      for(long port : opened) {
+        if(port == 0) continue;
+        long portErrId = (long)portClose.invokeExact(port);
+        if(portErrId != 0) errId = portErrId;
+      }
+    } catch(Throwable e) {
+      throw failure(e);
+    }
+    return errId;
+  }
+
+  /**
+  * Method for parsing AMS net ID
+  * @return Net ID bytes
+  * @param netId AMS net ID in String format, e.g. "5.6.7.8.1.1"
+  * @exception IllegalArgumentException On invalid format
+  */
+  private static byte[] parseNetId(String netId) {
+    String[] parts = netId.split("\\.");
+    if(parts.length != NET_ID_SIZE) throw new IllegalArgumentException("Invalid AMS net ID: " + netId);
+    byte[] id = new byte[NET_ID_SIZE];
+    try {
+      for(int i = 0; i < NET_ID_SIZE; i++) {
+        int part = Integer.parseInt(parts[i]);
+        if(part < 0 || part > 255) throw new IllegalArgumentException("Invalid AMS net ID: " + netId);
+        id[i] = (byte)part;
+      }
+    } catch(NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid AMS net ID: " + netId, e);
+    }
+    return id;
+  }
+
+  /**
+  * Method for rethrowing failure of downcall - library functions return errors,
+  * so this is a linkage or memory access problem
+  * @return Unchecked exception to be thrown
+  * @param e Throwable of invokeExact
+  */
+  private static RuntimeException failure(Throwable e) {
+    if(e instanceof RuntimeException) return (RuntimeException)e;
+    if(e instanceof Error) throw (Error)e;
+    return new IllegalStateException("ADS library call failed", e);
+  }
+
+  /**
+  * Method called by ADS router on every notification (native thread).
+  * Exceptions must not propagate into native code, they go to the uncaught exception handler
+  * @param addr AMS address of notification source
+  * @param header Notification header with data
+  * @param user User value identifying notification sink
+  */
+  private void onEvent(MemorySegment addr, MemorySegment header, int user) {
+    try {
+      NotificationSink sink = sinks.get(user);
+      if(sink == null) return;
+      MemorySegment fixed = header.reinterpret(NOTIFICATION_HEADER_SIZE);
+      int size = fixed.get(JAVA_INT_UNALIGNED, 12);
+      byte[] data = header.reinterpret(NOTIFICATION_HEADER_SIZE + Integer.toUnsignedLong(size))
+        .asSlice(NOTIFICATION_HEADER_SIZE).toArray(JAVA_BYTE);
+      sink.onNotification(fixed.get(JAVA_LONG_UNALIGNED, 0), data);
+    } catch(Throwable e) {
+      Thread thread = Thread.currentThread();
+      thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+    }
+  }
+}
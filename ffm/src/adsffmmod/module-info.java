@@ -0,0 +1,8 @@
+/**
+* ADS transport calling ADS client library through Foreign Function and Memory API.
+* Needs Java 22 or newer and native access enabled (--enable-native-access=adsffmmod)
+*/
+module adsffmmod {
+  requires transitive adscommod;
+  exports adsffm;
+}
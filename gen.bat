@@ -0,0 +1,6 @@
+//@ECHO OFF
+//Generates typed symbol accessors from TwinCAT module description (.tmc), no TwinCAT needed
+//Arguments: tmcFile outDir package [accessorClass] [symbolPrefix], e.g.: gen.bat Plc.tmc gen plc PlcSymbols MAIN.
+javac -d out --module-source-path src --module adsgenmod
+java -p out -m adsgenmod/adsgen.TmcGenerator %*
+pause
@@ -0,0 +1,7 @@
+#!/bin/sh
+#Generates typed symbol accessors from TwinCAT module description (.tmc), no TwinCAT needed
+#Arguments: tmcFile outDir package [accessorClass] [symbolPrefix], e.g.: ./gen.sh Plc.tmc gen plc PlcSymbols MAIN.
+set -e
+dir="$(dirname "$0")"
+javac -d "$dir/out" --module-source-path "$dir/src" --module adsgenmod
+exec java -p "$dir/out" -m adsgenmod/adsgen.TmcGenerator "$@"
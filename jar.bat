@@ -1,4 +1,5 @@
-cd..
-jar --create --file=twincatads\lib\adscommod.jar ^
--C twincatads\out\adscommod .
+//@ECHO OFF
+//Packages adscommod built by build.bat (out\adscommod) into lib\adscommod.jar
+cd /d "%~dp0"
+jar --create --file=lib\adscommod.jar -C out\adscommod .
 pause
@@ -0,0 +1,176 @@
+package adscom;
+
+import adsexceptions.AdsException;
+import adstransport.AdsTransport;
+import adstransport.HandoffTransport;
+import adstransport.JniAdsTransport;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+* The class for handling connections to many ADS devices at once.
+* Every connection is an independent AdsManager instance keyed by AMS net ID
+* and AMS port, so requests to different devices never wait for each other.
+* Class is thread-safe.
+*/
+public class AdsConnectionManager implements AutoCloseable {
+  private final Function<String, AdsTransport> transportFactory;
+  //Connection by key, completed when port is opened - concurrent connects of one device share it
+  private final Map<String, CompletableFuture<AdsManager>> connections = new ConcurrentHashMap<>();
+
+  /**
+  * Class constructor. Connections go through TwinCAT ADS router (JNI transport),
+  * native calls run on I/O threads of every connection
+  */
+  public AdsConnectionManager() {
+    this(netId -> {
+      JniAdsTransport jni = new JniAdsTransport(netId);
+      return new HandoffTransport(jni, jni.getPoolSize());
+    });
+  }
+
+  /**
+  * Class constructor
+  * @param transportFactory Creates transport to the device with given AMS net ID
+  */
+  public AdsConnectionManager(Function<String, AdsTransport> transportFactory) {
+    this.transportFactory = transportFactory;
+  }
+
+  /**
+  * Method for getting connection to ADS device, the connection is opened on first use.
+  * Port is opened by the first caller, concurrent callers for the same device wait for it,
+  * connecting to other devices is not blocked
+  * @return Connection to the device
+  * @param netId AMS net ID of the device in String format
+  * @param amsPort AMS port of the device
+  * @exception AdsException On fail to open the connection
+  */
+  public AdsManager connect(String netId, int amsPort) throws AdsException {
+    String key = key(netId, amsPort);
+    CompletableFuture<AdsManager> pending = connections.get(key);
+    if(pending != null) return opened(pending);
+
+    CompletableFuture<AdsManager> created = new CompletableFuture<>();
+    pending = connections.putIfAbsent(key, created);
+    if(pending != null) return opened(pending);
+
+    AdsManager manager = null;
+    try {
+      manager = AdsManager.newInstance(transportFactory.apply(netId));
+      manager.openPort(amsPort);
+      created.complete(manager);
+      return manager;
+    } catch(RuntimeException e) {
+      connections.remove(key, created); //Next connect tries again
+      if(manager != null) manager.close(); //Stop threads of failed connection
+      created.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  /**
+  * Method for getting connection to ADS device with default AMS port
+  * @return Connection to the device
+  * @param netId AMS net ID of the device in String format
+  * @exception AdsException On fail to open the connection
+  */
+  public AdsManager connect(String netId) throws AdsException {
+    return connect(netId, AdsManager.DEFAULT_AMS_PORT);
+  }
+
+  /**
+  * Method for getting already opened connection
+  * @return Connection to the device (null - not connected)
+  * @param netId AMS net ID of the device in String format
+  * @param amsPort AMS port of the device
+  */
+  public AdsManager get(String netId, int amsPort) {
+    CompletableFuture<AdsManager> pending = connections.get(key(netId, amsPort));
+    return (pending != null && pending.isDone() && !pending.isCompletedExceptionally()) ? pending.join() : null;
+  }
+
+  /**
+  * Method for closing connection to ADS device
+  * @return True if connection was opened and closed successfully
+  * @param netId AMS net ID of the device in String format
+  * @param amsPort AMS port of the device
+  */
+  public boolean disconnect(String netId, int amsPort) {
+    AdsManager manager = closing(connections.remove(key(netId, amsPort)));
+    if(manager == null) return false;
+    boolean closed = manager.closePort();
+    manager.close(); //Stop its threads
+    return closed;
+  }
+
+  /**
+  * Method for getting all opened connections
+  * @return Unmodifiable snapshot of connections
+  */
+  public Collection<AdsManager> getConnections() {
+    List<AdsManager> managers = new ArrayList<>();
+    for(CompletableFuture<AdsManager> pending : connections.values())
+      if(pending.isDone() && !pending.isCompletedExceptionally()) managers.add(pending.join());
+    return Collections.unmodifiableList(managers);
+  }
+
+  /**
+  * Method for getting number of opened connections
+  * @return Number of connections
+  */
+  public int size() {
+    return connections.size();
+  }
+
+  /**
+  * Method for closing all connections
+  */
+  @Override
+  public void close() {
+    for(String key : new ArrayList<>(connections.keySet())) {
+      AdsManager manager = closing(connections.remove(key));
+      if(manager != null) manager.close();
+    }
+  }
+
+  /**
+  * Method for waiting for connection opened by another caller
+  * @return Connection to the device
+  * @param pending Connection being opened
+  * @exception AdsException On fail to open the connection
+  */
+  private static AdsManager opened(CompletableFuture<AdsManager> pending) throws AdsException {
+    try {
+      return pending.join();
+    } catch(CompletionException e) {
+      if(e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+      throw e;
+    }
+  }
+
+  /**
+  * Method for getting removed connection to be closed, waits until its port is opened
+  * @return Connection or null if none or failed to open
+  * @param pending Removed connection
+  */
+  private static AdsManager closing(CompletableFuture<AdsManager> pending) {
+    if(pending == null) return null;
+    try {
+      return pending.join();
+    } catch(CompletionException e) {
+      return null;
+    }
+  }
+
+  private static String key(String netId, int amsPort) {
+    return netId + ":" + amsPort;
+  }
+}
@@ -1,65 +1,159 @@
 package adscom;
 
-import de.beckhoff.jni.Convert;
-import de.beckhoff.jni.JNIByteBuffer;
-import de.beckhoff.jni.tcads.AmsAddr;
 import de.beckhoff.jni.tcads.AdsVersion;
-import de.beckhoff.jni.tcads.AdsCallDllFunction;
 import de.beckhoff.jni.tcads.AdsState;
 import de.beckhoff.jni.tcads.AdsDevName;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import adsexceptions.*;
+import adstransport.AdsTransport;
+import adstransport.AsyncAdsTransport;
+import adstransport.ExecutorAsyncTransport;
+import adstransport.HandoffTransport;
+import adstransport.JniAdsTransport;
+import adstransport.SumCommand;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.BufferedReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongFunction;
 
 /**
 * The class for handling PLC<->OS communication through ADS protocol.
-* Only one instance of this class is allowed (Singleton class type).
-* Class is thread-safe.
+* Method create() keeps one process-wide instance (Singleton class type),
+* independent instances - one per target device - are created with newInstance()
+* or managed by AdsConnectionManager. Instances do not share any lock.
+* Class is thread-safe. Data requests of different threads are passed to the transport
+* concurrently, opening and closing the port and subscriptions are serialized.
+* No monitor is held while waiting for the device, so callers on virtual threads can park.
 * @author Bart Zawada
 * @version 1.0
 */
-public class AdsManager {
+public class AdsManager implements AutoCloseable {
   private static boolean alive;
   private static AdsManager objRef;
-  private long adsPort;
-  private AmsAddr amsAddr = new AmsAddr();
+  private static final ReentrantLock instanceLock = new ReentrantLock();
+  private final ReentrantLock lock = new ReentrantLock(); //Port state and subscriptions
+  private volatile long adsPort;
+  private final AdsTransport transport;
+  private final SymbolHandleCache handleCache = new SymbolHandleCache(DEFAULT_HANDLE_CACHE_SIZE);
+  private final ExecutorService notificationThread = Executors.newSingleThreadExecutor(r -> {
+    Thread t = new Thread(r, "ads-notification");
+    t.setDaemon(true);
+    return t;
+  });
+  private final NotificationDispatcher notifications = new NotificationDispatcher(notificationThread);
+  private ExecutorService ioThreads; //Own executor of blocking transport, null - none or replaced
+  private volatile AsyncAdsTransport asyncTransport;
+  private volatile long asyncTimeout = DEFAULT_ASYNC_TIMEOUT;
+  private final BufferPool buffers = new BufferPool(); //Transfer buffers of blocking requests
+  private volatile SymbolTable symbolTable; //Uploaded symbols, null - access through handles
+  private volatile DataTypeTable dataTypes; //Uploaded data types, null - not uploaded
+  private volatile int symVersion = -1; //Notified symbol version of PLC, -1 - not watched
+  private long symVersionWatch; //Notification handle of symbol version, 0 - not watched
+  private final Map<String, CompletableFuture<SymbolHandleCache.Entry>> handleRequests
+      = new ConcurrentHashMap<>(); //Pending asynchronous handle requests by variable name
   public static final int DEFAULT_AMS_PORT = 851;
+  public static final int DEFAULT_HANDLE_CACHE_SIZE = 1024;
+  public static final int DEFAULT_IO_THREADS = 4;
+  public static final long DEFAULT_ASYNC_TIMEOUT = 5000;
+  private static final long ADSERR_DEVICE_SYMBOLNOTFOUND = 0x710;
+  private static final long ADSERR_DEVICE_SYMBOLVERSIONINVALID = 0x711;
+  private static final long ADSERR_DEVICE_SRVNOTSUPP = 0x701;
+  private static final long ADSERR_DEVICE_INVALIDSIZE = 0x705;
+  private static final long ADSERR_CLIENT_SYNCTIMEOUT = 0x745;
+  private static final int SYMBOL_UPLOAD_INFO_SIZE = 24; //AdsSymbolUploadInfo2
 
   /**
   * Class constructor. Called from static method
+  * @param transport I/O path to the target device
   */
-  private AdsManager() {
+  private AdsManager(AdsTransport transport) {
     //Initialization list for constructor
     adsPort = 0;
+    this.transport = transport;
+    if(transport instanceof AsyncAdsTransport)
+      asyncTransport = (AsyncAdsTransport)transport;
+    else {
+      ioThreads = Executors.newFixedThreadPool(DEFAULT_IO_THREADS, r -> {
+        Thread t = new Thread(r, "ads-io");
+        t.setDaemon(true);
+        return t;
+      });
+      asyncTransport = new ExecutorAsyncTransport(transport, ioThreads);
+    }
   }
 
   /**
-  * Method for creating exactly 1 instance of the AdsManager class
+  * Method for creating exactly 1 instance of the AdsManager class.
+  * Communicates through TwinCAT ADS router (JNI transport), native calls run on
+  * dedicated I/O threads so that virtual threads are not pinned while waiting
   * @return The instance of this class
   */
-  public synchronized static AdsManager create() {
-    if(!alive)
-      return objRef = new AdsManager();
+  public static AdsManager create() {
+    JniAdsTransport jni = new JniAdsTransport();
+    return create(new HandoffTransport(jni, jni.getPoolSize()));
+  }
 
-    else {
-      System.out.println("ADS Manager was already created!");
-      return objRef;
+  /**
+  * Method for creating exactly 1 instance of the AdsManager class with chosen transport
+  * @return The instance of this class
+  * @param transport I/O path to the target device, e.g. AmsTcpTransport
+  */
+  public static AdsManager create(AdsTransport transport) {
+    instanceLock.lock();
+    try {
+      if(!alive) {
+        alive = true;
+        return objRef = new AdsManager(transport);
+      }
+
+      else {
+        System.out.println("ADS Manager was already created!");
+        return objRef;
+      }
+    } finally {
+      instanceLock.unlock();
     }
   }
 
+  /**
+  * Method for creating independent instance of the AdsManager class, not affected
+  * by the Singleton instance
+  * @return New instance of this class
+  * @param transport I/O path to the target device
+  */
+  public static AdsManager newInstance(AdsTransport transport) {
+    return new AdsManager(transport);
+  }
+
   /**
   * Delete instance (abandon) by setting internal reference to null
   * @return Current instance reference (set to null)
   */
-  public synchronized static AdsManager delete() {
-      //Close port before abandonig the reference
-      if(objRef.getPort() != 0)
-        objRef.closePort();
+  public static AdsManager delete() {
+    instanceLock.lock();
+    try {
+      //Close port and stop threads before abandonig the reference
+      if(objRef != null)
+        objRef.close();
       alive = false;
 
       return objRef = null;
+    } finally {
+      instanceLock.unlock();
+    }
   }
 
   /**
@@ -68,27 +162,26 @@ public class AdsManager {
   * @param amsPort Specified AMS port number
   * @exception AdsException On fail to retrieve AMS Net ID
   */
-  public synchronized long openPort(int amsPort) throws AdsException {
-    long errId = 0;
+  public long openPort(int amsPort) throws AdsException {
+    lock.lock();
+    try {
+      if(adsPort != 0)
+        System.out.println("Port already opened! ADS Port: " + adsPort);
 
-    //Open ADS port first
-    if(adsPort == 0)
-      adsPort = AdsCallDllFunction.adsPortOpen();
-    else
-      System.out.println("Port already opened! ADS Port: " + adsPort);
-
-    //Port opened - get AMS address
-    errId = AdsCallDllFunction.getLocalAddress(amsAddr);
-    if(errId != 0) {
-      System.out.println("Failed to open ADS port!");
-      AdsCallDllFunction.adsPortClose();
-      adsPort = 0;
-      throw new AdsException(errId);
+      //Open ADS port and get AMS address
+      try {
+        adsPort = transport.open(amsPort);
+      } catch(AdsException e) {
+        System.out.println("Failed to open ADS port!");
+        adsPort = 0;
+        throw e;
+      }
+      System.out.println("ADS port: " + adsPort + "\nAMS Net ID: " + transport.getNetId()
+                        + "\nAMS port: " + transport.getAmsPort());
+      return adsPort;
+    } finally {
+      lock.unlock();
     }
-    amsAddr.setPort(amsPort);
-    System.out.println("ADS port: " + adsPort + "\nAMS Net ID: " + amsAddr.getNetIdString()
-                      + "\nAMS port: " + amsAddr.getPort());
-    return adsPort;
   }
 
   /**
@@ -96,7 +189,7 @@ public class AdsManager {
   * @return ADS port number
   * @exception AdsException On fail to retrieve AMS Net ID
   */
-  public synchronized long openPort() throws AdsException {
+  public long openPort() throws AdsException {
     return openPort(DEFAULT_AMS_PORT);
   }
 
@@ -113,7 +206,7 @@ public class AdsManager {
   * @return AMS net ID as a String
   */
   public String getAmsAddr() {
-    return amsAddr.getNetIdString();
+    return transport.getNetId();
   }
 
   /**
@@ -121,7 +214,7 @@ public class AdsManager {
   * @return AMS port number
   */
   public long getAmsPort() {
-    return amsAddr.getPort();
+    return transport.getAmsPort();
   }
 
   /**
@@ -129,10 +222,44 @@ public class AdsManager {
   * @return True if port closed successfully
   * @exception AdsException On fail to close ADS port
   */
-  public synchronized boolean closePort() {
-    long errId = AdsCallDllFunction.adsPortClose();
-    adsPort = 0;
-    return (errId == 0);
+  public boolean closePort() {
+    lock.lock();
+    try {
+      //Notifications and handles are bound to the connection - release them while port is still open
+      if(adsPort != 0) {
+        for(Subscription sub : notifications.subscriptions())
+          unsubscribe(sub);
+        for(SymbolHandleCache.Entry entry : handleCache.clear(true)) //Handles in use go with the connection
+          releaseHandle(entry.handle);
+        unwatchSymbolVersion();
+      }
+      long errId = transport.close();
+      adsPort = 0;
+      symbolTable = null; //Next connection may reach another PLC program
+      dataTypes = null;
+      return (errId == 0);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+  * Method for closing the instance for good. Port is closed if opened, notification
+  * and I/O threads of the instance and of its transport are stopped.
+  * Port can not be opened again afterwards
+  */
+  @Override
+  public void close() {
+    lock.lock();
+    try {
+      if(adsPort != 0) closePort();
+      transport.shutdown();
+      notificationThread.shutdown();
+      if(ioThreads != null) ioThreads.shutdown();
+      ioThreads = null;
+    } finally {
+      lock.unlock();
+    }
   }
 
   /**
@@ -142,12 +269,12 @@ public class AdsManager {
   * @param adsDevStateBuff State of ADS device
   * @exception AdsPortClosedException When ADS port has not been opened
   */
-  public synchronized long readState(AdsState adsStateBuff, AdsState adsDevStateBuff)
-                              throws AdsPortClosedException {
+  public long readState(AdsState adsStateBuff, AdsState adsDevStateBuff)
+                 throws AdsPortClosedException {
     long errId = 0;
 
     if(adsPort != 0)
-      errId = AdsCallDllFunction.adsSyncReadStateReq(amsAddr, adsStateBuff, adsDevStateBuff);
+      errId = transport.readState(adsStateBuff, adsDevStateBuff);
     else throw new AdsPortClosedException();
 
     return errId;
@@ -160,12 +287,12 @@ public class AdsManager {
   * @param adsDevStateBuff State of ADS device
   * @exception AdsPortClosedException When ADS port has not been opened
   */
-  public synchronized long readDeviceInfo(AdsDevName devName, AdsVersion adsVersion)
-                                   throws AdsPortClosedException {
+  public long readDeviceInfo(AdsDevName devName, AdsVersion adsVersion)
+                      throws AdsPortClosedException {
     long errId = 0;
 
     if (adsPort != 0)
-      errId = AdsCallDllFunction.adsSyncReadDeviceInfoReq(amsAddr, devName, adsVersion);
+      errId = transport.readDeviceInfo(devName, adsVersion);
     else throw new AdsPortClosedException();
 
     return errId;
@@ -177,15 +304,20 @@ public class AdsManager {
   * @param adsTimeout Timeout setpoint in milliseconds
   * @exception AdsPortClosedException When ADS port has not been opened
   */
-  public synchronized long setAdsTimeout(long adsTimeout)
-                                  throws AdsPortClosedException {
-    long errId = 0;
+  public long setAdsTimeout(long adsTimeout)
+                     throws AdsPortClosedException {
+    lock.lock();
+    try {
+      long errId = 0;
 
-    if (adsPort != 0)
-      errId = AdsCallDllFunction.adsSyncSetTimeout(adsTimeout);
-    else throw new AdsPortClosedException();
+      if (adsPort != 0)
+        errId = transport.setTimeout(adsTimeout);
+      else throw new AdsPortClosedException();
 
-    return errId;
+      return errId;
+    } finally {
+      lock.unlock();
+    }
   }
 
   /**
@@ -195,21 +327,290 @@ public class AdsManager {
   * @exception AdsPortClosedException When ADS port has not been opened
   * @exception AdsSymbolException On fail to read symbol
   */
-  public synchronized long getHandle(String varName)
-                              throws AdsPortClosedException, AdsException {
-    JNIByteBuffer handlBuff = new JNIByteBuffer(4); //Handler buffer variable
-    JNIByteBuffer symBuff = new JNIByteBuffer(varName.getBytes());
+  public long getHandle(String varName)
+                 throws AdsPortClosedException, AdsException {
+    return requestHandle(varName.getBytes());
+  }
+
+  /**
+  * Method for getting handle to ADS variable by already encoded variable name
+  * @return Symbol handle as long
+  * @param nameBytes Encoded name of the variable
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  */
+  private long requestHandle(byte[] nameBytes) throws AdsPortClosedException, AdsException {
+    ByteBuffer handlBuff = buffers.acquire(Integer.BYTES); //Handler buffer
     long errId = 0;
 
     //Get handle to the variable
-    if(adsPort != 0) {
-      errId = AdsCallDllFunction.adsSyncReadWriteReq(amsAddr, AdsCallDllFunction.ADSIGRP_SYM_HNDBYNAME, 0x0,
-                                                    handlBuff.getUsedBytesCount(), handlBuff,
-                                                    symBuff.getUsedBytesCount(), symBuff);
-      if(errId != 0) throw new AdsException(errId);
-    } else throw new AdsPortClosedException();
+    try {
+      if(adsPort != 0) {
+        errId = transport.readWrite(AdsTransport.ADSIGRP_SYM_HNDBYNAME, 0x0, handlBuff, ByteBuffer.wrap(nameBytes));
+        if(errId != 0) throw new AdsException(errId);
+      } else throw new AdsPortClosedException();
+      return Integer.toUnsignedLong(handlBuff.getInt(0));
+    } finally {
+      if(errId != ADSERR_CLIENT_SYNCTIMEOUT) buffers.release(handlBuff); //Timed out request may still fill it
+    }
+  }
+
+  /**
+  * Method for getting cached handle to ADS variable. Handle is requested from
+  * the PLC only on cache miss. Returned entry is pinned - its handle is not released
+  * until unpinHandle() is called
+  * @return Pinned cache entry holding the symbol handle
+  * @param varName Variable name as String
+  * @param nameBytes Encoded name of the variable, null to encode on cache miss
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  */
+  private SymbolHandleCache.Entry cachedHandle(String varName, byte[] nameBytes)
+                                 throws AdsPortClosedException, AdsException {
+    SymbolHandleCache.Entry entry = handleCache.acquire(varName);
+    if(entry != null) return entry;
+
+    if(nameBytes == null) nameBytes = varName.getBytes();
+    List<SymbolHandleCache.Entry> released = new ArrayList<>(1);
+    entry = handleCache.add(new SymbolHandleCache.Entry(varName, nameBytes, requestHandle(nameBytes)), released);
+    for(SymbolHandleCache.Entry unused : released)
+      releaseHandle(unused.handle);
+    return entry;
+  }
+
+  /**
+  * Method for re-resolving cached handle, e.g. after PLC online change. Outdated entry
+  * is removed from the cache only if it is still the cached one, a handle re-resolved
+  * meanwhile by another thread is used as it is. Outdated entry stays pinned
+  * @return Pinned cache entry holding the new symbol handle
+  * @param entry Outdated pinned cache entry
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  */
+  private SymbolHandleCache.Entry refreshHandle(SymbolHandleCache.Entry entry)
+                                  throws AdsPortClosedException, AdsException {
+    handleCache.remove(entry); //Pinned by the caller - released on unpin
+    return cachedHandle(entry.varName, entry.nameBytes);
+  }
+
+  /**
+  * Method for unpinning cached handle, the handle is released on the PLC if it has been
+  * removed from the cache meanwhile and nobody else uses it
+  * @param entry Pinned cache entry
+  */
+  private void unpinHandle(SymbolHandleCache.Entry entry) {
+    if(handleCache.unpin(entry) && adsPort != 0)
+      releaseHandle(entry.handle);
+  }
+
+  /**
+  * Method for checking whether ADS error means the symbol handle is outdated
+  * @return True if handle should be requested again
+  * @param errId ADS error ID
+  */
+  private static boolean isStaleHandle(long errId) {
+    return errId == ADSERR_DEVICE_SYMBOLNOTFOUND || errId == ADSERR_DEVICE_SYMBOLVERSIONINVALID;
+  }
+
+  /**
+  * Method for invalidating cached handle to ADS variable. Handle is released on the PLC
+  * (once no running request uses it) and will be requested again on next symbol access
+  * @param varName Variable name as String
+  */
+  public void invalidateHandle(String varName) {
+    SymbolHandleCache.Entry entry = handleCache.remove(varName);
+    if(entry != null && adsPort != 0)
+      releaseHandle(entry.handle);
+  }
+
+  /**
+  * Method for invalidating all cached handles, e.g. after PLC program download
+  */
+  public void invalidateHandles() {
+    List<SymbolHandleCache.Entry> entries = handleCache.clear(false);
+    if(adsPort != 0)
+      for(SymbolHandleCache.Entry entry : entries)
+        releaseHandle(entry.handle);
+  }
+
+  /**
+  * Method for getting symbol handle cache statistics
+  * @return Map with "size", "capacity", "hits" and "misses" counters
+  */
+  public Map<String, Long> getHandleCacheStats() {
+    return handleCache.stats();
+  }
+
+  /**
+  * Method for uploading PLC symbol table. Afterwards readBySymbol and writeBySymbol
+  * (including typed accessors) of uploaded symbols go straight to their index group
+  * and offset, without symbol handles. Symbol version of the PLC is watched by device
+  * notification - after online change or program download the table is no longer used
+  * and symbol access goes through handles until symbols are uploaded again
+  * @return Uploaded symbol table
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to upload symbols or to watch symbol version
+  */
+  public SymbolTable uploadSymbols() throws AdsPortClosedException, AdsException {
+    lock.lock();
+    try {
+      if(adsPort == 0) throw new AdsPortClosedException();
+
+      int version = watchSymbolVersion(); //Read before upload - change during upload outdates the table
+      ByteBuffer info = uploadInfo();
+      int count = info.getInt(0);
+      ByteBuffer data = upload(AdsTransport.ADSIGRP_SYM_UPLOAD, info.getInt(4));
+
+      SymbolTable table = SymbolTable.parse(data.array(), data.position(), count, version);
+      symbolTable = table;
+      return table;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+  * Method for watching symbol version of the PLC by device notification
+  * @return Current symbol version
+  * @exception AdsException On fail to read symbol version or add notification
+  */
+  private int watchSymbolVersion() throws AdsException {
+    ByteBuffer versionBuff = ByteBuffer.allocate(1);
+    long errId = transport.read(AdsTransport.ADSIGRP_SYM_VERSION, 0x0, versionBuff);
+    if(errId != 0) throw new AdsException(errId);
+    int version = Byte.toUnsignedInt(versionBuff.get(0));
+
+    if(symVersionWatch == 0) {
+      symVersion = version; //Set first - first notification carries the same or newer version
+      try {
+        symVersionWatch = transport.addNotification(AdsTransport.ADSIGRP_SYM_VERSION, 0x0, 1,
+                                                    TransMode.ON_CHANGE.getAdsTrans(), 0, 0,
+                                                    (timeStamp, data) -> symVersion = Byte.toUnsignedInt(data[0]));
+      } catch(AdsException e) {
+        symVersion = -1;
+        throw e;
+      }
+    }
+    return version;
+  }
+
+  /**
+  * Method for deleting notification of symbol version
+  */
+  private void unwatchSymbolVersion() {
+    if(symVersionWatch == 0) return;
+    transport.deleteNotification(symVersionWatch);
+    symVersionWatch = 0;
+    symVersion = -1;
+  }
+
+  /**
+  * Method for getting uploaded symbol table unless PLC symbols changed since upload
+  * @return Symbol table or null
+  */
+  private SymbolTable currentSymbols() {
+    SymbolTable table = symbolTable;
+    return (table != null && table.getVersion() == symVersion) ? table : null;
+  }
+
+  /**
+  * Method for uploading PLC data type descriptions. Codecs of uploaded types,
+  * compiled once per type, decode and encode whole structures (readStruct, writeStruct).
+  * Symbol version of the PLC is watched as for uploadSymbols - after online change
+  * or program download getDataTypes() no longer returns the table, upload again
+  * @return Uploaded data types
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to upload data types or to watch symbol version
+  */
+  public DataTypeTable uploadDataTypes() throws AdsPortClosedException, AdsException {
+    lock.lock();
+    try {
+      if(adsPort == 0) throw new AdsPortClosedException();
+
+      int version = watchSymbolVersion(); //Read before upload - change during upload outdates the table
+      ByteBuffer info = uploadInfo();
+      int count = info.getInt(8);
+      ByteBuffer data = upload(AdsTransport.ADSIGRP_SYM_DT_UPLOAD, info.getInt(12));
+
+      DataTypeTable table = DataTypeTable.parse(data.array(), data.position(), count, version);
+      dataTypes = table;
+      return table;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+  * Method for getting uploaded data types
+  * @return Data type table or null if data types have not been uploaded or changed on PLC since upload
+  */
+  public DataTypeTable getDataTypes() {
+    DataTypeTable table = dataTypes;
+    return (table != null && table.getVersion() == symVersion) ? table : null;
+  }
+
+  /**
+  * Method for reading upload info - number and size of symbols and data types
+  * @return Little-endian AdsSymbolUploadInfo2
+  * @exception AdsException On fail to read upload info
+  */
+  private ByteBuffer uploadInfo() throws AdsException {
+    ByteBuffer info = ByteBuffer.allocate(SYMBOL_UPLOAD_INFO_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    long errId = transport.read(AdsTransport.ADSIGRP_SYM_UPLOADINFO2, 0x0, info);
+    if(errId != 0) throw new AdsException(errId);
+    return info;
+  }
+
+  /**
+  * Method for reading symbol or data type upload
+  * @return Heap buffer with upload data from index 0, position is its length
+  * @param indexGroup Upload index group
+  * @param size Upload size reported by upload info
+  * @exception AdsException On fail to read upload
+  */
+  private ByteBuffer upload(long indexGroup, int size) throws AdsException {
+    ByteBuffer data = ByteBuffer.allocate(size);
+    long errId = transport.read(indexGroup, 0x0, data);
+    if(errId != 0) throw new AdsException(errId);
+    return data;
+  }
+
+  /**
+  * Method for getting uploaded symbol table
+  * @return Symbol table or null if symbols have not been uploaded or changed on PLC since upload
+  */
+  public SymbolTable getSymbolTable() {
+    return currentSymbols();
+  }
+
+  /**
+  * Method for dropping uploaded symbol table, symbol access goes through handles again
+  */
+  public void discardSymbols() {
+    lock.lock();
+    try {
+      symbolTable = null;
+      if(adsPort != 0 && dataTypes == null) unwatchSymbolVersion(); //Uploaded data types still watch it
+    } finally {
+      lock.unlock();
+    }
+  }
 
-    return Convert.ByteArrToInt(handlBuff.getByteArray());
+  /**
+  * Method for enabling or disabling reuse of transfer buffers of blocking requests.
+  * Buffers are pooled per size class and shared by all threads, enabled by default
+  * @param enabled True to reuse buffers, false to allocate them per request
+  */
+  public void setBufferPooling(boolean enabled) {
+    buffers.setEnabled(enabled);
+  }
+
+  /**
+  * Method for getting transfer buffer pool statistics
+  * @return Map with "hits" and "misses" counters, miss allocates new buffer
+  */
+  public Map<String, Long> getBufferPoolStats() {
+    return buffers.stats();
   }
 
   /**
@@ -217,18 +618,217 @@ public class AdsManager {
   * @param symHandle Handle to ADS variable
   * @return True if successful
   */
-  public synchronized boolean releaseHandle(long symHandle) {
-    JNIByteBuffer handlBuff = new JNIByteBuffer(Long.BYTES);
-    ByteBuffer byteBuff = ByteBuffer.allocate(Long.BYTES);
-    byteBuff.putLong(symHandle);
-    handlBuff.setByteArray(byteBuff.array(), true);
+  public boolean releaseHandle(long symHandle) {
+    ByteBuffer handlBuff = buffers.acquire(Integer.BYTES);
+    handlBuff.putInt(0, (int)symHandle);
 
-    long errId = AdsCallDllFunction.adsSyncWriteReq(amsAddr, AdsCallDllFunction.ADSIGRP_SYM_RELEASEHND, 0x0,
-                                                   handlBuff.getUsedBytesCount(), handlBuff);
-    if(errId == 0) return true;
+    long errId = transport.write(AdsTransport.ADSIGRP_SYM_RELEASEHND, 0x0, handlBuff);
+    if(errId == 0) {
+      buffers.release(handlBuff);
+      return true;
+    }
     else return false;
   }
 
+  /**
+  * Method for getting handles to many ADS variables using ADS sum read-write.
+  * Requests are split into chunks respecting the ADS frame size
+  * @return Error ID and handle of every variable in request order
+  * @param varNames Names of the variables to which the handles are to be obtained
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail of the whole sum request
+  * @see SumResult#getHandle
+  */
+  public SumResult getHandles(List<String> varNames)
+                       throws AdsPortClosedException, AdsException {
+    if(adsPort == 0) throw new AdsPortClosedException();
+
+    int count = varNames.size();
+    long[] groups = new long[count];
+    long[] offsets = new long[count];
+    int[] readSizes = new int[count];
+    byte[][] names = new byte[count][];
+    Arrays.fill(groups, AdsTransport.ADSIGRP_SYM_HNDBYNAME);
+    Arrays.fill(readSizes, Integer.BYTES);
+    for(int i = 0; i < count; i++)
+      names[i] = varNames.get(i).getBytes();
+
+    return sumReadWrite(groups, offsets, readSizes, names);
+  }
+
+  /**
+  * Method for releasing many handles to ADS variables using ADS sum write
+  * @return Error ID of every release in request order
+  * @param symHandles Handles to ADS variables
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail of the whole sum request
+  */
+  public SumResult releaseHandles(long[] symHandles)
+                           throws AdsPortClosedException, AdsException {
+    if(adsPort == 0) throw new AdsPortClosedException();
+
+    long[] groups = new long[symHandles.length];
+    long[] offsets = new long[symHandles.length];
+    byte[][] handles = new byte[symHandles.length][];
+    Arrays.fill(groups, AdsTransport.ADSIGRP_SYM_RELEASEHND);
+    for(int i = 0; i < symHandles.length; i++)
+      handles[i] = SumCommand.allocate(Integer.BYTES).putInt((int)symHandles[i]).array();
+
+    return sumWrite(groups, offsets, handles);
+  }
+
+  /**
+  * Method for reading index group/offset area, e.g. process image or PLC memory
+  * (AdsTransport.ADSIGRP_IOIMAGE_RWIB, ADSIGRP_PLC_MEMORY), without symbol handles
+  * @return Area data as byte array
+  * @param indexGroup Index group
+  * @param indexOffset Index offset
+  * @param dataSize Size of the area in bytes
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read area
+  */
+  public byte[] read(long indexGroup, long indexOffset, int dataSize)
+              throws AdsPortClosedException, AdsException {
+    ByteBuffer dataBuff = ByteBuffer.allocate(dataSize);
+
+    read(indexGroup, indexOffset, dataBuff);
+    return dataBuff.array();
+  }
+
+  /**
+  * Method for reading index group/offset area into caller's buffer, no data buffer is
+  * allocated per read. Remaining bytes of the buffer determine size of the read, position
+  * is advanced by the number of bytes read. When the read fails with ADS timeout (0x745),
+  * e.g. after interrupt, the transport may still write into the buffer - do not reuse it
+  * @return Number of bytes read
+  * @param indexGroup Index group
+  * @param indexOffset Index offset
+  * @param dst Buffer receiving area data, heap or direct
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read area
+  */
+  public int read(long indexGroup, long indexOffset, ByteBuffer dst)
+           throws AdsPortClosedException, AdsException {
+    if(adsPort == 0) throw new AdsPortClosedException();
+    int start = dst.position();
+
+    long errId = transport.read(indexGroup, indexOffset, dst);
+    if(errId != 0) throw new AdsException(errId);
+
+    return dst.position() - start;
+  }
+
+  /**
+  * Method for writing to index group/offset area
+  * @return True if successful
+  * @param indexGroup Index group
+  * @param indexOffset Index offset
+  * @param newVal Data to be written as byte array
+  * @exception AdsPortClosedException When ADS port has not been opened
+  */
+  public boolean write(long indexGroup, long indexOffset, byte[] newVal)
+                throws AdsPortClosedException {
+    return write(indexGroup, indexOffset, ByteBuffer.wrap(newVal));
+  }
+
+  /**
+  * Method for writing to index group/offset area from caller's buffer.
+  * Remaining bytes of the buffer are written
+  * @return True if successful
+  * @param indexGroup Index group
+  * @param indexOffset Index offset
+  * @param src Buffer holding data to be written, heap or direct
+  * @exception AdsPortClosedException When ADS port has not been opened
+  */
+  public boolean write(long indexGroup, long indexOffset, ByteBuffer src)
+                throws AdsPortClosedException {
+    if(adsPort == 0) throw new AdsPortClosedException();
+
+    return (transport.write(indexGroup, indexOffset, src) == 0);
+  }
+
+  /**
+  * Method for writing data to and reading data from index group/offset area in one
+  * request (ADS ReadWrite), e.g. for services of ADS devices. Remaining bytes of dst
+  * determine maximum size of the read, its position is advanced by the number of bytes returned
+  * @return Number of bytes read
+  * @param indexGroup Index group
+  * @param indexOffset Index offset
+  * @param dst Buffer receiving returned data, heap or direct
+  * @param src Buffer holding data to be written, heap or direct
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail of the request
+  */
+  public int readWrite(long indexGroup, long indexOffset, ByteBuffer dst, ByteBuffer src)
+                throws AdsPortClosedException, AdsException {
+    if(adsPort == 0) throw new AdsPortClosedException();
+    int start = dst.position();
+
+    long errId = transport.readWrite(indexGroup, indexOffset, dst, src);
+    if(errId != 0) throw new AdsException(errId);
+
+    return dst.position() - start;
+  }
+
+  /**
+  * Method for reading many index group/offset areas using ADS sum read.
+  * Requests are split into chunks respecting the ADS frame size
+  * @return Error ID and data of every area in request order
+  * @param indexGroups Index group of every area
+  * @param indexOffsets Index offset of every area
+  * @param dataSizes Size of every area in bytes
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail of the whole sum request
+  */
+  public SumResult readMany(long[] indexGroups, long[] indexOffsets, int[] dataSizes)
+                     throws AdsPortClosedException, AdsException {
+    if(indexGroups.length != indexOffsets.length || indexGroups.length != dataSizes.length)
+      throw new IllegalArgumentException("Groups, offsets and sizes differ in length");
+    if(adsPort == 0) throw new AdsPortClosedException();
+
+    return sumRead(indexGroups, indexOffsets, dataSizes);
+  }
+
+  /**
+  * Method for writing many index group/offset areas using ADS sum write.
+  * Requests are split into chunks respecting the ADS frame size
+  * @return Error ID of every write in request order
+  * @param indexGroups Index group of every area
+  * @param indexOffsets Index offset of every area
+  * @param newVals Data of every area as byte array
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail of the whole sum request
+  */
+  public SumResult writeMany(long[] indexGroups, long[] indexOffsets, byte[][] newVals)
+                      throws AdsPortClosedException, AdsException {
+    if(indexGroups.length != indexOffsets.length || indexGroups.length != newVals.length)
+      throw new IllegalArgumentException("Groups, offsets and values differ in length");
+    if(adsPort == 0) throw new AdsPortClosedException();
+
+    return sumWrite(indexGroups, indexOffsets, newVals);
+  }
+
+  /**
+  * Method for exchanging data with many index group/offset areas using ADS sum read-write.
+  * Requests are split into chunks respecting the ADS frame size
+  * @return Error ID and returned data of every exchange in request order
+  * @param indexGroups Index group of every area
+  * @param indexOffsets Index offset of every area
+  * @param readSizes Maximum size of returned data of every exchange in bytes
+  * @param newVals Written data of every exchange as byte array
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail of the whole sum request
+  */
+  public SumResult readWriteMany(long[] indexGroups, long[] indexOffsets, int[] readSizes, byte[][] newVals)
+                          throws AdsPortClosedException, AdsException {
+    if(indexGroups.length != indexOffsets.length || indexGroups.length != readSizes.length
+       || indexGroups.length != newVals.length)
+      throw new IllegalArgumentException("Groups, offsets, sizes and values differ in length");
+    if(adsPort == 0) throw new AdsPortClosedException();
+
+    return sumReadWrite(indexGroups, indexOffsets, readSizes, newVals);
+  }
+
   /**
   * Method for reading ADS variable by handle
   * @return ADS variable value as byte array
@@ -238,88 +838,1858 @@ public class AdsManager {
   * @exception AdsSymbolException On fail to read symbol
   * @see getHandle
   */
-  public synchronized byte[] readByHandle(long symHandle, int dataSize)
-                                   throws AdsPortClosedException, AdsException {
-    JNIByteBuffer dataBuff = new JNIByteBuffer(dataSize);
-    long errId = 0;
+  public byte[] readByHandle(long symHandle, int dataSize)
+                      throws AdsPortClosedException, AdsException {
+    ByteBuffer dataBuff = ByteBuffer.allocate(dataSize);
 
-    if(adsPort != 0) {
-      errId = AdsCallDllFunction.adsSyncReadReq(amsAddr, AdsCallDllFunction.ADSIGRP_SYM_VALBYHND, symHandle,
-                                                dataSize, dataBuff);
-      if(errId != 0) throw new AdsException(errId);
-    } else throw new AdsPortClosedException();
+    readByHandle(symHandle, dataBuff);
+    return dataBuff.array();
+  }
 
-    return dataBuff.getByteArray();
+  /**
+  * Method for reading ADS variable by handle into caller's buffer, no data buffer is
+  * allocated per read. This does not hold on JniAdsTransport - TcJavaToAds hands read data
+  * back as byte array (JNIByteBuffer.getByteArray()) on every read.
+  * Remaining bytes of the buffer determine size of the read, position
+  * is advanced by the number of bytes read. Buffer of a read failed with ADS timeout (0x745)
+  * may still be written by the transport (HandoffTransport waits for running reads)
+  * @return Number of bytes read
+  * @param symHandle Handle to ADS variable
+  * @param dst Buffer receiving ADS variable value, heap or direct
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  * @see getHandle
+  */
+  public int readByHandle(long symHandle, ByteBuffer dst)
+                   throws AdsPortClosedException, AdsException {
+    return read(AdsTransport.ADSIGRP_SYM_VALBYHND, symHandle, dst);
   }
 
   /**
-  * Method for reading ADS variable by variable name (symbol)
-  * @return ADS variable value as byte array
-  * @param varName Variable name as String
-  * @param dataSize Size of ADS variable in bytes
+  * Method for reading ADS variable by handle into part of caller's array.
+  * The array is wrapped on every call - for allocation free reads keep one
+  * ByteBuffer wrapping the array and use readByHandle(long, ByteBuffer)
+  * @return Number of bytes read
+  * @param symHandle Handle to ADS variable
+  * @param dst Array receiving ADS variable value
+  * @param offset Index of the first byte written in the array
+  * @param length Size of ADS variable in bytes
   * @exception AdsPortClosedException When ADS port has not been opened
-  * @exception AdsSymbolException On fail to read symbol
+  * @exception AdsException On fail to read symbol
   * @see getHandle
   */
-  public synchronized byte[] readBySymbol(String varName, int dataSize)
-                                   throws AdsPortClosedException, AdsException {
-    JNIByteBuffer dataBuff = new JNIByteBuffer(dataSize);
-    long errId = 0;
-    long symHandle = 0;
+  public int readByHandle(long symHandle, byte[] dst, int offset, int length)
+                   throws AdsPortClosedException, AdsException {
+    return readByHandle(symHandle, ByteBuffer.wrap(dst, offset, length));
+  }
 
-    symHandle = getHandle(varName); //Get handle to the variable, throws AdsPortClosedException
+  /**
+  * Method for reading many ADS variables by handle using ADS sum read.
+  * Requests are split into chunks respecting the ADS frame size
+  * @return Error ID and value of every variable in request order
+  * @param symHandles Handles to ADS variables
+  * @param dataSizes Size of every ADS variable in bytes
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail of the whole sum request
+  * @see getHandle
+  */
+  public SumResult readMany(long[] symHandles, int[] dataSizes)
+                     throws AdsPortClosedException, AdsException {
+    if(symHandles.length != dataSizes.length)
+      throw new IllegalArgumentException("Handles and sizes differ in length");
+    if(adsPort == 0) throw new AdsPortClosedException();
 
-    //Get variable value by handle (index offset)
-    errId = AdsCallDllFunction.adsSyncReadReq(amsAddr, AdsCallDllFunction.ADSIGRP_SYM_VALBYHND, symHandle,
-                                                dataSize, dataBuff);
-    if(errId != 0) throw new AdsException(errId);
+    long[] groups = new long[symHandles.length];
+    Arrays.fill(groups, AdsTransport.ADSIGRP_SYM_VALBYHND);
+    return sumRead(groups, symHandles, dataSizes);
+  }
 
-    releaseHandle(symHandle); //Release handle to the variable
+  /**
+  * Method for reading many index group/offset areas using ADS sum read
+  * @return Error ID and data of every sub-request in request order
+  * @param groups Index group of every sub-request
+  * @param offsets Index offset of every sub-request
+  * @param sizes Data size of every sub-request
+  * @exception AdsException On fail of the whole sum request
+  */
+  private SumResult sumRead(long[] groups, long[] offsets, int[] sizes) throws AdsException {
+    long[] errIds = new long[sizes.length];
+    byte[][] data = new byte[sizes.length][];
+    int from = 0;
+
+    for(int to : SumCommand.chunkEnds(sizes.length, i -> SumCommand.READ_HEADER,
+                                      i -> SumCommand.ERR_ID_SIZE + sizes[i])) {
+      ByteBuffer resp = null;
+      if(to - from > 1) {
+        resp = sumRequest(SumCommand.ADSIGRP_SUMUP_READ, to - from,
+                          SumCommand.encodeRead(groups, offsets, sizes, from, to),
+                          SumCommand.readResponseSize(sizes, from, to));
+      }
+      if(resp != null) {
+        SumCommand.decodeRead(resp.array(), sizes, from, to, errIds, data);
+        buffers.release(resp);
+      } else {
+        //Single sub-request or sum commands not supported - read one by one
+        for(int i = from; i < to; i++) {
+          ByteBuffer dataBuff = ByteBuffer.allocate(sizes[i]);
+          errIds[i] = transport.read(groups[i], offsets[i], dataBuff);
+          data[i] = dataBuff.array();
+        }
+      }
+      from = to;
+    }
 
-    return dataBuff.getByteArray();
+    return new SumResult(errIds, data);
   }
 
   /**
-  * Method for writing to ADS variable by handle.
-  * @return True if successful
-  * @param symHandle Handle to ADS variable
-  * @param newVal New value to be written to ADS variable as byte array
+  * Method for writing many ADS variables by handle using ADS sum write.
+  * Requests are split into chunks respecting the ADS frame size
+  * @return Error ID of every write in request order
+  * @param symHandles Handles to ADS variables
+  * @param newVals New value of every ADS variable as byte array
   * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail of the whole sum request
   * @see getHandle
   */
-  public synchronized boolean writeByHandle(long symHandle, byte[] newVal)
-                                     throws AdsPortClosedException {
-    JNIByteBuffer dataBuff = new JNIByteBuffer(newVal);
-    long errId = 0;
+  public SumResult writeMany(long[] symHandles, byte[][] newVals)
+                      throws AdsPortClosedException, AdsException {
+    if(symHandles.length != newVals.length)
+      throw new IllegalArgumentException("Handles and values differ in length");
+    if(adsPort == 0) throw new AdsPortClosedException();
 
-    //Get variable by handle
-    if (adsPort != 0) {
-      errId = AdsCallDllFunction.adsSyncWriteReq(amsAddr, AdsCallDllFunction.ADSIGRP_SYM_VALBYHND, symHandle,
-                                                dataBuff.getUsedBytesCount(), dataBuff);
-    } else throw new AdsPortClosedException();
+    long[] groups = new long[symHandles.length];
+    Arrays.fill(groups, AdsTransport.ADSIGRP_SYM_VALBYHND);
+    return sumWrite(groups, symHandles, newVals);
+  }
 
-    return (errId == 0);
+  /**
+  * Method for writing many index group/offset areas using ADS sum write
+  * @return Error ID of every sub-request in request order
+  * @param groups Index group of every sub-request
+  * @param offsets Index offset of every sub-request
+  * @param values Data of every sub-request
+  * @exception AdsException On fail of the whole sum request
+  */
+  private SumResult sumWrite(long[] groups, long[] offsets, byte[][] values) throws AdsException {
+    long[] errIds = new long[values.length];
+    int from = 0;
+
+    for(int to : SumCommand.chunkEnds(values.length, i -> SumCommand.READ_HEADER + values[i].length,
+                                      i -> SumCommand.ERR_ID_SIZE)) {
+      ByteBuffer resp = null;
+      if(to - from > 1) {
+        resp = sumRequest(SumCommand.ADSIGRP_SUMUP_WRITE, to - from,
+                          SumCommand.encodeWrite(groups, offsets, values, from, to),
+                          (to - from) * SumCommand.ERR_ID_SIZE);
+      }
+      if(resp != null) {
+        SumCommand.decodeErrIds(resp.array(), from, to, errIds);
+        buffers.release(resp);
+      } else {
+        //Single sub-request or sum commands not supported - write one by one
+        for(int i = from; i < to; i++) {
+          errIds[i] = transport.write(groups[i], offsets[i], ByteBuffer.wrap(values[i]));
+        }
+      }
+      from = to;
+    }
+
+    return new SumResult(errIds, null);
   }
 
   /**
-  * Method for writing to ADS variable by variable name (symbol)
-  * @return True if successful
-  * @param varName Name to ADS variable
-  * @param newVal New value to be written to ADS variable as byte array
-  * @exception AdsPortClosedException When ADS port has not been opened
-  * @see getHandle
+  * Method for exchanging data with many index group/offset areas using ADS sum read-write
+  * @return Error ID and returned data of every sub-request in request order
+  * @param groups Index group of every sub-request
+  * @param offsets Index offset of every sub-request
+  * @param readSizes Read data size of every sub-request
+  * @param values Write data of every sub-request
+  * @exception AdsException On fail of the whole sum request
   */
-  public synchronized boolean writeBySymbol(String varName, byte[] newVal)
-                                     throws AdsPortClosedException {
-    JNIByteBuffer dataBuff = new JNIByteBuffer(newVal);
-    long symHandle;
-    long errId = 0;
+  private SumResult sumReadWrite(long[] groups, long[] offsets, int[] readSizes, byte[][] values)
+                                throws AdsException {
+    long[] errIds = new long[values.length];
+    byte[][] data = new byte[values.length][];
+    int from = 0;
 
-    symHandle = getHandle(varName); //Get handle to the variable, throws AdsPortClosedException
-    errId = AdsCallDllFunction.adsSyncWriteReq(amsAddr, AdsCallDllFunction.ADSIGRP_SYM_VALBYHND, symHandle,
-                                              dataBuff.getUsedBytesCount(), dataBuff); //Write variable by handle
-    releaseHandle(symHandle); //Release handle to the variable
+    for(int to : SumCommand.chunkEnds(values.length, i -> SumCommand.READWRITE_HEADER + values[i].length,
+                                      i -> 2 * SumCommand.ERR_ID_SIZE + readSizes[i])) {
+      ByteBuffer resp = null;
+      if(to - from > 1) {
+        resp = sumRequest(SumCommand.ADSIGRP_SUMUP_READWRITE, to - from,
+                          SumCommand.encodeReadWrite(groups, offsets, readSizes, values, from, to),
+                          SumCommand.readWriteResponseSize(readSizes, from, to));
+      }
+      if(resp != null) {
+        SumCommand.decodeReadWrite(resp.array(), from, to, errIds, data);
+        buffers.release(resp);
+      } else {
+        //Single sub-request or sum commands not supported - exchange one by one
+        for(int i = from; i < to; i++) {
+          ByteBuffer readBuff = ByteBuffer.allocate(readSizes[i]);
+          errIds[i] = transport.readWrite(groups[i], offsets[i], readBuff, ByteBuffer.wrap(values[i]));
+          data[i] = Arrays.copyOf(readBuff.array(), readBuff.position());
+        }
+      }
+      from = to;
+    }
 
-    return (errId == 0);
+    return new SumResult(errIds, data);
+  }
+
+  /**
+  * Method for sending single chunk of ADS sum command
+  * @return Pooled buffer with response data from index 0, to be released after decoding,
+  * or null if target does not support sum commands
+  * @param sumGroup Sum command index group
+  * @param count Number of sub-requests in the chunk
+  * @param request Encoded sub-requests
+  * @param respSize Expected response size in bytes
+  * @exception AdsException On fail of the whole sum request or response of unexpected size
+  */
+  private ByteBuffer sumRequest(long sumGroup, int count, byte[] request, int respSize) throws AdsException {
+    ByteBuffer respBuff = buffers.acquire(respSize);
+
+    long errId = transport.readWrite(sumGroup, count, respBuff, ByteBuffer.wrap(request));
+    if(errId == ADSERR_DEVICE_SRVNOTSUPP) {
+      buffers.release(respBuff);
+      return null;
+    }
+    if(errId != 0) throw new AdsException(errId);
+
+    //Pooled buffer is not cleared - data of a previous request must not pass for response
+    if(!isComplete(sumGroup, count, respBuff, respSize)) {
+      buffers.release(respBuff);
+      throw new AdsException(ADSERR_DEVICE_INVALIDSIZE);
+    }
+    return respBuff;
+  }
+
+  /**
+  * Method for checking that sum command response was received in full
+  * @return True if number of received bytes matches the response
+  * @param sumGroup Sum command index group
+  * @param count Number of sub-requests
+  * @param respBuff Response data from index 0, position is number of received bytes
+  * @param respSize Expected response size in bytes, upper bound for sum read-write
+  */
+  private static boolean isComplete(long sumGroup, int count, ByteBuffer respBuff, int respSize) {
+    long expected = (sumGroup == SumCommand.ADSIGRP_SUMUP_READWRITE)
+                    ? SumCommand.readWriteResponseLength(respBuff, count) : respSize;
+    return respBuff.position() == expected;
+  }
+
+  /**
+  * Method for reading ADS variable by variable name (symbol)
+  * @return ADS variable value as byte array
+  * @param varName Variable name as String
+  * @param dataSize Size of ADS variable in bytes
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsSymbolException On fail to read symbol
+  * @see getHandle
+  */
+  public byte[] readBySymbol(String varName, int dataSize)
+                      throws AdsPortClosedException, AdsException {
+    ByteBuffer dataBuff = ByteBuffer.allocate(dataSize);
+
+    readBySymbol(varName, dataBuff);
+    return dataBuff.array();
+  }
+
+  /**
+  * Method for reading ADS variable by variable name (symbol) into caller's buffer.
+  * With the handle cached no data buffer is allocated per read, except on JniAdsTransport
+  * (see readByHandle(long, ByteBuffer)). Remaining bytes of the buffer
+  * determine size of the read, position is advanced by the number of bytes read.
+  * After ADS timeout (0x745), also reported on interrupt, the buffer must not be reused
+  * @return Number of bytes read
+  * @param varName Variable name as String
+  * @param dst Buffer receiving ADS variable value, heap or direct
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsSymbolException On fail to read symbol
+  * @see getHandle
+  */
+  public int readBySymbol(String varName, ByteBuffer dst)
+                   throws AdsPortClosedException, AdsException {
+    int start = dst.position();
+    long errId = 0;
+    SymbolHandleCache.Entry symEntry;
+
+    //Uploaded symbol - read its index group/offset directly
+    SymbolTable table = currentSymbols();
+    int sym = (table != null) ? table.indexOf(varName) : -1;
+    if(sym >= 0) return read(table.getIndexGroup(sym), table.getIndexOffset(sym), dst);
+
+    symEntry = cachedHandle(varName, null); //Get handle to the variable, throws AdsPortClosedException
+    try {
+      //Get variable value by handle (index offset)
+      errId = transport.read(AdsTransport.ADSIGRP_SYM_VALBYHND, symEntry.handle, dst);
+      if(isStaleHandle(errId)) {
+        SymbolHandleCache.Entry stale = symEntry;
+        symEntry = refreshHandle(stale); //Symbol changed on PLC - retry once with new handle
+        unpinHandle(stale);
+        dst.position(start);
+        errId = transport.read(AdsTransport.ADSIGRP_SYM_VALBYHND, symEntry.handle, dst);
+      }
+    } finally {
+      unpinHandle(symEntry);
+    }
+    if(errId != 0) throw new AdsException(errId);
+
+    return dst.position() - start;
+  }
+
+  /**
+  * Method for writing to ADS variable by handle.
+  * @return True if successful
+  * @param symHandle Handle to ADS variable
+  * @param newVal New value to be written to ADS variable as byte array
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @see getHandle
+  */
+  public boolean writeByHandle(long symHandle, byte[] newVal)
+                        throws AdsPortClosedException {
+    return writeByHandle(symHandle, ByteBuffer.wrap(newVal));
+  }
+
+  /**
+  * Method for writing to ADS variable by handle from caller's buffer.
+  * Remaining bytes of the buffer are written
+  * @return True if successful
+  * @param symHandle Handle to ADS variable
+  * @param src Buffer holding new value, heap or direct
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @see getHandle
+  */
+  public boolean writeByHandle(long symHandle, ByteBuffer src)
+                        throws AdsPortClosedException {
+    long errId = 0;
+
+    //Get variable by handle
+    if (adsPort != 0) {
+      errId = transport.write(AdsTransport.ADSIGRP_SYM_VALBYHND, symHandle, src);
+    } else throw new AdsPortClosedException();
+
+    return (errId == 0);
+  }
+
+  /**
+  * Method for writing to ADS variable by variable name (symbol)
+  * @return True if successful
+  * @param varName Name to ADS variable
+  * @param newVal New value to be written to ADS variable as byte array
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @see getHandle
+  */
+  public boolean writeBySymbol(String varName, byte[] newVal)
+                        throws AdsPortClosedException {
+    return writeBySymbol(varName, ByteBuffer.wrap(newVal));
+  }
+
+  /**
+  * Method for writing to ADS variable by variable name (symbol) from caller's buffer.
+  * Remaining bytes of the buffer are written
+  * @return True if successful
+  * @param varName Name to ADS variable
+  * @param src Buffer holding new value, heap or direct
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @see getHandle
+  */
+  public boolean writeBySymbol(String varName, ByteBuffer src)
+                        throws AdsPortClosedException {
+    SymbolHandleCache.Entry symEntry;
+    long errId = 0;
+
+    //Uploaded symbol - write its index group/offset directly
+    SymbolTable table = currentSymbols();
+    int sym = (table != null) ? table.indexOf(varName) : -1;
+    if(sym >= 0) return write(table.getIndexGroup(sym), table.getIndexOffset(sym), src);
+
+    symEntry = cachedHandle(varName, null); //Get handle to the variable, throws AdsPortClosedException
+    try {
+      errId = transport.write(AdsTransport.ADSIGRP_SYM_VALBYHND, symEntry.handle, src); //Write variable by handle
+      if(isStaleHandle(errId)) {
+        SymbolHandleCache.Entry stale = symEntry;
+        symEntry = refreshHandle(stale); //Symbol changed on PLC - retry once with new handle
+        unpinHandle(stale);
+        errId = transport.write(AdsTransport.ADSIGRP_SYM_VALBYHND, symEntry.handle, src);
+      }
+    } finally {
+      unpinHandle(symEntry);
+    }
+
+    return (errId == 0);
+  }
+
+  /**
+  * Method for reading BOOL variable by handle
+  * @return Variable value
+  * @param symHandle Handle to ADS variable
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  * @see getHandle
+  */
+  public boolean readBool(long symHandle) throws AdsPortClosedException, AdsException {
+    return readScalar(symHandle, null, PlcTypes.BOOL_SIZE) != 0;
+  }
+
+  /**
+  * Method for reading BOOL variable by variable name (symbol)
+  * @return Variable value
+  * @param varName Variable name as String
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  */
+  public boolean readBool(String varName) throws AdsPortClosedException, AdsException {
+    return readScalar(0, varName, PlcTypes.BOOL_SIZE) != 0;
+  }
+
+  /**
+  * Method for writing BOOL variable by handle
+  * @return True if successful
+  * @param symHandle Handle to ADS variable
+  * @param value New value
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @see getHandle
+  */
+  public boolean writeBool(long symHandle, boolean value) throws AdsPortClosedException {
+    return writeScalar(symHandle, null, PlcTypes.BOOL_SIZE, value ? 1 : 0);
+  }
+
+  /**
+  * Method for writing BOOL variable by variable name (symbol)
+  * @return True if successful
+  * @param varName Variable name as String
+  * @param value New value
+  * @exception AdsPortClosedException When ADS port has not been opened
+  */
+  public boolean writeBool(String varName, boolean value) throws AdsPortClosedException {
+    return writeScalar(0, varName, PlcTypes.BOOL_SIZE, value ? 1 : 0);
+  }
+
+  /**
+  * Method for reading BYTE variable by handle
+  * @return Variable value
+  * @param symHandle Handle to ADS variable
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  * @see getHandle
+  */
+  public byte readByte(long symHandle) throws AdsPortClosedException, AdsException {
+    return (byte)readScalar(symHandle, null, PlcTypes.BYTE_SIZE);
+  }
+
+  /**
+  * Method for reading BYTE variable by variable name (symbol)
+  * @return Variable value
+  * @param varName Variable name as String
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  */
+  public byte readByte(String varName) throws AdsPortClosedException, AdsException {
+    return (byte)readScalar(0, varName, PlcTypes.BYTE_SIZE);
+  }
+
+  /**
+  * Method for writing BYTE variable by handle
+  * @return True if successful
+  * @param symHandle Handle to ADS variable
+  * @param value New value
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @see getHandle
+  */
+  public boolean writeByte(long symHandle, byte value) throws AdsPortClosedException {
+    return writeScalar(symHandle, null, PlcTypes.BYTE_SIZE, value);
+  }
+
+  /**
+  * Method for writing BYTE variable by variable name (symbol)
+  * @return True if successful
+  * @param varName Variable name as String
+  * @param value New value
+  * @exception AdsPortClosedException When ADS port has not been opened
+  */
+  public boolean writeByte(String varName, byte value) throws AdsPortClosedException {
+    return writeScalar(0, varName, PlcTypes.BYTE_SIZE, value);
+  }
+
+  /**
+  * Method for reading INT variable by handle
+  * @return Variable value
+  * @param symHandle Handle to ADS variable
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  * @see getHandle
+  */
+  public short readInt(long symHandle) throws AdsPortClosedException, AdsException {
+    return (short)readScalar(symHandle, null, PlcTypes.INT_SIZE);
+  }
+
+  /**
+  * Method for reading INT variable by variable name (symbol)
+  * @return Variable value
+  * @param varName Variable name as String
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  */
+  public short readInt(String varName) throws AdsPortClosedException, AdsException {
+    return (short)readScalar(0, varName, PlcTypes.INT_SIZE);
+  }
+
+  /**
+  * Method for writing INT variable by handle
+  * @return True if successful
+  * @param symHandle Handle to ADS variable
+  * @param value New value
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @see getHandle
+  */
+  public boolean writeInt(long symHandle, short value) throws AdsPortClosedException {
+    return writeScalar(symHandle, null, PlcTypes.INT_SIZE, value);
+  }
+
+  /**
+  * Method for writing INT variable by variable name (symbol)
+  * @return True if successful
+  * @param varName Variable name as String
+  * @param value New value
+  * @exception AdsPortClosedException When ADS port has not been opened
+  */
+  public boolean writeInt(String varName, short value) throws AdsPortClosedException {
+    return writeScalar(0, varName, PlcTypes.INT_SIZE, value);
+  }
+
+  /**
+  * Method for reading DINT variable by handle
+  * @return Variable value
+  * @param symHandle Handle to ADS variable
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  * @see getHandle
+  */
+  public int readDInt(long symHandle) throws AdsPortClosedException, AdsException {
+    return (int)readScalar(symHandle, null, PlcTypes.DINT_SIZE);
+  }
+
+  /**
+  * Method for reading DINT variable by variable name (symbol)
+  * @return Variable value
+  * @param varName Variable name as String
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  */
+  public int readDInt(String varName) throws AdsPortClosedException, AdsException {
+    return (int)readScalar(0, varName, PlcTypes.DINT_SIZE);
+  }
+
+  /**
+  * Method for writing DINT variable by handle
+  * @return True if successful
+  * @param symHandle Handle to ADS variable
+  * @param value New value
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @see getHandle
+  */
+  public boolean writeDInt(long symHandle, int value) throws AdsPortClosedException {
+    return writeScalar(symHandle, null, PlcTypes.DINT_SIZE, value);
+  }
+
+  /**
+  * Method for writing DINT variable by variable name (symbol)
+  * @return True if successful
+  * @param varName Variable name as String
+  * @param value New value
+  * @exception AdsPortClosedException When ADS port has not been opened
+  */
+  public boolean writeDInt(String varName, int value) throws AdsPortClosedException {
+    return writeScalar(0, varName, PlcTypes.DINT_SIZE, value);
+  }
+
+  /**
+  * Method for reading LINT variable by handle
+  * @return Variable value
+  * @param symHandle Handle to ADS variable
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  * @see getHandle
+  */
+  public long readLInt(long symHandle) throws AdsPortClosedException, AdsException {
+    return readScalar(symHandle, null, PlcTypes.LINT_SIZE);
+  }
+
+  /**
+  * Method for reading LINT variable by variable name (symbol)
+  * @return Variable value
+  * @param varName Variable name as String
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  */
+  public long readLInt(String varName) throws AdsPortClosedException, AdsException {
+    return readScalar(0, varName, PlcTypes.LINT_SIZE);
+  }
+
+  /**
+  * Method for writing LINT variable by handle
+  * @return True if successful
+  * @param symHandle Handle to ADS variable
+  * @param value New value
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @see getHandle
+  */
+  public boolean writeLInt(long symHandle, long value) throws AdsPortClosedException {
+    return writeScalar(symHandle, null, PlcTypes.LINT_SIZE, value);
+  }
+
+  /**
+  * Method for writing LINT variable by variable name (symbol)
+  * @return True if successful
+  * @param varName Variable name as String
+  * @param value New value
+  * @exception AdsPortClosedException When ADS port has not been opened
+  */
+  public boolean writeLInt(String varName, long value) throws AdsPortClosedException {
+    return writeScalar(0, varName, PlcTypes.LINT_SIZE, value);
+  }
+
+  /**
+  * Method for reading REAL variable by handle
+  * @return Variable value
+  * @param symHandle Handle to ADS variable
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  * @see getHandle
+  */
+  public float readReal(long symHandle) throws AdsPortClosedException, AdsException {
+    return Float.intBitsToFloat((int)readScalar(symHandle, null, PlcTypes.REAL_SIZE));
+  }
+
+  /**
+  * Method for reading REAL variable by variable name (symbol)
+  * @return Variable value
+  * @param varName Variable name as String
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  */
+  public float readReal(String varName) throws AdsPortClosedException, AdsException {
+    return Float.intBitsToFloat((int)readScalar(0, varName, PlcTypes.REAL_SIZE));
+  }
+
+  /**
+  * Method for writing REAL variable by handle
+  * @return True if successful
+  * @param symHandle Handle to ADS variable
+  * @param value New value
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @see getHandle
+  */
+  public boolean writeReal(long symHandle, float value) throws AdsPortClosedException {
+    return writeScalar(symHandle, null, PlcTypes.REAL_SIZE, Float.floatToRawIntBits(value));
+  }
+
+  /**
+  * Method for writing REAL variable by variable name (symbol)
+  * @return True if successful
+  * @param varName Variable name as String
+  * @param value New value
+  * @exception AdsPortClosedException When ADS port has not been opened
+  */
+  public boolean writeReal(String varName, float value) throws AdsPortClosedException {
+    return writeScalar(0, varName, PlcTypes.REAL_SIZE, Float.floatToRawIntBits(value));
+  }
+
+  /**
+  * Method for reading LREAL variable by handle
+  * @return Variable value
+  * @param symHandle Handle to ADS variable
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  * @see getHandle
+  */
+  public double readLReal(long symHandle) throws AdsPortClosedException, AdsException {
+    return Double.longBitsToDouble(readScalar(symHandle, null, PlcTypes.LREAL_SIZE));
+  }
+
+  /**
+  * Method for reading LREAL variable by variable name (symbol)
+  * @return Variable value
+  * @param varName Variable name as String
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  */
+  public double readLReal(String varName) throws AdsPortClosedException, AdsException {
+    return Double.longBitsToDouble(readScalar(0, varName, PlcTypes.LREAL_SIZE));
+  }
+
+  /**
+  * Method for writing LREAL variable by handle
+  * @return True if successful
+  * @param symHandle Handle to ADS variable
+  * @param value New value
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @see getHandle
+  */
+  public boolean writeLReal(long symHandle, double value) throws AdsPortClosedException {
+    return writeScalar(symHandle, null, PlcTypes.LREAL_SIZE, Double.doubleToRawLongBits(value));
+  }
+
+  /**
+  * Method for writing LREAL variable by variable name (symbol)
+  * @return True if successful
+  * @param varName Variable name as String
+  * @param value New value
+  * @exception AdsPortClosedException When ADS port has not been opened
+  */
+  public boolean writeLReal(String varName, double value) throws AdsPortClosedException {
+    return writeScalar(0, varName, PlcTypes.LREAL_SIZE, Double.doubleToRawLongBits(value));
+  }
+
+  /**
+  * Method for reading ARRAY OF BOOL variable by handle
+  * @return Element values
+  * @param symHandle Handle to ADS variable
+  * @param count Number of elements
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  * @see getHandle
+  */
+  public boolean[] readBoolArray(long symHandle, int count) throws AdsPortClosedException, AdsException {
+    return readArray(symHandle, null, count * PlcTypes.BOOL_SIZE, count, PlcTypes::getBools);
+  }
+
+  /**
+  * Method for reading ARRAY OF BOOL variable by variable name (symbol)
+  * @return Element values
+  * @param varName Variable name as String
+  * @param count Number of elements
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  */
+  public boolean[] readBoolArray(String varName, int count) throws AdsPortClosedException, AdsException {
+    return readArray(0, varName, count * PlcTypes.BOOL_SIZE, count, PlcTypes::getBools);
+  }
+
+  /**
+  * Method for writing ARRAY OF BOOL variable by handle
+  * @return True if successful
+  * @param symHandle Handle to ADS variable
+  * @param values New element values
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @see getHandle
+  */
+  public boolean writeBoolArray(long symHandle, boolean[] values) throws AdsPortClosedException {
+    return writeArray(symHandle, null, values.length * PlcTypes.BOOL_SIZE, values, PlcTypes::putBools);
+  }
+
+  /**
+  * Method for writing ARRAY OF BOOL variable by variable name (symbol)
+  * @return True if successful
+  * @param varName Variable name as String
+  * @param values New element values
+  * @exception AdsPortClosedException When ADS port has not been opened
+  */
+  public boolean writeBoolArray(String varName, boolean[] values) throws AdsPortClosedException {
+    return writeArray(0, varName, values.length * PlcTypes.BOOL_SIZE, values, PlcTypes::putBools);
+  }
+
+  /**
+  * Method for reading ARRAY OF INT variable by handle
+  * @return Element values
+  * @param symHandle Handle to ADS variable
+  * @param count Number of elements
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  * @see getHandle
+  */
+  public short[] readIntArray(long symHandle, int count) throws AdsPortClosedException, AdsException {
+    return readArray(symHandle, null, count * PlcTypes.INT_SIZE, count, PlcTypes::getInts);
+  }
+
+  /**
+  * Method for reading ARRAY OF INT variable by variable name (symbol)
+  * @return Element values
+  * @param varName Variable name as String
+  * @param count Number of elements
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  */
+  public short[] readIntArray(String varName, int count) throws AdsPortClosedException, AdsException {
+    return readArray(0, varName, count * PlcTypes.INT_SIZE, count, PlcTypes::getInts);
+  }
+
+  /**
+  * Method for writing ARRAY OF INT variable by handle
+  * @return True if successful
+  * @param symHandle Handle to ADS variable
+  * @param values New element values
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @see getHandle
+  */
+  public boolean writeIntArray(long symHandle, short[] values) throws AdsPortClosedException {
+    return writeArray(symHandle, null, values.length * PlcTypes.INT_SIZE, values, PlcTypes::putInts);
+  }
+
+  /**
+  * Method for writing ARRAY OF INT variable by variable name (symbol)
+  * @return True if successful
+  * @param varName Variable name as String
+  * @param values New element values
+  * @exception AdsPortClosedException When ADS port has not been opened
+  */
+  public boolean writeIntArray(String varName, short[] values) throws AdsPortClosedException {
+    return writeArray(0, varName, values.length * PlcTypes.INT_SIZE, values, PlcTypes::putInts);
+  }
+
+  /**
+  * Method for reading ARRAY OF DINT variable by handle
+  * @return Element values
+  * @param symHandle Handle to ADS variable
+  * @param count Number of elements
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  * @see getHandle
+  */
+  public int[] readDIntArray(long symHandle, int count) throws AdsPortClosedException, AdsException {
+    return readArray(symHandle, null, count * PlcTypes.DINT_SIZE, count, PlcTypes::getDInts);
+  }
+
+  /**
+  * Method for reading ARRAY OF DINT variable by variable name (symbol)
+  * @return Element values
+  * @param varName Variable name as String
+  * @param count Number of elements
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  */
+  public int[] readDIntArray(String varName, int count) throws AdsPortClosedException, AdsException {
+    return readArray(0, varName, count * PlcTypes.DINT_SIZE, count, PlcTypes::getDInts);
+  }
+
+  /**
+  * Method for writing ARRAY OF DINT variable by handle
+  * @return True if successful
+  * @param symHandle Handle to ADS variable
+  * @param values New element values
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @see getHandle
+  */
+  public boolean writeDIntArray(long symHandle, int[] values) throws AdsPortClosedException {
+    return writeArray(symHandle, null, values.length * PlcTypes.DINT_SIZE, values, PlcTypes::putDInts);
+  }
+
+  /**
+  * Method for writing ARRAY OF DINT variable by variable name (symbol)
+  * @return True if successful
+  * @param varName Variable name as String
+  * @param values New element values
+  * @exception AdsPortClosedException When ADS port has not been opened
+  */
+  public boolean writeDIntArray(String varName, int[] values) throws AdsPortClosedException {
+    return writeArray(0, varName, values.length * PlcTypes.DINT_SIZE, values, PlcTypes::putDInts);
+  }
+
+  /**
+  * Method for reading ARRAY OF LINT variable by handle
+  * @return Element values
+  * @param symHandle Handle to ADS variable
+  * @param count Number of elements
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  * @see getHandle
+  */
+  public long[] readLIntArray(long symHandle, int count) throws AdsPortClosedException, AdsException {
+    return readArray(symHandle, null, count * PlcTypes.LINT_SIZE, count, PlcTypes::getLInts);
+  }
+
+  /**
+  * Method for reading ARRAY OF LINT variable by variable name (symbol)
+  * @return Element values
+  * @param varName Variable name as String
+  * @param count Number of elements
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  */
+  public long[] readLIntArray(String varName, int count) throws AdsPortClosedException, AdsException {
+    return readArray(0, varName, count * PlcTypes.LINT_SIZE, count, PlcTypes::getLInts);
+  }
+
+  /**
+  * Method for writing ARRAY OF LINT variable by handle
+  * @return True if successful
+  * @param symHandle Handle to ADS variable
+  * @param values New element values
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @see getHandle
+  */
+  public boolean writeLIntArray(long symHandle, long[] values) throws AdsPortClosedException {
+    return writeArray(symHandle, null, values.length * PlcTypes.LINT_SIZE, values, PlcTypes::putLInts);
+  }
+
+  /**
+  * Method for writing ARRAY OF LINT variable by variable name (symbol)
+  * @return True if successful
+  * @param varName Variable name as String
+  * @param values New element values
+  * @exception AdsPortClosedException When ADS port has not been opened
+  */
+  public boolean writeLIntArray(String varName, long[] values) throws AdsPortClosedException {
+    return writeArray(0, varName, values.length * PlcTypes.LINT_SIZE, values, PlcTypes::putLInts);
+  }
+
+  /**
+  * Method for reading ARRAY OF REAL variable by handle
+  * @return Element values
+  * @param symHandle Handle to ADS variable
+  * @param count Number of elements
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  * @see getHandle
+  */
+  public float[] readRealArray(long symHandle, int count) throws AdsPortClosedException, AdsException {
+    return readArray(symHandle, null, count * PlcTypes.REAL_SIZE, count, PlcTypes::getReals);
+  }
+
+  /**
+  * Method for reading ARRAY OF REAL variable by variable name (symbol)
+  * @return Element values
+  * @param varName Variable name as String
+  * @param count Number of elements
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  */
+  public float[] readRealArray(String varName, int count) throws AdsPortClosedException, AdsException {
+    return readArray(0, varName, count * PlcTypes.REAL_SIZE, count, PlcTypes::getReals);
+  }
+
+  /**
+  * Method for writing ARRAY OF REAL variable by handle
+  * @return True if successful
+  * @param symHandle Handle to ADS variable
+  * @param values New element values
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @see getHandle
+  */
+  public boolean writeRealArray(long symHandle, float[] values) throws AdsPortClosedException {
+    return writeArray(symHandle, null, values.length * PlcTypes.REAL_SIZE, values, PlcTypes::putReals);
+  }
+
+  /**
+  * Method for writing ARRAY OF REAL variable by variable name (symbol)
+  * @return True if successful
+  * @param varName Variable name as String
+  * @param values New element values
+  * @exception AdsPortClosedException When ADS port has not been opened
+  */
+  public boolean writeRealArray(String varName, float[] values) throws AdsPortClosedException {
+    return writeArray(0, varName, values.length * PlcTypes.REAL_SIZE, values, PlcTypes::putReals);
+  }
+
+  /**
+  * Method for reading ARRAY OF LREAL variable by handle
+  * @return Element values
+  * @param symHandle Handle to ADS variable
+  * @param count Number of elements
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  * @see getHandle
+  */
+  public double[] readLRealArray(long symHandle, int count) throws AdsPortClosedException, AdsException {
+    return readArray(symHandle, null, count * PlcTypes.LREAL_SIZE, count, PlcTypes::getLReals);
+  }
+
+  /**
+  * Method for reading ARRAY OF LREAL variable by variable name (symbol)
+  * @return Element values
+  * @param varName Variable name as String
+  * @param count Number of elements
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  */
+  public double[] readLRealArray(String varName, int count) throws AdsPortClosedException, AdsException {
+    return readArray(0, varName, count * PlcTypes.LREAL_SIZE, count, PlcTypes::getLReals);
+  }
+
+  /**
+  * Method for writing ARRAY OF LREAL variable by handle
+  * @return True if successful
+  * @param symHandle Handle to ADS variable
+  * @param values New element values
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @see getHandle
+  */
+  public boolean writeLRealArray(long symHandle, double[] values) throws AdsPortClosedException {
+    return writeArray(symHandle, null, values.length * PlcTypes.LREAL_SIZE, values, PlcTypes::putLReals);
+  }
+
+  /**
+  * Method for writing ARRAY OF LREAL variable by variable name (symbol)
+  * @return True if successful
+  * @param varName Variable name as String
+  * @param values New element values
+  * @exception AdsPortClosedException When ADS port has not been opened
+  */
+  public boolean writeLRealArray(String varName, double[] values) throws AdsPortClosedException {
+    return writeArray(0, varName, values.length * PlcTypes.LREAL_SIZE, values, PlcTypes::putLReals);
+  }
+
+  /**
+  * Method for reading structure variable by handle
+  * @return Values of all fields in field order of the codec
+  * @param symHandle Handle to ADS variable
+  * @param codec Codec of the variable type
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  * @see DataTypeTable#getCodec
+  */
+  public Object[] readStruct(long symHandle, StructCodec codec) throws AdsPortClosedException, AdsException {
+    ByteBuffer buff = readPooled(symHandle, null, codec.getSize());
+    Object[] values = codec.decode(buff.array(), 0);
+    buffers.release(buff);
+    return values;
+  }
+
+  /**
+  * Method for reading structure variable by name
+  * @return Values of all fields in field order of the codec
+  * @param varName Variable name as String
+  * @param codec Codec of the variable type
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  * @see DataTypeTable#getCodec
+  */
+  public Object[] readStruct(String varName, StructCodec codec) throws AdsPortClosedException, AdsException {
+    ByteBuffer buff = readPooled(0, varName, codec.getSize());
+    Object[] values = codec.decode(buff.array(), 0);
+    buffers.release(buff);
+    return values;
+  }
+
+  /**
+  * Method for writing structure variable by handle. Padding between fields is written as zeros
+  * @return True if successful
+  * @param symHandle Handle to ADS variable
+  * @param codec Codec of the variable type
+  * @param values Values of all fields in field order of the codec
+  * @exception AdsPortClosedException When ADS port has not been opened
+  */
+  public boolean writeStruct(long symHandle, StructCodec codec, Object[] values) throws AdsPortClosedException {
+    return writePooled(symHandle, null, encodePooled(codec, values));
+  }
+
+  /**
+  * Method for writing structure variable by name. Padding between fields is written as zeros
+  * @return True if successful
+  * @param varName Variable name as String
+  * @param codec Codec of the variable type
+  * @param values Values of all fields in field order of the codec
+  * @exception AdsPortClosedException When ADS port has not been opened
+  */
+  public boolean writeStruct(String varName, StructCodec codec, Object[] values) throws AdsPortClosedException {
+    return writePooled(0, varName, encodePooled(codec, values));
+  }
+
+  /**
+  * Method for reading structure variable by handle into Java object
+  * @return New object holding the variable value
+  * @param symHandle Handle to ADS variable
+  * @param mapper Mapper of the variable type
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  * @see StructMapper
+  */
+  public <T> T readStruct(long symHandle, StructMapper<T> mapper) throws AdsPortClosedException, AdsException {
+    ByteBuffer buff = readPooled(symHandle, null, mapper.getSize());
+    T value = mapper.decode(buff.array(), 0);
+    buffers.release(buff);
+    return value;
+  }
+
+  /**
+  * Method for reading structure variable by name into Java object
+  * @return New object holding the variable value
+  * @param varName Variable name as String
+  * @param mapper Mapper of the variable type
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  * @see StructMapper
+  */
+  public <T> T readStruct(String varName, StructMapper<T> mapper) throws AdsPortClosedException, AdsException {
+    ByteBuffer buff = readPooled(0, varName, mapper.getSize());
+    T value = mapper.decode(buff.array(), 0);
+    buffers.release(buff);
+    return value;
+  }
+
+  /**
+  * Method for writing structure variable by handle from Java object. With complete mapping
+  * padding is written as zeros. With partial mapping (see StructMapper.isComplete()) the variable
+  * is read first and written back with the mapped fields replaced - fields not mapped keep
+  * their values, unless the PLC changes them between the read and the write
+  * @return True if successful
+  * @param symHandle Handle to ADS variable
+  * @param mapper Mapper of the variable type
+  * @param value Object holding the new value
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read the variable of partial mapping
+  */
+  public <T> boolean writeStruct(long symHandle, StructMapper<T> mapper, T value)
+                                 throws AdsPortClosedException, AdsException {
+    return writePooled(symHandle, null, encodePooled(symHandle, null, mapper, value));
+  }
+
+  /**
+  * Method for writing structure variable by name from Java object. With complete mapping
+  * padding is written as zeros. With partial mapping (see StructMapper.isComplete()) the variable
+  * is read first and written back with the mapped fields replaced - fields not mapped keep
+  * their values, unless the PLC changes them between the read and the write
+  * @return True if successful
+  * @param varName Variable name as String
+  * @param mapper Mapper of the variable type
+  * @param value Object holding the new value
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read the variable of partial mapping
+  */
+  public <T> boolean writeStruct(String varName, StructMapper<T> mapper, T value)
+                                 throws AdsPortClosedException, AdsException {
+    return writePooled(0, varName, encodePooled(0, varName, mapper, value));
+  }
+
+  /**
+  * Method for encoding Java object into pooled transfer buffer, zeroed for complete mapping,
+  * holding the current value of the variable for partial mapping
+  * @return Transfer buffer holding encoded value
+  * @param symHandle Handle to ADS variable, used when varName is null
+  * @param varName Variable name as String (null - by handle)
+  * @param mapper Mapper of the structure type
+  * @param value Object holding the structure
+  * @exception AdsException On fail to read the variable of partial mapping
+  */
+  private <T> ByteBuffer encodePooled(long symHandle, String varName, StructMapper<T> mapper, T value)
+                                      throws AdsException {
+    ByteBuffer buff;
+    if(mapper.isComplete()) {
+      buff = buffers.acquire(mapper.getSize());
+      Arrays.fill(buff.array(), 0, mapper.getSize(), (byte)0);
+    } else {
+      buff = readPooled(symHandle, varName, mapper.getSize()); //Fields not mapped keep their values
+      buff.flip();
+    }
+    try {
+      mapper.encode(value, buff.array(), 0);
+    } catch(RuntimeException e) {
+      buffers.release(buff);
+      throw e;
+    }
+    return buff;
+  }
+
+  /**
+  * Method for encoding structure into zeroed pooled transfer buffer
+  * @return Transfer buffer holding encoded value
+  * @param codec Codec of the structure type
+  * @param values Values of all fields
+  */
+  private ByteBuffer encodePooled(StructCodec codec, Object[] values) {
+    ByteBuffer buff = buffers.acquire(codec.getSize());
+    Arrays.fill(buff.array(), 0, codec.getSize(), (byte)0);
+    try {
+      codec.encode(values, buff.array(), 0);
+    } catch(RuntimeException e) {
+      buffers.release(buff);
+      throw e;
+    }
+    return buff;
+  }
+
+  /**
+  * Method for reading ADS variable into pooled transfer buffer. Caller returns
+  * the buffer to the pool after decoding. On failure the buffer is returned here
+  * @return Transfer buffer holding the value from index 0
+  * @param symHandle Handle to ADS variable, used when varName is null
+  * @param varName Variable name as String (null - read by handle)
+  * @param size Size of the value in bytes
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol, 0x705 when fewer bytes were read
+  */
+  private ByteBuffer readPooled(long symHandle, String varName, int size)
+                                throws AdsPortClosedException, AdsException {
+    ByteBuffer buff = buffers.acquire(size);
+    int count;
+    try {
+      count = (varName == null) ? readByHandle(symHandle, buff) : readBySymbol(varName, buff);
+    } catch(AdsException e) {
+      if(e.getErrId() != ADSERR_CLIENT_SYNCTIMEOUT) buffers.release(buff); //Timed out request may still fill it
+      throw e;
+    }
+    if(count != size) {
+      buffers.release(buff);
+      throw new AdsException(ADSERR_DEVICE_INVALIDSIZE);
+    }
+    return buff;
+  }
+
+  /**
+  * Method for writing ADS variable from pooled transfer buffer. The buffer
+  * is returned to the pool if the write succeeded
+  * @return True if successful
+  * @param symHandle Handle to ADS variable, used when varName is null
+  * @param varName Variable name as String (null - write by handle)
+  * @param buff Transfer buffer holding the value
+  * @exception AdsPortClosedException When ADS port has not been opened
+  */
+  private boolean writePooled(long symHandle, String varName, ByteBuffer buff)
+                              throws AdsPortClosedException {
+    boolean written = (varName == null) ? writeByHandle(symHandle, buff) : writeBySymbol(varName, buff);
+    if(written) buffers.release(buff);
+    return written;
+  }
+
+  /**
+  * Method for reading elementary variable through pooled transfer buffer. The value is
+  * returned as its little endian bits, so typed reads neither allocate nor box
+  * @return Value bits sign-extended from size bytes (REAL and LREAL as raw IEEE 754 bits)
+  * @param symHandle Handle to ADS variable, used when varName is null
+  * @param varName Variable name as String (null - read by handle)
+  * @param size Size of the value in bytes (1, 2, 4 or 8)
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  */
+  private long readScalar(long symHandle, String varName, int size)
+                          throws AdsPortClosedException, AdsException {
+    ByteBuffer buff = readPooled(symHandle, varName, size);
+    byte[] data = buff.array();
+    long bits;
+    switch(size) {
+      case PlcTypes.LINT_SIZE: bits = PlcTypes.getLInt(data, 0); break;
+      case PlcTypes.DINT_SIZE: bits = PlcTypes.getDInt(data, 0); break;
+      case PlcTypes.INT_SIZE: bits = PlcTypes.getInt(data, 0); break;
+      default: bits = PlcTypes.getByte(data, 0);
+    }
+    buffers.release(buff);
+    return bits;
+  }
+
+  /**
+  * Method for writing elementary variable through pooled transfer buffer
+  * @return True if successful
+  * @param symHandle Handle to ADS variable, used when varName is null
+  * @param varName Variable name as String (null - write by handle)
+  * @param size Size of the value in bytes (1, 2, 4 or 8)
+  * @param bits Value bits, the low size bytes are written (REAL and LREAL as raw IEEE 754 bits)
+  * @exception AdsPortClosedException When ADS port has not been opened
+  */
+  private boolean writeScalar(long symHandle, String varName, int size, long bits)
+                              throws AdsPortClosedException {
+    ByteBuffer buff = buffers.acquire(size);
+    byte[] data = buff.array();
+    switch(size) {
+      case PlcTypes.LINT_SIZE: PlcTypes.putLInt(data, 0, bits); break;
+      case PlcTypes.DINT_SIZE: PlcTypes.putDInt(data, 0, (int)bits); break;
+      case PlcTypes.INT_SIZE: PlcTypes.putInt(data, 0, (short)bits); break;
+      default: PlcTypes.putByte(data, 0, (byte)bits);
+    }
+    return writePooled(symHandle, varName, buff);
+  }
+
+  /**
+  * Decoder of ARRAY variable, e.g. PlcTypes::getDInts
+  */
+  @FunctionalInterface
+  private interface ArrayDecoder<T> {
+    T decode(byte[] data, int offset, int count);
+  }
+
+  /**
+  * Encoder of ARRAY variable, e.g. PlcTypes::putDInts
+  */
+  @FunctionalInterface
+  private interface ArrayEncoder<T> {
+    void encode(byte[] data, int offset, T values);
+  }
+
+  /**
+  * Method for reading ARRAY variable through pooled transfer buffer
+  * @return Element values
+  * @param symHandle Handle to ADS variable, used when varName is null
+  * @param varName Variable name as String (null - read by handle)
+  * @param size Size of the array in bytes
+  * @param count Number of elements
+  * @param decoder Decoder of the element type
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol
+  */
+  private <T> T readArray(long symHandle, String varName, int size, int count, ArrayDecoder<T> decoder)
+                          throws AdsPortClosedException, AdsException {
+    ByteBuffer buff = readPooled(symHandle, varName, size);
+    try {
+      return decoder.decode(buff.array(), 0, count);
+    } finally {
+      buffers.release(buff);
+    }
+  }
+
+  /**
+  * Method for writing ARRAY variable through pooled transfer buffer
+  * @return True if successful
+  * @param symHandle Handle to ADS variable, used when varName is null
+  * @param varName Variable name as String (null - write by handle)
+  * @param size Size of the array in bytes
+  * @param values Element values
+  * @param encoder Encoder of the element type
+  * @exception AdsPortClosedException When ADS port has not been opened
+  */
+  private <T> boolean writeArray(long symHandle, String varName, int size, T values, ArrayEncoder<T> encoder)
+                                 throws AdsPortClosedException {
+    ByteBuffer buff = buffers.acquire(size);
+    encoder.encode(buff.array(), 0, values);
+    return writePooled(symHandle, varName, buff);
+  }
+
+  /**
+  * Method for setting executor running asynchronous requests of blocking transport
+  * (e.g. JNI transport). Pipelined transports send requests without any executor
+  * @param executor Executor for blocking requests
+  */
+  public void setIoExecutor(Executor executor) {
+    if(transport instanceof AsyncAdsTransport) return;
+    lock.lock();
+    try {
+      asyncTransport = new ExecutorAsyncTransport(transport, executor);
+      if(ioThreads != null) ioThreads.shutdown(); //Queued requests are still run
+      ioThreads = null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+  * Method for setting timeout of asynchronous requests. Shorter timeout of single
+  * request is set by orTimeout() of its future
+  * @param asyncTimeout Timeout in milliseconds (0 - no timeout)
+  */
+  public void setAsyncTimeout(long asyncTimeout) {
+    this.asyncTimeout = asyncTimeout;
+  }
+
+  /**
+  * Method for reading ADS variable by handle without blocking the caller.
+  * Cancelling the future or its timeout drops the request.
+  * Dependent stages without executor run on the transport I/O thread and must not block
+  * @return Future of ADS variable value, fails with AdsException or AdsPortClosedException
+  * @param symHandle Handle to ADS variable
+  * @param dataSize Size of ADS variable in bytes
+  * @see readByHandle
+  */
+  public CompletableFuture<byte[]> readAsync(long symHandle, int dataSize) {
+    CompletableFuture<byte[]> result = newCall();
+    if(adsPort == 0) return failed(result, new AdsPortClosedException());
+
+    ByteBuffer dataBuff = ByteBuffer.allocate(dataSize);
+    return completeCall(result, linked(result, asyncTransport.readAsync(AdsTransport.ADSIGRP_SYM_VALBYHND,
+                                                                        symHandle, dataBuff))
+                                .thenApply(errId -> checked(errId, dataBuff.array())));
+  }
+
+  /**
+  * Method for writing to ADS variable by handle without blocking the caller
+  * @return Future completed when written, fails with AdsException or AdsPortClosedException
+  * @param symHandle Handle to ADS variable
+  * @param newVal New value to be written to ADS variable as byte array
+  * @see readAsync
+  */
+  public CompletableFuture<Void> writeAsync(long symHandle, byte[] newVal) {
+    CompletableFuture<Void> result = newCall();
+    if(adsPort == 0) return failed(result, new AdsPortClosedException());
+
+    return completeCall(result, linked(result, asyncTransport.writeAsync(AdsTransport.ADSIGRP_SYM_VALBYHND,
+                                                                         symHandle, ByteBuffer.wrap(newVal)))
+                                .thenApply(errId -> checked(errId, null)));
+  }
+
+  /**
+  * Method for reading ADS variable by variable name (symbol) without blocking the caller.
+  * Uses the handle cache like readBySymbol
+  * @return Future of ADS variable value, fails with AdsException or AdsPortClosedException
+  * @param varName Variable name as String
+  * @param dataSize Size of ADS variable in bytes
+  * @see readAsync
+  */
+  public CompletableFuture<byte[]> readBySymbolAsync(String varName, int dataSize) {
+    CompletableFuture<byte[]> result = newCall();
+    if(adsPort == 0) return failed(result, new AdsPortClosedException());
+
+    ByteBuffer dataBuff = ByteBuffer.allocate(dataSize);
+    return completeCall(result, bySymbolAsync(result, varName,
+                                              handle -> asyncTransport.readAsync(AdsTransport.ADSIGRP_SYM_VALBYHND,
+                                                                                 handle, dataBuff.clear()))
+                                .thenApply(errId -> checked(errId, dataBuff.array())));
+  }
+
+  /**
+  * Method for writing to ADS variable by variable name (symbol) without blocking the caller
+  * @return Future completed when written, fails with AdsException or AdsPortClosedException
+  * @param varName Variable name as String
+  * @param newVal New value to be written to ADS variable as byte array
+  * @see readAsync
+  */
+  public CompletableFuture<Void> writeBySymbolAsync(String varName, byte[] newVal) {
+    CompletableFuture<Void> result = newCall();
+    if(adsPort == 0) return failed(result, new AdsPortClosedException());
+
+    return completeCall(result, bySymbolAsync(result, varName,
+                                              handle -> asyncTransport.writeAsync(AdsTransport.ADSIGRP_SYM_VALBYHND,
+                                                                                  handle, ByteBuffer.wrap(newVal)))
+                                .thenApply(errId -> checked(errId, null)));
+  }
+
+  /**
+  * Method for reading many ADS variables by handle without blocking the caller.
+  * Chunks of the sum read are all in flight at once
+  * @return Future of error ID and value of every variable in request order
+  * @param symHandles Handles to ADS variables
+  * @param dataSizes Size of every ADS variable in bytes
+  * @see readMany
+  */
+  public CompletableFuture<SumResult> readManyAsync(long[] symHandles, int[] dataSizes) {
+    if(symHandles.length != dataSizes.length)
+      throw new IllegalArgumentException("Handles and sizes differ in length");
+    CompletableFuture<SumResult> result = newCall();
+    if(adsPort == 0) return failed(result, new AdsPortClosedException());
+
+    long[] groups = new long[symHandles.length];
+    Arrays.fill(groups, AdsTransport.ADSIGRP_SYM_VALBYHND);
+    return completeCall(result, sumReadAsync(result, groups, symHandles, dataSizes));
+  }
+
+  /**
+  * Method for writing many ADS variables by handle without blocking the caller
+  * @return Future of error ID of every write in request order
+  * @param symHandles Handles to ADS variables
+  * @param newVals New value of every ADS variable as byte array
+  * @see writeMany
+  */
+  public CompletableFuture<SumResult> writeManyAsync(long[] symHandles, byte[][] newVals) {
+    if(symHandles.length != newVals.length)
+      throw new IllegalArgumentException("Handles and values differ in length");
+    CompletableFuture<SumResult> result = newCall();
+    if(adsPort == 0) return failed(result, new AdsPortClosedException());
+
+    long[] groups = new long[symHandles.length];
+    Arrays.fill(groups, AdsTransport.ADSIGRP_SYM_VALBYHND);
+    return completeCall(result, sumWriteAsync(result, groups, symHandles, newVals));
+  }
+
+  /**
+  * Method for running asynchronous request by cached symbol handle, stale handle is
+  * re-resolved and the request retried once
+  * @return Future of ADS error ID
+  * @param call Future returned to the caller
+  * @param varName Variable name as String
+  * @param request Request by symbol handle
+  */
+  private CompletableFuture<Long> bySymbolAsync(CompletableFuture<?> call, String varName,
+                                                LongFunction<CompletableFuture<Long>> request) {
+    return byHandleAsync(call, varName, null, request, true);
+  }
+
+  /**
+  * Method for running asynchronous request by pinned cached handle. On cache miss the
+  * handle is requested once for all concurrent callers. The handle is pinned right
+  * before the request is sent and unpinned when it completes, fails or is cancelled
+  * @return Future of ADS error ID
+  * @param call Future returned to the caller
+  * @param varName Variable name as String
+  * @param nameBytes Encoded name of the variable, null to encode on cache miss
+  * @param request Request by symbol handle
+  * @param retry True if stale handle is to be re-resolved and the request retried
+  */
+  private CompletableFuture<Long> byHandleAsync(CompletableFuture<?> call, String varName, byte[] nameBytes,
+                                                LongFunction<CompletableFuture<Long>> request, boolean retry) {
+    SymbolHandleCache.Entry cached = handleCache.acquire(varName);
+    if(cached != null) return sendPinned(call, cached, request, retry);
+
+    return pendingHandle(varName, (nameBytes != null) ? nameBytes : varName.getBytes())
+      .thenCompose(entry -> handleCache.pin(entry)
+                            ? sendPinned(call, entry, request, retry)
+                            : byHandleAsync(call, varName, entry.nameBytes, request, retry)); //Evicted meanwhile
+  }
+
+  /**
+  * Method for sending asynchronous request by handle of pinned cache entry. The entry
+  * is unpinned when the request completes - its handle is released if it was evicted
+  * meanwhile. Stale handle is removed from the cache and the request retried once
+  * @return Future of ADS error ID
+  * @param call Future returned to the caller
+  * @param entry Pinned cache entry holding the symbol handle
+  * @param request Request by symbol handle
+  * @param retry True if stale handle is to be re-resolved and the request retried
+  */
+  private CompletableFuture<Long> sendPinned(CompletableFuture<?> call, SymbolHandleCache.Entry entry,
+                                             LongFunction<CompletableFuture<Long>> request, boolean retry) {
+    CompletableFuture<Long> sent = linked(call, request.apply(entry.handle)).whenComplete((errId, e) -> {
+      if(handleCache.unpin(entry) && adsPort != 0)
+        releaseHandleAsync(entry.handle);
+    });
+    if(!retry) return sent;
+
+    return sent.thenCompose(errId -> {
+      if(!isStaleHandle(errId)) return CompletableFuture.completedFuture(errId);
+
+      //Symbol changed on PLC - retry once with new handle, a newer cached one is used as it is
+      if(handleCache.remove(entry))
+        releaseHandleAsync(entry.handle);
+      return byHandleAsync(call, entry.varName, entry.nameBytes, request, false);
+    });
+  }
+
+  /**
+  * Method for getting handle to ADS variable without blocking. Concurrent cache misses
+  * of one variable share a single handle request, its result is cached.
+  * The request is not bound to any call - cancelling one caller does not fail the others
+  * @return Future of cache entry holding the symbol handle, not pinned
+  * @param varName Variable name as String
+  * @param nameBytes Encoded name of the variable
+  */
+  private CompletableFuture<SymbolHandleCache.Entry> pendingHandle(String varName, byte[] nameBytes) {
+    CompletableFuture<SymbolHandleCache.Entry> pending = handleRequests.get(varName);
+    if(pending != null) return pending;
+    CompletableFuture<SymbolHandleCache.Entry> created = new CompletableFuture<>();
+    pending = handleRequests.putIfAbsent(varName, created);
+    if(pending != null) return pending;
+
+    long timeout = asyncTimeout;
+    if(timeout > 0) created.orTimeout(timeout, TimeUnit.MILLISECONDS);
+    created.whenComplete((entry, e) -> handleRequests.remove(varName, created));
+
+    ByteBuffer handlBuff = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    asyncTransport.readWriteAsync(AdsTransport.ADSIGRP_SYM_HNDBYNAME, 0x0, handlBuff, ByteBuffer.wrap(nameBytes))
+      .whenComplete((errId, e) -> {
+        if(e != null || errId != 0) {
+          created.completeExceptionally((e != null) ? e : new AdsException(errId));
+          return;
+        }
+        //Cached even if the request timed out meanwhile, so the handle is not lost
+        List<SymbolHandleCache.Entry> released = new ArrayList<>(1);
+        SymbolHandleCache.Entry entry = handleCache.add(new SymbolHandleCache.Entry(varName, nameBytes,
+                                                          Integer.toUnsignedLong(handlBuff.getInt(0))), released);
+        handleRequests.remove(varName, created); //Later misses find the cache entry
+        created.complete(entry); //Waiting callers pin the entry here
+        released.add(entry);
+        for(SymbolHandleCache.Entry unused : released)
+          if(unused != entry || handleCache.unpin(entry))
+            releaseHandleAsync(unused.handle);
+      });
+    return created;
+  }
+
+  /**
+  * Method for releasing handle to ADS variable without waiting for the result
+  * @param symHandle Handle to ADS variable
+  */
+  private void releaseHandleAsync(long symHandle) {
+    ByteBuffer handlBuff = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    handlBuff.putInt(0, (int)symHandle);
+    asyncTransport.writeAsync(AdsTransport.ADSIGRP_SYM_RELEASEHND, 0x0, handlBuff);
+  }
+
+  /**
+  * Asynchronous counterpart of sumRead - all chunks are sent at once
+  * @return Future of error ID and data of every sub-request in request order
+  * @param call Future returned to the caller
+  * @param groups Index group of every sub-request
+  * @param offsets Index offset of every sub-request
+  * @param sizes Data size of every sub-request
+  */
+  private CompletableFuture<SumResult> sumReadAsync(CompletableFuture<?> call, long[] groups, long[] offsets,
+                                                    int[] sizes) {
+    long[] errIds = new long[sizes.length];
+    byte[][] data = new byte[sizes.length][];
+    List<CompletableFuture<?>> chunks = new ArrayList<>();
+    int from = 0;
+
+    for(int to : SumCommand.chunkEnds(sizes.length, i -> SumCommand.READ_HEADER,
+                                      i -> SumCommand.ERR_ID_SIZE + sizes[i])) {
+      int first = from, last = to;
+      CompletableFuture<byte[]> resp = (to - from > 1)
+          ? sumRequestAsync(call, SumCommand.ADSIGRP_SUMUP_READ, to - from,
+                            SumCommand.encodeRead(groups, offsets, sizes, from, to),
+                            SumCommand.readResponseSize(sizes, from, to))
+          : CompletableFuture.completedFuture(null);
+
+      chunks.add(resp.thenCompose(sumResp -> {
+        if(sumResp != null) {
+          SumCommand.decodeRead(sumResp, sizes, first, last, errIds, data);
+          return CompletableFuture.completedFuture(null);
+        }
+        //Single sub-request or sum commands not supported - read one by one
+        CompletableFuture<?>[] singles = new CompletableFuture<?>[last - first];
+        for(int i = first; i < last; i++) {
+          int idx = i;
+          ByteBuffer dataBuff = ByteBuffer.allocate(sizes[i]);
+          data[i] = dataBuff.array();
+          singles[i - first] = linked(call, asyncTransport.readAsync(groups[i], offsets[i], dataBuff))
+                               .thenAccept(errId -> errIds[idx] = errId);
+        }
+        return CompletableFuture.allOf(singles);
+      }));
+      from = to;
+    }
+
+    return CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[0]))
+                            .thenApply(v -> new SumResult(errIds, data));
+  }
+
+  /**
+  * Asynchronous counterpart of sumWrite - all chunks are sent at once
+  * @return Future of error ID of every sub-request in request order
+  * @param call Future returned to the caller
+  * @param groups Index group of every sub-request
+  * @param offsets Index offset of every sub-request
+  * @param values Data of every sub-request
+  */
+  private CompletableFuture<SumResult> sumWriteAsync(CompletableFuture<?> call, long[] groups, long[] offsets,
+                                                     byte[][] values) {
+    long[] errIds = new long[values.length];
+    List<CompletableFuture<?>> chunks = new ArrayList<>();
+    int from = 0;
+
+    for(int to : SumCommand.chunkEnds(values.length, i -> SumCommand.READ_HEADER + values[i].length,
+                                      i -> SumCommand.ERR_ID_SIZE)) {
+      int first = from, last = to;
+      CompletableFuture<byte[]> resp = (to - from > 1)
+          ? sumRequestAsync(call, SumCommand.ADSIGRP_SUMUP_WRITE, to - from,
+                            SumCommand.encodeWrite(groups, offsets, values, from, to),
+                            (to - from) * SumCommand.ERR_ID_SIZE)
+          : CompletableFuture.completedFuture(null);
+
+      chunks.add(resp.thenCompose(sumResp -> {
+        if(sumResp != null) {
+          SumCommand.decodeErrIds(sumResp, first, last, errIds);
+          return CompletableFuture.completedFuture(null);
+        }
+        //Single sub-request or sum commands not supported - write one by one
+        CompletableFuture<?>[] singles = new CompletableFuture<?>[last - first];
+        for(int i = first; i < last; i++) {
+          int idx = i;
+          singles[i - first] = linked(call, asyncTransport.writeAsync(groups[i], offsets[i],
+                                                                      ByteBuffer.wrap(values[i])))
+                               .thenAccept(errId -> errIds[idx] = errId);
+        }
+        return CompletableFuture.allOf(singles);
+      }));
+      from = to;
+    }
+
+    return CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[0]))
+                            .thenApply(v -> new SumResult(errIds, null));
+  }
+
+  /**
+  * Asynchronous counterpart of sumRequest
+  * @return Future of response data or null if target does not support sum commands
+  * @param call Future returned to the caller
+  * @param sumGroup Sum command index group
+  * @param count Number of sub-requests in the chunk
+  * @param request Encoded sub-requests
+  * @param respSize Expected response size in bytes
+  */
+  private CompletableFuture<byte[]> sumRequestAsync(CompletableFuture<?> call, long sumGroup, int count,
+                                                    byte[] request, int respSize) {
+    ByteBuffer respBuff = ByteBuffer.allocate(respSize).order(ByteOrder.LITTLE_ENDIAN);
+    return linked(call, asyncTransport.readWriteAsync(sumGroup, count, respBuff, ByteBuffer.wrap(request)))
+      .thenApply(errId -> {
+        if(errId == ADSERR_DEVICE_SRVNOTSUPP) return null;
+        if(errId == 0 && !isComplete(sumGroup, count, respBuff, respSize))
+          errId = ADSERR_DEVICE_INVALIDSIZE;
+        return checked(errId, respBuff.array());
+      });
+  }
+
+  /**
+  * Method for creating future returned by asynchronous call, with default timeout applied
+  * @return New future
+  */
+  private <T> CompletableFuture<T> newCall() {
+    CompletableFuture<T> call = new CompletableFuture<>();
+    long timeout = asyncTimeout;
+    if(timeout > 0) call.orTimeout(timeout, TimeUnit.MILLISECONDS);
+    return call;
+  }
+
+  /**
+  * Method for completing future of asynchronous call with outcome of request chain
+  * @return Future of the call
+  * @param call Future returned to the caller
+  * @param chain Request chain
+  */
+  private static <T> CompletableFuture<T> completeCall(CompletableFuture<T> call, CompletableFuture<T> chain) {
+    chain.whenComplete((value, e) -> {
+      if(e == null) call.complete(value);
+      else call.completeExceptionally((e instanceof CompletionException && e.getCause() != null)
+                                      ? e.getCause() : e);
+    });
+    return call;
+  }
+
+  /**
+  * Method for binding transport request to asynchronous call - the request is
+  * cancelled when the call fails, is cancelled or times out
+  * @return The request
+  * @param call Future returned to the caller
+  * @param request Transport request
+  */
+  private static CompletableFuture<Long> linked(CompletableFuture<?> call, CompletableFuture<Long> request) {
+    call.whenComplete((value, e) -> {
+      if(e != null) request.cancel(false);
+    });
+    return request;
+  }
+
+  /**
+  * Method for failing asynchronous call before any request was sent
+  * @return Future of the call, completed exceptionally
+  * @param call Future returned to the caller
+  * @param e Cause of the failure
+  */
+  private static <T> CompletableFuture<T> failed(CompletableFuture<T> call, Throwable e) {
+    call.completeExceptionally(e);
+    return call;
+  }
+
+  /**
+  * Method for turning ADS error of asynchronous request into exception
+  * @return Given value if no error
+  * @param errId ADS error ID
+  * @param value Value of successful request
+  * @exception AdsException On ADS error
+  */
+  private static <T> T checked(long errId, T value) throws AdsException {
+    if(errId != 0) throw new AdsException(errId);
+    return value;
+  }
+
+  /**
+  * Method for subscribing to ADS device notification of index group/offset area.
+  * Listener is called from the notification executor, not from the ADS router thread
+  * @return Active subscription
+  * @param indexGroup Index group of notified area
+  * @param indexOffset Index offset of notified area
+  * @param dataSize Size of notified area in bytes
+  * @param mode Transmission mode (on change or cyclic)
+  * @param maxDelay Maximum delay of notification in milliseconds
+  * @param cycleTime Cycle time of value check or transmission in milliseconds
+  * @param listener Listener of notifications
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to add notification
+  */
+  public Subscription subscribe(long indexGroup, long indexOffset, int dataSize, TransMode mode,
+                                long maxDelay, long cycleTime, NotificationListener listener)
+                                throws AdsPortClosedException, AdsException {
+    lock.lock();
+    try {
+      if(adsPort == 0) throw new AdsPortClosedException();
+
+      Subscription sub = new Subscription(this, notifications.nextUserId(), 0, listener);
+      addNotification(indexGroup, indexOffset, dataSize, mode, maxDelay, cycleTime, sub);
+      return sub;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+  * Method for subscribing to ADS device notification of variable by variable name (symbol).
+  * Listener is called from the notification executor, not from the ADS router thread
+  * @return Active subscription
+  * @param varName Variable name as String
+  * @param dataSize Size of ADS variable in bytes
+  * @param mode Transmission mode (on change or cyclic)
+  * @param maxDelay Maximum delay of notification in milliseconds
+  * @param cycleTime Cycle time of value check or transmission in milliseconds
+  * @param listener Listener of notifications
+  * @exception AdsPortClosedException When ADS port has not been opened
+  * @exception AdsException On fail to read symbol or add notification
+  */
+  public Subscription subscribeBySymbol(String varName, int dataSize, TransMode mode,
+                                        long maxDelay, long cycleTime, NotificationListener listener)
+                                        throws AdsPortClosedException, AdsException {
+    lock.lock();
+    try {
+      //Own handle - cached handles may be released on eviction
+      long symHandle = getHandle(varName);
+      Subscription sub = new Subscription(this, notifications.nextUserId(), symHandle, listener);
+      try {
+        addNotification(AdsTransport.ADSIGRP_SYM_VALBYHND, symHandle, dataSize, mode,
+                        maxDelay, cycleTime, sub);
+      } catch(AdsException e) {
+        releaseHandle(symHandle);
+        throw e;
+      }
+      return sub;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+  * Method for adding ADS device notification for subscription
+  * @param indexGroup Index group of notified area
+  * @param indexOffset Index offset of notified area
+  * @param dataSize Size of notified area in bytes
+  * @param mode Transmission mode
+  * @param maxDelay Maximum delay in milliseconds
+  * @param cycleTime Cycle time in milliseconds
+  * @param sub Subscription to be activated
+  * @exception AdsException On fail to add notification
+  */
+  private void addNotification(long indexGroup, long indexOffset, int dataSize, TransMode mode,
+                               long maxDelay, long cycleTime, Subscription sub) throws AdsException {
+    long userId = sub.getUserId();
+    long notificationHandle;
+
+    notifications.register(sub); //Register first - notification may arrive before request returns
+    try {
+      notificationHandle = transport.addNotification(indexGroup, indexOffset, dataSize, mode.getAdsTrans(),
+                                                     maxDelay, cycleTime,
+                                                     (timeStamp, data) -> notifications.dispatch(userId, timeStamp, data));
+    } catch(AdsException e) {
+      notifications.unregister(userId);
+      throw e;
+    }
+    sub.setNotificationHandle(notificationHandle);
+  }
+
+  /**
+  * Method for deleting ADS device notification
+  * @return True if successful
+  * @param sub Subscription to be deleted
+  */
+  public boolean unsubscribe(Subscription sub) {
+    lock.lock();
+    try {
+      if(notifications.unregister(sub.getUserId()) == null) return false; //Already deleted
+
+      long errId = 0;
+      if(adsPort != 0) {
+        errId = transport.deleteNotification(sub.getNotificationHandle());
+        if(sub.getSymHandle() != 0)
+          releaseHandle(sub.getSymHandle());
+      }
+      sub.setNotificationHandle(0);
+
+      return (errId == 0);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+  * Method for setting executor running notification listeners. Single daemon thread by default,
+  * which delivers notifications in order of arrival
+  * @param executor Executor running notification listeners
+  */
+  public void setNotificationExecutor(Executor executor) {
+    notifications.setExecutor(executor);
+    notificationThread.shutdown(); //Queued notifications are still delivered
   }
 }
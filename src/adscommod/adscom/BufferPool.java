@@ -0,0 +1,98 @@
+package adscom;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+* Size-classed pool of little-endian transfer buffers for blocking requests.
+* Free buffers are shared by all threads - at most SLOTS buffers per power-of-two
+* size class, taken and returned by atomic swap of a slot without locking, so
+* short-lived (virtual) threads reuse buffers of their predecessors. A buffer is returned
+* only after its request completed, successfully or with an error - buffers of requests
+* failed with ADS timeout (0x745, also reported on interrupt) are left to the garbage
+* collector, as the transport may still use them.
+* Buffers larger than MAX_POOLED_SIZE are not pooled.
+* Class is thread-safe.
+*/
+final class BufferPool {
+  static final int MIN_POOLED_SIZE = 8;
+  static final int MAX_POOLED_SIZE = 64 * 1024; //Whole ADS frame
+  private static final int MIN_CLASS_SHIFT = Integer.numberOfTrailingZeros(MIN_POOLED_SIZE);
+  private static final int CLASSES = Integer.numberOfTrailingZeros(MAX_POOLED_SIZE) - MIN_CLASS_SHIFT + 1;
+  static final int SLOTS = 16; //Free buffers per size class, power of two
+
+  private final AtomicReferenceArray<ByteBuffer> free = new AtomicReferenceArray<>(CLASSES * SLOTS);
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private volatile boolean enabled = true;
+
+  /**
+  * Method for taking buffer from the pool
+  * @return Cleared buffer with limit set to the requested size
+  * @param size Requested size in bytes
+  */
+  ByteBuffer acquire(int size) {
+    if(!enabled || size > MAX_POOLED_SIZE)
+      return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+
+    int sizeClass = sizeClass(size);
+    ByteBuffer buff = null;
+    int first = sizeClass * SLOTS;
+    int probe = probe();
+    for(int i = 0; i < SLOTS && buff == null; i++) {
+      int slot = first + ((probe + i) & (SLOTS - 1));
+      if(free.get(slot) != null) buff = free.getAndSet(slot, null);
+    }
+    if(buff != null) hits.increment();
+    else {
+      buff = ByteBuffer.allocate(MIN_POOLED_SIZE << sizeClass);
+      misses.increment();
+    }
+    buff.clear().limit(size);
+    return buff.order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+  * Method for returning buffer to the pool, call only after completed request
+  * @param buff Buffer taken by acquire
+  */
+  void release(ByteBuffer buff) {
+    int capacity = buff.capacity();
+    if(!enabled || capacity < MIN_POOLED_SIZE || capacity > MAX_POOLED_SIZE || Integer.bitCount(capacity) != 1)
+      return;
+
+    int first = sizeClass(capacity) * SLOTS;
+    int probe = probe();
+    for(int i = 0; i < SLOTS; i++) {
+      int slot = first + ((probe + i) & (SLOTS - 1));
+      if(free.get(slot) == null && free.compareAndSet(slot, null, buff)) return;
+    }
+    //Size class full - left to the garbage collector
+  }
+
+  void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  Map<String, Long> stats() {
+    return Map.of("hits", hits.sum(), "misses", misses.sum());
+  }
+
+  /**
+  * Method for getting first slot probed by current thread, threads start at different
+  * slots so that they do not contend for the same one
+  * @return Slot index within size class
+  */
+  private static int probe() {
+    int h = System.identityHashCode(Thread.currentThread());
+    return (h ^ (h >>> 16)) & (SLOTS - 1);
+  }
+
+  private static int sizeClass(int size) {
+    int shift = 32 - Integer.numberOfLeadingZeros(Math.max(size, MIN_POOLED_SIZE) - 1); //Round up to power of two
+    return shift - MIN_CLASS_SHIFT;
+  }
+}
@@ -0,0 +1,154 @@
+package adscom;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+* PLC data type description uploaded from the target device (ADSIGRP_SYM_DT_UPLOAD).
+* Same class describes data types and their fields (sub-items), as AdsDatatypeEntry does:
+* a structure has fields, a field has offset within the structure and name of its type.
+* Arrays have their dimensions, getType() is then e.g. "ARRAY [1..10] OF REAL".
+* Class is immutable and thread-safe.
+*/
+public final class DataType {
+  static final int ENTRY_HEADER = 42; //Entry length .. sub-item count, without strings
+  private static final int ARRAY_INFO_SIZE = 8; //Lower bound and number of elements
+
+  private final String name;
+  private final String type;
+  private final int size;
+  private final int offset;
+  private final int dataType;
+  private final int flags;
+  private final int[] lowerBounds;
+  private final int[] lengths;
+  private final List<DataType> fields;
+
+  private DataType(String name, String type, int size, int offset, int dataType, int flags,
+                   int[] lowerBounds, int[] lengths, List<DataType> fields) {
+    this.name = name;
+    this.type = type;
+    this.size = size;
+    this.offset = offset;
+    this.dataType = dataType;
+    this.flags = flags;
+    this.lowerBounds = lowerBounds;
+    this.lengths = lengths;
+    this.fields = fields;
+  }
+
+  /**
+  * Method for decoding AdsDatatypeEntry with its sub-items
+  * @return Decoded data type
+  * @param data Upload data
+  * @param pos Index of the entry in data
+  * @param end Index after the last byte the entry may occupy
+  * @exception IllegalArgumentException On malformed entry
+  */
+  static DataType parse(byte[] data, int pos, int end) {
+    if(pos + ENTRY_HEADER > end) throw new IllegalArgumentException("Malformed data type entry at " + pos);
+    int entryLength = PlcTypes.getDInt(data, pos);
+    int nameLength = Short.toUnsignedInt(PlcTypes.getInt(data, pos + 32));
+    int typeLength = Short.toUnsignedInt(PlcTypes.getInt(data, pos + 34));
+    int commentLength = Short.toUnsignedInt(PlcTypes.getInt(data, pos + 36));
+    int arrayDims = Short.toUnsignedInt(PlcTypes.getInt(data, pos + 38));
+    int subItems = Short.toUnsignedInt(PlcTypes.getInt(data, pos + 40));
+    int itemsPos = pos + ENTRY_HEADER + nameLength + typeLength + commentLength + 3 + arrayDims * ARRAY_INFO_SIZE;
+    if(entryLength < itemsPos - pos || pos + entryLength > end)
+      throw new IllegalArgumentException("Malformed data type entry at " + pos);
+
+    String name = new String(data, pos + ENTRY_HEADER, nameLength, StandardCharsets.ISO_8859_1);
+    String type = new String(data, pos + ENTRY_HEADER + nameLength + 1, typeLength, StandardCharsets.ISO_8859_1);
+
+    int[] lowerBounds = new int[arrayDims];
+    int[] lengths = new int[arrayDims];
+    int arrayPos = itemsPos - arrayDims * ARRAY_INFO_SIZE;
+    for(int i = 0; i < arrayDims; i++) {
+      lowerBounds[i] = PlcTypes.getDInt(data, arrayPos + i * ARRAY_INFO_SIZE);
+      lengths[i] = PlcTypes.getDInt(data, arrayPos + i * ARRAY_INFO_SIZE + 4);
+    }
+
+    List<DataType> fields = new ArrayList<>(subItems);
+    for(int i = 0; i < subItems; i++) {
+      DataType field = parse(data, itemsPos, pos + entryLength);
+      fields.add(field);
+      itemsPos += PlcTypes.getDInt(data, itemsPos);
+    }
+
+    return new DataType(name, type, PlcTypes.getDInt(data, pos + 16), PlcTypes.getDInt(data, pos + 20),
+                        PlcTypes.getDInt(data, pos + 24), PlcTypes.getDInt(data, pos + 28),
+                        lowerBounds, lengths, Collections.unmodifiableList(fields));
+  }
+
+  /**
+  * Method for getting name of data type, or name of field within its structure
+  * @return Name, e.g. "ST_AxisStatus" or "fPosition"
+  */
+  public String getName() { return name;}
+
+  /**
+  * Method for getting name of underlying type - type of field, base type of alias
+  * @return Type name, e.g. "LREAL" (empty for structures)
+  */
+  public String getType() { return type;}
+
+  public int getSize() { return size;}
+
+  /**
+  * Method for getting byte offset of field within its structure
+  * @return Offset in bytes (0 for data types)
+  */
+  public int getOffset() { return offset;}
+
+  /**
+  * Method for getting ADS data type ID (ADST_...), of elements for arrays
+  * @return ADS data type ID, e.g. 5 for LREAL, 65 for structures
+  */
+  public int getDataType() { return dataType;}
+
+  /**
+  * Method for getting ADS data type flags (ADSDATATYPEFLAG_...)
+  * @return Data type flags
+  */
+  public int getFlags() { return flags;}
+
+  public int getArrayDims() { return lengths.length;}
+  public int getLowerBound(int dim) { return lowerBounds[dim];}
+  public int getLength(int dim) { return lengths[dim];}
+
+  /**
+  * Method for getting number of array elements over all dimensions
+  * @return Number of elements (1 if not an array)
+  */
+  public int getElementCount() {
+    int count = 1;
+    for(int length : lengths)
+      count *= length;
+    return count;
+  }
+
+  /**
+  * Method for getting fields (sub-items) of structure
+  * @return Unmodifiable list of fields in declaration order, empty if not a structure
+  */
+  public List<DataType> getFields() { return fields;}
+
+  /**
+  * Method for finding field by name
+  * @return Field or null if there is no such field
+  * @param fieldName Field name (case insensitive)
+  */
+  public DataType getField(String fieldName) {
+    for(DataType field : fields)
+      if(field.name.equalsIgnoreCase(fieldName)) return field;
+    return null;
+  }
+
+  @Override
+  public String toString() {
+    return "DataType[" + name + (type.isEmpty() ? "" : " : " + type) + ", " + size + " bytes, "
+           + fields.size() + " fields]";
+  }
+}
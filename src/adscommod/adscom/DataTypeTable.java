@@ -0,0 +1,94 @@
+package adscom;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+* PLC data types uploaded from the target device, indexed by type name, with
+* struct codecs compiled on first use and kept for the lifetime of the table.
+* Names are compared case-insensitively, as in TwinCAT.
+* Class is thread-safe.
+*/
+public final class DataTypeTable {
+  private final Map<String, DataType> types; //Upper case name -> type
+  private final Map<String, StructCodec> codecs = new ConcurrentHashMap<>();
+  private final int version; //Symbol version of PLC at upload
+
+  private DataTypeTable(Map<String, DataType> types, int version) {
+    this.types = types;
+    this.version = version;
+  }
+
+  /**
+  * Method for decoding uploaded data types
+  * @return Data type table
+  * @param data Upload data - AdsDatatypeEntry records one after another
+  * @param length Number of valid bytes in data
+  * @param count Number of data types reported by upload info
+  * @param version Symbol version read before upload
+  * @exception IllegalArgumentException On malformed entry
+  */
+  static DataTypeTable parse(byte[] data, int length, int count, int version) {
+    Map<String, DataType> types = new LinkedHashMap<>();
+    int pos = 0;
+    for(int i = 0; i < count && pos + DataType.ENTRY_HEADER <= length; i++) {
+      DataType type = DataType.parse(data, pos, length);
+      types.putIfAbsent(key(type.getName()), type);
+      pos += PlcTypes.getDInt(data, pos);
+    }
+    return new DataTypeTable(types, version);
+  }
+
+  public int size() { return types.size();}
+
+  /**
+  * Method for getting symbol version (ADSIGRP_SYM_VERSION) of PLC the table was uploaded from
+  * @return Symbol version (0 - 255)
+  */
+  public int getVersion() { return version;}
+
+  /**
+  * Method for finding data type by name
+  * @return Data type or null if unknown
+  * @param typeName Type name, e.g. "ST_AxisStatus" (case insensitive)
+  */
+  public DataType get(String typeName) {
+    return types.get(key(typeName));
+  }
+
+  /**
+  * Method for getting all data types
+  * @return Unmodifiable collection of data types in upload order
+  */
+  public Collection<DataType> getAll() {
+    return Collections.unmodifiableCollection(types.values());
+  }
+
+  /**
+  * Method for getting codec of data type, compiled on first call
+  * @return Struct codec
+  * @param typeName Type name (case insensitive)
+  * @exception IllegalArgumentException When type is unknown
+  */
+  public StructCodec getCodec(String typeName) {
+    StructCodec codec = codecs.get(key(typeName));
+    if(codec != null) return codec;
+
+    DataType type = get(typeName);
+    if(type == null) throw new IllegalArgumentException("Unknown data type: " + typeName);
+    return codecs.computeIfAbsent(key(typeName), k -> StructCodec.compile(type, this));
+  }
+
+  @Override
+  public String toString() {
+    return "DataTypeTable[" + types.size() + " types]";
+  }
+
+  private static String key(String typeName) {
+    return typeName.toUpperCase(Locale.ROOT);
+  }
+}
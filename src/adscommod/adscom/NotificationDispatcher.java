@@ -0,0 +1,48 @@
+package adscom;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+* Routes ADS device notifications from the transport thread (e.g. native ADS
+* router thread) to subscription listeners. Listeners are run on the executor,
+* so a slow listener never blocks the transport.
+* Class is thread-safe.
+*/
+final class NotificationDispatcher {
+  private final Map<Long, Subscription> subscriptions = new ConcurrentHashMap<>();
+  private final AtomicLong nextUserId = new AtomicLong(1);
+  private volatile Executor executor;
+
+  /**
+  * Class constructor
+  * @param executor Executor running subscription listeners
+  */
+  NotificationDispatcher(Executor executor) {
+    this.executor = executor;
+  }
+
+  void setExecutor(Executor executor) { this.executor = executor;}
+  long nextUserId() { return nextUserId.getAndIncrement();}
+  void register(Subscription sub) { subscriptions.put(sub.getUserId(), sub);}
+  Subscription unregister(long userId) { return subscriptions.remove(userId);}
+  Iterable<Subscription> subscriptions() { return subscriptions.values();}
+
+  /**
+  * Method for handing notification over to subscription listener
+  * @param user User value identifying subscription
+  * @param timeStamp ADS timestamp
+  * @param data Notified value as byte array
+  */
+  void dispatch(long user, long timeStamp, byte[] data) {
+    Subscription sub = subscriptions.get(user);
+    if(sub == null) return; //Already unsubscribed
+
+    executor.execute(() -> {
+      if(subscriptions.get(user) == sub) //Skip if unsubscribed in the meantime
+        sub.getListener().onNotification(timeStamp, data);
+    });
+  }
+}
@@ -0,0 +1,16 @@
+package adscom;
+
+/**
+* Listener of ADS device notifications. Called from the notification
+* executor of AdsManager, never from the native ADS thread.
+* @see AdsManager#subscribe
+*/
+@FunctionalInterface
+public interface NotificationListener {
+  /**
+  * Method called on every received notification
+  * @param timeStamp ADS timestamp (100 ns ticks since 1601-01-01 UTC)
+  * @param data Notified value as byte array
+  */
+  void onNotification(long timeStamp, byte[] data);
+}
@@ -0,0 +1,32 @@
+package adscom;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+* Mapping of Java field or record component to field of PLC structure.
+* Optional with uploaded data types - fields are then matched by name.
+* Without them every mapped field needs its byte offset, arrays and strings their length.
+* @see StructMapper
+*/
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.RECORD_COMPONENT})
+public @interface PlcField {
+  /**
+  * PLC field name (case insensitive), Java name if empty
+  */
+  String value() default "";
+
+  /**
+  * Byte offset within the structure, -1 - taken from uploaded data type
+  */
+  int offset() default -1;
+
+  /**
+  * Number of array elements, or maximum number of STRING characters,
+  * 0 - taken from uploaded data type
+  */
+  int length() default 0;
+}
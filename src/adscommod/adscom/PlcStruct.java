@@ -0,0 +1,21 @@
+package adscom;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+* Marks Java class mapped to PLC structure, needed on classes used as nested
+* structure fields (records are recognized without it).
+* @see StructMapper
+*/
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface PlcStruct {
+  /**
+  * Size of the structure in bytes including trailing padding, 0 - end of its last field.
+  * Ignored with uploaded data types
+  */
+  int size() default 0;
+}
@@ -0,0 +1,343 @@
+package adscom;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+* Decoding and encoding of PLC (IEC 61131-3) elementary types in ADS byte order.
+* Scalars are read from and written to byte arrays through little-endian array
+* view VarHandles, so no ByteBuffer is wrapped and no value is boxed. Arrays are
+* copied in bulk through little-endian buffer views, which is plain memory copy
+* on little-endian hosts.
+* Type names follow TwinCAT: BOOL and BYTE 1 byte, INT 2 bytes, DINT 4 bytes,
+* LINT 8 bytes, REAL 4 bytes and LREAL 8 bytes.
+*/
+public final class PlcTypes {
+  public static final int BOOL_SIZE = 1;
+  public static final int BYTE_SIZE = 1;
+  public static final int INT_SIZE = 2;
+  public static final int DINT_SIZE = 4;
+  public static final int LINT_SIZE = 8;
+  public static final int REAL_SIZE = 4;
+  public static final int LREAL_SIZE = 8;
+
+  private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final VarHandle DINT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final VarHandle LINT = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final VarHandle REAL = MethodHandles.byteArrayViewVarHandle(float[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final VarHandle LREAL = MethodHandles.byteArrayViewVarHandle(double[].class, ByteOrder.LITTLE_ENDIAN);
+
+  private PlcTypes() {}
+
+  //Scalars - offset is byte index of the value
+
+  public static boolean getBool(byte[] data, int offset) { return data[offset] != 0;}
+  public static byte getByte(byte[] data, int offset) { return data[offset];}
+  public static short getInt(byte[] data, int offset) { return (short)INT.get(data, offset);}
+  public static int getDInt(byte[] data, int offset) { return (int)DINT.get(data, offset);}
+  public static long getLInt(byte[] data, int offset) { return (long)LINT.get(data, offset);}
+  public static float getReal(byte[] data, int offset) { return (float)REAL.get(data, offset);}
+  public static double getLReal(byte[] data, int offset) { return (double)LREAL.get(data, offset);}
+
+  public static void putBool(byte[] data, int offset, boolean value) { data[offset] = (byte)(value ? 1 : 0);}
+  public static void putByte(byte[] data, int offset, byte value) { data[offset] = value;}
+  public static void putInt(byte[] data, int offset, short value) { INT.set(data, offset, value);}
+  public static void putDInt(byte[] data, int offset, int value) { DINT.set(data, offset, value);}
+  public static void putLInt(byte[] data, int offset, long value) { LINT.set(data, offset, value);}
+  public static void putReal(byte[] data, int offset, float value) { REAL.set(data, offset, value);}
+  public static void putLReal(byte[] data, int offset, double value) { LREAL.set(data, offset, value);}
+
+  //Arrays - elements are packed one after another, as in PLC ARRAY
+
+  private static ByteBuffer view(byte[] data, int offset, int length) {
+    return ByteBuffer.wrap(data, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+  * Method for decoding ARRAY OF BOOL
+  * @return Decoded values
+  * @param data Encoded data
+  * @param offset Byte index of the first element
+  * @param count Number of elements
+  */
+  public static boolean[] getBools(byte[] data, int offset, int count) {
+    boolean[] values = new boolean[count];
+    for(int i = 0; i < count; i++)
+      values[i] = data[offset + i] != 0;
+    return values;
+  }
+
+  /**
+  * Method for decoding ARRAY OF INT
+  * @return Decoded values
+  * @param data Encoded data
+  * @param offset Byte index of the first element
+  * @param count Number of elements
+  */
+  public static short[] getInts(byte[] data, int offset, int count) {
+    short[] values = new short[count];
+    view(data, offset, count * INT_SIZE).asShortBuffer().get(values);
+    return values;
+  }
+
+  /**
+  * Method for decoding ARRAY OF DINT
+  * @return Decoded values
+  * @param data Encoded data
+  * @param offset Byte index of the first element
+  * @param count Number of elements
+  */
+  public static int[] getDInts(byte[] data, int offset, int count) {
+    int[] values = new int[count];
+    view(data, offset, count * DINT_SIZE).asIntBuffer().get(values);
+    return values;
+  }
+
+  /**
+  * Method for decoding ARRAY OF LINT
+  * @return Decoded values
+  * @param data Encoded data
+  * @param offset Byte index of the first element
+  * @param count Number of elements
+  */
+  public static long[] getLInts(byte[] data, int offset, int count) {
+    long[] values = new long[count];
+    view(data, offset, count * LINT_SIZE).asLongBuffer().get(values);
+    return values;
+  }
+
+  /**
+  * Method for decoding ARRAY OF REAL
+  * @return Decoded values
+  * @param data Encoded data
+  * @param offset Byte index of the first element
+  * @param count Number of elements
+  */
+  public static float[] getReals(byte[] data, int offset, int count) {
+    float[] values = new float[count];
+    view(data, offset, count * REAL_SIZE).asFloatBuffer().get(values);
+    return values;
+  }
+
+  /**
+  * Method for decoding ARRAY OF LREAL
+  * @return Decoded values
+  * @param data Encoded data
+  * @param offset Byte index of the first element
+  * @param count Number of elements
+  */
+  public static double[] getLReals(byte[] data, int offset, int count) {
+    double[] values = new double[count];
+    view(data, offset, count * LREAL_SIZE).asDoubleBuffer().get(values);
+    return values;
+  }
+
+  /**
+  * Method for encoding ARRAY OF BOOL
+  * @return Encoded data
+  * @param values Values
+  */
+  public static byte[] encodeBools(boolean[] values) {
+    byte[] data = new byte[values.length * BOOL_SIZE];
+    putBools(data, 0, values);
+    return data;
+  }
+
+  /**
+  * Method for encoding ARRAY OF BOOL into existing array
+  * @param data Encoded data
+  * @param offset Byte index of the first element
+  * @param values Values
+  */
+  public static void putBools(byte[] data, int offset, boolean[] values) {
+    for(int i = 0; i < values.length; i++)
+      data[offset + i] = (byte)(values[i] ? 1 : 0);
+  }
+
+  /**
+  * Method for encoding ARRAY OF INT
+  * @return Encoded data
+  * @param values Values
+  */
+  public static byte[] encodeInts(short[] values) {
+    byte[] data = new byte[values.length * INT_SIZE];
+    putInts(data, 0, values);
+    return data;
+  }
+
+  /**
+  * Method for encoding ARRAY OF INT into existing array
+  * @param data Encoded data
+  * @param offset Byte index of the first element
+  * @param values Values
+  */
+  public static void putInts(byte[] data, int offset, short[] values) {
+    view(data, offset, values.length * INT_SIZE).asShortBuffer().put(values);
+  }
+
+  /**
+  * Method for encoding ARRAY OF DINT
+  * @return Encoded data
+  * @param values Values
+  */
+  public static byte[] encodeDInts(int[] values) {
+    byte[] data = new byte[values.length * DINT_SIZE];
+    putDInts(data, 0, values);
+    return data;
+  }
+
+  /**
+  * Method for encoding ARRAY OF DINT into existing array
+  * @param data Encoded data
+  * @param offset Byte index of the first element
+  * @param values Values
+  */
+  public static void putDInts(byte[] data, int offset, int[] values) {
+    view(data, offset, values.length * DINT_SIZE).asIntBuffer().put(values);
+  }
+
+  /**
+  * Method for encoding ARRAY OF LINT
+  * @return Encoded data
+  * @param values Values
+  */
+  public static byte[] encodeLInts(long[] values) {
+    byte[] data = new byte[values.length * LINT_SIZE];
+    putLInts(data, 0, values);
+    return data;
+  }
+
+  /**
+  * Method for encoding ARRAY OF LINT into existing array
+  * @param data Encoded data
+  * @param offset Byte index of the first element
+  * @param values Values
+  */
+  public static void putLInts(byte[] data, int offset, long[] values) {
+    view(data, offset, values.length * LINT_SIZE).asLongBuffer().put(values);
+  }
+
+  /**
+  * Method for encoding ARRAY OF REAL
+  * @return Encoded data
+  * @param values Values
+  */
+  public static byte[] encodeReals(float[] values) {
+    byte[] data = new byte[values.length * REAL_SIZE];
+    putReals(data, 0, values);
+    return data;
+  }
+
+  /**
+  * Method for encoding ARRAY OF REAL into existing array
+  * @param data Encoded data
+  * @param offset Byte index of the first element
+  * @param values Values
+  */
+  public static void putReals(byte[] data, int offset, float[] values) {
+    view(data, offset, values.length * REAL_SIZE).asFloatBuffer().put(values);
+  }
+
+  /**
+  * Method for encoding ARRAY OF LREAL
+  * @return Encoded data
+  * @param values Values
+  */
+  public static byte[] encodeLReals(double[] values) {
+    byte[] data = new byte[values.length * LREAL_SIZE];
+    putLReals(data, 0, values);
+    return data;
+  }
+
+  /**
+  * Method for encoding ARRAY OF LREAL into existing array
+  * @param data Encoded data
+  * @param offset Byte index of the first element
+  * @param values Values
+  */
+  public static void putLReals(byte[] data, int offset, double[] values) {
+    view(data, offset, values.length * LREAL_SIZE).asDoubleBuffer().put(values);
+  }
+
+  //Strings and raw data - fixed size fields, strings null terminated
+
+  /**
+  * Method for decoding STRING(n), n + 1 bytes including terminator
+  * @return Decoded string up to terminator
+  * @param data Encoded data
+  * @param offset Byte index of the first character
+  * @param size Size of the field in bytes
+  */
+  public static String getString(byte[] data, int offset, int size) {
+    int length = 0;
+    while(length < size && data[offset + length] != 0) length++;
+    return new String(data, offset, length, StandardCharsets.ISO_8859_1);
+  }
+
+  /**
+  * Method for decoding WSTRING(n), 2 * (n + 1) bytes including terminator
+  * @return Decoded string up to terminator
+  * @param data Encoded data
+  * @param offset Byte index of the first character
+  * @param size Size of the field in bytes
+  */
+  public static String getWString(byte[] data, int offset, int size) {
+    int length = 0;
+    while(length + 1 < size && (data[offset + length] != 0 || data[offset + length + 1] != 0)) length += 2;
+    return new String(data, offset, length, StandardCharsets.UTF_16LE);
+  }
+
+  /**
+  * Method for encoding STRING(n), truncated to leave room for terminator, rest of the field zeroed
+  * @param data Encoded data
+  * @param offset Byte index of the first character
+  * @param size Size of the field in bytes
+  * @param value String
+  */
+  public static void putString(byte[] data, int offset, int size, String value) {
+    putChars(data, offset, size, value.getBytes(StandardCharsets.ISO_8859_1), 1);
+  }
+
+  /**
+  * Method for encoding WSTRING(n), truncated to leave room for terminator, rest of the field zeroed
+  * @param data Encoded data
+  * @param offset Byte index of the first character
+  * @param size Size of the field in bytes
+  * @param value String
+  */
+  public static void putWString(byte[] data, int offset, int size, String value) {
+    putChars(data, offset, size, value.getBytes(StandardCharsets.UTF_16LE), 2);
+  }
+
+  private static void putChars(byte[] data, int offset, int size, byte[] chars, int terminator) {
+    int length = Math.min(chars.length, Math.max(size - terminator, 0));
+    length -= length % terminator; //Whole characters only
+    System.arraycopy(chars, 0, data, offset, length);
+    Arrays.fill(data, offset + length, offset + size, (byte)0);
+  }
+
+  /**
+  * Method for copying raw field, e.g. ARRAY OF BYTE
+  * @return Copy of the field
+  * @param data Encoded data
+  * @param offset Byte index of the field
+  * @param size Size of the field in bytes
+  */
+  public static byte[] getBytes(byte[] data, int offset, int size) {
+    return Arrays.copyOfRange(data, offset, offset + size);
+  }
+
+  /**
+  * Method for copying raw field into existing array
+  * @param data Encoded data
+  * @param offset Byte index of the field
+  * @param values Field bytes
+  */
+  public static void putBytes(byte[] data, int offset, byte[] values) {
+    System.arraycopy(values, 0, data, offset, values.length);
+  }
+}
@@ -0,0 +1,417 @@
+package adscom;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+* Decoder and encoder of one PLC data type, compiled from its uploaded description.
+* Structure is flattened at compile time into fields with precomputed byte offsets:
+* nested structures and arrays of structures are expanded into their elementary
+* fields named by path, e.g. "stAxis.fPosition" or "aAxes[1].bEnabled"; arrays of
+* elementary types stay one field. Decoding walks the flat offset table once, with no
+* reflection and no lookups by name.
+* Values are Boolean, Byte, Short, Integer, Long, Float, Double and String (STRING,
+* WSTRING), arrays are boolean[], byte[], short[], int[], long[], float[] and double[];
+* fields of types unknown to the codec are byte[] of their size.
+* Get field numbers once by fieldIndex() and keep them. Codec is immutable and thread-safe.
+*/
+public final class StructCodec {
+  //Field kinds
+  static final int BOOL = 0;
+  static final int BYTE = 1;
+  static final int INT = 2;
+  static final int DINT = 3;
+  static final int LINT = 4;
+  static final int REAL = 5;
+  static final int LREAL = 6;
+  static final int STRING = 7;
+  static final int WSTRING = 8;
+  static final int RAW = 9; //Also ARRAY OF BYTE
+  static final int BOOLS = 10;
+  static final int INTS = 11;
+  static final int DINTS = 12;
+  static final int LINTS = 13;
+  static final int REALS = 14;
+  static final int LREALS = 15;
+
+  //ADS data type IDs (ADST_...)
+  private static final int ADST_INT16 = 2;
+  private static final int ADST_INT32 = 3;
+  private static final int ADST_REAL32 = 4;
+  private static final int ADST_REAL64 = 5;
+  private static final int ADST_INT8 = 16;
+  private static final int ADST_UINT8 = 17;
+  private static final int ADST_UINT16 = 18;
+  private static final int ADST_UINT32 = 19;
+  private static final int ADST_INT64 = 20;
+  private static final int ADST_UINT64 = 21;
+  private static final int ADST_STRING = 30;
+  private static final int ADST_WSTRING = 31;
+  private static final int ADST_BIT = 33;
+
+  private static final int MAX_DEPTH = 32; //Nesting limit, guards against recursive type descriptions
+
+  private final DataType type;
+  private final String[] names;
+  private final String[] types;
+  private final int[] kinds;
+  private final int[] offsets;
+  private final int[] lengths; //Elements of arrays, bytes of strings and raw fields, 1 otherwise
+  private final Map<String, Integer> index = new HashMap<>();
+
+  private StructCodec(DataType type, List<Field> fields) {
+    this.type = type;
+    int count = fields.size();
+    names = new String[count];
+    types = new String[count];
+    kinds = new int[count];
+    offsets = new int[count];
+    lengths = new int[count];
+    for(int i = 0; i < count; i++) {
+      Field field = fields.get(i);
+      names[i] = field.name;
+      types[i] = field.type;
+      kinds[i] = field.kind;
+      offsets[i] = field.offset;
+      lengths[i] = field.length;
+      index.putIfAbsent(field.name.toUpperCase(Locale.ROOT), i);
+    }
+  }
+
+  /**
+  * Elementary field found while compiling
+  */
+  private static final class Field {
+    final String name;
+    final String type;
+    final int kind;
+    final int offset;
+    final int length;
+
+    Field(String name, String type, int kind, int offset, int length) {
+      this.name = name;
+      this.type = type;
+      this.kind = kind;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+  /**
+  * Method for compiling codec of data type
+  * @return Compiled codec
+  * @param type Data type to be decoded and encoded
+  * @param table Data types resolving types of fields
+  * @exception IllegalArgumentException When type nesting is too deep
+  */
+  static StructCodec compile(DataType type, DataTypeTable table) {
+    List<Field> fields = new ArrayList<>();
+    if(type.getFields().isEmpty()) addField(fields, "", type, 0, table, 0); //Elementary type or array
+    else addFields(fields, "", type, 0, table, 0);
+    return new StructCodec(type, fields);
+  }
+
+  /**
+  * Method for adding fields of structure
+  * @param fields Compiled fields
+  * @param prefix Path of the structure including trailing dot, empty for the compiled type
+  * @param struct Structure
+  * @param base Offset of the structure
+  * @param table Data types resolving types of fields
+  * @param depth Nesting depth
+  */
+  private static void addFields(List<Field> fields, String prefix, DataType struct, int base,
+                                DataTypeTable table, int depth) {
+    if(depth > MAX_DEPTH) throw new IllegalArgumentException("Data type nested too deep: " + struct.getName());
+    for(DataType field : struct.getFields())
+      addField(fields, prefix + field.getName(), field, base + field.getOffset(), table, depth + 1);
+  }
+
+  /**
+  * Method for adding field, expanded if it is a structure or array of structures
+  * @param fields Compiled fields
+  * @param path Path of the field
+  * @param field Field description
+  * @param offset Offset of the field
+  * @param table Data types resolving types of fields
+  * @param depth Nesting depth
+  */
+  private static void addField(List<Field> fields, String path, DataType field, int offset,
+                               DataTypeTable table, int depth) {
+    DataType struct = structOf(field, field.getType(), table);
+    if(field.getArrayDims() == 0) {
+      if(struct != null) addFields(fields, path.isEmpty() ? "" : path + ".", struct, offset, table, depth);
+      else fields.add(elementary(path, field.getType(), field.getDataType(), offset, field.getSize()));
+      return;
+    }
+
+    int count = field.getElementCount();
+    if(count == 0) return;
+    int elementSize = field.getSize() / count;
+    String elementType = elementType(field.getType());
+    DataType elementStruct = (elementType != null) ? structOf(null, elementType, table) : null;
+    Field array = arrayOf(path, field.getType(), field.getDataType(), offset, elementSize, count);
+    if(elementStruct == null && array != null) {
+      fields.add(array);
+      return;
+    }
+
+    //Array of structures or strings - every element is expanded
+    for(int i = 0; i < count; i++) {
+      String elementPath = path + elementIndex(field, i);
+      int elementOffset = offset + i * elementSize;
+      if(elementStruct != null) addFields(fields, elementPath + ".", elementStruct, elementOffset, table, depth);
+      else fields.add(elementary(elementPath, elementType, field.getDataType(), elementOffset, elementSize));
+    }
+  }
+
+  /**
+  * Method for finding structure a field is made of
+  * @return Structure or null if field is not a structure
+  * @param field Field with its own sub-items (null - look up type only)
+  * @param typeName Type name of the field
+  * @param table Data types
+  */
+  private static DataType structOf(DataType field, String typeName, DataTypeTable table) {
+    if(field != null && !field.getFields().isEmpty() && field.getArrayDims() == 0) return field;
+    DataType type = table.get(typeName);
+    return (type != null && !type.getFields().isEmpty()) ? type : null;
+  }
+
+  /**
+  * Method for creating elementary field
+  * @return Field, raw if the type has no decoder
+  * @param path Path of the field
+  * @param typeName PLC type name
+  * @param adsType ADS data type ID
+  * @param offset Offset of the field
+  * @param size Size of the field in bytes
+  */
+  private static Field elementary(String path, String typeName, int adsType, int offset, int size) {
+    int kind;
+    switch(adsType) {
+      case ADST_BIT: kind = BOOL; break;
+      case ADST_INT8: case ADST_UINT8: kind = BYTE; break;
+      case ADST_INT16: case ADST_UINT16: kind = INT; break;
+      case ADST_INT32: case ADST_UINT32: kind = DINT; break;
+      case ADST_INT64: case ADST_UINT64: kind = LINT; break;
+      case ADST_REAL32: kind = REAL; break;
+      case ADST_REAL64: kind = LREAL; break;
+      case ADST_STRING: return new Field(path, typeName, STRING, offset, size);
+      case ADST_WSTRING: return new Field(path, typeName, WSTRING, offset, size);
+      default: return new Field(path, typeName, RAW, offset, size);
+    }
+    if(size != elementSize(kind)) return new Field(path, typeName, RAW, offset, size);
+    return new Field(path, typeName, kind, offset, 1);
+  }
+
+  /**
+  * Method for creating array field of elementary type
+  * @return Field or null if elements are strings
+  * @param path Path of the field
+  * @param typeName PLC type name of the array
+  * @param adsType ADS data type ID of elements
+  * @param offset Offset of the field
+  * @param elementSize Size of element in bytes
+  * @param count Number of elements
+  */
+  private static Field arrayOf(String path, String typeName, int adsType, int offset, int elementSize, int count) {
+    Field element = elementary(path, typeName, adsType, offset, elementSize);
+    switch(element.kind) {
+      case BOOL: return new Field(path, typeName, BOOLS, offset, count);
+      case BYTE: return new Field(path, typeName, RAW, offset, count);
+      case INT: return new Field(path, typeName, INTS, offset, count);
+      case DINT: return new Field(path, typeName, DINTS, offset, count);
+      case LINT: return new Field(path, typeName, LINTS, offset, count);
+      case REAL: return new Field(path, typeName, REALS, offset, count);
+      case LREAL: return new Field(path, typeName, LREALS, offset, count);
+      case RAW: return new Field(path, typeName, RAW, offset, count * elementSize);
+      default: return null; //Strings
+    }
+  }
+
+  /**
+  * Method for getting element type name of array type name
+  * @return Element type, e.g. "ST_Axis" for "ARRAY [1..4] OF ST_Axis", null if not found
+  * @param typeName Array type name
+  */
+  private static String elementType(String typeName) {
+    int of = typeName.toUpperCase(Locale.ROOT).indexOf(" OF ");
+    return (of < 0) ? null : typeName.substring(of + 4).trim();
+  }
+
+  /**
+  * Method for formatting array index of element
+  * @return Index, e.g. "[3]" or "[1,2]"
+  * @param array Array field
+  * @param element Element number in memory order (last dimension changes fastest)
+  */
+  private static String elementIndex(DataType array, int element) {
+    int dims = array.getArrayDims();
+    int[] indices = new int[dims];
+    for(int dim = dims - 1; dim >= 0; dim--) {
+      indices[dim] = array.getLowerBound(dim) + element % array.getLength(dim);
+      element /= array.getLength(dim);
+    }
+    StringBuilder index = new StringBuilder("[");
+    for(int dim = 0; dim < dims; dim++)
+      index.append(dim == 0 ? "" : ",").append(indices[dim]);
+    return index.append(']').toString();
+  }
+
+  private static int elementSize(int kind) {
+    switch(kind) {
+      case BOOL: case BYTE: return 1;
+      case INT: return PlcTypes.INT_SIZE;
+      case DINT: case REAL: return PlcTypes.DINT_SIZE;
+      default: return PlcTypes.LINT_SIZE;
+    }
+  }
+
+  public DataType getType() { return type;}
+  public int getSize() { return type.getSize();}
+  public int getFieldCount() { return names.length;}
+
+  /**
+  * Method for getting field path
+  * @return Path of the field within the type, e.g. "stAxis.fPosition"
+  * @param field Field number
+  */
+  public String getFieldName(int field) { return names[field];}
+
+  /**
+  * Method for getting PLC type name of field
+  * @return Type name, e.g. "LREAL" or "ARRAY [1..10] OF INT"
+  * @param field Field number
+  */
+  public String getFieldType(int field) { return types[field];}
+
+  /**
+  * Method for getting byte offset of field, e.g. for PlcTypes getters on raw data
+  * @return Offset from the start of the type in bytes
+  * @param field Field number
+  */
+  public int getFieldOffset(int field) { return offsets[field];}
+
+  /**
+  * Method for finding field by path
+  * @return Field number (-1 - unknown field)
+  * @param path Field path, e.g. "stAxis.fPosition" (case insensitive)
+  */
+  public int fieldIndex(String path) {
+    Integer field = index.get(path.toUpperCase(Locale.ROOT));
+    return (field != null) ? field : -1;
+  }
+
+  /**
+  * Method for decoding value of the type
+  * @return Values of all fields in field order
+  * @param data Encoded value
+  * @param offset Index of the first byte of the value in data
+  */
+  public Object[] decode(byte[] data, int offset) {
+    Object[] values = new Object[names.length];
+    decode(data, offset, values);
+    return values;
+  }
+
+  /**
+  * Method for decoding value of the type into caller's array
+  * @param data Encoded value
+  * @param offset Index of the first byte of the value in data
+  * @param values Array receiving values of all fields in field order
+  */
+  public void decode(byte[] data, int offset, Object[] values) {
+    if(offset + getSize() > data.length) throw new IndexOutOfBoundsException("Value exceeds data");
+    for(int i = 0; i < kinds.length; i++) {
+      int at = offset + offsets[i];
+      switch(kinds[i]) {
+        case BOOL: values[i] = PlcTypes.getBool(data, at); break;
+        case BYTE: values[i] = PlcTypes.getByte(data, at); break;
+        case INT: values[i] = PlcTypes.getInt(data, at); break;
+        case DINT: values[i] = PlcTypes.getDInt(data, at); break;
+        case LINT: values[i] = PlcTypes.getLInt(data, at); break;
+        case REAL: values[i] = PlcTypes.getReal(data, at); break;
+        case LREAL: values[i] = PlcTypes.getLReal(data, at); break;
+        case STRING: values[i] = PlcTypes.getString(data, at, lengths[i]); break;
+        case WSTRING: values[i] = PlcTypes.getWString(data, at, lengths[i]); break;
+        case RAW: values[i] = PlcTypes.getBytes(data, at, lengths[i]); break;
+        case BOOLS: values[i] = PlcTypes.getBools(data, at, lengths[i]); break;
+        case INTS: values[i] = PlcTypes.getInts(data, at, lengths[i]); break;
+        case DINTS: values[i] = PlcTypes.getDInts(data, at, lengths[i]); break;
+        case LINTS: values[i] = PlcTypes.getLInts(data, at, lengths[i]); break;
+        case REALS: values[i] = PlcTypes.getReals(data, at, lengths[i]); break;
+        case LREALS: values[i] = PlcTypes.getLReals(data, at, lengths[i]); break;
+      }
+    }
+  }
+
+  /**
+  * Method for decoding value of the type from buffer, position is advanced by size of the type
+  * @return Values of all fields in field order
+  * @param src Buffer holding encoded value from its position, heap or direct
+  */
+  public Object[] decode(ByteBuffer src) {
+    int size = getSize();
+    if(src.hasArray()) {
+      Object[] values = decode(src.array(), src.arrayOffset() + src.position());
+      src.position(src.position() + size);
+      return values;
+    }
+    byte[] data = new byte[size];
+    src.get(data);
+    return decode(data, 0);
+  }
+
+  /**
+  * Method for encoding value of the type. Bytes not covered by fields (padding) are left unchanged
+  * @param values Values of all fields in field order, numbers may be of any Number type
+  * @param data Array receiving encoded value
+  * @param offset Index of the first byte of the value in data
+  * @exception IllegalArgumentException When array value is longer than its field
+  */
+  public void encode(Object[] values, byte[] data, int offset) {
+    if(values.length != kinds.length) throw new IllegalArgumentException("Expected " + kinds.length + " values");
+    if(offset + getSize() > data.length) throw new IndexOutOfBoundsException("Value exceeds data");
+    for(int i = 0; i < kinds.length; i++) {
+      int at = offset + offsets[i];
+      Object value = values[i];
+      switch(kinds[i]) {
+        case BOOL: PlcTypes.putBool(data, at, (Boolean)value); break;
+        case BYTE: PlcTypes.putByte(data, at, ((Number)value).byteValue()); break;
+        case INT: PlcTypes.putInt(data, at, ((Number)value).shortValue()); break;
+        case DINT: PlcTypes.putDInt(data, at, ((Number)value).intValue()); break;
+        case LINT: PlcTypes.putLInt(data, at, ((Number)value).longValue()); break;
+        case REAL: PlcTypes.putReal(data, at, ((Number)value).floatValue()); break;
+        case LREAL: PlcTypes.putLReal(data, at, ((Number)value).doubleValue()); break;
+        case STRING: PlcTypes.putString(data, at, lengths[i], (String)value); break;
+        case WSTRING: PlcTypes.putWString(data, at, lengths[i], (String)value); break;
+        case RAW: checkLength(i, ((byte[])value).length); PlcTypes.putBytes(data, at, (byte[])value); break;
+        case BOOLS: checkLength(i, ((boolean[])value).length); PlcTypes.putBools(data, at, (boolean[])value); break;
+        case INTS: checkLength(i, ((short[])value).length); PlcTypes.putInts(data, at, (short[])value); break;
+        case DINTS: checkLength(i, ((int[])value).length); PlcTypes.putDInts(data, at, (int[])value); break;
+        case LINTS: checkLength(i, ((long[])value).length); PlcTypes.putLInts(data, at, (long[])value); break;
+        case REALS: checkLength(i, ((float[])value).length); PlcTypes.putReals(data, at, (float[])value); break;
+        case LREALS: checkLength(i, ((double[])value).length); PlcTypes.putLReals(data, at, (double[])value); break;
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "StructCodec[" + type.getName() + ", " + names.length + " fields]";
+  }
+
+  int getKind(int field) { return kinds[field];}
+  int getLength(int field) { return lengths[field];}
+
+  private int checkLength(int field, int length) {
+    if(length > lengths[field])
+      throw new IllegalArgumentException("Value of " + names[field] + " exceeds " + lengths[field] + " elements");
+    return length;
+  }
+}
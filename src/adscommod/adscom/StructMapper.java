@@ -0,0 +1,471 @@
+package adscom;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+* Mapping of PLC structure to Java record or class, for reading and writing whole
+* structures as Java objects (AdsManager.readStruct, writeStruct).
+* Mapped are all record components, or all non-static non-transient fields of a class
+* (with no-argument constructor, fields not final). Field names match PLC field names
+* unless renamed by PlcField. Layout is taken either from uploaded data type (StructCodec),
+* or from PlcField offsets and lengths. A mapping may cover only some fields of the PLC type;
+* it is complete if it covers every field of the uploaded data type (see isComplete()).
+* Java types map to PLC types: boolean - BOOL, byte - BYTE/SINT/USINT, short - INT/UINT/WORD,
+* int - DINT/UDINT/DWORD, long - LINT/ULINT/LWORD, float - REAL, double - LREAL,
+* String - STRING/WSTRING, arrays of them to ARRAY OF, byte[] to any field of unknown type;
+* records and PlcStruct classes to nested structures.
+* Accessors are bound once into one method handle per direction, so decoding calls
+* no reflection and no lookup by name. Mapper is immutable and thread-safe.
+*/
+public final class StructMapper<T> {
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+  private static final int MAX_DEPTH = 32;
+  private static final int MAX_ARGUMENTS = 250; //Argument slots of method handle are limited to 255
+  private static final int DEFAULT_STRING_LENGTH = 80; //Characters of STRING without length
+  private static final MethodHandle PLUS;
+  private static final MethodHandle CHECK_ARRAY;
+  private static final MethodHandle PUT_RAW;
+
+  static {
+    try {
+      PLUS = LOOKUP.findStatic(StructMapper.class, "plus", MethodType.methodType(int.class, int.class, int.class));
+      CHECK_ARRAY = LOOKUP.findStatic(StructMapper.class, "checkArray",
+                                      MethodType.methodType(Object.class, Object.class, int.class));
+      PUT_RAW = LOOKUP.findStatic(PlcTypes.class, "putBytes",
+                                  MethodType.methodType(void.class, byte[].class, int.class, byte[].class));
+    } catch(ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private final Class<T> type;
+  private final int size;
+  private final MethodHandle decoder; //(byte[] data, int offset)Object
+  private final MethodHandle encoder; //(Object value, byte[] data, int offset)void
+  private final boolean complete; //Every field of the PLC type is mapped
+
+  private StructMapper(Class<T> type, int size, boolean complete, MethodHandle decoder, MethodHandle encoder) {
+    this.type = type;
+    this.size = size;
+    this.complete = complete;
+    this.decoder = decoder.asType(MethodType.methodType(Object.class, byte[].class, int.class));
+    this.encoder = encoder.asType(MethodType.methodType(void.class, Object.class, byte[].class, int.class));
+  }
+
+  /**
+  * Layout of one mapped Java type
+  */
+  private static final class Compiled {
+    final MethodHandle decoder; //(byte[], int)type
+    final MethodHandle encoder; //(type, byte[], int)void
+    final int end; //Offset after the last field
+
+    Compiled(MethodHandle decoder, MethodHandle encoder, int end) {
+      this.decoder = decoder;
+      this.encoder = encoder;
+      this.end = end;
+    }
+  }
+
+  /**
+  * Method for creating mapper with layout of uploaded data type
+  * @return Mapper
+  * @param lookup Lookup with access to the type, its constructor and fields, e.g. MethodHandles.lookup()
+  * @param type Record or class to be mapped
+  * @param codec Codec of the PLC type, from DataTypeTable.getCodec
+  * @exception IllegalArgumentException When a field is missing in the PLC type or its Java type does not match
+  */
+  public static <T> StructMapper<T> of(MethodHandles.Lookup lookup, Class<T> type, StructCodec codec) {
+    BitSet covered = new BitSet(codec.getFieldCount());
+    Compiled compiled = compile(lookup, type, codec, covered, "", 0, 0);
+    return new StructMapper<>(type, codec.getSize(), covered.cardinality() == codec.getFieldCount(),
+                              compiled.decoder, compiled.encoder);
+  }
+
+  /**
+  * Method for creating mapper with layout of PlcField annotations
+  * @return Mapper
+  * @param lookup Lookup with access to the type, its constructor and fields, e.g. MethodHandles.lookup()
+  * @param type Record or class to be mapped, every field annotated with offset
+  * @exception IllegalArgumentException When a field has no offset or length, or its Java type is not supported
+  */
+  public static <T> StructMapper<T> of(MethodHandles.Lookup lookup, Class<T> type) {
+    Compiled compiled = compile(lookup, type, null, null, "", 0, 0);
+    return new StructMapper<>(type, structSize(type, compiled.end), false, compiled.decoder, compiled.encoder);
+  }
+
+  public Class<T> getType() { return type;}
+  public int getSize() { return size;}
+
+  /**
+  * Method for checking whether mapping covers the whole PLC structure. Only mappings
+  * of uploaded data types (StructCodec) can be complete - layout of annotations
+  * does not tell which bytes belong to fields not declared in Java
+  * @return True if every field of the PLC type is mapped
+  */
+  public boolean isComplete() { return complete;}
+
+  /**
+  * Method for decoding structure
+  * @return New object holding the structure
+  * @param data Encoded structure
+  * @param offset Index of the first byte of the structure in data
+  */
+  @SuppressWarnings("unchecked")
+  public T decode(byte[] data, int offset) {
+    if(offset < 0 || offset + size > data.length) throw new IndexOutOfBoundsException("Structure exceeds data");
+    try {
+      return (T)decoder.invokeExact(data, offset);
+    } catch(RuntimeException | Error e) {
+      throw e;
+    } catch(Throwable e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+  * Method for encoding structure. Bytes not covered by fields (padding) are left unchanged
+  * @param value Object holding the structure
+  * @param data Array receiving encoded structure
+  * @param offset Index of the first byte of the structure in data
+  * @exception IllegalArgumentException When array is longer than its PLC field
+  * @exception NullPointerException When a String, array or nested structure field is null
+  */
+  public void encode(T value, byte[] data, int offset) {
+    if(offset < 0 || offset + size > data.length) throw new IndexOutOfBoundsException("Structure exceeds data");
+    try {
+      encoder.invokeExact((Object)value, data, offset);
+    } catch(RuntimeException | Error e) {
+      throw e;
+    } catch(Throwable e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "StructMapper[" + type.getName() + ", " + size + " bytes]";
+  }
+
+  /**
+  * Method for compiling decoder and encoder of mapped type
+  * @return Compiled handles
+  * @param lookup Lookup with access to the type
+  * @param type Mapped type
+  * @param codec Codec of the outermost PLC type (null - layout of annotations)
+  * @param covered Receives numbers of mapped codec fields (null - layout of annotations)
+  * @param prefix Path of the structure in the codec including trailing dot
+  * @param base Offset of the structure when laid out by annotations
+  * @param depth Nesting depth
+  */
+  private static Compiled compile(MethodHandles.Lookup lookup, Class<?> type, StructCodec codec,
+                                  BitSet covered, String prefix, int base, int depth) {
+    if(depth > MAX_DEPTH) throw new IllegalArgumentException("Structure nested too deep: " + type.getName());
+    try {
+      List<MethodHandle> decoders = new ArrayList<>();
+      List<MethodHandle> encoders = new ArrayList<>();
+      List<MethodHandle> setters = new ArrayList<>();
+      int end = 0;
+
+      if(type.isRecord()) {
+        for(RecordComponent component : type.getRecordComponents()) {
+          Compiled field = compileField(lookup, type, component.getName(), component.getType(),
+                                        component.getAnnotation(PlcField.class), codec, covered, prefix,
+                                        base, depth);
+          decoders.add(field.decoder);
+          encoders.add(MethodHandles.filterArguments(field.encoder, 0, lookup.unreflect(component.getAccessor())));
+          end = Math.max(end, field.end);
+        }
+      } else {
+        for(Field f : type.getDeclaredFields()) {
+          if(Modifier.isStatic(f.getModifiers()) || Modifier.isTransient(f.getModifiers())) continue;
+          Compiled field = compileField(lookup, type, f.getName(), f.getType(), f.getAnnotation(PlcField.class),
+                                        codec, covered, prefix, base, depth);
+          decoders.add(field.decoder);
+          setters.add(lookup.unreflectSetter(f));
+          encoders.add(MethodHandles.filterArguments(field.encoder, 0, lookup.unreflectGetter(f)));
+          end = Math.max(end, field.end);
+        }
+      }
+
+      MethodType perField = MethodType.methodType(void.class, type, byte[].class, int.class);
+      MethodHandle encoder = sequence(encoders, 0, encoders.size(), perField);
+
+      MethodHandle decoder;
+      if(type.isRecord()) {
+        //Canonical constructor with every argument decoded from the same data and offset
+        Class<?>[] params = new Class<?>[decoders.size()];
+        for(int i = 0; i < params.length; i++)
+          params[i] = decoders.get(i).type().returnType();
+        MethodHandle constructor = lookup.findConstructor(type, MethodType.methodType(void.class, params));
+        decoder = construct(constructor, decoders, MethodType.methodType(type, byte[].class, int.class));
+      } else {
+        //New instance, every field set from data, instance returned
+        List<MethodHandle> sets = new ArrayList<>();
+        for(int i = 0; i < setters.size(); i++)
+          sets.add(MethodHandles.collectArguments(setters.get(i), 1, decoders.get(i))); //(type, byte[], int)void
+        MethodHandle setAll = sequence(sets, 0, sets.size(), perField);
+        MethodHandle identity = MethodHandles.dropArguments(MethodHandles.identity(type), 1, byte[].class, int.class);
+        decoder = MethodHandles.foldArguments(identity, setAll);
+        decoder = MethodHandles.foldArguments(decoder, lookup.findConstructor(type, MethodType.methodType(void.class)));
+      }
+      return new Compiled(decoder, encoder, end);
+    } catch(ReflectiveOperationException e) {
+      throw new IllegalArgumentException("Cannot access " + type.getName() + ": " + e.getMessage(), e);
+    }
+  }
+
+  /**
+  * Method for combining handles into one calling them in order. Combined as balanced
+  * tree - nesting stays shallow enough for JIT to inline handles of large structures
+  * @return Handle of the given type calling handles from .. to-1
+  * @param handles Handles of the given type returning void
+  * @param from Index of the first handle
+  * @param to Index after the last handle
+  * @param type Type of the handles
+  */
+  private static MethodHandle sequence(List<MethodHandle> handles, int from, int to, MethodType type) {
+    if(to - from == 0) return MethodHandles.empty(type);
+    if(to - from == 1) return handles.get(from);
+    int middle = (from + to) >>> 1;
+    return MethodHandles.foldArguments(sequence(handles, middle, to, type), sequence(handles, from, middle, type));
+  }
+
+  /**
+  * Method for binding record constructor to field decoders
+  * @return Handle (byte[], int)record
+  * @param constructor Canonical constructor
+  * @param decoders Decoder (byte[], int)component of every component
+  * @param type Type of the result
+  */
+  private static MethodHandle construct(MethodHandle constructor, List<MethodHandle> decoders, MethodType type) {
+    int count = decoders.size();
+    if(2 * count <= MAX_ARGUMENTS) {
+      //All decoders at once, their (data, offset) arguments merged into one pair
+      MethodHandle decoder = constructor;
+      for(int i = count - 1; i >= 0; i--)
+        decoder = MethodHandles.collectArguments(decoder, i, decoders.get(i));
+      int[] reorder = new int[2 * count];
+      for(int i = 0; i < reorder.length; i++)
+        reorder[i] = i % 2;
+      return MethodHandles.permuteArguments(decoder, type, reorder);
+    }
+
+    //Too many arguments for one step - decoders are bound one after another
+    MethodHandle decoder = MethodHandles.dropArguments(constructor, 0, byte[].class, int.class);
+    for(MethodHandle fieldDecoder : decoders) {
+      decoder = MethodHandles.collectArguments(decoder, 2, fieldDecoder); //(data, offset, data, offset, rest...)
+      MethodType merged = decoder.type().dropParameterTypes(2, 4);
+      int[] reorder = new int[decoder.type().parameterCount()];
+      for(int i = 0; i < reorder.length; i++)
+        reorder[i] = (i < 4) ? i % 2 : i - 2;
+      decoder = MethodHandles.permuteArguments(decoder, merged, reorder);
+    }
+    return decoder;
+  }
+
+  /**
+  * Method for compiling decoder and encoder of one mapped field
+  * @return Decoder (byte[], int)fieldType and encoder (fieldType, byte[], int)void
+  */
+  private static Compiled compileField(MethodHandles.Lookup lookup, Class<?> owner, String javaName,
+                                       Class<?> fieldType, PlcField annotation, StructCodec codec,
+                                       BitSet covered, String prefix, int base, int depth) {
+    String name = (annotation != null && !annotation.value().isEmpty()) ? annotation.value() : javaName;
+    String path = prefix + name;
+    int annotatedOffset = (annotation != null) ? annotation.offset() : -1;
+    if(codec == null && annotatedOffset < 0)
+      throw new IllegalArgumentException("No offset of " + owner.getName() + "." + javaName);
+
+    if(fieldType.isRecord() || fieldType.isAnnotationPresent(PlcStruct.class)) {
+      if(codec != null) return compile(lookup, fieldType, codec, covered, path + ".", 0, depth + 1);
+      Compiled nested = compile(lookup, fieldType, null, null, "", base + annotatedOffset, depth + 1);
+      return new Compiled(nested.decoder, nested.encoder,
+                          base + annotatedOffset + structSize(fieldType, nested.end - base - annotatedOffset));
+    }
+
+    int kind;
+    int offset;
+    int length;
+    if(codec != null) {
+      int field = codec.fieldIndex(path);
+      if(field < 0) throw new IllegalArgumentException("No field " + path + " in " + codec.getType().getName());
+      covered.set(field);
+      kind = codec.getKind(field);
+      offset = codec.getFieldOffset(field);
+      length = codec.getLength(field);
+    } else {
+      kind = kindOf(fieldType);
+      offset = base + annotatedOffset;
+      length = (annotation.length() > 0) ? annotation.length() : 1;
+      if(kind == StructCodec.STRING)
+        length = ((annotation.length() > 0) ? annotation.length() : DEFAULT_STRING_LENGTH) + 1; //Terminator
+      if(fieldType.isArray() && annotation.length() == 0 || kind < 0)
+        throw new IllegalArgumentException("No length or unsupported type of " + owner.getName() + "." + javaName);
+    }
+    if(!javaType(kind).equals(fieldType))
+      throw new IllegalArgumentException(owner.getName() + "." + javaName + " is " + fieldType.getSimpleName()
+                                         + ", PLC field " + path + " needs " + javaType(kind).getSimpleName());
+
+    try {
+      return new Compiled(fieldDecoder(kind, offset, length), fieldEncoder(kind, offset, length, fieldType),
+                          offset + byteSize(kind, length));
+    } catch(ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+  * Method for creating decoder of elementary field
+  * @return Handle (byte[] data, int structOffset)value
+  */
+  private static MethodHandle fieldDecoder(int kind, int offset, int length) throws ReflectiveOperationException {
+    Class<?> javaType = javaType(kind);
+    MethodHandle get;
+    switch(kind) {
+      case StructCodec.STRING: get = sizedGetter("getString", String.class); break;
+      case StructCodec.WSTRING: get = sizedGetter("getWString", String.class); break;
+      case StructCodec.RAW: get = sizedGetter("getBytes", byte[].class); break;
+      default:
+        if(javaType.isArray()) {
+          get = LOOKUP.findStatic(PlcTypes.class, "get" + plcName(kind) + "s",
+                                  MethodType.methodType(javaType, byte[].class, int.class, int.class));
+        } else {
+          get = LOOKUP.findStatic(PlcTypes.class, "get" + plcName(kind),
+                                  MethodType.methodType(javaType, byte[].class, int.class));
+        }
+    }
+    if(get.type().parameterCount() == 3) get = MethodHandles.insertArguments(get, 2, length);
+    return MethodHandles.filterArguments(get, 1, MethodHandles.insertArguments(PLUS, 1, offset));
+  }
+
+  /**
+  * Method for creating encoder of elementary field
+  * @return Handle (value, byte[] data, int structOffset)void
+  */
+  private static MethodHandle fieldEncoder(int kind, int offset, int length, Class<?> javaType)
+                                          throws ReflectiveOperationException {
+    MethodHandle put;
+    switch(kind) {
+      case StructCodec.STRING: case StructCodec.WSTRING:
+        put = LOOKUP.findStatic(PlcTypes.class, (kind == StructCodec.STRING) ? "putString" : "putWString",
+                                MethodType.methodType(void.class, byte[].class, int.class, int.class, String.class));
+        put = MethodHandles.insertArguments(put, 2, length);
+        break;
+      case StructCodec.RAW:
+        put = PUT_RAW;
+        break;
+      default:
+        if(javaType.isArray()) {
+          put = LOOKUP.findStatic(PlcTypes.class, "put" + plcName(kind) + "s",
+                                  MethodType.methodType(void.class, byte[].class, int.class, javaType));
+        } else {
+          put = LOOKUP.findStatic(PlcTypes.class, "put" + plcName(kind),
+                                  MethodType.methodType(void.class, byte[].class, int.class, javaType));
+        }
+    }
+    if(javaType.isArray()) {
+      MethodHandle check = MethodHandles.insertArguments(CHECK_ARRAY, 1, length);
+      put = MethodHandles.filterArguments(put, 2, check.asType(MethodType.methodType(javaType, javaType)));
+    }
+    put = MethodHandles.filterArguments(put, 1, MethodHandles.insertArguments(PLUS, 1, offset));
+    return MethodHandles.permuteArguments(put, MethodType.methodType(void.class, javaType, byte[].class, int.class),
+                                          1, 2, 0);
+  }
+
+  private static MethodHandle sizedGetter(String name, Class<?> result) throws ReflectiveOperationException {
+    return LOOKUP.findStatic(PlcTypes.class, name, MethodType.methodType(result, byte[].class, int.class, int.class));
+  }
+
+  /**
+  * Method for getting Java type of field kind
+  * @return Java type
+  * @param kind Field kind (StructCodec constants)
+  */
+  private static Class<?> javaType(int kind) {
+    switch(kind) {
+      case StructCodec.BOOL: return boolean.class;
+      case StructCodec.BYTE: return byte.class;
+      case StructCodec.INT: return short.class;
+      case StructCodec.DINT: return int.class;
+      case StructCodec.LINT: return long.class;
+      case StructCodec.REAL: return float.class;
+      case StructCodec.LREAL: return double.class;
+      case StructCodec.STRING: case StructCodec.WSTRING: return String.class;
+      case StructCodec.RAW: return byte[].class;
+      case StructCodec.BOOLS: return boolean[].class;
+      case StructCodec.INTS: return short[].class;
+      case StructCodec.DINTS: return int[].class;
+      case StructCodec.LINTS: return long[].class;
+      case StructCodec.REALS: return float[].class;
+      default: return double[].class;
+    }
+  }
+
+  /**
+  * Method for getting field kind of Java type, for layout of annotations
+  * @return Field kind (-1 - unsupported type)
+  * @param javaType Java type of mapped field
+  */
+  private static int kindOf(Class<?> javaType) {
+    for(int kind = StructCodec.BOOL; kind <= StructCodec.LREALS; kind++)
+      if(kind != StructCodec.WSTRING && javaType(kind).equals(javaType)) return kind;
+    return -1;
+  }
+
+  /**
+  * Method for getting PlcTypes accessor name part of field kind
+  */
+  private static String plcName(int kind) {
+    switch(kind) {
+      case StructCodec.BOOL: case StructCodec.BOOLS: return "Bool";
+      case StructCodec.BYTE: return "Byte";
+      case StructCodec.INT: case StructCodec.INTS: return "Int";
+      case StructCodec.DINT: case StructCodec.DINTS: return "DInt";
+      case StructCodec.LINT: case StructCodec.LINTS: return "LInt";
+      case StructCodec.REAL: case StructCodec.REALS: return "Real";
+      default: return "LReal";
+    }
+  }
+
+  /**
+  * Method for getting size of field
+  * @return Size in bytes
+  * @param kind Field kind
+  * @param length Elements of arrays, bytes of strings and raw fields
+  */
+  private static int byteSize(int kind, int length) {
+    switch(kind) {
+      case StructCodec.BOOL: case StructCodec.BYTE: case StructCodec.BOOLS:
+      case StructCodec.STRING: case StructCodec.WSTRING: case StructCodec.RAW: return length;
+      case StructCodec.INT: case StructCodec.INTS: return PlcTypes.INT_SIZE * length;
+      case StructCodec.DINT: case StructCodec.REAL: case StructCodec.DINTS: case StructCodec.REALS:
+        return PlcTypes.DINT_SIZE * length;
+      default: return PlcTypes.LINT_SIZE * length;
+    }
+  }
+
+  private static int structSize(Class<?> type, int end) {
+    PlcStruct struct = type.getAnnotation(PlcStruct.class);
+    return (struct != null && struct.size() > 0) ? struct.size() : end;
+  }
+
+  private static int plus(int base, int offset) {
+    return base + offset;
+  }
+
+  private static Object checkArray(Object array, int length) {
+    if(Array.getLength(array) > length)
+      throw new IllegalArgumentException("Array of " + Array.getLength(array) + " elements exceeds " + length);
+    return array;
+  }
+}
@@ -0,0 +1,57 @@
+package adscom;
+
+/**
+* Active ADS device notification. Closing the subscription deletes
+* the notification on the PLC.
+* @see AdsManager#subscribe
+*/
+public final class Subscription implements AutoCloseable {
+  private final AdsManager manager;
+  private final long userId;
+  private final long symHandle;
+  private final NotificationListener listener;
+  private volatile long notificationHandle;
+
+  /**
+  * Class constructor. Called from AdsManager
+  * @param manager Owning AdsManager
+  * @param userId User value passed with every notification
+  * @param symHandle Handle to ADS variable acquired for the subscription (0 - none)
+  * @param listener Listener of notifications
+  */
+  Subscription(AdsManager manager, long userId, long symHandle, NotificationListener listener) {
+    this.manager = manager;
+    this.userId = userId;
+    this.symHandle = symHandle;
+    this.listener = listener;
+  }
+
+  long getUserId() { return userId;}
+  long getSymHandle() { return symHandle;}
+  NotificationListener getListener() { return listener;}
+  void setNotificationHandle(long notificationHandle) { this.notificationHandle = notificationHandle;}
+
+  /**
+  * Method for getting ADS notification handle
+  * @return Notification handle (0 - if not active)
+  */
+  public long getNotificationHandle() {
+    return notificationHandle;
+  }
+
+  /**
+  * Method for checking whether notification is still active
+  * @return True if active
+  */
+  public boolean isActive() {
+    return notificationHandle != 0;
+  }
+
+  /**
+  * Method for deleting notification on the PLC
+  */
+  @Override
+  public void close() {
+    manager.unsubscribe(this);
+  }
+}
@@ -0,0 +1,80 @@
+package adscom;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+* Result of ADS sum command (batch request). Holds ADS error ID and,
+* for reading commands, data of every sub-request in request order.
+*/
+public final class SumResult {
+  private final long[] errIds;
+  private final byte[][] data;
+
+  /**
+  * Class constructor
+  * @param errIds ADS error ID of every sub-request
+  * @param data Data of every sub-request (null for writing commands)
+  */
+  SumResult(long[] errIds, byte[][] data) {
+    this.errIds = errIds;
+    this.data = data;
+  }
+
+  /**
+  * Method for getting number of sub-requests
+  * @return Number of sub-requests
+  */
+  public int size() {
+    return errIds.length;
+  }
+
+  /**
+  * Method for getting ADS error ID of sub-request
+  * @return ADS error ID (0 - no error)
+  * @param index Sub-request index
+  */
+  public long getErrId(int index) {
+    return errIds[index];
+  }
+
+  /**
+  * Method for checking whether sub-request succeeded
+  * @return True if sub-request succeeded
+  * @param index Sub-request index
+  */
+  public boolean isOk(int index) {
+    return errIds[index] == 0;
+  }
+
+  /**
+  * Method for checking whether all sub-requests succeeded
+  * @return True if every sub-request succeeded
+  */
+  public boolean allOk() {
+    for(long errId : errIds)
+      if(errId != 0) return false;
+    return true;
+  }
+
+  /**
+  * Method for getting data of sub-request
+  * @return Data as byte array (null for writing commands or failed sub-request)
+  * @param index Sub-request index
+  */
+  public byte[] getData(int index) {
+    return (data == null || errIds[index] != 0) ? null : data[index];
+  }
+
+  /**
+  * Method for getting symbol handle returned by sub-request of handle request
+  * @return Symbol handle (0 - if sub-request failed)
+  * @param index Sub-request index
+  * @see AdsManager#getHandles
+  */
+  public long getHandle(int index) {
+    byte[] handle = getData(index);
+    if(handle == null || handle.length < Integer.BYTES) return 0;
+    return Integer.toUnsignedLong(ByteBuffer.wrap(handle).order(ByteOrder.LITTLE_ENDIAN).getInt());
+  }
+}
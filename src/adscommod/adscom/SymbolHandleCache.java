@@ -0,0 +1,220 @@
+package adscom;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+* Bounded cache of ADS symbol handles keyed by variable name.
+* Least recently used handles are evicted first. Each entry keeps the encoded symbol
+* name, so a handle can be re-resolved without encoding the name again.
+* Entries are pinned while a request by their handle is running. An entry removed from
+* the cache (evicted, replaced or invalidated) is retired, and its handle is handed back
+* to the caller for releasing on the PLC only once the entry is retired and unpinned -
+* the PLC reuses handle numbers, so releasing a handle still in use could make the running
+* request reach another variable. Every handle is handed back exactly once.
+* Class is thread-safe.
+*/
+final class SymbolHandleCache {
+  /**
+  * Cached symbol handle together with the encoded symbol name
+  */
+  static final class Entry {
+    final String varName;
+    final byte[] nameBytes;
+    final long handle;
+    private int pins; //Guarded by cache lock
+    private boolean retired; //Removed from the cache
+    private boolean released; //Handed back for releasing or dropped
+
+    Entry(String varName, byte[] nameBytes, long handle) {
+      this.varName = varName;
+      this.nameBytes = nameBytes;
+      this.handle = handle;
+    }
+  }
+
+  private final int capacity;
+  private final LinkedHashMap<String, Entry> entries;
+  private final ReentrantLock lock = new ReentrantLock();
+  private long hits;
+  private long misses;
+
+  /**
+  * Class constructor
+  * @param capacity Maximum number of cached handles
+  */
+  SymbolHandleCache(int capacity) {
+    if(capacity <= 0)
+      throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+    this.capacity = capacity;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true); //Access order for LRU
+  }
+
+  /**
+  * Method for looking up and pinning cached handle. Pinned entry has to be unpinned
+  * when the request by its handle is done
+  * @return Pinned entry or null if variable is not cached
+  * @param varName Variable name as String
+  */
+  Entry acquire(String varName) {
+    lock.lock();
+    try {
+      Entry entry = entries.get(varName);
+      if(entry != null) {
+        hits++;
+        entry.pins++;
+      }
+      else misses++;
+      return entry;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+  * Method for pinning entry known to the caller, e.g. shared by a pending handle request
+  * @return True if pinned, false if the handle has already been handed back
+  * @param entry Cache entry
+  */
+  boolean pin(Entry entry) {
+    lock.lock();
+    try {
+      if(entry.released) return false;
+      entry.pins++;
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+  * Method for unpinning entry
+  * @return True if the entry is retired and no longer used - its handle is to be released
+  * @param entry Pinned entry
+  */
+  boolean unpin(Entry entry) {
+    lock.lock();
+    try {
+      entry.pins--;
+      return handBack(entry);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+  * Method for storing newly requested handle in the cache. When another handle to
+  * the variable has been cached meanwhile, that one is kept and the new one handed back
+  * @return Pinned entry cached for the variable
+  * @param entry New entry, not yet known to other threads
+  * @param released Receives entries whose handles are to be released
+  */
+  Entry add(Entry entry, List<Entry> released) {
+    lock.lock();
+    try {
+      Entry cached = entries.get(entry.varName);
+      if(cached != null) {
+        cached.pins++;
+        entry.retired = true;
+        entry.released = true;
+        released.add(entry);
+        return cached;
+      }
+
+      entry.pins = 1;
+      entries.put(entry.varName, entry);
+      Iterator<Entry> it = entries.values().iterator();
+      while(entries.size() > capacity && it.hasNext()) {
+        Entry evicted = it.next();
+        it.remove();
+        evicted.retired = true;
+        if(handBack(evicted)) released.add(evicted);
+      }
+      return entry;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+  * Method for removing entry, if it is still the cached one (e.g. after stale handle error).
+  * A newer entry of the same variable is left in the cache
+  * @return True if the entry is no longer used - its handle is to be released
+  * @param entry Cache entry
+  */
+  boolean remove(Entry entry) {
+    lock.lock();
+    try {
+      entries.remove(entry.varName, entry);
+      entry.retired = true;
+      return handBack(entry);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+  * Method for removing single handle from the cache
+  * @return Removed entry whose handle is to be released, null if variable was not cached
+  * or its handle is still in use (it is handed back when unpinned)
+  * @param varName Variable name as String
+  */
+  Entry remove(String varName) {
+    lock.lock();
+    try {
+      Entry entry = entries.remove(varName);
+      if(entry == null) return null;
+      entry.retired = true;
+      return handBack(entry) ? entry : null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+  * Method for removing all handles from the cache
+  * @return Removed entries whose handles are to be released
+  * @param dropPinned True if handles still in use are never handed back, e.g. when
+  * the connection is closed and its handles are gone with it
+  */
+  List<Entry> clear(boolean dropPinned) {
+    lock.lock();
+    try {
+      List<Entry> removed = new ArrayList<>(entries.size());
+      for(Entry entry : entries.values()) {
+        entry.retired = true;
+        if(handBack(entry)) removed.add(entry);
+        else if(dropPinned) entry.released = true;
+      }
+      entries.clear();
+      return removed;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+  * Method for getting cache statistics
+  * @return Map with "size", "capacity", "hits" and "misses" counters
+  */
+  Map<String, Long> stats() {
+    lock.lock();
+    try {
+      return Map.of("size", (long)entries.size(), "capacity", (long)capacity,
+                    "hits", hits, "misses", misses);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  //Hands entry back once it is retired and unpinned, lock held
+  private static boolean handBack(Entry entry) {
+    if(!entry.retired || entry.pins > 0 || entry.released) return false;
+    entry.released = true;
+    return true;
+  }
+}
@@ -0,0 +1,256 @@
+package adscom;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+* PLC symbol table uploaded from the target device (ADSIGRP_SYM_UPLOAD), indexed
+* by symbol name. Symbols are numbered 0 .. size()-1 in upload order; indexOf() finds
+* the number by name and getters return index group, index offset, size and type of it.
+* Storage is columnar to stay compact with hundreds of thousands of symbols: names
+* are kept as bytes in one array, numeric attributes in int arrays, type names are
+* shared, comments are dropped. Lookup is an open addressing hash over the name
+* bytes and allocates nothing. Names are compared case-insensitively (ASCII), as in TwinCAT.
+* Class is immutable and thread-safe.
+*/
+public final class SymbolTable {
+  static final int ENTRY_HEADER = 30; //Entry length, group, offset, size, data type, flags, 3 string lengths
+  private static final int FREE = 0; //Slots hold symbol number + 1
+  private static final int CASE_BIT = 0x20; //Set in hash - ASCII letters hash alike in both cases
+
+  private final byte[] names;
+  private final int[] nameStart; //size() + 1 entries, name i is nameStart[i] .. nameStart[i + 1]
+  private final int[] groups;
+  private final int[] offsets;
+  private final int[] sizes;
+  private final int[] dataTypes;
+  private final int[] flags;
+  private final int[] typeIds;
+  private final String[] types;
+  private final int version; //Symbol version of PLC at upload
+  private final int[] slots; //Pairs of name hash and symbol number + 1, one cache line read per probe
+
+  private SymbolTable(byte[] names, int[] nameStart, int[] groups, int[] offsets, int[] sizes,
+                      int[] dataTypes, int[] flags, int[] typeIds, String[] types, int version) {
+    this.names = names;
+    this.nameStart = nameStart;
+    this.groups = groups;
+    this.offsets = offsets;
+    this.sizes = sizes;
+    this.dataTypes = dataTypes;
+    this.flags = flags;
+    this.typeIds = typeIds;
+    this.types = types;
+    this.version = version;
+
+    int count = groups.length;
+    int capacity = Integer.highestOneBit(Math.max(2 * count, 8) - 1) << 1; //Load factor at most 0.5
+    slots = new int[2 * capacity];
+    int mask = capacity - 1;
+    for(int i = 0; i < count; i++) {
+      int h = hash(names, nameStart[i], nameStart[i + 1]);
+      int slot = h & mask;
+      while(slots[2 * slot + 1] != FREE) {
+        if(slots[2 * slot] == h && equalsName(slots[2 * slot + 1] - 1, names, nameStart[i], nameStart[i + 1]))
+          break; //Duplicate keeps first
+        slot = (slot + 1) & mask;
+      }
+      if(slots[2 * slot + 1] == FREE) {
+        slots[2 * slot] = h;
+        slots[2 * slot + 1] = i + 1;
+      }
+    }
+  }
+
+  /**
+  * Method for decoding uploaded symbol table
+  * @return Symbol table
+  * @param data Upload data - AdsSymbolEntry records one after another
+  * @param length Number of valid bytes in data
+  * @param count Number of symbols reported by upload info
+  * @param version Symbol version read before upload
+  * @exception IllegalArgumentException On malformed entry
+  */
+  static SymbolTable parse(byte[] data, int length, int count, int version) {
+    //First pass - number of entries and size of all names
+    int entries = 0;
+    int nameBytes = 0;
+    for(int pos = 0; pos + ENTRY_HEADER <= length && entries < count; entries++) {
+      int entryLength = PlcTypes.getDInt(data, pos);
+      int nameLength = Short.toUnsignedInt(PlcTypes.getInt(data, pos + 24));
+      int typeLength = Short.toUnsignedInt(PlcTypes.getInt(data, pos + 26));
+      if(entryLength < ENTRY_HEADER + nameLength + typeLength + 2 || pos + entryLength > length)
+        throw new IllegalArgumentException("Malformed symbol entry at " + pos);
+      nameBytes += nameLength;
+      pos += entryLength;
+    }
+
+    byte[] names = new byte[nameBytes];
+    int[] nameStart = new int[entries + 1];
+    int[] groups = new int[entries];
+    int[] offsets = new int[entries];
+    int[] sizes = new int[entries];
+    int[] dataTypes = new int[entries];
+    int[] flags = new int[entries];
+    int[] typeIds = new int[entries];
+    Map<String, Integer> typeIndex = new HashMap<>();
+
+    int pos = 0;
+    int namePos = 0;
+    for(int i = 0; i < entries; i++) {
+      int nameLength = Short.toUnsignedInt(PlcTypes.getInt(data, pos + 24));
+      int typeLength = Short.toUnsignedInt(PlcTypes.getInt(data, pos + 26));
+      groups[i] = PlcTypes.getDInt(data, pos + 4);
+      offsets[i] = PlcTypes.getDInt(data, pos + 8);
+      sizes[i] = PlcTypes.getDInt(data, pos + 12);
+      dataTypes[i] = PlcTypes.getDInt(data, pos + 16);
+      flags[i] = PlcTypes.getDInt(data, pos + 20);
+
+      int nameOffset = pos + ENTRY_HEADER;
+      System.arraycopy(data, nameOffset, names, namePos, nameLength);
+      nameStart[i] = namePos;
+      namePos += nameLength;
+
+      int typeOffset = nameOffset + nameLength + 1; //Strings are null terminated
+      String type = new String(data, typeOffset, typeLength, StandardCharsets.ISO_8859_1);
+      typeIds[i] = typeIndex.computeIfAbsent(type, t -> typeIndex.size());
+      pos += PlcTypes.getDInt(data, pos);
+    }
+    nameStart[entries] = namePos;
+
+    String[] types = new String[typeIndex.size()];
+    typeIndex.forEach((type, id) -> types[id] = type);
+    return new SymbolTable(names, nameStart, groups, offsets, sizes, dataTypes, flags, typeIds, types, version);
+  }
+
+  /**
+  * Method for getting number of symbols
+  * @return Number of symbols
+  */
+  public int size() { return groups.length;}
+
+  /**
+  * Method for getting symbol version (ADSIGRP_SYM_VERSION) of PLC the table was uploaded from
+  * @return Symbol version (0 - 255)
+  */
+  public int getVersion() { return version;}
+
+  /**
+  * Method for finding symbol by name
+  * @return Symbol number (-1 - unknown symbol)
+  * @param name Symbol name, e.g. "MAIN.nCounter" (case insensitive)
+  */
+  public int indexOf(String name) {
+    int h = 0;
+    int length = name.length();
+    for(int i = 0; i < length; i++) {
+      char c = name.charAt(i);
+      if(c > 0xFF) return -1; //Names are stored as ISO-8859-1
+      h = 31 * h + (c | CASE_BIT);
+    }
+
+    h = mix(h);
+    int mask = slots.length / 2 - 1;
+    for(int slot = h & mask; slots[2 * slot + 1] != FREE; slot = (slot + 1) & mask) {
+      int sym = slots[2 * slot + 1] - 1;
+      if(slots[2 * slot] == h && equalsName(sym, name)) return sym;
+    }
+    return -1;
+  }
+
+  /**
+  * Method for checking whether table contains symbol
+  * @return True if symbol is known
+  * @param name Symbol name (case insensitive)
+  */
+  public boolean contains(String name) {
+    return indexOf(name) >= 0;
+  }
+
+  /**
+  * Method for getting symbol name as uploaded
+  * @return Symbol name
+  * @param sym Symbol number
+  */
+  public String getName(int sym) {
+    return new String(names, nameStart[sym], nameStart[sym + 1] - nameStart[sym], StandardCharsets.ISO_8859_1);
+  }
+
+  public long getIndexGroup(int sym) { return Integer.toUnsignedLong(groups[sym]);}
+  public long getIndexOffset(int sym) { return Integer.toUnsignedLong(offsets[sym]);}
+  public int getSize(int sym) { return sizes[sym];}
+  public String getType(int sym) { return types[typeIds[sym]];}
+
+  /**
+  * Method for getting ADS data type ID (ADST_...) of symbol, e.g. 3 for DINT, 65 for structures
+  * @return ADS data type ID
+  * @param sym Symbol number
+  */
+  public int getDataType(int sym) { return dataTypes[sym];}
+
+  /**
+  * Method for getting ADS symbol flags (ADSSYMBOLFLAG_...) of symbol
+  * @return Symbol flags
+  * @param sym Symbol number
+  */
+  public int getFlags(int sym) { return flags[sym];}
+
+  /**
+  * Method for getting approximate heap size of the table
+  * @return Size in bytes of all arrays of the table
+  */
+  public long getMemorySize() {
+    long bytes = names.length;
+    bytes += Integer.BYTES * ((long)nameStart.length + slots.length);
+    bytes += Integer.BYTES * 6L * groups.length; //Groups, offsets, sizes, data types, flags, type IDs
+    for(String type : types)
+      bytes += type.length();
+    return bytes;
+  }
+
+  @Override
+  public String toString() {
+    return "SymbolTable[" + size() + " symbols, " + types.length + " types]";
+  }
+
+  private boolean equalsName(int sym, String name) {
+    int start = nameStart[sym];
+    int length = nameStart[sym + 1] - start;
+    if(length != name.length()) return false;
+    for(int i = 0; i < length; i++) {
+      int c = names[start + i] & 0xFF;
+      char other = name.charAt(i);
+      if(c != other && fold(c) != fold(other)) return false;
+    }
+    return true;
+  }
+
+  private boolean equalsName(int sym, byte[] other, int from, int to) {
+    int start = nameStart[sym];
+    int length = nameStart[sym + 1] - start;
+    if(length != to - from) return false;
+    for(int i = 0; i < length; i++) {
+      int c = names[start + i] & 0xFF;
+      int o = other[from + i] & 0xFF;
+      if(c != o && fold(c) != fold(o)) return false;
+    }
+    return true;
+  }
+
+  private static int hash(byte[] name, int from, int to) {
+    int h = 0;
+    for(int i = from; i < to; i++)
+      h = 31 * h + ((name[i] & 0xFF) | CASE_BIT);
+    return mix(h);
+  }
+
+  private static int fold(int c) {
+    return (c >= 'a' && c <= 'z') ? c - ('a' - 'A') : c; //ASCII upper case
+  }
+
+  private static int mix(int h) {
+    h *= 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+}
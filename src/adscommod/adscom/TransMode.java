@@ -0,0 +1,21 @@
+package adscom;
+
+/**
+* Transmission mode of ADS device notification
+*/
+public enum TransMode {
+  /** Value is sent every cycle time */
+  CYCLIC(3),
+  /** Value is sent only when changed, checked every cycle time */
+  ON_CHANGE(4);
+
+  private final int adsTrans;
+
+  TransMode(int adsTrans) { this.adsTrans = adsTrans;}
+
+  /**
+  * Method for getting ADS transmission mode constant (ADSTRANS_...)
+  * @return ADS transmission mode
+  */
+  public int getAdsTrans() { return adsTrans;}
+}
@@ -0,0 +1,134 @@
+package adstransport;
+
+import de.beckhoff.jni.tcads.AdsDevName;
+import de.beckhoff.jni.tcads.AdsState;
+import de.beckhoff.jni.tcads.AdsVersion;
+import adsexceptions.AdsException;
+import java.nio.ByteBuffer;
+
+/**
+* I/O path used by AdsManager to exchange ADS requests with the target device.
+* Every request method returns ADS error ID (0 - no error). Data buffers are
+* transferred from their position to their limit; position of read buffers is
+* advanced by number of bytes actually returned by the device.
+* Implementations must be thread-safe - AdsManager issues requests of different
+* threads concurrently.
+*/
+public interface AdsTransport {
+  long ADSIGRP_SYM_HNDBYNAME = 0xF003;
+  long ADSIGRP_SYM_VALBYHND = 0xF005;
+  long ADSIGRP_SYM_RELEASEHND = 0xF006;
+  long ADSIGRP_SYM_VERSION = 0xF008; //Symbol version (1 byte), changed by online change and download
+  long ADSIGRP_SYM_UPLOAD = 0xF00B;
+  long ADSIGRP_SYM_DT_UPLOAD = 0xF00E;
+  long ADSIGRP_SYM_UPLOADINFO2 = 0xF00F;
+  long ADSIGRP_PLC_MEMORY = 0x4020; //PLC memory area (%M), index offset is byte address
+  long ADSIGRP_IOIMAGE_RWIB = 0xF020; //Process image of inputs (%I)
+  long ADSIGRP_IOIMAGE_RWOB = 0xF030; //Process image of outputs (%Q)
+
+  /**
+  * Method for opening connection to the target device
+  * @return ADS port number
+  * @param amsPort Target AMS port number
+  * @exception AdsException On fail to open connection
+  */
+  long open(int amsPort) throws AdsException;
+
+  /**
+  * Method for closing connection to the target device
+  * @return ADS error ID (0 - no error)
+  */
+  long close();
+
+  /**
+  * Method for stopping threads owned by the transport. Called when the transport
+  * is closed and not going to be opened again
+  */
+  default void shutdown() {}
+
+  /**
+  * Method for getting target AMS net ID in String format
+  * @return AMS net ID as a String
+  */
+  String getNetId();
+
+  /**
+  * Method for getting target AMS port number
+  * @return AMS port number
+  */
+  int getAmsPort();
+
+  /**
+  * Method for reading data from index group/offset area
+  * @return ADS error ID (0 - no error)
+  * @param indexGroup Index group
+  * @param indexOffset Index offset
+  * @param data Buffer receiving data, its remaining bytes determine read length
+  */
+  long read(long indexGroup, long indexOffset, ByteBuffer data);
+
+  /**
+  * Method for writing data to index group/offset area
+  * @return ADS error ID (0 - no error)
+  * @param indexGroup Index group
+  * @param indexOffset Index offset
+  * @param data Buffer holding data to be written
+  */
+  long write(long indexGroup, long indexOffset, ByteBuffer data);
+
+  /**
+  * Method for writing data to and reading data from index group/offset area in one request
+  * @return ADS error ID (0 - no error)
+  * @param indexGroup Index group
+  * @param indexOffset Index offset
+  * @param readData Buffer receiving data, its remaining bytes determine read length
+  * @param writeData Buffer holding data to be written
+  */
+  long readWrite(long indexGroup, long indexOffset, ByteBuffer readData, ByteBuffer writeData);
+
+  /**
+  * Method for reading ADS state
+  * @return ADS error ID (0 - no error)
+  * @param adsStateBuff State of ADS connection
+  * @param adsDevStateBuff State of ADS device
+  */
+  long readState(AdsState adsStateBuff, AdsState adsDevStateBuff);
+
+  /**
+  * Method for reading ADS device info
+  * @return ADS error ID (0 - no error)
+  * @param devName Name of ADS device
+  * @param adsVersion Version of ADS device
+  */
+  long readDeviceInfo(AdsDevName devName, AdsVersion adsVersion);
+
+  /**
+  * Method for setting ADS communication timeout
+  * @return ADS error ID (0 - no error)
+  * @param adsTimeout Timeout setpoint in milliseconds
+  */
+  long setTimeout(long adsTimeout);
+
+  /**
+  * Method for adding ADS device notification. Sink may be called from
+  * transport's own thread (e.g. native ADS router thread) and must return quickly
+  * @return Notification handle
+  * @param indexGroup Index group of notified area
+  * @param indexOffset Index offset of notified area
+  * @param length Size of notified area in bytes
+  * @param transMode ADS transmission mode (ADSTRANS_SERVERCYCLE or ADSTRANS_SERVERONCHA)
+  * @param maxDelay Maximum delay of notification in milliseconds
+  * @param cycleTime Cycle time in milliseconds
+  * @param sink Receiver of notifications
+  * @exception AdsException On fail to add notification
+  */
+  long addNotification(long indexGroup, long indexOffset, int length, int transMode,
+                       long maxDelay, long cycleTime, NotificationSink sink) throws AdsException;
+
+  /**
+  * Method for deleting ADS device notification
+  * @return ADS error ID (0 - no error)
+  * @param notificationHandle Notification handle
+  */
+  long deleteNotification(long notificationHandle);
+}
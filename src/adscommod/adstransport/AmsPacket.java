@@ -0,0 +1,165 @@
+package adstransport;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+* Layout of AMS/TCP frames: 6 byte AMS/TCP header, 32 byte AMS header and ADS data.
+* All values are little-endian. Header fields are accessed by absolute index,
+* so buffer position is left untouched.
+*/
+public final class AmsPacket {
+  public static final int AMS_TCP_PORT = 48898;
+  public static final int TCP_HEADER_SIZE = 6;
+  public static final int AMS_HEADER_SIZE = 32;
+  public static final int HEADER_SIZE = TCP_HEADER_SIZE + AMS_HEADER_SIZE;
+  public static final int NET_ID_SIZE = 6;
+
+  public static final int CMD_READ_DEVICE_INFO = 1;
+  public static final int CMD_READ = 2;
+  public static final int CMD_WRITE = 3;
+  public static final int CMD_READ_STATE = 4;
+  public static final int CMD_WRITE_CONTROL = 5;
+  public static final int CMD_ADD_NOTIFICATION = 6;
+  public static final int CMD_DEL_NOTIFICATION = 7;
+  public static final int CMD_NOTIFICATION = 8;
+  public static final int CMD_READ_WRITE = 9;
+
+  public static final int STATE_REQUEST = 0x0004; //ADS command over TCP
+  public static final int STATE_RESPONSE = 0x0005;
+
+  private static final int LENGTH = 2;
+  private static final int TARGET_NET_ID = 6;
+  private static final int TARGET_PORT = 12;
+  private static final int SOURCE_NET_ID = 14;
+  private static final int SOURCE_PORT = 20;
+  private static final int COMMAND_ID = 22;
+  private static final int STATE_FLAGS = 24;
+  private static final int DATA_LENGTH = 26;
+  private static final int ERROR_CODE = 30;
+  private static final int INVOKE_ID = 34;
+
+  private AmsPacket() {}
+
+  /**
+  * Method for allocating direct little-endian buffer for AMS/TCP frames
+  * @return Direct byte buffer in AMS byte order
+  * @param size Buffer size in bytes
+  */
+  public static ByteBuffer allocate(int size) {
+    return ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+  * Method for parsing AMS net ID
+  * @return AMS net ID as 6 bytes
+  * @param netId AMS net ID in String format, e.g. "5.16.32.64.1.1"
+  */
+  public static byte[] parseNetId(String netId) {
+    String[] parts = netId.trim().split("\\.");
+    if(parts.length != NET_ID_SIZE)
+      throw new IllegalArgumentException("Invalid AMS net ID: " + netId);
+
+    byte[] bytes = new byte[NET_ID_SIZE];
+    for(int i = 0; i < NET_ID_SIZE; i++) {
+      int part = Integer.parseInt(parts[i]);
+      if(part < 0 || part > 255)
+        throw new IllegalArgumentException("Invalid AMS net ID: " + netId);
+      bytes[i] = (byte)part;
+    }
+    return bytes;
+  }
+
+  /**
+  * Method for formatting AMS net ID
+  * @return AMS net ID in String format
+  * @param netId AMS net ID as 6 bytes
+  */
+  public static String formatNetId(byte[] netId) {
+    StringBuilder sb = new StringBuilder(17);
+    for(int i = 0; i < NET_ID_SIZE; i++) {
+      if(i > 0) sb.append('.');
+      sb.append(netId[i] & 0xFF);
+    }
+    return sb.toString();
+  }
+
+  /**
+  * Method for writing AMS/TCP and AMS header at the beginning of the buffer.
+  * Buffer is positioned at the beginning of ADS data afterwards
+  * @param frame Frame buffer
+  * @param targetNetId Target AMS net ID
+  * @param targetPort Target AMS port
+  * @param sourceNetId Source AMS net ID
+  * @param sourcePort Source AMS port
+  * @param commandId ADS command ID
+  * @param stateFlags State flags (request or response)
+  * @param dataLength Length of ADS data in bytes
+  * @param errorCode AMS error code
+  * @param invokeId Invoke ID correlating request and response
+  */
+  public static void putHeader(ByteBuffer frame, byte[] targetNetId, int targetPort,
+                               byte[] sourceNetId, int sourcePort, int commandId, int stateFlags,
+                               int dataLength, int errorCode, int invokeId) {
+    frame.clear();
+    frame.putShort((short)0);
+    frame.putInt(AMS_HEADER_SIZE + dataLength);
+    frame.put(targetNetId, 0, NET_ID_SIZE);
+    frame.putShort((short)targetPort);
+    frame.put(sourceNetId, 0, NET_ID_SIZE);
+    frame.putShort((short)sourcePort);
+    frame.putShort((short)commandId);
+    frame.putShort((short)stateFlags);
+    frame.putInt(dataLength);
+    frame.putInt(errorCode);
+    frame.putInt(invokeId);
+  }
+
+  /**
+  * Method for updating length fields of the header once ADS data is written
+  * @param frame Frame buffer
+  * @param dataLength Length of ADS data in bytes
+  */
+  public static void setDataLength(ByteBuffer frame, int dataLength) {
+    frame.putInt(LENGTH, AMS_HEADER_SIZE + dataLength);
+    frame.putInt(DATA_LENGTH, dataLength);
+  }
+
+  /**
+  * Method for getting frame length following the AMS/TCP header
+  * @return AMS header plus ADS data length in bytes
+  * @param frame Frame buffer holding at least AMS/TCP header
+  */
+  public static int length(ByteBuffer frame) { return frame.getInt(LENGTH);}
+
+  public static int targetPort(ByteBuffer frame) { return frame.getShort(TARGET_PORT) & 0xFFFF;}
+  public static int sourcePort(ByteBuffer frame) { return frame.getShort(SOURCE_PORT) & 0xFFFF;}
+  public static int commandId(ByteBuffer frame) { return frame.getShort(COMMAND_ID) & 0xFFFF;}
+  public static int stateFlags(ByteBuffer frame) { return frame.getShort(STATE_FLAGS) & 0xFFFF;}
+  public static int dataLength(ByteBuffer frame) { return frame.getInt(DATA_LENGTH);}
+  public static long errorCode(ByteBuffer frame) { return Integer.toUnsignedLong(frame.getInt(ERROR_CODE));}
+  public static int invokeId(ByteBuffer frame) { return frame.getInt(INVOKE_ID);}
+
+  /**
+  * Method for copying AMS net ID out of the frame
+  * @return AMS net ID as 6 bytes
+  * @param frame Frame buffer
+  * @param source True for source, false for target AMS net ID
+  */
+  public static byte[] netId(ByteBuffer frame, boolean source) {
+    byte[] netId = new byte[NET_ID_SIZE];
+    int index = source ? SOURCE_NET_ID : TARGET_NET_ID;
+    for(int i = 0; i < NET_ID_SIZE; i++)
+      netId[i] = frame.get(index + i);
+    return netId;
+  }
+
+  /**
+  * Method for checking whether frame is a response
+  * @return True if response flag is set
+  * @param frame Frame buffer
+  */
+  public static boolean isResponse(ByteBuffer frame) {
+    return (stateFlags(frame) & 0x0001) != 0;
+  }
+}
@@ -0,0 +1,546 @@
+package adstransport;
+
+import de.beckhoff.jni.tcads.AdsDevName;
+import de.beckhoff.jni.tcads.AdsState;
+import de.beckhoff.jni.tcads.AdsVersion;
+import adsexceptions.AdsException;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+* ADS transport speaking AMS/TCP directly to the target device (TCP port 48898),
+* without TwinCAT ADS router and JNI library. Frames are built in direct buffers
+* and exchanged over NIO socket channel.
+* Requests are pipelined: any number of them may be in flight at once. Responses
+* are matched to requests by AMS invoke ID on a dedicated reader thread.
+* Request not written within ADS timeout (device stopped reading) closes the connection.
+* Target device needs a static route to the source AMS net ID.
+* Class is thread-safe.
+*/
+public class AmsTcpTransport implements AsyncAdsTransport {
+  public static final int DEFAULT_SOURCE_PORT = 32905;
+  public static final long DEFAULT_TIMEOUT = 5000;
+  public static final int DEFAULT_MAX_FRAME_SIZE = 8 * 1024 * 1024; //Symbol uploads exceed 64 KiB
+  private static final int MAX_FRAME_SIZE_LIMIT = 1 << 30;
+  static final long GLOBALERR_TARGET_MACHINE_NOT_FOUND = 0x7;
+  static final long ADSERR_DEVICE_INVALIDSIZE = 0x705;
+  static final long ADSERR_CLIENT_SYNCTIMEOUT = 0x745;
+  static final long ADSERR_CLIENT_PORTNOTOPEN = 0x748;
+  private static final int DEV_NAME_SIZE = 16;
+  private static final long ADS_TICKS_PER_MS = 10000;
+  private static final long WRITE_CHECK_PERIOD = 50; //Milliseconds
+  private static final long NO_WRITE = Long.MIN_VALUE;
+  //Closes connections of writes stuck on full send buffer, shared by all instances
+  private static final ScheduledExecutorService writeWatchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread t = new Thread(r, "ams-tcp-write-watchdog");
+    t.setDaemon(true);
+    return t;
+  });
+
+  /**
+  * Decoder of response data, run on the reader thread
+  */
+  @FunctionalInterface
+  private interface ResponseHandler {
+    /**
+    * @return ADS error ID of the response
+    * @param data Receive buffer positioned at ADS data of the response
+    */
+    long handle(ByteBuffer data);
+  }
+
+  /**
+  * Request waiting for its response
+  */
+  private static final class Pending {
+    final int invokeId; //0 - not sent
+    final int commandId;
+    final ResponseHandler handler;
+    final CompletableFuture<Long> future = new CompletableFuture<>();
+
+    Pending(int invokeId, int commandId, ResponseHandler handler) {
+      this.invokeId = invokeId;
+      this.commandId = commandId;
+      this.handler = handler;
+    }
+  }
+
+  private final InetSocketAddress address;
+  private final byte[] targetNetId;
+  private final byte[] sourceNetId;
+  private final int sourcePort;
+  private final Map<Integer, Pending> pending = new ConcurrentHashMap<>();
+  private final Map<Long, NotificationSink> sinks = new ConcurrentHashMap<>();
+  private final AtomicInteger invokeId = new AtomicInteger();
+  private final ReentrantLock txLock = new ReentrantLock();
+  private final ReentrantLock stateLock = new ReentrantLock(); //Channel open/close
+  private ByteBuffer txBuff = AmsPacket.allocate(1024);
+  private volatile int amsPort;
+  private volatile long timeout = DEFAULT_TIMEOUT;
+  private volatile int maxFrameSize = DEFAULT_MAX_FRAME_SIZE;
+  private volatile SocketChannel channel;
+  private volatile long writeStart = NO_WRITE; //Start of write in progress (System.nanoTime)
+  private ScheduledFuture<?> writeCheck; //Watchdog of current channel
+  private Thread reader;
+
+  /**
+  * Class constructor. Connects to default AMS/TCP port with default source AMS port
+  * @param host Host name or IP address of the target device
+  * @param targetNetId Target AMS net ID in String format
+  * @param sourceNetId Source AMS net ID in String format (as routed on the target)
+  */
+  public AmsTcpTransport(String host, String targetNetId, String sourceNetId) {
+    this(host, AmsPacket.AMS_TCP_PORT, targetNetId, sourceNetId, DEFAULT_SOURCE_PORT);
+  }
+
+  /**
+  * Class constructor
+  * @param host Host name or IP address of the target device
+  * @param tcpPort AMS/TCP port of the target device
+  * @param targetNetId Target AMS net ID in String format
+  * @param sourceNetId Source AMS net ID in String format (as routed on the target)
+  * @param sourcePort Source AMS port
+  */
+  public AmsTcpTransport(String host, int tcpPort, String targetNetId, String sourceNetId, int sourcePort) {
+    this.address = InetSocketAddress.createUnresolved(host, tcpPort);
+    this.targetNetId = AmsPacket.parseNetId(targetNetId);
+    this.sourceNetId = AmsPacket.parseNetId(sourceNetId);
+    this.sourcePort = sourcePort;
+  }
+
+  @Override
+  public long open(int amsPort) throws AdsException {
+    stateLock.lock();
+    try {
+      this.amsPort = amsPort;
+      if(channel != null) return sourcePort;
+
+      try {
+        SocketChannel ch = SocketChannel.open();
+        ch.socket().connect(new InetSocketAddress(address.getHostString(), address.getPort()), (int)timeout);
+        ch.socket().setTcpNoDelay(true);
+        channel = ch;
+        writeCheck = writeWatchdog.scheduleWithFixedDelay(() -> checkWrite(ch), WRITE_CHECK_PERIOD,
+                                                          WRITE_CHECK_PERIOD, TimeUnit.MILLISECONDS);
+      } catch(IOException e) {
+        throw new AdsException(GLOBALERR_TARGET_MACHINE_NOT_FOUND);
+      }
+      reader = new Thread(this::receiveLoop, "ams-tcp-reader");
+      reader.setDaemon(true);
+      reader.start();
+      return sourcePort;
+    } finally {
+      stateLock.unlock();
+    }
+  }
+
+  @Override
+  public long close() {
+    stateLock.lock();
+    try {
+      disconnect(channel);
+      return 0;
+    } finally {
+      stateLock.unlock();
+    }
+  }
+
+  @Override
+  public String getNetId() {
+    return AmsPacket.formatNetId(targetNetId);
+  }
+
+  @Override
+  public int getAmsPort() {
+    return amsPort;
+  }
+
+  @Override
+  public long read(long indexGroup, long indexOffset, ByteBuffer data) {
+    return await(sendRead(indexGroup, indexOffset, data));
+  }
+
+  @Override
+  public long write(long indexGroup, long indexOffset, ByteBuffer data) {
+    return await(sendWrite(indexGroup, indexOffset, data));
+  }
+
+  @Override
+  public long readWrite(long indexGroup, long indexOffset, ByteBuffer readData, ByteBuffer writeData) {
+    return await(sendReadWrite(indexGroup, indexOffset, readData, writeData));
+  }
+
+  @Override
+  public CompletableFuture<Long> readAsync(long indexGroup, long indexOffset, ByteBuffer data) {
+    return sendRead(indexGroup, indexOffset, data).future;
+  }
+
+  @Override
+  public CompletableFuture<Long> writeAsync(long indexGroup, long indexOffset, ByteBuffer data) {
+    return sendWrite(indexGroup, indexOffset, data).future;
+  }
+
+  @Override
+  public CompletableFuture<Long> readWriteAsync(long indexGroup, long indexOffset, ByteBuffer readData,
+                                                ByteBuffer writeData) {
+    return sendReadWrite(indexGroup, indexOffset, readData, writeData).future;
+  }
+
+  private Pending sendRead(long indexGroup, long indexOffset, ByteBuffer data) {
+    int length = data.remaining();
+    return send(AmsPacket.CMD_READ, 12, req -> req.putInt((int)indexGroup).putInt((int)indexOffset).putInt(length),
+                resp -> takeData(resp, data));
+  }
+
+  private Pending sendWrite(long indexGroup, long indexOffset, ByteBuffer data) {
+    int length = data.remaining();
+    return send(AmsPacket.CMD_WRITE, 12 + length,
+                req -> req.putInt((int)indexGroup).putInt((int)indexOffset).putInt(length).put(data.duplicate()),
+                resp -> Integer.toUnsignedLong(resp.getInt()));
+  }
+
+  private Pending sendReadWrite(long indexGroup, long indexOffset, ByteBuffer readData, ByteBuffer writeData) {
+    int readLength = readData.remaining();
+    int writeLength = writeData.remaining();
+    return send(AmsPacket.CMD_READ_WRITE, 16 + writeLength,
+                req -> req.putInt((int)indexGroup).putInt((int)indexOffset)
+                          .putInt(readLength).putInt(writeLength).put(writeData.duplicate()),
+                resp -> takeData(resp, readData));
+  }
+
+  @Override
+  public long readState(AdsState adsStateBuff, AdsState adsDevStateBuff) {
+    return await(send(AmsPacket.CMD_READ_STATE, 0, req -> {}, resp -> {
+      long errId = Integer.toUnsignedLong(resp.getInt());
+      if(errId == 0) {
+        adsStateBuff.setState(resp.getShort());
+        adsDevStateBuff.setState(resp.getShort());
+      }
+      return errId;
+    }));
+  }
+
+  @Override
+  public long readDeviceInfo(AdsDevName devName, AdsVersion adsVersion) {
+    return await(send(AmsPacket.CMD_READ_DEVICE_INFO, 0, req -> {}, resp -> {
+      long errId = Integer.toUnsignedLong(resp.getInt());
+      if(errId == 0) {
+        adsVersion.setVersion(resp.get());
+        adsVersion.setRevision(resp.get());
+        adsVersion.setBuild(resp.getShort());
+        byte[] name = new byte[DEV_NAME_SIZE];
+        resp.get(name);
+        int len = 0;
+        while(len < name.length && name[len] != 0) len++;
+        devName.setDevName(new String(name, 0, len, StandardCharsets.ISO_8859_1));
+      }
+      return errId;
+    }));
+  }
+
+  /**
+  * Method for setting size of the largest frame accepted from the device. Connection
+  * receiving larger frame is closed and its requests fail with ADSERR_CLIENT_PORTNOTOPEN
+  * @param maxFrameSize Frame size in bytes including AMS/TCP and AMS headers
+  * @exception IllegalArgumentException When size is below AMS header size or above 1 GiB
+  */
+  public void setMaxFrameSize(int maxFrameSize) {
+    if(maxFrameSize < AmsPacket.HEADER_SIZE || maxFrameSize > MAX_FRAME_SIZE_LIMIT)
+      throw new IllegalArgumentException("Invalid frame size: " + maxFrameSize);
+    this.maxFrameSize = maxFrameSize;
+  }
+
+  @Override
+  public long setTimeout(long adsTimeout) {
+    timeout = adsTimeout;
+    return 0;
+  }
+
+  @Override
+  public long addNotification(long indexGroup, long indexOffset, int length, int transMode,
+                              long maxDelay, long cycleTime, NotificationSink sink) throws AdsException {
+    long[] handle = new long[1];
+    long errId = await(send(AmsPacket.CMD_ADD_NOTIFICATION, 40, req -> {
+      req.putInt((int)indexGroup).putInt((int)indexOffset).putInt(length).putInt(transMode);
+      req.putInt((int)(maxDelay * ADS_TICKS_PER_MS)).putInt((int)(cycleTime * ADS_TICKS_PER_MS)); //100 ns ticks
+      req.putLong(0).putLong(0); //Reserved
+    }, resp -> {
+      long result = Integer.toUnsignedLong(resp.getInt());
+      if(result == 0) {
+        //Registered on reader thread - before any notification of this handle is read
+        handle[0] = Integer.toUnsignedLong(resp.getInt());
+        sinks.put(handle[0], sink);
+      }
+      return result;
+    }));
+    if(errId != 0) throw new AdsException(errId);
+
+    return handle[0];
+  }
+
+  @Override
+  public long deleteNotification(long notificationHandle) {
+    sinks.remove(notificationHandle);
+    return await(send(AmsPacket.CMD_DEL_NOTIFICATION, 4, req -> req.putInt((int)notificationHandle),
+                      resp -> Integer.toUnsignedLong(resp.getInt())));
+  }
+
+  /**
+  * Method for getting number of requests waiting for response
+  * @return Number of requests in flight
+  */
+  public int getPendingCount() {
+    return pending.size();
+  }
+
+  /**
+  * Method for sending request frame. Response is handled on the reader thread.
+  * Write not done within ADS timeout closes the connection, failing all requests in flight
+  * @return Request, its future is completed with ADS error ID
+  * @param commandId ADS command ID
+  * @param dataLength Length of ADS data in bytes
+  * @param encoder Writer of ADS data into transmit buffer
+  * @param handler Decoder of response data
+  */
+  private Pending send(int commandId, int dataLength,
+                       Consumer<ByteBuffer> encoder,
+                       ResponseHandler handler) {
+    SocketChannel ch = channel;
+    if(ch == null) {
+      Pending req = new Pending(0, commandId, handler);
+      req.future.complete(ADSERR_CLIENT_PORTNOTOPEN);
+      return req;
+    }
+
+    int id = invokeId.incrementAndGet();
+    Pending req = new Pending(id, commandId, handler);
+    pending.put(id, req); //Register first - response may arrive before write returns
+    req.future.whenComplete((errId, e) -> {
+      if(e != null) pending.remove(id, req); //Cancelled by caller
+    });
+    txLock.lock();
+    try {
+      txBuff = ensureCapacity(txBuff, AmsPacket.HEADER_SIZE + dataLength);
+      AmsPacket.putHeader(txBuff, targetNetId, amsPort, sourceNetId, sourcePort, commandId,
+                          AmsPacket.STATE_REQUEST, dataLength, 0, id);
+      encoder.accept(txBuff);
+      txBuff.flip();
+      writeStart = System.nanoTime();
+      while(txBuff.hasRemaining())
+        ch.write(txBuff);
+    } catch(IOException e) {
+      pending.remove(id);
+      req.future.complete(ADSERR_CLIENT_PORTNOTOPEN);
+      disconnect(ch);
+    } finally {
+      writeStart = NO_WRITE;
+      txLock.unlock();
+    }
+    return req;
+  }
+
+  /**
+  * Method for closing connection whose write did not finish within ADS timeout, i.e.
+  * the device does not read. The blocked write fails with AsynchronousCloseException.
+  * Run periodically by the watchdog
+  * @param ch Socket channel
+  */
+  private void checkWrite(SocketChannel ch) {
+    long start = writeStart;
+    long writeTimeout = timeout;
+    if(start != NO_WRITE && writeTimeout > 0 && System.nanoTime() - start > TimeUnit.MILLISECONDS.toNanos(writeTimeout))
+      disconnect(ch);
+  }
+
+  /**
+  * Method for waiting for response within ADS timeout
+  * @return ADS error ID of the response
+  * @param req Sent request
+  */
+  private long await(Pending req) {
+    try {
+      return req.future.get(timeout, TimeUnit.MILLISECONDS);
+    } catch(TimeoutException e) {
+      //Drop the request - unless reader thread is just handling its response
+      if(pending.remove(req.invokeId, req))
+        return ADSERR_CLIENT_SYNCTIMEOUT;
+      return req.future.join();
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return ADSERR_CLIENT_SYNCTIMEOUT;
+    } catch(ExecutionException e) {
+      return ADSERR_CLIENT_PORTNOTOPEN;
+    }
+  }
+
+  /**
+  * Reader thread loop - receives frames and completes pending requests
+  */
+  private void receiveLoop() {
+    SocketChannel ch = channel;
+    ByteBuffer rxBuff = AmsPacket.allocate(64 * 1024);
+    try {
+      while(ch.isOpen()) {
+        rxBuff = receiveFrame(ch, rxBuff, maxFrameSize);
+        if(!AmsPacket.isResponse(rxBuff)) {
+          if(AmsPacket.commandId(rxBuff) == AmsPacket.CMD_NOTIFICATION) deliver(rxBuff);
+          continue;
+        }
+
+        Pending req = pending.remove(AmsPacket.invokeId(rxBuff));
+        if(req == null) continue; //Timed out in the meantime
+        if(req.commandId != AmsPacket.commandId(rxBuff)) {
+          req.future.complete(ADSERR_DEVICE_INVALIDSIZE);
+          continue;
+        }
+
+        long errId = AmsPacket.errorCode(rxBuff);
+        rxBuff.position(AmsPacket.HEADER_SIZE);
+        try {
+          if(errId == 0) errId = req.handler.handle(rxBuff);
+        } catch(RuntimeException e) {
+          errId = ADSERR_DEVICE_INVALIDSIZE; //Malformed response
+        }
+        req.future.complete(errId);
+      }
+    } catch(IOException e) {
+      //Connection lost - fail requests below
+    }
+    disconnect(ch);
+  }
+
+  /**
+  * Method for handing samples of device notification frame over to their sinks
+  * @param frame Notification frame
+  */
+  private void deliver(ByteBuffer frame) {
+    frame.position(AmsPacket.HEADER_SIZE);
+    frame.getInt(); //Length
+    int stamps = frame.getInt();
+    for(int i = 0; i < stamps; i++) {
+      long timeStamp = frame.getLong();
+      int samples = frame.getInt();
+      for(int j = 0; j < samples; j++) {
+        long handle = Integer.toUnsignedLong(frame.getInt());
+        byte[] data = new byte[frame.getInt()];
+        frame.get(data);
+        NotificationSink sink = sinks.get(handle);
+        if(sink != null) sink.onNotification(timeStamp, data);
+      }
+    }
+  }
+
+  /**
+  * Method for receiving single frame
+  * @return Receive buffer holding the frame (grown if needed)
+  * @param ch Socket channel
+  * @param rxBuff Current receive buffer
+  * @param maxFrameSize Size of the largest accepted frame in bytes
+  * @exception IOException On connection fail or frame of invalid length
+  */
+  private static ByteBuffer receiveFrame(SocketChannel ch, ByteBuffer rxBuff, int maxFrameSize) throws IOException {
+    rxBuff.clear().limit(AmsPacket.TCP_HEADER_SIZE);
+    fill(ch, rxBuff);
+
+    //Length field is untrusted - up to 4 GiB would be allocated otherwise
+    long frameLength = AmsPacket.TCP_HEADER_SIZE + Integer.toUnsignedLong(AmsPacket.length(rxBuff));
+    if(frameLength < AmsPacket.HEADER_SIZE || frameLength > maxFrameSize)
+      throw new ProtocolException("Invalid AMS/TCP frame length: " + frameLength);
+    int length = (int)frameLength;
+    if(length > rxBuff.capacity()) {
+      ByteBuffer bigger = ensureCapacity(rxBuff, length);
+      rxBuff.flip();
+      bigger.clear();
+      bigger.put(rxBuff);
+      rxBuff = bigger;
+    }
+    rxBuff.limit(length);
+    fill(ch, rxBuff);
+    return rxBuff;
+  }
+
+  /**
+  * Method for reading from channel until buffer is full
+  * @param ch Socket channel
+  * @param buff Receive buffer
+  * @exception IOException On connection fail
+  */
+  private static void fill(SocketChannel ch, ByteBuffer buff) throws IOException {
+    while(buff.hasRemaining())
+      if(ch.read(buff) < 0) throw new EOFException("AMS/TCP connection closed by peer");
+  }
+
+  /**
+  * Method for copying read response data (result, length, data) into caller buffer
+  * @return ADS error ID of the response
+  * @param resp Receive buffer positioned at ADS data
+  * @param data Caller buffer
+  */
+  private static long takeData(ByteBuffer resp, ByteBuffer data) {
+    long errId = Integer.toUnsignedLong(resp.getInt());
+    int length = resp.getInt();
+    if(errId != 0) return errId;
+    if(length > data.remaining()) return ADSERR_DEVICE_INVALIDSIZE;
+
+    int limit = resp.limit();
+    resp.limit(resp.position() + length);
+    data.put(resp);
+    resp.limit(limit);
+    return 0;
+  }
+
+  /**
+  * Method for closing channel and failing all requests in flight
+  * @param ch Channel to be closed
+  */
+  private void disconnect(SocketChannel ch) {
+    if(ch == null) return;
+    stateLock.lock();
+    try {
+      if(channel == ch) {
+        channel = null;
+        writeCheck.cancel(false);
+      }
+    } finally {
+      stateLock.unlock();
+    }
+    try {
+      ch.close();
+    } catch(IOException e) {
+      //Connection is abandoned anyway
+    }
+    sinks.clear();
+    for(Integer id : pending.keySet()) {
+      Pending req = pending.remove(id);
+      if(req != null) req.future.complete(ADSERR_CLIENT_PORTNOTOPEN);
+    }
+  }
+
+  /**
+  * Method for getting buffer of at least given capacity
+  * @return Given buffer if big enough, new direct buffer otherwise
+  * @param buff Current buffer
+  * @param capacity Required capacity in bytes
+  */
+  private static ByteBuffer ensureCapacity(ByteBuffer buff, int capacity) {
+    if(buff.capacity() >= capacity) return buff;
+    return AmsPacket.allocate(Integer.highestOneBit(capacity - 1) << 1);
+  }
+}
@@ -0,0 +1,41 @@
+package adstransport;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+/**
+* ADS transport able to keep many requests in flight at once.
+* Returned futures complete with ADS error ID (0 - no error) once the response
+* arrives; read buffers must not be touched until then. Cancelling returned future
+* drops the request - its response, if any, is ignored.
+*/
+public interface AsyncAdsTransport extends AdsTransport {
+  /**
+  * Method for reading data from index group/offset area without waiting for response
+  * @return Future completed with ADS error ID
+  * @param indexGroup Index group
+  * @param indexOffset Index offset
+  * @param data Buffer receiving data, its remaining bytes determine read length
+  */
+  CompletableFuture<Long> readAsync(long indexGroup, long indexOffset, ByteBuffer data);
+
+  /**
+  * Method for writing data to index group/offset area without waiting for response
+  * @return Future completed with ADS error ID
+  * @param indexGroup Index group
+  * @param indexOffset Index offset
+  * @param data Buffer holding data to be written
+  */
+  CompletableFuture<Long> writeAsync(long indexGroup, long indexOffset, ByteBuffer data);
+
+  /**
+  * Method for writing and reading index group/offset area without waiting for response
+  * @return Future completed with ADS error ID
+  * @param indexGroup Index group
+  * @param indexOffset Index offset
+  * @param readData Buffer receiving data, its remaining bytes determine read length
+  * @param writeData Buffer holding data to be written
+  */
+  CompletableFuture<Long> readWriteAsync(long indexGroup, long indexOffset, ByteBuffer readData,
+                                         ByteBuffer writeData);
+}
@@ -0,0 +1,137 @@
+package adstransport;
+
+import de.beckhoff.jni.tcads.AdsDevName;
+import de.beckhoff.jni.tcads.AdsState;
+import de.beckhoff.jni.tcads.AdsVersion;
+import adsexceptions.AdsException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+* Asynchronous view of blocking ADS transport - requests run on the given executor,
+* so number of requests in flight is limited by its threads. Requests cancelled
+* before their turn are not sent at all.
+* Class is thread-safe if the wrapped transport is.
+*/
+public class ExecutorAsyncTransport implements AsyncAdsTransport {
+  private static final long ADSERR_CLIENT_PORTNOTOPEN = 0x748;
+  private final AdsTransport delegate;
+  private final Executor executor;
+
+  /**
+  * Class constructor
+  * @param delegate Wrapped blocking transport
+  * @param executor Executor running the requests
+  */
+  public ExecutorAsyncTransport(AdsTransport delegate, Executor executor) {
+    this.delegate = delegate;
+    this.executor = executor;
+  }
+
+  @Override
+  public CompletableFuture<Long> readAsync(long indexGroup, long indexOffset, ByteBuffer data) {
+    return submit(() -> delegate.read(indexGroup, indexOffset, data));
+  }
+
+  @Override
+  public CompletableFuture<Long> writeAsync(long indexGroup, long indexOffset, ByteBuffer data) {
+    return submit(() -> delegate.write(indexGroup, indexOffset, data));
+  }
+
+  @Override
+  public CompletableFuture<Long> readWriteAsync(long indexGroup, long indexOffset, ByteBuffer readData,
+                                                ByteBuffer writeData) {
+    return submit(() -> delegate.readWrite(indexGroup, indexOffset, readData, writeData));
+  }
+
+  @Override
+  public long open(int amsPort) throws AdsException {
+    return delegate.open(amsPort);
+  }
+
+  @Override
+  public long close() {
+    return delegate.close();
+  }
+
+  @Override
+  public void shutdown() {
+    delegate.shutdown();
+  }
+
+  @Override
+  public String getNetId() {
+    return delegate.getNetId();
+  }
+
+  @Override
+  public int getAmsPort() {
+    return delegate.getAmsPort();
+  }
+
+  @Override
+  public long read(long indexGroup, long indexOffset, ByteBuffer data) {
+    return delegate.read(indexGroup, indexOffset, data);
+  }
+
+  @Override
+  public long write(long indexGroup, long indexOffset, ByteBuffer data) {
+    return delegate.write(indexGroup, indexOffset, data);
+  }
+
+  @Override
+  public long readWrite(long indexGroup, long indexOffset, ByteBuffer readData, ByteBuffer writeData) {
+    return delegate.readWrite(indexGroup, indexOffset, readData, writeData);
+  }
+
+  @Override
+  public long readState(AdsState adsStateBuff, AdsState adsDevStateBuff) {
+    return delegate.readState(adsStateBuff, adsDevStateBuff);
+  }
+
+  @Override
+  public long readDeviceInfo(AdsDevName devName, AdsVersion adsVersion) {
+    return delegate.readDeviceInfo(devName, adsVersion);
+  }
+
+  @Override
+  public long setTimeout(long adsTimeout) {
+    return delegate.setTimeout(adsTimeout);
+  }
+
+  @Override
+  public long addNotification(long indexGroup, long indexOffset, int length, int transMode,
+                              long maxDelay, long cycleTime, NotificationSink sink) throws AdsException {
+    return delegate.addNotification(indexGroup, indexOffset, length, transMode, maxDelay, cycleTime, sink);
+  }
+
+  @Override
+  public long deleteNotification(long notificationHandle) {
+    return delegate.deleteNotification(notificationHandle);
+  }
+
+  /**
+  * Method for running blocking request on the executor
+  * @return Future completed with ADS error ID
+  * @param request Blocking request
+  */
+  private CompletableFuture<Long> submit(Supplier<Long> request) {
+    CompletableFuture<Long> future = new CompletableFuture<>();
+    try {
+      executor.execute(() -> {
+        if(future.isDone()) return; //Cancelled while queued
+        try {
+          future.complete(request.get());
+        } catch(RuntimeException e) {
+          future.completeExceptionally(e);
+        }
+      });
+    } catch(RejectedExecutionException e) {
+      future.complete(ADSERR_CLIENT_PORTNOTOPEN);
+    }
+    return future;
+  }
+}
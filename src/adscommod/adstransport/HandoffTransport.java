@@ -0,0 +1,180 @@
+package adstransport;
+
+import de.beckhoff.jni.tcads.AdsDevName;
+import de.beckhoff.jni.tcads.AdsState;
+import de.beckhoff.jni.tcads.AdsVersion;
+import adsexceptions.AdsException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+* Blocking ADS transport whose requests are handed off to its own platform I/O threads.
+* The calling thread parks until the request is done, so native (JNI) calls never
+* pin a virtual thread to its carrier - opening and closing the port and setting
+* the timeout included. Both blocking and asynchronous requests are
+* served by the same I/O threads, at most one request per thread at a time.
+* Blocking request of interrupted thread is dropped while still queued; once running,
+* the caller waits for it, so its buffers are not written after the call returned.
+* Class is thread-safe if the wrapped transport is.
+*/
+public class HandoffTransport extends ExecutorAsyncTransport {
+  private static final long ADSERR_CLIENT_SYNCTIMEOUT = 0x745;
+  private static final long ADSERR_CLIENT_PORTNOTOPEN = 0x748;
+  private static final long IDLE_THREAD_KEEP_ALIVE = 60; //Seconds
+  private static final AtomicInteger threadCount = new AtomicInteger();
+  private final ExecutorService ioThreads;
+
+  /**
+  * Blocking request handed off to I/O thread
+  */
+  private static final class Handoff {
+    final CompletableFuture<Long> future = new CompletableFuture<>();
+    final AtomicBoolean taken = new AtomicBoolean(); //Started by I/O thread or dropped by caller
+  }
+
+  /**
+  * Class constructor
+  * @param delegate Wrapped blocking transport, e.g. JniAdsTransport
+  * @param ioThreads Number of I/O threads, i.e. maximum number of concurrent requests
+  */
+  public HandoffTransport(AdsTransport delegate, int ioThreads) {
+    this(delegate, newIoThreads(ioThreads));
+  }
+
+  private HandoffTransport(AdsTransport delegate, ExecutorService ioThreads) {
+    super(delegate, ioThreads);
+    this.ioThreads = ioThreads;
+  }
+
+  @Override
+  public void shutdown() {
+    super.shutdown();
+    ioThreads.shutdown(); //Later requests fail with ADSERR_CLIENT_PORTNOTOPEN
+  }
+
+  @Override
+  public long open(int amsPort) throws AdsException {
+    return await(handoff(() -> super.open(amsPort)));
+  }
+
+  @Override
+  public long close() {
+    return await(handoff(super::close));
+  }
+
+  @Override
+  public long setTimeout(long adsTimeout) {
+    return await(handoff(() -> super.setTimeout(adsTimeout)));
+  }
+
+  @Override
+  public long read(long indexGroup, long indexOffset, ByteBuffer data) {
+    return await(handoff(() -> super.read(indexGroup, indexOffset, data)));
+  }
+
+  @Override
+  public long write(long indexGroup, long indexOffset, ByteBuffer data) {
+    return await(handoff(() -> super.write(indexGroup, indexOffset, data)));
+  }
+
+  @Override
+  public long readWrite(long indexGroup, long indexOffset, ByteBuffer readData, ByteBuffer writeData) {
+    return await(handoff(() -> super.readWrite(indexGroup, indexOffset, readData, writeData)));
+  }
+
+  @Override
+  public long readState(AdsState adsStateBuff, AdsState adsDevStateBuff) {
+    return await(handoff(() -> super.readState(adsStateBuff, adsDevStateBuff)));
+  }
+
+  @Override
+  public long readDeviceInfo(AdsDevName devName, AdsVersion adsVersion) {
+    return await(handoff(() -> super.readDeviceInfo(devName, adsVersion)));
+  }
+
+  @Override
+  public long addNotification(long indexGroup, long indexOffset, int length, int transMode,
+                              long maxDelay, long cycleTime, NotificationSink sink) throws AdsException {
+    return await(handoff(() -> super.addNotification(indexGroup, indexOffset, length, transMode,
+                                                     maxDelay, cycleTime, sink)));
+  }
+
+  @Override
+  public long deleteNotification(long notificationHandle) {
+    return await(handoff(() -> super.deleteNotification(notificationHandle)));
+  }
+
+  /**
+  * Method for running request on I/O thread
+  * @return Handed off request
+  * @param request Blocking request
+  */
+  private Handoff handoff(Supplier<Long> request) {
+    Handoff req = new Handoff();
+    try {
+      ioThreads.execute(() -> {
+        if(!req.taken.compareAndSet(false, true)) return; //Dropped while queued
+        try {
+          req.future.complete(request.get());
+        } catch(RuntimeException e) {
+          req.future.completeExceptionally(e);
+        }
+      });
+    } catch(RejectedExecutionException e) {
+      req.future.complete(ADSERR_CLIENT_PORTNOTOPEN);
+    }
+    return req;
+  }
+
+  /**
+  * Method for parking calling thread until request is done. The wrapped transport
+  * bounds every request by its own timeout. On interrupt the request is dropped if
+  * still queued, running request is waited for and the interrupt status kept
+  * @return ADS error ID
+  * @param req Handed off request
+  * @exception AdsException When thrown by the wrapped transport
+  */
+  private static long await(Handoff req) throws AdsException {
+    boolean interrupted = false;
+    try {
+      while(true) {
+        try {
+          return req.future.get();
+        } catch(InterruptedException e) {
+          interrupted = true;
+          if(req.taken.compareAndSet(false, true)) return ADSERR_CLIENT_SYNCTIMEOUT; //Not started
+        }
+      }
+    } catch(ExecutionException e) {
+      if(e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+      throw new IllegalStateException(e.getCause());
+    } finally {
+      if(interrupted) Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+  * Method for creating pool of I/O threads, idle threads are stopped after a while
+  * @return I/O thread pool
+  * @param count Number of I/O threads
+  */
+  private static ExecutorService newIoThreads(int count) {
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(count, count, IDLE_THREAD_KEEP_ALIVE, TimeUnit.SECONDS,
+                                                     new LinkedBlockingQueue<>(), r -> {
+      Thread t = new Thread(r, "ads-io-handoff-" + threadCount.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
+  }
+}
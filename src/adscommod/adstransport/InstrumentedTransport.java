@@ -0,0 +1,151 @@
+package adstransport;
+
+import de.beckhoff.jni.tcads.AdsDevName;
+import de.beckhoff.jni.tcads.AdsState;
+import de.beckhoff.jni.tcads.AdsVersion;
+import adsexceptions.AdsException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+* ADS transport wrapper counting requests, errors, transferred bytes and time
+* spent in the wrapped transport. Used for comparing I/O paths side by side.
+* Class is thread-safe if the wrapped transport is.
+*/
+public class InstrumentedTransport implements AdsTransport {
+  private final AdsTransport delegate;
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder errors = new LongAdder();
+  private final LongAdder bytesRead = new LongAdder();
+  private final LongAdder bytesWritten = new LongAdder();
+  private final LongAdder nanos = new LongAdder();
+
+  /**
+  * Class constructor
+  * @param delegate Wrapped transport
+  */
+  public InstrumentedTransport(AdsTransport delegate) {
+    this.delegate = delegate;
+  }
+
+  public long getRequests() { return requests.sum();}
+  public long getErrors() { return errors.sum();}
+  public long getBytesRead() { return bytesRead.sum();}
+  public long getBytesWritten() { return bytesWritten.sum();}
+  public long getTotalNanos() { return nanos.sum();}
+
+  /**
+  * Method for resetting all counters
+  */
+  public void reset() {
+    requests.reset();
+    errors.reset();
+    bytesRead.reset();
+    bytesWritten.reset();
+    nanos.reset();
+  }
+
+  @Override
+  public long open(int amsPort) throws AdsException {
+    return delegate.open(amsPort);
+  }
+
+  @Override
+  public long close() {
+    return delegate.close();
+  }
+
+  @Override
+  public void shutdown() {
+    delegate.shutdown();
+  }
+
+  @Override
+  public String getNetId() {
+    return delegate.getNetId();
+  }
+
+  @Override
+  public int getAmsPort() {
+    return delegate.getAmsPort();
+  }
+
+  @Override
+  public long read(long indexGroup, long indexOffset, ByteBuffer data) {
+    int start = data.position();
+    long t0 = System.nanoTime();
+    long errId = delegate.read(indexGroup, indexOffset, data);
+    record(t0, errId, data.position() - start, 0);
+    return errId;
+  }
+
+  @Override
+  public long write(long indexGroup, long indexOffset, ByteBuffer data) {
+    int length = data.remaining();
+    long t0 = System.nanoTime();
+    long errId = delegate.write(indexGroup, indexOffset, data);
+    record(t0, errId, 0, length);
+    return errId;
+  }
+
+  @Override
+  public long readWrite(long indexGroup, long indexOffset, ByteBuffer readData, ByteBuffer writeData) {
+    int start = readData.position();
+    int length = writeData.remaining();
+    long t0 = System.nanoTime();
+    long errId = delegate.readWrite(indexGroup, indexOffset, readData, writeData);
+    record(t0, errId, readData.position() - start, length);
+    return errId;
+  }
+
+  @Override
+  public long readState(AdsState adsStateBuff, AdsState adsDevStateBuff) {
+    long t0 = System.nanoTime();
+    long errId = delegate.readState(adsStateBuff, adsDevStateBuff);
+    record(t0, errId, 0, 0);
+    return errId;
+  }
+
+  @Override
+  public long readDeviceInfo(AdsDevName devName, AdsVersion adsVersion) {
+    long t0 = System.nanoTime();
+    long errId = delegate.readDeviceInfo(devName, adsVersion);
+    record(t0, errId, 0, 0);
+    return errId;
+  }
+
+  @Override
+  public long setTimeout(long adsTimeout) {
+    return delegate.setTimeout(adsTimeout);
+  }
+
+  @Override
+  public long addNotification(long indexGroup, long indexOffset, int length, int transMode,
+                              long maxDelay, long cycleTime, NotificationSink sink) throws AdsException {
+    long t0 = System.nanoTime();
+    try {
+      long handle = delegate.addNotification(indexGroup, indexOffset, length, transMode, maxDelay, cycleTime, sink);
+      record(t0, 0, 0, 0);
+      return handle;
+    } catch(AdsException e) {
+      record(t0, e.getErrId(), 0, 0);
+      throw e;
+    }
+  }
+
+  @Override
+  public long deleteNotification(long notificationHandle) {
+    long t0 = System.nanoTime();
+    long errId = delegate.deleteNotification(notificationHandle);
+    record(t0, errId, 0, 0);
+    return errId;
+  }
+
+  private void record(long t0, long errId, int read, int written) {
+    nanos.add(System.nanoTime() - t0);
+    requests.increment();
+    if(errId != 0) errors.increment();
+    bytesRead.add(read);
+    bytesWritten.add(written);
+  }
+}
@@ -0,0 +1,501 @@
+package adstransport;
+
+import de.beckhoff.jni.JNIByteBuffer;
+import de.beckhoff.jni.JNILong;
+import de.beckhoff.jni.tcads.AdsCallDllFunction;
+import de.beckhoff.jni.tcads.AdsCallbackObject;
+import de.beckhoff.jni.tcads.AdsDevName;
+import de.beckhoff.jni.tcads.AdsNotificationAttrib;
+import de.beckhoff.jni.tcads.AdsNotificationHeader;
+import de.beckhoff.jni.tcads.AdsState;
+import de.beckhoff.jni.tcads.AdsVersion;
+import de.beckhoff.jni.tcads.AmsAddr;
+import de.beckhoff.jni.tcads.CallbackListenerAdsState;
+import adsexceptions.AdsException;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+* ADS transport calling TwinCAT ADS router through TcJavaToAds JNI library.
+* Default transport of AdsManager.
+* Every instance opens its own pool of router ports (adsPortOpenEx) and runs each
+* request on a free port, so requests of different threads do not wait for each other
+* up to the pool size. Every port reuses its JNI transfer buffers up to MAX_RETAINED_SIZE
+* across requests, larger transfers get buffers dropped after use. Reads are not
+* allocation free: read data is copied out of JNIByteBuffer.getByteArray().
+* Notifications are registered on the first port of the pool.
+* Native calls pin virtual threads to their carriers - wrap the transport in
+* HandoffTransport when called from virtual threads.
+* Class is thread-safe.
+*/
+public class JniAdsTransport implements AdsTransport {
+  public static final int DEFAULT_POOL_SIZE = 4;
+  public static final long DEFAULT_TIMEOUT = 5000;
+  public static final int MAX_RETAINED_SIZE = 64 * 1024; //Whole ADS frame, kept per port
+  private static final long ADS_TICKS_PER_MS = 10000;
+  private static final long ADSERR_CLIENT_SYNCTIMEOUT = 0x745;
+  private static final long ADSERR_CLIENT_PORTNOTOPEN = 0x748;
+  //Router callbacks of all instances reach every listener - user values must be unique in process
+  private static final AtomicLong nextUser = new AtomicLong(1);
+
+  /**
+  * Router port of the pool with JNI buffers reused by its requests
+  */
+  private static final class RouterPort {
+    final long port;
+    final JNILong returned = new JNILong();
+    JNIByteBuffer readBuff;
+    int readCapacity;
+    JNIByteBuffer writeBuff;
+    byte[] writeArray = new byte[0];
+
+    RouterPort(long port) {
+      this.port = port;
+    }
+
+    /**
+    * Method for getting read buffer of at least given size, grown on demand up to
+    * MAX_RETAINED_SIZE. Larger buffers are not kept by the port
+    * @return JNI buffer
+    * @param size Required size in bytes
+    */
+    JNIByteBuffer readBuff(int size) {
+      if(size > MAX_RETAINED_SIZE) return new JNIByteBuffer(size);
+      if(size > readCapacity) {
+        readCapacity = Math.min(Math.max(size, 2 * readCapacity), MAX_RETAINED_SIZE);
+        readBuff = new JNIByteBuffer(readCapacity);
+      }
+      return readBuff;
+    }
+
+    /**
+    * Method for getting write buffer filled with remaining bytes of data, grown on demand
+    * up to MAX_RETAINED_SIZE. Larger buffers are not kept by the port.
+    * Position of data is not changed
+    * @return JNI buffer
+    * @param data Data to be written
+    */
+    JNIByteBuffer writeBuff(ByteBuffer data) {
+      int size = data.remaining();
+      byte[] array = writeArray;
+      JNIByteBuffer buff = writeBuff;
+      if(size > MAX_RETAINED_SIZE) {
+        array = new byte[size];
+        buff = new JNIByteBuffer(size);
+      } else if(buff == null || size > array.length) {
+        array = writeArray = new byte[Math.min(Math.max(size, 2 * array.length), MAX_RETAINED_SIZE)];
+        buff = writeBuff = new JNIByteBuffer(array.length);
+      }
+      data.get(data.position(), array, 0, size);
+      buff.setByteArray(array, true);
+      return buff;
+    }
+  }
+
+  private final String netId;
+  private final int poolSize;
+  private final AmsAddr amsAddr = new AmsAddr();
+  private final BlockingQueue<RouterPort> idlePorts;
+  private final Map<Long, NotificationSink> sinks = new ConcurrentHashMap<>();
+  private final Map<Long, Long> sinkUsers = new ConcurrentHashMap<>();
+  private final CallbackListenerAdsState listener = this::onEvent;
+  private final ReentrantLock lock = new ReentrantLock(); //Pool open/close and callback registration
+  private AdsCallbackObject callbackObject;
+  private volatile RouterPort[] ports;
+  private volatile long timeout = DEFAULT_TIMEOUT;
+
+  //Pool metrics
+  private final AtomicInteger busyPorts = new AtomicInteger();
+  private final AtomicInteger peakBusyPorts = new AtomicInteger();
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder waits = new LongAdder();
+  private final LongAdder busyNanos = new LongAdder();
+  private volatile long statsStart = System.nanoTime();
+
+  /**
+  * Class constructor. Targets local AMS net ID
+  */
+  public JniAdsTransport() {
+    this(null);
+  }
+
+  /**
+  * Class constructor with default pool size
+  * @param netId Target AMS net ID in String format (null - local AMS net ID)
+  */
+  public JniAdsTransport(String netId) {
+    this(netId, DEFAULT_POOL_SIZE);
+  }
+
+  /**
+  * Class constructor
+  * @param netId Target AMS net ID in String format (null - local AMS net ID)
+  * @param poolSize Number of router ports, i.e. maximum number of concurrent requests
+  */
+  public JniAdsTransport(String netId, int poolSize) {
+    if(poolSize < 1) throw new IllegalArgumentException("Pool size must be positive: " + poolSize);
+    this.netId = netId;
+    this.poolSize = poolSize;
+    this.idlePorts = new ArrayBlockingQueue<>(poolSize); //No allocation per request
+  }
+
+  /**
+  * Method for getting AMS address of the target device
+  * @return AMS address
+  */
+  public AmsAddr getAmsAddr() {
+    return amsAddr;
+  }
+
+  @Override
+  public long open(int amsPort) throws AdsException {
+    lock.lock();
+    try {
+      if(ports != null) {
+        amsAddr.setPort(amsPort);
+        return ports[0].port;
+      }
+
+      //Open all router ports of the pool
+      long[] opened = new long[poolSize];
+      for(int i = 0; i < poolSize; i++) {
+        opened[i] = AdsCallDllFunction.adsPortOpenEx();
+        if(opened[i] == 0) {
+          closePorts(opened);
+          throw new AdsException(ADSERR_CLIENT_PORTNOTOPEN);
+        }
+        AdsCallDllFunction.adsSyncSetTimeoutEx(opened[i], timeout);
+      }
+
+      //Ports opened - get AMS address
+      long errId = AdsCallDllFunction.getLocalAddressEx(opened[0], amsAddr);
+      if(errId != 0) {
+        closePorts(opened);
+        throw new AdsException(errId);
+      }
+      if(netId != null)
+        amsAddr.setNetIdStringEx(netId);
+      amsAddr.setPort(amsPort);
+
+      RouterPort[] pool = new RouterPort[poolSize];
+      for(int i = 0; i < poolSize; i++) {
+        pool[i] = new RouterPort(opened[i]);
+        idlePorts.add(pool[i]);
+      }
+      ports = pool;
+      resetPoolStats();
+      return opened[0];
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public long close() {
+    lock.lock();
+    try {
+      if(callbackObject != null) {
+        callbackObject.removeListenerCallbackAdsState(listener);
+        callbackObject = null;
+      }
+      sinks.clear();
+      sinkUsers.clear();
+
+      RouterPort[] pool = ports;
+      if(pool == null) return 0;
+      ports = null;
+      idlePorts.clear(); //Ports still in use are not returned to the pool
+      long[] opened = new long[pool.length];
+      for(int i = 0; i < pool.length; i++)
+        opened[i] = pool[i].port;
+      return closePorts(opened);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public String getNetId() {
+    return amsAddr.getNetIdString();
+  }
+
+  @Override
+  public int getAmsPort() {
+    return amsAddr.getPort();
+  }
+
+  /**
+  * Method for getting number of router ports in the pool
+  * @return Pool size
+  */
+  public int getPoolSize() {
+    return poolSize;
+  }
+
+  /**
+  * Method for getting number of ports currently running a request
+  * @return Busy ports
+  */
+  public int getBusyPorts() {
+    return busyPorts.get();
+  }
+
+  /**
+  * Method for getting average pool utilization since open or last reset
+  * @return Busy time of all ports divided by their available time (0.0 - 1.0)
+  */
+  public double getUtilization() {
+    long elapsed = System.nanoTime() - statsStart;
+    return (elapsed > 0) ? (double)busyNanos.sum() / ((double)elapsed * poolSize) : 0.0;
+  }
+
+  /**
+  * Method for getting port pool statistics
+  * @return Map with "size", "busy", "peakBusy", "requests", "waits" and "busyNanos" counters,
+  * "waits" counts requests which found no free port
+  */
+  public Map<String, Long> getPoolStats() {
+    Map<String, Long> stats = new LinkedHashMap<>();
+    stats.put("size", (long)poolSize);
+    stats.put("busy", (long)busyPorts.get());
+    stats.put("peakBusy", (long)peakBusyPorts.get());
+    stats.put("requests", requests.sum());
+    stats.put("waits", waits.sum());
+    stats.put("busyNanos", busyNanos.sum());
+    return stats;
+  }
+
+  /**
+  * Method for resetting port pool statistics
+  */
+  public void resetPoolStats() {
+    peakBusyPorts.set(busyPorts.get());
+    requests.reset();
+    waits.reset();
+    busyNanos.reset();
+    statsStart = System.nanoTime();
+  }
+
+  @Override
+  public long read(long indexGroup, long indexOffset, ByteBuffer data) {
+    RouterPort port = acquirePort();
+    if(port == null) return portError();
+
+    long t0 = System.nanoTime();
+    try {
+      JNIByteBuffer dataBuff = port.readBuff(data.remaining());
+      long errId = AdsCallDllFunction.adsSyncReadReqEx2(port.port, amsAddr, indexGroup, indexOffset,
+                                                        data.remaining(), dataBuff, port.returned);
+      if(errId == 0) data.put(dataBuff.getByteArray(), 0, (int)port.returned.getLong());
+      return errId;
+    } finally {
+      releasePort(port, t0);
+    }
+  }
+
+  @Override
+  public long write(long indexGroup, long indexOffset, ByteBuffer data) {
+    RouterPort port = acquirePort();
+    if(port == null) return portError();
+
+    long t0 = System.nanoTime();
+    try {
+      JNIByteBuffer dataBuff = port.writeBuff(data);
+      return AdsCallDllFunction.adsSyncWriteReqEx(port.port, amsAddr, indexGroup, indexOffset,
+                                                  data.remaining(), dataBuff);
+    } finally {
+      releasePort(port, t0);
+    }
+  }
+
+  @Override
+  public long readWrite(long indexGroup, long indexOffset, ByteBuffer readData, ByteBuffer writeData) {
+    RouterPort port = acquirePort();
+    if(port == null) return portError();
+
+    long t0 = System.nanoTime();
+    try {
+      JNIByteBuffer readBuff = port.readBuff(readData.remaining());
+      JNIByteBuffer writeBuff = port.writeBuff(writeData);
+      long errId = AdsCallDllFunction.adsSyncReadWriteReqEx2(port.port, amsAddr, indexGroup, indexOffset,
+                                                             readData.remaining(), readBuff,
+                                                             writeData.remaining(), writeBuff,
+                                                             port.returned);
+      if(errId == 0) readData.put(readBuff.getByteArray(), 0, (int)port.returned.getLong());
+      return errId;
+    } finally {
+      releasePort(port, t0);
+    }
+  }
+
+  @Override
+  public long readState(AdsState adsStateBuff, AdsState adsDevStateBuff) {
+    RouterPort port = acquirePort();
+    if(port == null) return portError();
+
+    long t0 = System.nanoTime();
+    try {
+      return AdsCallDllFunction.adsSyncReadStateReqEx(port.port, amsAddr, adsStateBuff, adsDevStateBuff);
+    } finally {
+      releasePort(port, t0);
+    }
+  }
+
+  @Override
+  public long readDeviceInfo(AdsDevName devName, AdsVersion adsVersion) {
+    RouterPort port = acquirePort();
+    if(port == null) return portError();
+
+    long t0 = System.nanoTime();
+    try {
+      return AdsCallDllFunction.adsSyncReadDeviceInfoReqEx(port.port, amsAddr, devName, adsVersion);
+    } finally {
+      releasePort(port, t0);
+    }
+  }
+
+  @Override
+  public long setTimeout(long adsTimeout) {
+    timeout = adsTimeout;
+    RouterPort[] pool = ports;
+    if(pool == null) return 0;
+
+    long errId = 0;
+    for(RouterPort port : pool) {
+      long portErrId = AdsCallDllFunction.adsSyncSetTimeoutEx(port.port, adsTimeout);
+      if(portErrId != 0) errId = portErrId;
+    }
+    return errId;
+  }
+
+  @Override
+  public long addNotification(long indexGroup, long indexOffset, int length, int transMode,
+                              long maxDelay, long cycleTime, NotificationSink sink) throws AdsException {
+    RouterPort[] pool = ports;
+    if(pool == null) throw new AdsException(ADSERR_CLIENT_PORTNOTOPEN);
+
+    AdsNotificationAttrib attrib = new AdsNotificationAttrib();
+    JNILong notificationBuff = new JNILong();
+    long user = nextUser.getAndIncrement();
+
+    attrib.setCbLength(length);
+    attrib.setNTransMode(transMode);
+    attrib.setNMaxDelay((int)(maxDelay * ADS_TICKS_PER_MS)); //ADS times in 100 ns ticks
+    attrib.setNCycleTime((int)(cycleTime * ADS_TICKS_PER_MS));
+
+    lock.lock();
+    try {
+      if(callbackObject == null) {
+        callbackObject = new AdsCallbackObject();
+        callbackObject.addListenerCallbackAdsState(listener);
+      }
+    } finally {
+      lock.unlock();
+    }
+    sinks.put(user, sink); //Register first - notification may arrive before request returns
+    long errId = AdsCallDllFunction.adsSyncAddDeviceNotificationReqEx(pool[0].port, amsAddr, indexGroup, indexOffset,
+                                                                     attrib, user, notificationBuff);
+    if(errId != 0) {
+      sinks.remove(user);
+      throw new AdsException(errId);
+    }
+    sinkUsers.put(notificationBuff.getLong(), user);
+    return notificationBuff.getLong();
+  }
+
+  @Override
+  public long deleteNotification(long notificationHandle) {
+    Long user = sinkUsers.remove(notificationHandle);
+    if(user != null) sinks.remove(user);
+
+    RouterPort[] pool = ports;
+    if(pool == null) return ADSERR_CLIENT_PORTNOTOPEN;
+    return AdsCallDllFunction.adsSyncDelDeviceNotificationReqEx(pool[0].port, amsAddr, new JNILong(notificationHandle));
+  }
+
+  /**
+  * Method for taking free router port from the pool, waits up to ADS timeout
+  * @return Router port (null - pool closed or no port freed in time)
+  */
+  private RouterPort acquirePort() {
+    if(ports == null) return null;
+
+    RouterPort port = idlePorts.poll();
+    if(port == null) {
+      waits.increment();
+      try {
+        port = idlePorts.poll(timeout, TimeUnit.MILLISECONDS);
+      } catch(InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if(port == null) return null;
+    }
+
+    int busy = busyPorts.incrementAndGet();
+    peakBusyPorts.accumulateAndGet(busy, Math::max);
+    requests.increment();
+    return port;
+  }
+
+  /**
+  * Method for returning router port to the pool
+  * @param port Router port
+  * @param t0 Request start in nanoseconds
+  */
+  private void releasePort(RouterPort port, long t0) {
+    busyNanos.add(System.nanoTime() - t0);
+    busyPorts.decrementAndGet();
+    //Port of closed pool is already closed, do not mix it into reopened pool
+    RouterPort[] pool = ports;
+    if(pool == null) return;
+    for(RouterPort p : pool)
+      if(p == port) {
+        idlePorts.offer(port);
+        return;
+      }
+  }
+
+  /**
+  * Method for getting error of request which did not get router port
+  * @return ADS error ID
+  */
+  private long portError() {
+    return (ports == null) ? ADSERR_CLIENT_PORTNOTOPEN : ADSERR_CLIENT_SYNCTIMEOUT;
+  }
+
+  /**
+  * Method for closing router ports
+  * @return ADS error ID of the last failed close (0 - no error)
+  * @param opened Router ports, 0 entries are skipped
+  */
+  private static long closePorts(long[] opened) {
+    long errId = 0;
+    for(long port : opened) {
+      if(port == 0) continue;
+      long portErrId = AdsCallDllFunction.adsPortCloseEx(port);
+      if(portErrId != 0) errId = portErrId;
+    }
+    return errId;
+  }
+
+  /**
+  * Method called by ADS router on every notification (native thread)
+  * @param addr AMS address of notification source
+  * @param notification Notification header with data
+  * @param user User value identifying notification sink
+  */
+  private void onEvent(AmsAddr addr, AdsNotificationHeader notification, long user) {
+    NotificationSink sink = sinks.get(user);
+    if(sink != null)
+      sink.onNotification(notification.getNTimeStamp(), notification.getData());
+  }
+}
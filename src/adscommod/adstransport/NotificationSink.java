@@ -0,0 +1,14 @@
+package adstransport;
+
+/**
+* Receiver of ADS device notifications on transport level
+*/
+@FunctionalInterface
+public interface NotificationSink {
+  /**
+  * Method called on every received notification sample
+  * @param timeStamp ADS timestamp (100 ns ticks since 1601-01-01 UTC)
+  * @param data Notified value as byte array
+  */
+  void onNotification(long timeStamp, byte[] data);
+}
@@ -0,0 +1,455 @@
+package adstransport;
+
+import de.beckhoff.jni.tcads.AdsDevName;
+import de.beckhoff.jni.tcads.AdsState;
+import de.beckhoff.jni.tcads.AdsVersion;
+import adsexceptions.AdsException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+* ADS transport where one dedicated thread owns the wrapped transport. Callers put
+* requests into lock-free queue and wait for their futures; the owner thread drains
+* the queue and sends consecutive queued reads as single ADS sum read. Requests are
+* sent in queue order. Asynchronous wrapped transport is not waited for by the owner,
+* so coalesced requests are also pipelined.
+* Class is thread-safe.
+*/
+public class SingleOwnerTransport implements AsyncAdsTransport {
+  public static final long DEFAULT_TIMEOUT = 5000;
+  private static final long ADSERR_DEVICE_SRVNOTSUPP = 0x701;
+  private static final long ADSERR_DEVICE_INVALIDSIZE = 0x705;
+  private static final long ADSERR_CLIENT_SYNCTIMEOUT = 0x745;
+  private static final long ADSERR_CLIENT_PORTNOTOPEN = 0x748;
+  private static final int MAX_DRAIN = 4096; //Requests taken from queue at once
+
+  private static final int READ = 0;
+  private static final int WRITE = 1;
+  private static final int READ_WRITE = 2;
+  private static final int TASK = 3;
+
+  /**
+  * Queued request
+  */
+  private static final class Request {
+    final int kind;
+    final long indexGroup;
+    final long indexOffset;
+    final ByteBuffer readData;
+    final ByteBuffer writeData;
+    final Supplier<Long> task;
+    final CompletableFuture<Long> future = new CompletableFuture<>();
+
+    Request(int kind, long indexGroup, long indexOffset, ByteBuffer readData, ByteBuffer writeData,
+            Supplier<Long> task) {
+      this.kind = kind;
+      this.indexGroup = indexGroup;
+      this.indexOffset = indexOffset;
+      this.readData = readData;
+      this.writeData = writeData;
+      this.task = task;
+    }
+  }
+
+  private final AdsTransport delegate;
+  private final AsyncAdsTransport asyncDelegate;
+  private final Queue<Request> queue = new ConcurrentLinkedQueue<>();
+  private final ReentrantLock lock = new ReentrantLock(); //Open/close
+  private volatile Thread owner;
+  private volatile boolean ownerParked;
+  private volatile boolean sumSupported = true;
+  private boolean sumConfirmed; //Target answered sum read, owner thread only
+  private volatile long timeout = DEFAULT_TIMEOUT; //Wait for blocking request incl. queueing, ms
+
+  //Statistics
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder sumReads = new LongAdder();
+  private final LongAdder coalescedReads = new LongAdder();
+
+  /**
+  * Class constructor
+  * @param delegate Wrapped transport, used by the owner thread only
+  */
+  public SingleOwnerTransport(AdsTransport delegate) {
+    this.delegate = delegate;
+    this.asyncDelegate = (delegate instanceof AsyncAdsTransport) ? (AsyncAdsTransport)delegate : null;
+  }
+
+  @Override
+  public long open(int amsPort) throws AdsException {
+    lock.lock();
+    try {
+      long adsPort = delegate.open(amsPort);
+      if(owner == null) {
+        Thread t = new Thread(this::ownerLoop, "ads-port-owner");
+        t.setDaemon(true);
+        owner = t;
+        t.start();
+      }
+      return adsPort;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public long close() {
+    lock.lock();
+    try {
+      Thread t = owner;
+      if(t != null) {
+        owner = null;
+        LockSupport.unpark(t);
+        try {
+          t.join();
+        } catch(InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      //Requests queued after the owner stopped
+      for(Request req; (req = queue.poll()) != null; )
+        req.future.complete(ADSERR_CLIENT_PORTNOTOPEN);
+      return delegate.close();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void shutdown() {
+    delegate.shutdown();
+  }
+
+  @Override
+  public String getNetId() {
+    return delegate.getNetId();
+  }
+
+  @Override
+  public int getAmsPort() {
+    return delegate.getAmsPort();
+  }
+
+  /**
+  * Method for getting request statistics
+  * @return Map with "requests", "sumReads" and "coalescedReads" counters,
+  * "coalescedReads" counts reads sent as part of sum read
+  */
+  public Map<String, Long> getStats() {
+    Map<String, Long> stats = new LinkedHashMap<>();
+    stats.put("requests", requests.sum());
+    stats.put("sumReads", sumReads.sum());
+    stats.put("coalescedReads", coalescedReads.sum());
+    return stats;
+  }
+
+  /**
+  * Method for getting number of requests waiting for the owner thread
+  * @return Queue length
+  */
+  public int getQueueLength() {
+    return queue.size();
+  }
+
+  @Override
+  public CompletableFuture<Long> readAsync(long indexGroup, long indexOffset, ByteBuffer data) {
+    return enqueue(new Request(READ, indexGroup, indexOffset, data, null, null));
+  }
+
+  @Override
+  public CompletableFuture<Long> writeAsync(long indexGroup, long indexOffset, ByteBuffer data) {
+    return enqueue(new Request(WRITE, indexGroup, indexOffset, null, data, null));
+  }
+
+  @Override
+  public CompletableFuture<Long> readWriteAsync(long indexGroup, long indexOffset, ByteBuffer readData,
+                                                ByteBuffer writeData) {
+    return enqueue(new Request(READ_WRITE, indexGroup, indexOffset, readData, writeData, null));
+  }
+
+  @Override
+  public long read(long indexGroup, long indexOffset, ByteBuffer data) {
+    return await(readAsync(indexGroup, indexOffset, data));
+  }
+
+  @Override
+  public long write(long indexGroup, long indexOffset, ByteBuffer data) {
+    return await(writeAsync(indexGroup, indexOffset, data));
+  }
+
+  @Override
+  public long readWrite(long indexGroup, long indexOffset, ByteBuffer readData, ByteBuffer writeData) {
+    return await(readWriteAsync(indexGroup, indexOffset, readData, writeData));
+  }
+
+  @Override
+  public long readState(AdsState adsStateBuff, AdsState adsDevStateBuff) {
+    return await(task(() -> delegate.readState(adsStateBuff, adsDevStateBuff)));
+  }
+
+  @Override
+  public long readDeviceInfo(AdsDevName devName, AdsVersion adsVersion) {
+    return await(task(() -> delegate.readDeviceInfo(devName, adsVersion)));
+  }
+
+  @Override
+  public long setTimeout(long adsTimeout) {
+    timeout = adsTimeout;
+    return delegate.setTimeout(adsTimeout);
+  }
+
+  @Override
+  public long addNotification(long indexGroup, long indexOffset, int length, int transMode,
+                              long maxDelay, long cycleTime, NotificationSink sink) throws AdsException {
+    return await(task(() -> delegate.addNotification(indexGroup, indexOffset, length, transMode,
+                                                     maxDelay, cycleTime, sink)));
+  }
+
+  @Override
+  public long deleteNotification(long notificationHandle) {
+    return await(task(() -> delegate.deleteNotification(notificationHandle)));
+  }
+
+  private CompletableFuture<Long> task(Supplier<Long> task) {
+    return enqueue(new Request(TASK, 0, 0, null, null, task));
+  }
+
+  /**
+  * Method for putting request into the queue and waking the owner thread
+  * @return Future of the request
+  * @param req Request
+  */
+  private CompletableFuture<Long> enqueue(Request req) {
+    Thread t = owner;
+    if(t == null) {
+      req.future.complete(ADSERR_CLIENT_PORTNOTOPEN);
+      return req.future;
+    }
+    queue.offer(req);
+    //Closed meanwhile - queue may have been drained before the offer
+    if(owner == null) {
+      if(queue.remove(req)) req.future.complete(ADSERR_CLIENT_PORTNOTOPEN);
+      return req.future;
+    }
+    if(ownerParked) LockSupport.unpark(t);
+    return req.future;
+  }
+
+  /**
+  * Method for waiting for request done by the owner thread within ADS timeout
+  * @return ADS error ID
+  * @param future Future of the request
+  * @exception AdsException When thrown by the wrapped transport
+  */
+  private long await(CompletableFuture<Long> future) throws AdsException {
+    try {
+      return future.get(timeout, TimeUnit.MILLISECONDS);
+    } catch(TimeoutException e) {
+      if(future.cancel(false)) return ADSERR_CLIENT_SYNCTIMEOUT; //Dropped unless already sent
+      return await(future);
+    } catch(InterruptedException e) {
+      future.cancel(false); //Dropped unless already sent
+      Thread.currentThread().interrupt();
+      return ADSERR_CLIENT_SYNCTIMEOUT;
+    } catch(ExecutionException e) {
+      if(e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+  * Owner thread loop - drains the queue and sends requests
+  */
+  private void ownerLoop() {
+    Thread self = Thread.currentThread();
+    List<Request> batch = new ArrayList<>();
+
+    while(owner == self) {
+      Request req = queue.poll();
+      if(req == null) {
+        //Producers see the flag or the owner sees their request
+        ownerParked = true;
+        if(queue.isEmpty() && owner == self) LockSupport.park(this);
+        ownerParked = false;
+        continue;
+      }
+
+      batch.clear();
+      do {
+        if(!req.future.isDone()) batch.add(req); //Cancelled requests are not sent
+      } while(batch.size() < MAX_DRAIN && (req = queue.poll()) != null);
+      requests.add(batch.size());
+      send(batch);
+    }
+  }
+
+  /**
+  * Method for sending drained requests in order, runs of reads are coalesced
+  * @param batch Requests in queue order
+  */
+  private void send(List<Request> batch) {
+    int i = 0;
+    while(i < batch.size()) {
+      Request req = batch.get(i);
+      if(req.kind != READ || !sumSupported) {
+        sendSingle(req);
+        i++;
+        continue;
+      }
+
+      //Run of reads, split into sum reads fitting into ADS frame
+      int from = i;
+      int end = i;
+      while(end < batch.size() && batch.get(end).kind == READ)
+        end++;
+      int start = from;
+      for(int to : SumCommand.chunkEnds(end - from, k -> SumCommand.READ_HEADER,
+                                        k -> SumCommand.ERR_ID_SIZE + batch.get(from + k).readData.remaining())) {
+        if(!sumSupported || to - start == 1) {
+          for(int k = from + start; k < from + to; k++)
+            sendSingle(batch.get(k));
+        } else sendSumRead(batch.subList(from + start, from + to));
+        start = to;
+      }
+      i = end;
+    }
+  }
+  /**
+  * Method for sending single request
+  * @param req Request
+  */
+  private void sendSingle(Request req) {
+    CompletableFuture<Long> result;
+    try {
+      switch(req.kind) {
+        case READ:
+          result = (asyncDelegate != null) ? asyncDelegate.readAsync(req.indexGroup, req.indexOffset, req.readData)
+                   : CompletableFuture.completedFuture(delegate.read(req.indexGroup, req.indexOffset, req.readData));
+          break;
+        case WRITE:
+          result = (asyncDelegate != null) ? asyncDelegate.writeAsync(req.indexGroup, req.indexOffset, req.writeData)
+                   : CompletableFuture.completedFuture(delegate.write(req.indexGroup, req.indexOffset, req.writeData));
+          break;
+        case READ_WRITE:
+          result = (asyncDelegate != null)
+                   ? asyncDelegate.readWriteAsync(req.indexGroup, req.indexOffset, req.readData, req.writeData)
+                   : CompletableFuture.completedFuture(delegate.readWrite(req.indexGroup, req.indexOffset,
+                                                                          req.readData, req.writeData));
+          break;
+        default:
+          result = CompletableFuture.completedFuture(req.task.get());
+      }
+    } catch(RuntimeException e) {
+      req.future.completeExceptionally(e);
+      return;
+    }
+    result.whenComplete((errId, e) -> {
+      if(e == null) req.future.complete(errId);
+      else req.future.completeExceptionally(e);
+    });
+  }
+
+  /**
+  * Method for sending run of reads as one ADS sum read. Data is decoded
+  * directly into buffers of the requests. First sum read is waited for - reads
+  * of target without sum commands are sent one by one in their original order
+  * @param batchReads Read requests, view of the drained batch
+  */
+  private void sendSumRead(List<Request> batchReads) {
+    List<Request> reads = new ArrayList<>(batchReads);
+    int count = reads.size();
+    long[] groups = new long[count];
+    long[] offsets = new long[count];
+    int[] sizes = new int[count];
+    for(int i = 0; i < count; i++) {
+      Request req = reads.get(i);
+      groups[i] = req.indexGroup;
+      offsets[i] = req.indexOffset;
+      sizes[i] = req.readData.remaining();
+    }
+    ByteBuffer sumReq = ByteBuffer.wrap(SumCommand.encodeRead(groups, offsets, sizes, 0, count));
+    ByteBuffer sumResp = SumCommand.allocate(SumCommand.readResponseSize(sizes, 0, count));
+
+    CompletableFuture<Long> result;
+    try {
+      result = (asyncDelegate != null)
+               ? asyncDelegate.readWriteAsync(SumCommand.ADSIGRP_SUMUP_READ, count, sumResp, sumReq)
+               : CompletableFuture.completedFuture(delegate.readWrite(SumCommand.ADSIGRP_SUMUP_READ, count,
+                                                                      sumResp, sumReq));
+    } catch(RuntimeException e) {
+      for(Request req : reads)
+        req.future.completeExceptionally(e);
+      return;
+    }
+
+    if(!sumConfirmed) {
+      long errId;
+      try {
+        errId = result.join();
+      } catch(CompletionException | CancellationException e) {
+        for(Request req : reads)
+          req.future.completeExceptionally((e.getCause() != null) ? e.getCause() : e);
+        return;
+      }
+      if(errId == ADSERR_DEVICE_SRVNOTSUPP) {
+        //Target without sum commands - requests go one by one from now on
+        sumSupported = false;
+        for(Request req : reads)
+          sendSingle(req);
+        return;
+      }
+      sumConfirmed = true;
+    }
+
+    sumReads.increment();
+    coalescedReads.add(count);
+    result.whenComplete((errId, e) -> {
+      if(e != null) {
+        for(Request req : reads)
+          req.future.completeExceptionally(e);
+      } else if(errId != 0 || sumResp.position() != sumResp.capacity()) {
+        //Short response would read as success with zeros
+        for(Request req : reads)
+          req.future.complete((errId != 0) ? errId : ADSERR_DEVICE_INVALIDSIZE);
+      } else distribute(reads, sumResp);
+    });
+  }
+
+  /**
+  * Method for decoding complete sum read response - error IDs first, followed by data
+  * of every read in its requested size
+  * @param reads Read requests
+  * @param sumResp Response data
+  */
+  private static void distribute(List<Request> reads, ByteBuffer sumResp) {
+    int dataPos = reads.size() * SumCommand.ERR_ID_SIZE;
+    for(int i = 0; i < reads.size(); i++) {
+      Request req = reads.get(i);
+      long errId = Integer.toUnsignedLong(sumResp.getInt(i * SumCommand.ERR_ID_SIZE));
+      int length = req.readData.remaining();
+      if(errId == 0 && !req.future.isDone()) { //Buffer of timed out request is left alone
+        ByteBuffer data = sumResp.duplicate();
+        data.limit(dataPos + length).position(dataPos);
+        req.readData.put(data);
+      }
+      dataPos += length;
+      req.future.complete(errId);
+    }
+  }
+}
@@ -0,0 +1,235 @@
+package adstransport;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+/**
+* Encoding, decoding and chunking of ADS sum commands (batch requests).
+* Sum command packs many sub-requests into single ADS read-write request,
+* index offset of the request carries number of sub-requests.
+* Shared by AdsManager batch requests and SingleOwnerTransport coalescing.
+*/
+public final class SumCommand {
+  public static final long ADSIGRP_SUMUP_READ = 0xF080;
+  public static final long ADSIGRP_SUMUP_WRITE = 0xF081;
+  public static final long ADSIGRP_SUMUP_READWRITE = 0xF082;
+  public static final int MAX_SUB_REQUESTS = 500; //Limit recommended by Beckhoff
+  public static final int MAX_FRAME_DATA = 0xFFFF - 64; //ADS frame size minus AMS/ADS headers
+  public static final int READ_HEADER = 12; //Index group, index offset, length
+  public static final int READWRITE_HEADER = 16; //Index group, index offset, read length, write length
+  public static final int ERR_ID_SIZE = 4;
+
+  private SumCommand() {}
+
+  /**
+  * Method for splitting sub-requests into chunks respecting ADS frame size
+  * @return Exclusive end index of every chunk
+  * @param count Number of sub-requests
+  * @param requestBytes Bytes sub-request adds to the request frame
+  * @param responseBytes Bytes sub-request adds to the response frame
+  */
+  public static int[] chunkEnds(int count, IntUnaryOperator requestBytes, IntUnaryOperator responseBytes) {
+    List<Integer> ends = new ArrayList<>();
+    int items = 0;
+    long reqSize = 0;
+    long respSize = 0;
+
+    for(int i = 0; i < count; i++) {
+      int req = requestBytes.applyAsInt(i);
+      int resp = responseBytes.applyAsInt(i);
+      if(items > 0 && (items == MAX_SUB_REQUESTS || reqSize + req > MAX_FRAME_DATA
+                       || respSize + resp > MAX_FRAME_DATA)) {
+        ends.add(i);
+        items = 0;
+        reqSize = 0;
+        respSize = 0;
+      }
+      items++;
+      reqSize += req;
+      respSize += resp;
+    }
+    if(items > 0) ends.add(count);
+
+    return ends.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  /**
+  * Method for allocating little-endian buffer for ADS frame data
+  * @return Byte buffer in ADS byte order
+  * @param size Buffer size in bytes
+  */
+  public static ByteBuffer allocate(int size) {
+    return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+  * Method for wrapping ADS frame data as little-endian buffer
+  * @return Byte buffer in ADS byte order
+  * @param data ADS frame data
+  */
+  public static ByteBuffer wrap(byte[] data) {
+    return ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+  * Method for encoding sum read request (ADSIGRP_SUMUP_READ)
+  * @return Request data
+  * @param groups Index group of every sub-request
+  * @param offsets Index offset of every sub-request
+  * @param sizes Data size of every sub-request
+  * @param from First sub-request (inclusive)
+  * @param to Last sub-request (exclusive)
+  */
+  public static byte[] encodeRead(long[] groups, long[] offsets, int[] sizes, int from, int to) {
+    ByteBuffer req = allocate((to - from) * READ_HEADER);
+    for(int i = from; i < to; i++)
+      req.putInt((int)groups[i]).putInt((int)offsets[i]).putInt(sizes[i]);
+    return req.array();
+  }
+
+  /**
+  * Method for getting response size of sum read request
+  * @return Response size in bytes
+  * @param sizes Data size of every sub-request
+  * @param from First sub-request (inclusive)
+  * @param to Last sub-request (exclusive)
+  */
+  public static int readResponseSize(int[] sizes, int from, int to) {
+    int size = (to - from) * ERR_ID_SIZE;
+    for(int i = from; i < to; i++)
+      size += sizes[i];
+    return size;
+  }
+
+  /**
+  * Method for decoding sum read response. Error IDs come first, followed
+  * by data of every sub-request in its requested size
+  * @param resp Response data
+  * @param sizes Data size of every sub-request
+  * @param from First sub-request (inclusive)
+  * @param to Last sub-request (exclusive)
+  * @param errIds Output - error ID of every sub-request
+  * @param data Output - data of every sub-request
+  */
+  public static void decodeRead(byte[] resp, int[] sizes, int from, int to, long[] errIds, byte[][] data) {
+    ByteBuffer buff = wrap(resp);
+    for(int i = from; i < to; i++)
+      errIds[i] = Integer.toUnsignedLong(buff.getInt());
+    for(int i = from; i < to; i++) {
+      data[i] = new byte[sizes[i]];
+      buff.get(data[i]);
+    }
+  }
+
+  /**
+  * Method for encoding sum write request (ADSIGRP_SUMUP_WRITE). All headers
+  * come first, followed by data of every sub-request
+  * @return Request data
+  * @param groups Index group of every sub-request
+  * @param offsets Index offset of every sub-request
+  * @param values Data of every sub-request
+  * @param from First sub-request (inclusive)
+  * @param to Last sub-request (exclusive)
+  */
+  public static byte[] encodeWrite(long[] groups, long[] offsets, byte[][] values, int from, int to) {
+    int size = (to - from) * READ_HEADER;
+    for(int i = from; i < to; i++)
+      size += values[i].length;
+
+    ByteBuffer req = allocate(size);
+    for(int i = from; i < to; i++)
+      req.putInt((int)groups[i]).putInt((int)offsets[i]).putInt(values[i].length);
+    for(int i = from; i < to; i++)
+      req.put(values[i]);
+    return req.array();
+  }
+
+  /**
+  * Method for decoding error IDs of sum write response
+  * @param resp Response data
+  * @param from First sub-request (inclusive)
+  * @param to Last sub-request (exclusive)
+  * @param errIds Output - error ID of every sub-request
+  */
+  public static void decodeErrIds(byte[] resp, int from, int to, long[] errIds) {
+    ByteBuffer buff = wrap(resp);
+    for(int i = from; i < to; i++)
+      errIds[i] = Integer.toUnsignedLong(buff.getInt());
+  }
+
+  /**
+  * Method for encoding sum read-write request (ADSIGRP_SUMUP_READWRITE). All headers
+  * come first, followed by write data of every sub-request
+  * @return Request data
+  * @param groups Index group of every sub-request
+  * @param offsets Index offset of every sub-request
+  * @param readSizes Read data size of every sub-request
+  * @param values Write data of every sub-request
+  * @param from First sub-request (inclusive)
+  * @param to Last sub-request (exclusive)
+  */
+  public static byte[] encodeReadWrite(long[] groups, long[] offsets, int[] readSizes, byte[][] values,
+                                int from, int to) {
+    int size = (to - from) * READWRITE_HEADER;
+    for(int i = from; i < to; i++)
+      size += values[i].length;
+
+    ByteBuffer req = allocate(size);
+    for(int i = from; i < to; i++)
+      req.putInt((int)groups[i]).putInt((int)offsets[i]).putInt(readSizes[i]).putInt(values[i].length);
+    for(int i = from; i < to; i++)
+      req.put(values[i]);
+    return req.array();
+  }
+
+  /**
+  * Method for getting response size of sum read-write request
+  * @return Response size in bytes
+  * @param readSizes Read data size of every sub-request
+  * @param from First sub-request (inclusive)
+  * @param to Last sub-request (exclusive)
+  */
+  public static int readWriteResponseSize(int[] readSizes, int from, int to) {
+    int size = (to - from) * 2 * ERR_ID_SIZE;
+    for(int i = from; i < to; i++)
+      size += readSizes[i];
+    return size;
+  }
+
+  /**
+  * Method for getting length of sum read-write response given by returned lengths
+  * of its sub-requests
+  * @return Response length in bytes or -1 if error IDs and lengths are incomplete
+  * @param resp Response data from index 0, position is number of received bytes
+  * @param count Number of sub-requests
+  */
+  public static long readWriteResponseLength(ByteBuffer resp, int count) {
+    long length = (long)count * 2 * ERR_ID_SIZE;
+    if(resp.position() < length) return -1;
+    for(int i = 0; i < count; i++)
+      length += Integer.toUnsignedLong(resp.getInt((2 * i + 1) * ERR_ID_SIZE));
+    return length;
+  }
+
+  /**
+  * Method for decoding sum read-write response. Error ID and returned length
+  * of every sub-request come first, followed by returned data
+  * @param resp Response data
+  * @param from First sub-request (inclusive)
+  * @param to Last sub-request (exclusive)
+  * @param errIds Output - error ID of every sub-request
+  * @param data Output - returned data of every sub-request
+  */
+  public static void decodeReadWrite(byte[] resp, int from, int to, long[] errIds, byte[][] data) {
+    ByteBuffer buff = wrap(resp);
+    for(int i = from; i < to; i++) {
+      errIds[i] = Integer.toUnsignedLong(buff.getInt());
+      data[i] = new byte[buff.getInt()];
+    }
+    for(int i = from; i < to; i++)
+      buff.get(data[i]);
+  }
+}
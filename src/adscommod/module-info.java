@@ -5,4 +5,5 @@ module adscommod {
   requires transitive TcJavaToAds;
   exports adscom;
   exports adsexceptions;
+  exports adstransport;
 }
@@ -0,0 +1,162 @@
+package adsgen;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+* Data types and symbols of TwinCAT module description (.tmc), the XML file written
+* by TwinCAT next to a compiled PLC project. Data types are read from DataTypes/DataType,
+* symbols from Modules/Module/DataAreas/DataArea/Symbol. Names are compared
+* case-insensitively, as in TwinCAT.
+*/
+final class TmcFile {
+  private final Map<String, TmcType> types; //Upper case name -> type
+  private final Map<String, TmcType.Item> symbols; //Upper case name -> symbol
+
+  private TmcFile(Map<String, TmcType> types, Map<String, TmcType.Item> symbols) {
+    this.types = types;
+    this.symbols = symbols;
+  }
+
+  /**
+  * Method for reading module description. DTDs and external entities are refused
+  * @return Data types and symbols
+  * @param file .tmc file
+  * @exception IOException On fail to read file
+  * @exception IllegalArgumentException When file is no valid XML
+  */
+  static TmcFile read(Path file) throws IOException {
+    Element root;
+    try(InputStream in = Files.newInputStream(file)) {
+      root = newBuilder().parse(in).getDocumentElement();
+    } catch(SAXException e) {
+      throw new IllegalArgumentException("Malformed module description " + file + ": " + e.getMessage(), e);
+    }
+
+    Map<String, TmcType> types = new LinkedHashMap<>();
+    for(Element dataTypes : children(root, "DataTypes"))
+      for(Element dataType : children(dataTypes, "DataType")) {
+        TmcType type = type(dataType);
+        types.putIfAbsent(key(type.name), type);
+      }
+
+    Map<String, TmcType.Item> symbols = new LinkedHashMap<>();
+    NodeList areas = root.getElementsByTagName("DataArea");
+    for(int i = 0; i < areas.getLength(); i++)
+      for(Element symbol : children((Element)areas.item(i), "Symbol")) {
+        TmcType.Item item = item(symbol, "BaseType");
+        symbols.putIfAbsent(key(item.name), item);
+      }
+    return new TmcFile(types, symbols);
+  }
+
+  /**
+  * Method for finding data type by name
+  * @return Data type or null if not declared in file (e.g. elementary type)
+  * @param typeName Type name (case insensitive)
+  */
+  TmcType getType(String typeName) {
+    return types.get(key(typeName));
+  }
+
+  Collection<TmcType> getTypes() { return Collections.unmodifiableCollection(types.values());}
+
+  Collection<TmcType.Item> getSymbols() { return Collections.unmodifiableCollection(symbols.values());}
+
+  private static DocumentBuilder newBuilder() {
+    try {
+      DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+      factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+      factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+      factory.setXIncludeAware(false);
+      factory.setExpandEntityReferences(false);
+      DocumentBuilder builder = factory.newDocumentBuilder();
+      builder.setErrorHandler(new DefaultHandler()); //Errors are thrown, not printed
+      return builder;
+    } catch(ParserConfigurationException e) {
+      throw new IllegalStateException("XML parser not available", e);
+    }
+  }
+
+  private static TmcType type(Element dataType) {
+    List<TmcType.Item> items = new ArrayList<>();
+    for(Element subItem : children(dataType, "SubItem"))
+      items.add(item(subItem, "Type"));
+
+    Element base = child(dataType, "BaseType");
+    return new TmcType(text(dataType, "Name"), number(dataType, "BitSize"),
+                       (base != null) ? base.getTextContent().trim() : null, isPointer(base),
+                       child(dataType, "EnumInfo") != null, arrayDims(dataType), items);
+  }
+
+  private static TmcType.Item item(Element element, String typeTag) {
+    Element type = child(element, typeTag);
+    if(type == null) type = child(element, "Type"); //Older files name symbol type Type as well
+    if(type == null) throw new IllegalArgumentException("No type of " + text(element, "Name"));
+    return new TmcType.Item(text(element, "Name"), type.getTextContent().trim(), isPointer(type),
+                            number(element, "BitSize"), number(element, "BitOffs"), arrayDims(element));
+  }
+
+  private static List<int[]> arrayDims(Element element) {
+    List<int[]> dims = new ArrayList<>();
+    for(Element info : children(element, "ArrayInfo"))
+      dims.add(new int[] {(int)number(info, "LBound"), (int)number(info, "Elements")});
+    return dims;
+  }
+
+  private static boolean isPointer(Element type) {
+    return type != null && (type.hasAttribute("PointerTo") || type.hasAttribute("ReferenceTo"));
+  }
+
+  private static String text(Element element, String tag) {
+    Element child = child(element, tag);
+    if(child == null) throw new IllegalArgumentException("No " + tag + " in " + element.getTagName());
+    return child.getTextContent().trim();
+  }
+
+  private static long number(Element element, String tag) {
+    Element child = child(element, tag);
+    if(child == null) return 0;
+    String value = child.getTextContent().trim();
+    try {
+      return value.startsWith("#x") ? Long.parseLong(value.substring(2), 16) : Long.parseLong(value);
+    } catch(NumberFormatException e) {
+      throw new IllegalArgumentException("Malformed " + tag + ": " + value, e);
+    }
+  }
+
+  private static Element child(Element element, String tag) {
+    for(Node node = element.getFirstChild(); node != null; node = node.getNextSibling())
+      if(node instanceof Element && ((Element)node).getTagName().equals(tag)) return (Element)node;
+    return null;
+  }
+
+  private static List<Element> children(Element element, String tag) {
+    List<Element> list = new ArrayList<>();
+    for(Node node = element.getFirstChild(); node != null; node = node.getNextSibling())
+      if(node instanceof Element && ((Element)node).getTagName().equals(tag)) list.add((Element)node);
+    return list;
+  }
+
+  private static String key(String name) {
+    return name.toUpperCase(Locale.ROOT);
+  }
+}
@@ -0,0 +1,609 @@
+package adsgen;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+* Generator of typed PLC symbol accessors from TwinCAT module description (.tmc).
+* Run at build time, e.g. "java -p out -m adsgenmod/adsgen.TmcGenerator Plc.tmc gen plc",
+* it writes Java sources that need no data type upload or type lookup at runtime:
+* <ul>
+* <li>a record per structure (or function block) used by the symbols, with constant SIZE
+* and decode()/encode() at byte offsets taken from the file, through adscom.PlcTypes</li>
+* <li>an accessor class (PlcSymbols by default) wrapping AdsManager, with name and size
+* constants and typed read/write methods per symbol</li>
+* </ul>
+* Aliases and enumerations resolve to their base type, pointers and references to integers
+* of their size, multi-dimensional arrays are flattened and types the generator does
+* not know are passed as raw byte arrays. Sub items not on a byte boundary other than
+* BIT are skipped with a warning; symbols of structures holding skipped sub items are
+* written by read-modify-write, so the skipped sub items keep their values on the PLC.
+* Symbols are still accessed by name, through the handle cache or the uploaded symbol table
+* of AdsManager - index offsets in .tmc files are relative to data areas of the module.
+* Generated code has to be regenerated when the PLC project changes.
+*/
+public final class TmcGenerator {
+  public static final String DEFAULT_ACCESSOR_CLASS = "PlcSymbols";
+
+  private static final int MAX_COMPONENTS = 254; //Constructor parameter limit
+  private static final Pattern STRING_TYPE = Pattern.compile("W?STRING(\\(\\d+\\))?");
+  private static final Set<String> RESERVED = Set.of(
+      "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const",
+      "continue", "default", "do", "double", "else", "enum", "extends", "final", "finally", "float",
+      "for", "goto", "if", "implements", "import", "instanceof", "int", "interface", "long", "native",
+      "new", "package", "private", "protected", "public", "return", "short", "static", "strictfp",
+      "super", "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void",
+      "volatile", "while", "true", "false", "null", "_", "var", "yield", "record", "sealed", "permits",
+      //Methods of Object and members of generated records
+      "clone", "equals", "finalize", "getClass", "hashCode", "notify", "notifyAll", "toString", "wait",
+      "SIZE");
+  private static final Set<String> RESERVED_TYPES = Set.of(
+      "Object", "String", "Record", "Override", "Math", "System", "IllegalArgumentException",
+      "PlcTypes", "AdsManager", "AdsException", "AdsPortClosedException");
+
+  private enum Kind {
+    BOOL("boolean", "Bool", 1), BYTE("byte", "Byte", 1), INT("short", "Int", 2), DINT("int", "DInt", 4),
+    LINT("long", "LInt", 8), REAL("float", "Real", 4), LREAL("double", "LReal", 8),
+    STRING("String", "String", 0), WSTRING("String", "WString", 0), BIT("boolean", "Bool", 0),
+    RAW("byte[]", "Bytes", 0), STRUCT(null, null, 0);
+
+    final String javaType;
+    final String suffix; //Of PlcTypes and AdsManager methods
+    final int size;
+
+    Kind(String javaType, String suffix, int size) {
+      this.javaType = javaType;
+      this.suffix = suffix;
+      this.size = size;
+    }
+
+    boolean isNumber() { return size > 0;}
+  }
+
+  //Resolved type of sub item or symbol
+  private static final class Layout {
+    final Kind kind;
+    final TmcType struct; //STRUCT only
+    final int count; //Elements of array, 0 - no array
+    final int elemSize; //Bytes per element
+
+    Layout(Kind kind, TmcType struct, int count, int elemSize) {
+      this.kind = kind;
+      this.struct = struct;
+      this.count = count;
+      this.elemSize = elemSize;
+    }
+
+    int size() { return (count > 0) ? count * elemSize : elemSize;}
+  }
+
+  //Helpers emitted into generated class on demand
+  private static final class Unit {
+    final StringBuilder sb = new StringBuilder();
+    boolean checkLength;
+    boolean strings;
+    boolean wstrings;
+  }
+
+  private final TmcFile tmc;
+  private final String source; //File name for generated comments
+  private final String packageName;
+  private String accessorClass = DEFAULT_ACCESSOR_CLASS;
+  private String symbolPrefix = "";
+  private final Map<TmcType, String> typeNames = new LinkedHashMap<>();
+  private final Set<String> usedTypeNames = new HashSet<>();
+  private final List<String> warnings = new ArrayList<>();
+
+  /**
+  * Constructor reading module description
+  * @param tmcFile TwinCAT module description (.tmc)
+  * @param packageName Package of generated classes, empty for unnamed package
+  * @exception IOException On fail to read file
+  * @exception IllegalArgumentException When file is no valid module description
+  */
+  public TmcGenerator(Path tmcFile, String packageName) throws IOException {
+    this.tmc = TmcFile.read(tmcFile);
+    this.source = tmcFile.getFileName().toString();
+    this.packageName = packageName;
+  }
+
+  /**
+  * Method for setting name of accessor class, DEFAULT_ACCESSOR_CLASS if not set
+  * @param accessorClass Simple class name
+  */
+  public void setAccessorClass(String accessorClass) {
+    this.accessorClass = accessorClass;
+  }
+
+  /**
+  * Method for limiting generated accessors to symbols starting with prefix, e.g. "MAIN."
+  * @param symbolPrefix Symbol name prefix (case insensitive), empty for all symbols
+  */
+  public void setSymbolPrefix(String symbolPrefix) {
+    this.symbolPrefix = symbolPrefix;
+  }
+
+  /**
+  * Method for getting warnings of the last generate() call, e.g. skipped sub items
+  * @return Unmodifiable list of warnings
+  */
+  public List<String> getWarnings() {
+    return Collections.unmodifiableList(warnings);
+  }
+
+  /**
+  * Method for generating sources. Without symbols in the file (e.g. library) records
+  * of all structures are generated and no accessor class
+  * @return Simple class name -> Java source, accessor class first
+  * @exception IllegalArgumentException When structure has more fields than a record can take
+  */
+  public Map<String, String> generate() {
+    typeNames.clear();
+    usedTypeNames.clear();
+    usedTypeNames.add(accessorClass);
+    warnings.clear();
+
+    Map<String, String> sources = new LinkedHashMap<>();
+    List<TmcType.Item> symbols = new ArrayList<>();
+    for(TmcType.Item symbol : tmc.getSymbols())
+      if(symbol.name.regionMatches(true, 0, symbolPrefix, 0, symbolPrefix.length())) symbols.add(symbol);
+
+    //Structures reachable from symbols, in order of first use
+    Deque<TmcType> pending = new ArrayDeque<>();
+    List<TmcType> structs = new ArrayList<>();
+    if(tmc.getSymbols().isEmpty()) {
+      for(TmcType type : tmc.getTypes())
+        if(type.isStruct()) pending.add(type);
+    } else {
+      for(TmcType.Item symbol : symbols) {
+        Layout layout = layout(symbol);
+        if(layout.kind == Kind.STRUCT) pending.add(layout.struct);
+      }
+    }
+    while(!pending.isEmpty()) {
+      TmcType type = pending.poll();
+      if(typeNames.containsKey(type)) continue;
+      typeName(type);
+      structs.add(type);
+      for(TmcType.Item item : type.items) {
+        Layout layout = layout(item);
+        if(layout.kind == Kind.STRUCT) pending.add(layout.struct);
+      }
+    }
+
+    if(!tmc.getSymbols().isEmpty()) sources.put(accessorClass, accessor(symbols));
+    for(TmcType type : structs)
+      sources.put(typeNames.get(type), record(type));
+    return sources;
+  }
+
+  /**
+  * Method for generating sources into directory tree of the package
+  * @return Written files
+  * @param outDir Source root, e.g. "gen"
+  * @exception IOException On fail to write file
+  */
+  public List<Path> write(Path outDir) throws IOException {
+    Path dir = packageName.isEmpty() ? outDir : outDir.resolve(packageName.replace('.', '/'));
+    Files.createDirectories(dir);
+    List<Path> files = new ArrayList<>();
+    for(Map.Entry<String, String> source : generate().entrySet()) {
+      Path file = dir.resolve(source.getKey() + ".java");
+      Files.writeString(file, source.getValue(), StandardCharsets.UTF_8);
+      files.add(file);
+    }
+    return files;
+  }
+
+  /**
+  * Command line: TmcGenerator tmcFile outDir package [accessorClass] [symbolPrefix]
+  * @param args Arguments
+  * @exception IOException On fail to read or write file
+  */
+  public static void main(String[] args) throws IOException {
+    if(args.length < 3 || args.length > 5) {
+      System.err.println("Usage: TmcGenerator tmcFile outDir package [accessorClass] [symbolPrefix]");
+      System.exit(1);
+    }
+    TmcGenerator generator = new TmcGenerator(Path.of(args[0]), args[2]);
+    if(args.length > 3) generator.setAccessorClass(args[3]);
+    if(args.length > 4) generator.setSymbolPrefix(args[4]);
+
+    List<Path> files = generator.write(Path.of(args[1]));
+    for(String warning : generator.getWarnings())
+      System.err.println("Warning: " + warning);
+    System.out.println(files.size() + " files written to " + Path.of(args[1]).toAbsolutePath());
+  }
+
+  //Type resolution
+
+  private Layout layout(TmcType.Item item) {
+    List<int[]> dims = new ArrayList<>(item.arrayDims);
+    String typeName = item.type;
+    boolean pointer = item.pointer;
+    TmcType type = pointer ? null : tmc.getType(typeName);
+    for(int depth = 0; type != null && !type.isStruct() && type.baseType != null && depth < 32; depth++) {
+      dims.addAll(type.arrayDims); //Alias, e.g. of ARRAY type
+      pointer = type.pointer;
+      typeName = type.baseType;
+      type = pointer ? null : tmc.getType(typeName);
+    }
+
+    int count = 1;
+    for(int[] dim : dims)
+      count *= dim[1];
+    int size = (int)(item.bitSize / 8);
+    if(dims.isEmpty()) count = 0;
+    else if(count == 0) return new Layout(Kind.RAW, null, 0, size);
+    int elemSize = (count > 0) ? size / count : size;
+
+    Kind kind;
+    if(type != null && type.isStruct()) {
+      int structSize = (int)(type.bitSize / 8);
+      if(item.bitSize == 0 && count == 0) return new Layout(Kind.STRUCT, type, 0, structSize);
+      if(structSize != elemSize) return new Layout(Kind.RAW, null, 0, size); //Unexpected padding
+      return new Layout(Kind.STRUCT, type, count, structSize);
+    }
+    if(pointer || (type != null && type.enumeration)) kind = integer(elemSize);
+    else kind = elementary(typeName, elemSize);
+
+    if(kind == Kind.BIT) {
+      if(count == 0 && item.bitSize == 1) return new Layout(Kind.BIT, null, 0, 1);
+      kind = Kind.RAW;
+    }
+    if(kind.isNumber() && elemSize != kind.size) kind = Kind.RAW;
+    if(kind == Kind.RAW) return new Layout(Kind.RAW, null, 0, size);
+    return new Layout(kind, null, count, elemSize);
+  }
+
+  private static Kind elementary(String typeName, int size) {
+    String name = typeName.toUpperCase(Locale.ROOT);
+    if(STRING_TYPE.matcher(name).matches()) return (name.charAt(0) == 'W') ? Kind.WSTRING : Kind.STRING;
+    if(name.startsWith("POINTER TO ") || name.startsWith("REFERENCE TO ")) return integer(size);
+    switch(name) {
+      case "BOOL": return Kind.BOOL;
+      case "BIT": return Kind.BIT;
+      case "BYTE": case "SINT": case "USINT": return Kind.BYTE;
+      case "WORD": case "INT": case "UINT": return Kind.INT;
+      case "DWORD": case "DINT": case "UDINT": case "TIME": case "TOD": case "TIME_OF_DAY":
+      case "DATE": case "DT": case "DATE_AND_TIME": return Kind.DINT;
+      case "LWORD": case "LINT": case "ULINT": case "LTIME": return Kind.LINT;
+      case "REAL": return Kind.REAL;
+      case "LREAL": return Kind.LREAL;
+      case "PVOID": case "XINT": case "UXINT": case "XWORD":
+      case "__XINT": case "__UXINT": case "__XWORD": return integer(size);
+      default: return Kind.RAW;
+    }
+  }
+
+  private static Kind integer(int size) {
+    switch(size) {
+      case 1: return Kind.BYTE;
+      case 2: return Kind.INT;
+      case 4: return Kind.DINT;
+      case 8: return Kind.LINT;
+      default: return Kind.RAW;
+    }
+  }
+
+  private String javaType(Layout layout) {
+    String type = (layout.kind == Kind.STRUCT) ? typeNames.get(layout.struct) : layout.kind.javaType;
+    return (layout.count > 0 && layout.kind != Kind.BYTE) ? type + "[]" : (layout.count > 0) ? "byte[]" : type;
+  }
+
+  private String typeName(TmcType type) {
+    String name = typeNames.get(type);
+    if(name != null) return name;
+    name = unique(identifier(type.name), usedTypeNames, RESERVED_TYPES);
+    typeNames.put(type, name);
+    return name;
+  }
+
+  //Java sources
+
+  private String record(TmcType type) {
+    String name = typeNames.get(type);
+    Set<String> used = new HashSet<>();
+    List<String> names = new ArrayList<>();
+    List<TmcType.Item> items = new ArrayList<>();
+    List<Layout> layouts = new ArrayList<>();
+    for(TmcType.Item item : type.items) {
+      Layout layout = layout(item);
+      if(isSkipped(item, layout)) {
+        warnings.add("Skipped " + type.name + "." + item.name + " - not on a byte boundary");
+        continue;
+      }
+      names.add(unique(identifier(item.name), used, RESERVED));
+      items.add(item);
+      layouts.add(layout);
+    }
+    if(names.size() > MAX_COMPONENTS)
+      throw new IllegalArgumentException(type.name + " has " + names.size() + " fields, record takes " + MAX_COMPONENTS);
+
+    Unit unit = new Unit();
+    StringBuilder sb = unit.sb;
+    sb.append("/**\n* PLC structure ").append(type.name).append(", ").append(type.bitSize / 8).append(" bytes\n");
+    if(isPartial(type, 0))
+      sb.append("* Sub items not on a byte boundary are not held - encode() leaves their bytes as they are\n");
+    for(int i = 0; i < names.size(); i++)
+      sb.append("* @param ").append(names.get(i)).append(' ').append(items.get(i).declaration()).append('\n');
+    sb.append("*/\n");
+    String header = "public record " + name + "(";
+    sb.append(header);
+    for(int i = 0; i < names.size(); i++) {
+      if(i > 0) sb.append(",\n").append(" ".repeat(header.length()));
+      sb.append(javaType(layouts.get(i))).append(' ').append(names.get(i));
+    }
+    sb.append(") {\n  public static final int SIZE = ").append(type.bitSize / 8).append(";\n\n");
+
+    sb.append("  /**\n  * Method for decoding structure\n  * @return Structure\n")
+      .append("  * @param data Encoded data\n  * @param offset Byte index of the structure\n  */\n")
+      .append("  public static ").append(name).append(" decode(byte[] data, int offset) {\n");
+    String call = "    return new " + name + "(";
+    sb.append(call);
+    for(int i = 0; i < names.size(); i++) {
+      if(i > 0) sb.append(",\n").append(" ".repeat(call.length()));
+      sb.append(decode(unit, layouts.get(i), "offset", (int)(items.get(i).bitOffs / 8), bit(items.get(i))));
+    }
+    sb.append(");\n  }\n\n");
+
+    sb.append("  /**\n  * Method for encoding structure, padding bytes are left as they are\n")
+      .append("  * @param data Encoded data\n  * @param offset Byte index of the structure\n")
+      .append("  * @exception IllegalArgumentException When array exceeds its field\n  */\n")
+      .append("  public void encode(byte[] data, int offset) {\n");
+    for(int i = 0; i < names.size(); i++) {
+      String value = (names.get(i).equals("data") || names.get(i).equals("offset")) ? "this." + names.get(i) : names.get(i);
+      encode(unit, layouts.get(i), value, "offset", (int)(items.get(i).bitOffs / 8), bit(items.get(i)));
+    }
+    sb.append("  }\n\n");
+
+    sb.append("  /**\n  * Method for decoding ARRAY OF ").append(type.name).append("\n  * @return Structures\n")
+      .append("  * @param data Encoded data\n  * @param offset Byte index of the first element\n")
+      .append("  * @param count Number of elements\n  */\n")
+      .append("  public static ").append(name).append("[] decodeArray(byte[] data, int offset, int count) {\n")
+      .append("    ").append(name).append("[] values = new ").append(name).append("[count];\n")
+      .append("    for(int i = 0; i < count; i++)\n      values[i] = decode(data, offset + i * SIZE);\n")
+      .append("    return values;\n  }\n\n");
+
+    sb.append("  /**\n  * Method for encoding ARRAY OF ").append(type.name).append('\n')
+      .append("  * @param values Structures\n  * @param data Encoded data\n")
+      .append("  * @param offset Byte index of the first element\n  */\n")
+      .append("  public static void encodeArray(").append(name).append("[] values, byte[] data, int offset) {\n")
+      .append("    for(int i = 0; i < values.length; i++)\n      values[i].encode(data, offset + i * SIZE);\n")
+      .append("  }\n");
+    helpers(unit);
+    sb.append("}\n");
+    return header(unit, false) + sb;
+  }
+
+  private String accessor(List<TmcType.Item> symbols) {
+    Set<String> used = new HashSet<>();
+    List<String> constants = new ArrayList<>();
+    for(TmcType.Item symbol : symbols) {
+      String constant = unique(identifier(symbol.name.replace('.', '_')), used, RESERVED);
+      used.add(constant + "_SIZE");
+      constants.add(constant);
+    }
+
+    Unit unit = new Unit();
+    StringBuilder sb = unit.sb;
+    sb.append("/**\n* Typed access to PLC symbols through AdsManager. Sizes and layouts of the symbols\n")
+      .append("* are generated, no data types are uploaded at runtime.\n* Class is thread-safe.\n*/\n")
+      .append("public final class ").append(accessorClass).append(" {\n");
+    for(int i = 0; i < symbols.size(); i++)
+      sb.append("  public static final String ").append(constants.get(i)).append(" = \"")
+        .append(symbols.get(i).name.replace("\\", "\\\\").replace("\"", "\\\"")).append("\";\n")
+        .append("  public static final int ").append(constants.get(i)).append("_SIZE = ")
+        .append(layout(symbols.get(i)).size()).append(";\n");
+    sb.append("\n  private final AdsManager manager;\n\n")
+      .append("  public ").append(accessorClass).append("(AdsManager manager) {\n")
+      .append("    this.manager = manager;\n  }\n\n")
+      .append("  public AdsManager getManager() { return manager;}\n");
+
+    for(int i = 0; i < symbols.size(); i++) {
+      TmcType.Item symbol = symbols.get(i);
+      Layout layout = layout(symbol);
+      String name = constants.get(i);
+      String size = name + "_SIZE";
+      String type = javaType(layout);
+      Kind kind = (layout.kind == Kind.BIT) ? Kind.BOOL : layout.kind;
+      boolean typed = kind.isNumber() && (layout.count == 0 || kind != Kind.BYTE);
+      boolean raw = kind == Kind.RAW || (kind == Kind.BYTE && layout.count > 0);
+
+      sb.append("\n  /**\n  * Method for reading ").append(symbol.name).append(" : ").append(symbol.declaration())
+        .append("\n  * @return Symbol value\n")
+        .append("  * @exception AdsPortClosedException When ADS port has not been opened\n")
+        .append("  * @exception AdsException On fail to read symbol\n  */\n")
+        .append("  public ").append(type).append(" read").append(name)
+        .append("() throws AdsPortClosedException, AdsException {\n");
+      if(typed && layout.count == 0)
+        sb.append("    return manager.read").append(kind.suffix).append('(').append(name).append(");\n");
+      else if(typed)
+        sb.append("    return manager.read").append(kind.suffix).append("Array(").append(name).append(", ")
+          .append(layout.count).append(");\n");
+      else if(raw)
+        sb.append("    return manager.readBySymbol(").append(name).append(", ").append(size).append(");\n");
+      else
+        sb.append("    byte[] data = manager.readBySymbol(").append(name).append(", ").append(size).append(");\n")
+          .append("    return ").append(decode(unit, layout, "0", 0, 0)).append(";\n");
+      sb.append("  }\n");
+
+      boolean checked = layout.count > 0 || kind == Kind.RAW;
+      boolean partial = kind == Kind.STRUCT && isPartial(layout.struct, 0);
+      sb.append("\n  /**\n  * Method for writing ").append(symbol.name).append(" : ").append(symbol.declaration());
+      if(partial) sb.append("\n  * Symbol is read first - sub items the record does not hold keep their values");
+      sb.append("\n  * @return True if successful\n  * @param value New value\n")
+        .append("  * @exception AdsPortClosedException When ADS port has not been opened\n");
+      if(partial) sb.append("  * @exception AdsException On fail to read symbol\n");
+      if(checked) sb.append("  * @exception IllegalArgumentException When array exceeds the symbol\n");
+      sb.append("  */\n  public boolean write").append(name).append('(').append(type)
+        .append(partial ? " value) throws AdsPortClosedException, AdsException {\n" : " value) throws AdsPortClosedException {\n");
+      if(typed && layout.count == 0)
+        sb.append("    return manager.write").append(kind.suffix).append('(').append(name).append(", value);\n");
+      else if(typed || raw) {
+        unit.checkLength = true;
+        sb.append("    checkLength(value.length, ").append(raw ? size : String.valueOf(layout.count)).append(");\n")
+          .append("    return manager.write").append(raw ? "BySymbol" : kind.suffix + "Array")
+          .append('(').append(name).append(", value);\n");
+      } else {
+        int start = sb.length();
+        encode(unit, layout, "value", "0", 0, 0);
+        if(checked) start = sb.indexOf("\n", start) + 1; //Allocate after length check
+        sb.insert(start, partial ? "    byte[] data = manager.readBySymbol(" + name + ", " + size + ");\n"
+                                 : "    byte[] data = new byte[" + size + "];\n");
+        sb.append("    return manager.writeBySymbol(").append(name).append(", data);\n");
+      }
+      sb.append("  }\n");
+    }
+    helpers(unit);
+    sb.append("}\n");
+    return header(unit, true) + sb;
+  }
+
+  private String header(Unit unit, boolean accessor) {
+    StringBuilder sb = new StringBuilder("//Generated by TmcGenerator from ").append(source).append(" - do not edit\n");
+    if(!packageName.isEmpty()) sb.append("package ").append(packageName).append(";\n");
+    sb.append('\n');
+    if(accessor) sb.append("import adscom.AdsManager;\n");
+    if(unit.sb.indexOf("PlcTypes.") >= 0) sb.append("import adscom.PlcTypes;\n");
+    if(accessor) sb.append("import adsexceptions.AdsException;\nimport adsexceptions.AdsPortClosedException;\n");
+    return sb.append('\n').toString();
+  }
+
+  private static void helpers(Unit unit) {
+    StringBuilder sb = unit.sb;
+    if(unit.checkLength)
+      sb.append("\n  private static void checkLength(int length, int count) {\n")
+        .append("    if(length > count) throw new IllegalArgumentException(\"Array of \" + length + \" elements exceeds \" + count);\n")
+        .append("  }\n");
+    for(String suffix : new String[] {"String", "WString"}) {
+      if(!(suffix.equals("String") ? unit.strings : unit.wstrings)) continue;
+      sb.append("\n  private static String[] get").append(suffix).append("s(byte[] data, int offset, int size, int count) {\n")
+        .append("    String[] values = new String[count];\n    for(int i = 0; i < count; i++)\n")
+        .append("      values[i] = PlcTypes.get").append(suffix).append("(data, offset + i * size, size);\n")
+        .append("    return values;\n  }\n")
+        .append("\n  private static void put").append(suffix).append("s(byte[] data, int offset, int size, String[] values) {\n")
+        .append("    for(int i = 0; i < values.length; i++)\n")
+        .append("      PlcTypes.put").append(suffix).append("(data, offset + i * size, size, values[i]);\n  }\n");
+    }
+  }
+
+  //Expression decoding field at base + offset
+  private String decode(Unit unit, Layout layout, String base, int offset, int bit) {
+    String at = at(base, offset);
+    Kind kind = layout.kind;
+    if(layout.count > 0) {
+      switch(kind) {
+        case BYTE: return "PlcTypes.getBytes(data, " + at + ", " + layout.count + ")";
+        case STRING: unit.strings = true; return "getStrings(data, " + at + ", " + layout.elemSize + ", " + layout.count + ")";
+        case WSTRING: unit.wstrings = true; return "getWStrings(data, " + at + ", " + layout.elemSize + ", " + layout.count + ")";
+        case STRUCT: return typeNames.get(layout.struct) + ".decodeArray(data, " + at + ", " + layout.count + ")";
+        default: return "PlcTypes.get" + kind.suffix + "s(data, " + at + ", " + layout.count + ")";
+      }
+    }
+    switch(kind) {
+      case BIT: return "(data[" + at + "] & " + (1 << bit) + ") != 0";
+      case STRING: case WSTRING: case RAW:
+        return "PlcTypes.get" + kind.suffix + "(data, " + at + ", " + layout.elemSize + ")";
+      case STRUCT: return typeNames.get(layout.struct) + ".decode(data, " + at + ")";
+      default: return "PlcTypes.get" + kind.suffix + "(data, " + at + ")";
+    }
+  }
+
+  //Statements encoding value at base + offset
+  private void encode(Unit unit, Layout layout, String value, String base, int offset, int bit) {
+    StringBuilder sb = unit.sb;
+    String at = at(base, offset);
+    Kind kind = layout.kind;
+    if(layout.count > 0 || kind == Kind.RAW) {
+      unit.checkLength = true;
+      sb.append("    checkLength(").append(value).append(".length, ")
+        .append((layout.count > 0) ? layout.count : layout.elemSize).append(");\n");
+    }
+    sb.append("    ");
+    if(layout.count > 0) {
+      switch(kind) {
+        case BYTE: sb.append("PlcTypes.putBytes(data, ").append(at).append(", ").append(value).append(");\n"); return;
+        case STRING: unit.strings = true; break;
+        case WSTRING: unit.wstrings = true; break;
+        case STRUCT: sb.append(typeNames.get(layout.struct)).append(".encodeArray(").append(value).append(", data, ")
+                       .append(at).append(");\n"); return;
+        default: sb.append("PlcTypes.put").append(kind.suffix).append("s(data, ").append(at).append(", ").append(value)
+                   .append(");\n"); return;
+      }
+      sb.append("put").append(kind.suffix).append("s(data, ").append(at).append(", ").append(layout.elemSize)
+        .append(", ").append(value).append(");\n");
+      return;
+    }
+    switch(kind) {
+      case BIT:
+        sb.append("data[").append(at).append("] = (byte)(").append(value).append(" ? data[").append(at).append("] | ")
+          .append(1 << bit).append(" : data[").append(at).append("] & ~").append(1 << bit).append(");\n");
+        break;
+      case STRING: case WSTRING:
+        sb.append("PlcTypes.put").append(kind.suffix).append("(data, ").append(at).append(", ").append(layout.elemSize)
+          .append(", ").append(value).append(");\n");
+        break;
+      case STRUCT: sb.append(value).append(".encode(data, ").append(at).append(");\n"); break;
+      default: sb.append("PlcTypes.put").append(kind.suffix).append("(data, ").append(at).append(", ").append(value)
+                 .append(");\n");
+    }
+  }
+
+  private static int bit(TmcType.Item item) { return (int)(item.bitOffs % 8);}
+
+  private static boolean isSkipped(TmcType.Item item, Layout layout) {
+    return item.bitOffs % 8 != 0 && layout.kind != Kind.BIT;
+  }
+
+  /**
+  * Method for checking whether record of structure leaves out sub items, its own
+  * or of nested structures
+  * @return True if some sub item is skipped
+  * @param type Structure
+  * @param depth Nesting depth
+  */
+  private boolean isPartial(TmcType type, int depth) {
+    if(depth > 32) return false;
+    for(TmcType.Item item : type.items) {
+      Layout layout = layout(item);
+      if(isSkipped(item, layout) || (layout.kind == Kind.STRUCT && isPartial(layout.struct, depth + 1))) return true;
+    }
+    return false;
+  }
+
+  private static String at(String base, int offset) {
+    if(base.equals("0")) return String.valueOf(offset);
+    return (offset == 0) ? base : base + " + " + offset;
+  }
+
+  private static String identifier(String name) {
+    StringBuilder sb = new StringBuilder(name.length() + 1);
+    for(int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      sb.append((Character.isJavaIdentifierPart(c) && c != '$') ? c : '_');
+    }
+    if(sb.length() == 0 || !Character.isJavaIdentifierStart(sb.charAt(0))) sb.insert(0, '_');
+    return sb.toString();
+  }
+
+  private static String unique(String name, Set<String> used, Set<String> reserved) {
+    String unique = reserved.contains(name) ? name + "_" : name;
+    for(int i = 2; !used.add(unique); i++)
+      unique = name + "_" + i;
+    return unique;
+  }
+}
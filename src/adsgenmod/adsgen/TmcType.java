@@ -0,0 +1,77 @@
+package adsgen;
+
+import java.util.List;
+
+/**
+* Data type declared in TwinCAT module description: structure or function block
+* with sub items, alias or enumeration of a base type.
+* Sizes and offsets are in bits, as in .tmc files.
+*/
+final class TmcType {
+  final String name;
+  final long bitSize;
+  final String baseType; //Alias or enumeration base, null if none
+  final boolean pointer; //Base type is POINTER TO/REFERENCE TO
+  final boolean enumeration;
+  final List<int[]> arrayDims; //{lower bound, elements} per dimension, empty if no array
+  final List<Item> items; //Sub items, empty if no structure
+
+  TmcType(String name, long bitSize, String baseType, boolean pointer, boolean enumeration,
+          List<int[]> arrayDims, List<Item> items) {
+    this.name = name;
+    this.bitSize = bitSize;
+    this.baseType = baseType;
+    this.pointer = pointer;
+    this.enumeration = enumeration;
+    this.arrayDims = arrayDims;
+    this.items = items;
+  }
+
+  boolean isStruct() { return !items.isEmpty();}
+
+  @Override
+  public String toString() {
+    return name + " (" + bitSize / 8 + " bytes)";
+  }
+
+  /**
+  * Sub item of structure or PLC symbol of data area. Offset of sub item is
+  * relative to the structure, offset of symbol to its data area
+  */
+  static final class Item {
+    final String name;
+    final String type;
+    final boolean pointer; //POINTER TO/REFERENCE TO type
+    final long bitSize;
+    final long bitOffs;
+    final List<int[]> arrayDims;
+
+    Item(String name, String type, boolean pointer, long bitSize, long bitOffs, List<int[]> arrayDims) {
+      this.name = name;
+      this.type = type;
+      this.pointer = pointer;
+      this.bitSize = bitSize;
+      this.bitOffs = bitOffs;
+      this.arrayDims = arrayDims;
+    }
+
+    /**
+    * Method for getting declared type, e.g. "ARRAY [0..9] OF DINT"
+    * @return PLC type declaration
+    */
+    String declaration() {
+      StringBuilder sb = new StringBuilder();
+      if(!arrayDims.isEmpty()) {
+        sb.append("ARRAY [");
+        for(int i = 0; i < arrayDims.size(); i++) {
+          int[] dim = arrayDims.get(i);
+          if(i > 0) sb.append(", ");
+          sb.append(dim[0]).append("..").append(dim[0] + dim[1] - 1);
+        }
+        sb.append("] OF ");
+      }
+      if(pointer) sb.append("POINTER TO ");
+      return sb.append(type).toString();
+    }
+  }
+}
@@ -0,0 +1,7 @@
+/**
+* Build-time generator of typed PLC symbol accessors from TwinCAT module descriptions (.tmc)
+*/
+module adsgenmod {
+  requires java.xml;
+  exports adsgen;
+}
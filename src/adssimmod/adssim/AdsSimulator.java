@@ -0,0 +1,957 @@
+package adssim;
+
+import adstransport.NotificationSink;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+* In-memory ADS device (PLC) serving a configurable symbol table.
+* Symbols are laid out one after another in the PLC memory area (index group 0x4020),
+* so they can be accessed by handle, by index group/offset and by sum commands.
+* Front-ends (SimulatorTransport, AmsTcpSimulatorServer) apply configured latency.
+* Class is thread-safe.
+*/
+public class AdsSimulator implements AutoCloseable {
+  public static final long ADSIGRP_PLC_MEMORY = 0x4020;
+  public static final long ADSIGRP_SYM_HNDBYNAME = 0xF003;
+  public static final long ADSIGRP_SYM_VALBYHND = 0xF005;
+  public static final long ADSIGRP_SYM_RELEASEHND = 0xF006;
+  public static final long ADSIGRP_SYM_VERSION = 0xF008;
+  public static final long ADSIGRP_SYM_UPLOAD = 0xF00B;
+  public static final long ADSIGRP_SYM_DT_UPLOAD = 0xF00E;
+  public static final long ADSIGRP_SYM_UPLOADINFO2 = 0xF00F;
+  public static final long ADSIGRP_SUMUP_READ = 0xF080;
+  public static final long ADSIGRP_SUMUP_WRITE = 0xF081;
+  public static final long ADSIGRP_SUMUP_READWRITE = 0xF082;
+  public static final long ADSERR_DEVICE_SRVNOTSUPP = 0x701;
+  public static final long ADSERR_DEVICE_INVALIDOFFSET = 0x703;
+  public static final long ADSERR_DEVICE_INVALIDSIZE = 0x705;
+  public static final long ADSERR_DEVICE_SYMBOLNOTFOUND = 0x710;
+  public static final long ADSERR_DEVICE_NOTIFYHNDINVALID = 0x714;
+  public static final int ADSTRANS_SERVERCYCLE = 3;
+  public static final int ADSTRANS_SERVERONCHA = 4;
+  public static final short ADSSTATE_RUN = 5;
+  private static final long FILETIME_EPOCH_OFFSET_MS = 11644473600000L;
+  private static final int UPLOAD_INFO_SIZE = 24; //AdsSymbolUploadInfo2
+  private static final int SYMBOL_ENTRY_HEADER = 30; //AdsSymbolEntry without strings
+  private static final int DATATYPE_ENTRY_HEADER = 42; //AdsDatatypeEntry without strings
+  private static final int ADSDATATYPEFLAG_DATATYPE = 0x1;
+  private static final int ADSDATATYPEFLAG_DATAITEM = 0x2;
+  private static final int ADST_STRING = 30;
+  private static final int ADST_WSTRING = 31;
+  private static final int ADST_BIGTYPE = 65;
+  private static final int DEFAULT_STRING_LENGTH = 80;
+
+  /**
+  * Symbol of the simulated PLC
+  */
+  static final class Symbol {
+    final String name;
+    final int offset;
+    final int size;
+    final String type;
+    long errId; //Injected error of every access
+
+    Symbol(String name, int offset, int size, String type) {
+      this.name = name;
+      this.offset = offset;
+      this.size = size;
+      this.type = type;
+    }
+  }
+
+  /**
+  * Structure data type of the simulated PLC
+  */
+  static final class StructType {
+    final String name;
+    final int size;
+    final int alignment;
+    final Field[] fields;
+
+    StructType(String name, int size, int alignment, Field[] fields) {
+      this.name = name;
+      this.size = size;
+      this.alignment = alignment;
+      this.fields = fields;
+    }
+  }
+
+  /**
+  * Field of structure data type, arrays have one dimension per lower bound
+  */
+  static final class Field {
+    final String name;
+    final String type;
+    final int offset;
+    final int size;
+    final int adsType; //Of elements for arrays
+    final int[] lowerBounds;
+    final int[] lengths;
+
+    Field(String name, String type, int offset, int size, int adsType, int[] lowerBounds, int[] lengths) {
+      this.name = name;
+      this.type = type;
+      this.offset = offset;
+      this.size = size;
+      this.adsType = adsType;
+      this.lowerBounds = lowerBounds;
+      this.lengths = lengths;
+    }
+  }
+
+  /**
+  * Registered device notification
+  */
+  private static final class Notification {
+    final int offset; //-1 - symbol version
+    final int length;
+    final int transMode;
+    final long cycleTime;
+    final NotificationSink sink;
+    byte[] lastValue;
+    long lastSent;
+
+    Notification(int offset, int length, int transMode, long cycleTime, NotificationSink sink) {
+      this.offset = offset;
+      this.length = length;
+      this.transMode = transMode;
+      this.cycleTime = cycleTime;
+      this.sink = sink;
+    }
+  }
+
+  private final Map<String, Symbol> symbols = new LinkedHashMap<>();
+  private final Map<String, StructType> structTypes = new LinkedHashMap<>();
+  private final HandleTable<Symbol> handles = new HandleTable<>();
+  private final Map<Integer, Notification> notifications = new HashMap<>();
+  private final AtomicLong requestCount = new AtomicLong();
+  private byte[] memory = new byte[4096];
+  private byte[] symbolUpload; //Encoded symbol table, null - not encoded since last change
+  private byte[] dataTypeUpload; //Encoded data types, null - not encoded since last change
+  private int memorySize;
+  private int nextHandle = 1;
+  private int nextNotification = 1;
+  private int symVersion = 1;
+  private long pendingErrId;
+  private int pendingErrCount;
+  private volatile long latencyNanos;
+  private long cycleTime = 10;
+  private short adsState = ADSSTATE_RUN;
+  private short devState;
+  private String devName = "Plc30 App";
+  private ScheduledExecutorService plcCycle;
+  private ScheduledFuture<?> cycleTask;
+
+  /**
+  * Class constructor. Simulator starts in RUN state with no symbols and no data types;
+  * the PLC cycle thread is started by the first notification
+  */
+  public AdsSimulator() {}
+
+  /**
+  * Method for adding symbol to the symbol table
+  * @return This simulator (for chaining)
+  * @param name Symbol name, e.g. "MAIN.nCounter"
+  * @param size Symbol size in bytes
+  */
+  public AdsSimulator addSymbol(String name, int size) {
+    return addSymbol(name, size, "BYTE[" + size + "]");
+  }
+
+  /**
+  * Method for adding symbol to the symbol table
+  * @return This simulator (for chaining)
+  * @param name Symbol name, e.g. "MAIN.nCounter"
+  * @param size Symbol size in bytes
+  * @param type PLC data type name, e.g. "DINT"
+  */
+  public synchronized AdsSimulator addSymbol(String name, int size, String type) {
+    if(symbols.containsKey(name.toUpperCase()))
+      throw new IllegalArgumentException("Symbol already defined: " + name);
+
+    if(memorySize + size > memory.length)
+      memory = Arrays.copyOf(memory, Math.max(memory.length * 2, memorySize + size));
+    symbols.put(name.toUpperCase(), new Symbol(name, memorySize, size, type));
+    memorySize += size;
+    symbolUpload = null;
+    return this;
+  }
+
+  /**
+  * Method for adding symbol of known type, its size is taken from the type
+  * @return This simulator (for chaining)
+  * @param name Symbol name, e.g. "MAIN.stAxis"
+  * @param type Elementary type, STRING(n), ARRAY or structure added by addStructType
+  */
+  public synchronized AdsSimulator addSymbol(String name, String type) {
+    return addSymbol(name, typeSize(type), type);
+  }
+
+  /**
+  * Method for adding structure data type. Fields are laid out in declaration order,
+  * aligned to their size up to 8 bytes as with TwinCAT 3 default packing
+  * @return This simulator (for chaining)
+  * @param name Type name, e.g. "ST_Axis"
+  * @param fields Field declarations, e.g. "fPosition : LREAL" or "aLimits : ARRAY [1..2] OF LREAL"
+  */
+  public synchronized AdsSimulator addStructType(String name, String... fields) {
+    if(structTypes.containsKey(name.toUpperCase()))
+      throw new IllegalArgumentException("Data type already defined: " + name);
+
+    Field[] layout = new Field[fields.length];
+    int offset = 0;
+    int maxAlignment = 1;
+    for(int i = 0; i < fields.length; i++) {
+      int colon = fields[i].indexOf(':');
+      if(colon < 0) throw new IllegalArgumentException("Field declaration without type: " + fields[i]);
+      String fieldName = fields[i].substring(0, colon).trim();
+      String type = fields[i].substring(colon + 1).trim();
+      int[][] bounds = arrayBounds(type);
+      String elementType = (bounds == null) ? type : type.substring(type.toUpperCase().indexOf(" OF ") + 4).trim();
+      int alignment = typeAlignment(elementType);
+      offset = (offset + alignment - 1) / alignment * alignment;
+      maxAlignment = Math.max(maxAlignment, alignment);
+      layout[i] = new Field(fieldName, type, offset, typeSize(type), fieldAdsType(elementType),
+                            (bounds == null) ? new int[0] : bounds[0], (bounds == null) ? new int[0] : bounds[1]);
+      offset += layout[i].size;
+    }
+    int size = (offset + maxAlignment - 1) / maxAlignment * maxAlignment;
+    structTypes.put(name.toUpperCase(), new StructType(name, size, maxAlignment, layout));
+    dataTypeUpload = null;
+    return this;
+  }
+
+  /**
+  * Method for getting size of PLC type
+  * @return Size in bytes
+  * @param type Elementary type, STRING(n), WSTRING(n), ARRAY or structure added by addStructType
+  */
+  public synchronized int typeSize(String type) {
+    int[][] bounds = arrayBounds(type);
+    if(bounds != null) {
+      int count = 1;
+      for(int length : bounds[1])
+        count *= length;
+      return count * typeSize(type.substring(type.toUpperCase().indexOf(" OF ") + 4).trim());
+    }
+
+    String upper = type.toUpperCase();
+    if(upper.startsWith("STRING")) return stringLength(type) + 1;
+    if(upper.startsWith("WSTRING")) return 2 * (stringLength(type) + 1);
+    StructType struct = structTypes.get(upper);
+    if(struct != null) return struct.size;
+    switch(upper) {
+      case "BOOL": case "SINT": case "USINT": case "BYTE": return 1;
+      case "INT": case "UINT": case "WORD": return 2;
+      case "DINT": case "UDINT": case "DWORD": case "REAL": case "TIME": return 4;
+      case "LINT": case "ULINT": case "LWORD": case "LREAL": return 8;
+      default: throw new IllegalArgumentException("Unknown data type: " + type);
+    }
+  }
+
+  /**
+  * Method for setting symbol value from the PLC side
+  * @param name Symbol name
+  * @param value New value as byte array
+  */
+  public synchronized void setValue(String name, byte[] value) {
+    Symbol sym = symbol(name);
+    System.arraycopy(value, 0, memory, sym.offset, Math.min(value.length, sym.size));
+  }
+
+  /**
+  * Method for getting symbol value on the PLC side
+  * @return Current value as byte array
+  * @param name Symbol name
+  */
+  public synchronized byte[] getValue(String name) {
+    Symbol sym = symbol(name);
+    return Arrays.copyOfRange(memory, sym.offset, sym.offset + sym.size);
+  }
+
+  /**
+  * Method for getting index offset of symbol in the PLC memory area
+  * @return Index offset within ADSIGRP_PLC_MEMORY
+  * @param name Symbol name
+  */
+  public synchronized long getIndexOffset(String name) {
+    return symbol(name).offset;
+  }
+
+  /**
+  * Method for setting latency added to every request by simulator front-ends
+  * @param latency Latency value
+  * @param unit Latency time unit
+  */
+  public void setLatency(long latency, TimeUnit unit) {
+    latencyNanos = unit.toNanos(latency);
+  }
+
+  /**
+  * Method for getting latency added to every request
+  * @return Latency in nanoseconds
+  */
+  public long getLatencyNanos() {
+    return latencyNanos;
+  }
+
+  /**
+  * Method for setting PLC cycle time driving device notifications
+  * @param cycleTime Cycle time in milliseconds
+  */
+  public synchronized void setCycleTime(long cycleTime) {
+    this.cycleTime = cycleTime;
+    if(cycleTask != null) {
+      cycleTask.cancel(false);
+      cycleTask = plcCycle.scheduleAtFixedRate(this::plcCycle, cycleTime, cycleTime, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+  * Method for injecting error into next requests
+  * @param errId ADS error ID to be returned
+  * @param count Number of requests failing with the error
+  */
+  public synchronized void failNext(long errId, int count) {
+    pendingErrId = errId;
+    pendingErrCount = count;
+  }
+
+  /**
+  * Method for injecting error into every access to symbol
+  * @param name Symbol name
+  * @param errId ADS error ID to be returned (0 - remove injected error)
+  */
+  public synchronized void failSymbol(String name, long errId) {
+    symbol(name).errId = errId;
+  }
+
+  /**
+  * Method for setting ADS state reported by ReadState
+  * @param adsState ADS state, e.g. ADSSTATE_RUN
+  * @param devState Device state
+  */
+  public synchronized void setState(short adsState, short devState) {
+    this.adsState = adsState;
+    this.devState = devState;
+  }
+
+  /**
+  * Method for invalidating all symbol handles, as done by PLC online change
+  */
+  public synchronized void invalidateHandles() {
+    handles.clear();
+  }
+
+  /**
+  * Method for simulating PLC online change - symbol handles are invalidated
+  * and symbol version is incremented
+  */
+  public synchronized void onlineChange() {
+    handles.clear();
+    symVersion = (symVersion + 1) & 0xFF;
+  }
+
+  /**
+  * Method for getting symbol version, changed by online change
+  * @return Symbol version (0 - 255)
+  */
+  public synchronized int getSymbolVersion() {
+    return symVersion;
+  }
+
+  /**
+  * Method for getting number of requests served so far. Sum command counts as one request
+  * @return Number of requests
+  */
+  public long getRequestCount() {
+    return requestCount.get();
+  }
+
+  /**
+  * Method for resetting request counter
+  */
+  public void resetRequestCount() {
+    requestCount.set(0);
+  }
+
+  /**
+  * Method for getting number of symbol handles currently acquired
+  * @return Number of acquired handles
+  */
+  public synchronized int getHandleCount() {
+    return handles.size();
+  }
+
+  /**
+  * Method for serving read request
+  * @return ADS error ID (0 - no error)
+  * @param indexGroup Index group
+  * @param indexOffset Index offset
+  * @param data Buffer receiving data, its remaining bytes determine read length
+  */
+  public synchronized long read(long indexGroup, long indexOffset, ByteBuffer data) {
+    requestCount.incrementAndGet();
+    long errId = injectedError();
+    if(errId != 0) return errId;
+
+    if(indexGroup == ADSIGRP_SUMUP_READ) return ADSERR_DEVICE_SRVNOTSUPP; //Sum read is read-write
+    if(indexGroup == ADSIGRP_SYM_VERSION) return symbolVersion(data);
+    if(indexGroup == ADSIGRP_SYM_UPLOADINFO2) return uploadInfo(data);
+    if(indexGroup == ADSIGRP_SYM_UPLOAD) return upload(data);
+    if(indexGroup == ADSIGRP_SYM_DT_UPLOAD) return dataTypeUploadTo(data);
+    return readArea(indexGroup, indexOffset, data);
+  }
+
+  /**
+  * Method for serving write request
+  * @return ADS error ID (0 - no error)
+  * @param indexGroup Index group
+  * @param indexOffset Index offset
+  * @param data Buffer holding data to be written
+  */
+  public synchronized long write(long indexGroup, long indexOffset, ByteBuffer data) {
+    requestCount.incrementAndGet();
+    long errId = injectedError();
+    if(errId != 0) return errId;
+
+    return writeArea(indexGroup, indexOffset, data.duplicate());
+  }
+
+  /**
+  * Method for serving read-write request, including handle requests and sum commands
+  * @return ADS error ID (0 - no error)
+  * @param indexGroup Index group
+  * @param indexOffset Index offset
+  * @param readData Buffer receiving data, its remaining bytes determine read length
+  * @param writeData Buffer holding data to be written
+  */
+  public synchronized long readWrite(long indexGroup, long indexOffset, ByteBuffer readData,
+                                     ByteBuffer writeData) {
+    requestCount.incrementAndGet();
+    long errId = injectedError();
+    if(errId != 0) return errId;
+
+    ByteBuffer req = writeData.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    int count = (int)indexOffset;
+    if(indexGroup == ADSIGRP_SUMUP_READ) return sumRead(count, req, readData);
+    if(indexGroup == ADSIGRP_SUMUP_WRITE) return sumWrite(count, req, readData);
+    if(indexGroup == ADSIGRP_SUMUP_READWRITE) return sumReadWrite(count, req, readData);
+    return readWriteArea(indexGroup, indexOffset, readData, req);
+  }
+
+  /**
+  * Method for serving ReadState request
+  * @return ADS state in lower and device state in upper 16 bits
+  */
+  public synchronized int readState() {
+    requestCount.incrementAndGet();
+    return (adsState & 0xFFFF) | (devState & 0xFFFF) << 16;
+  }
+
+  /**
+  * Method for serving ReadDeviceInfo request
+  * @return Device name
+  */
+  public synchronized String readDeviceInfo() {
+    requestCount.incrementAndGet();
+    return devName;
+  }
+
+  /**
+  * Method for getting simulated device version
+  * @return Version, revision and build
+  */
+  public int[] getDeviceVersion() {
+    return new int[] {3, 1, 4024};
+  }
+
+  /**
+  * Method for registering device notification
+  * @return Notification handle or 0 on fail
+  * @param indexGroup Index group of notified area
+  * @param indexOffset Index offset of notified area
+  * @param length Size of notified area in bytes
+  * @param transMode ADS transmission mode (ADSTRANS_SERVERCYCLE or ADSTRANS_SERVERONCHA)
+  * @param cycleTime Cycle time in milliseconds
+  * @param sink Receiver of notifications
+  */
+  public synchronized long addNotification(long indexGroup, long indexOffset, int length, int transMode,
+                                           long cycleTime, NotificationSink sink) {
+    requestCount.incrementAndGet();
+    boolean version = (indexGroup == ADSIGRP_SYM_VERSION && length == 1);
+    int offset = version ? -1 : areaOffset(indexGroup, indexOffset, length);
+    if(offset < 0 && !version) return 0;
+
+    int handle = nextNotification++;
+    notifications.put(handle, new Notification(offset, length, transMode, cycleTime, sink));
+    if(plcCycle == null) {
+      plcCycle = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ads-sim-plc-cycle");
+        t.setDaemon(true);
+        return t;
+      });
+      cycleTask = plcCycle.scheduleAtFixedRate(this::plcCycle, this.cycleTime, this.cycleTime,
+                                              TimeUnit.MILLISECONDS);
+    }
+    return handle;
+  }
+
+  /**
+  * Method for deleting device notification
+  * @return ADS error ID (0 - no error)
+  * @param notificationHandle Notification handle
+  */
+  public synchronized long deleteNotification(long notificationHandle) {
+    requestCount.incrementAndGet();
+    return notifications.remove((int)notificationHandle) != null ? 0 : ADSERR_DEVICE_NOTIFYHNDINVALID;
+  }
+
+  /**
+  * Method for stopping PLC cycle
+  */
+  @Override
+  public synchronized void close() {
+    notifications.clear();
+    if(plcCycle != null) plcCycle.shutdownNow();
+    plcCycle = null;
+    cycleTask = null;
+  }
+
+  /**
+  * PLC cycle - sends due cyclic notifications and notifications of changed values
+  */
+  private void plcCycle() {
+    long now = System.currentTimeMillis();
+    long timeStamp = (now + FILETIME_EPOCH_OFFSET_MS) * 10000;
+    Map<NotificationSink, byte[]> due = new LinkedHashMap<>();
+
+    synchronized(this) {
+      for(Iterator<Notification> it = notifications.values().iterator(); it.hasNext(); ) {
+        Notification n = it.next();
+        byte[] value = (n.offset < 0) ? new byte[] {(byte)symVersion}
+                                      : Arrays.copyOfRange(memory, n.offset, n.offset + n.length);
+        boolean send = (n.transMode == ADSTRANS_SERVERCYCLE)
+                       ? now - n.lastSent >= n.cycleTime
+                       : !Arrays.equals(value, n.lastValue) && now - n.lastSent >= n.cycleTime;
+        if(send) {
+          n.lastValue = value;
+          n.lastSent = now;
+          due.put(n.sink, value);
+        }
+      }
+    }
+    //Deliver outside the lock - sinks may call back into simulator
+    due.forEach((sink, value) -> sink.onNotification(timeStamp, value));
+  }
+
+  /**
+  * Method for consuming injected error of next request
+  * @return Injected ADS error ID (0 - none)
+  */
+  private long injectedError() {
+    if(pendingErrCount == 0) return 0;
+    pendingErrCount--;
+    return pendingErrId;
+  }
+
+  /**
+  * Method for looking up symbol by name
+  * @return Symbol
+  * @param name Symbol name (case insensitive, as in TwinCAT)
+  */
+  private Symbol symbol(String name) {
+    Symbol sym = symbols.get(name.toUpperCase());
+    if(sym == null) throw new IllegalArgumentException("Unknown symbol: " + name);
+    return sym;
+  }
+
+  /**
+  * Method for resolving index group/offset to PLC memory offset
+  * @return Memory offset or -1 if area is invalid
+  * @param indexGroup Index group
+  * @param indexOffset Index offset
+  * @param length Area size in bytes
+  */
+  private int areaOffset(long indexGroup, long indexOffset, int length) {
+    if(indexGroup == ADSIGRP_SYM_VALBYHND) {
+      Symbol sym = handles.get((int)indexOffset);
+      if(sym == null || sym.errId != 0 || length > sym.size) return -1;
+      return sym.offset;
+    }
+    if(indexGroup == ADSIGRP_PLC_MEMORY && indexOffset >= 0 && indexOffset + length <= memorySize)
+      return (int)indexOffset;
+    return -1;
+  }
+
+  /**
+  * Method for getting error of invalid area access
+  * @return ADS error ID
+  * @param indexGroup Index group
+  * @param indexOffset Index offset
+  * @param length Area size in bytes
+  */
+  private long areaError(long indexGroup, long indexOffset, int length) {
+    if(indexGroup == ADSIGRP_SYM_VALBYHND) {
+      Symbol sym = handles.get((int)indexOffset);
+      if(sym == null) return ADSERR_DEVICE_SYMBOLNOTFOUND;
+      if(sym.errId != 0) return sym.errId;
+      return ADSERR_DEVICE_INVALIDSIZE;
+    }
+    if(indexGroup == ADSIGRP_PLC_MEMORY) return ADSERR_DEVICE_INVALIDOFFSET;
+    return ADSERR_DEVICE_SRVNOTSUPP;
+  }
+
+  private long readArea(long indexGroup, long indexOffset, ByteBuffer data) {
+    int length = data.remaining();
+    int offset = areaOffset(indexGroup, indexOffset, length);
+    if(offset < 0) return areaError(indexGroup, indexOffset, length);
+
+    data.put(memory, offset, length);
+    return 0;
+  }
+
+  private long writeArea(long indexGroup, long indexOffset, ByteBuffer data) {
+    int length = data.remaining();
+    if(indexGroup == ADSIGRP_SYM_RELEASEHND) {
+      if(length < Integer.BYTES) return ADSERR_DEVICE_INVALIDSIZE;
+      int handle = data.duplicate().order(ByteOrder.LITTLE_ENDIAN).getInt();
+      return handles.remove(handle) != null ? 0 : ADSERR_DEVICE_SYMBOLNOTFOUND;
+    }
+
+    int offset = areaOffset(indexGroup, indexOffset, length);
+    if(offset < 0) return areaError(indexGroup, indexOffset, length);
+
+    data.get(memory, offset, length);
+    return 0;
+  }
+
+  private long readWriteArea(long indexGroup, long indexOffset, ByteBuffer readData, ByteBuffer writeData) {
+    if(indexGroup != ADSIGRP_SYM_HNDBYNAME) return ADSERR_DEVICE_SRVNOTSUPP;
+    if(readData.remaining() < Integer.BYTES) return ADSERR_DEVICE_INVALIDSIZE;
+
+    byte[] name = new byte[writeData.remaining()];
+    writeData.get(name);
+    int len = 0;
+    while(len < name.length && name[len] != 0) len++; //Name may be null terminated
+    Symbol sym = symbols.get(new String(name, 0, len, StandardCharsets.ISO_8859_1).toUpperCase());
+    if(sym == null) return ADSERR_DEVICE_SYMBOLNOTFOUND;
+    if(sym.errId != 0) return sym.errId;
+
+    int handle = nextHandle++;
+    handles.put(handle, sym);
+    putInt(readData, handle);
+    return 0;
+  }
+
+  /**
+  * Symbol version - one byte
+  */
+  private long symbolVersion(ByteBuffer data) {
+    if(data.remaining() < 1) return ADSERR_DEVICE_INVALIDSIZE;
+    data.put((byte)symVersion);
+    return 0;
+  }
+
+  /**
+  * Symbol upload info - count and upload size of symbols and data types
+  */
+  private long uploadInfo(ByteBuffer data) {
+    if(data.remaining() < UPLOAD_INFO_SIZE) return ADSERR_DEVICE_INVALIDSIZE;
+    putInt(data, symbols.size());
+    putInt(data, symbolUpload().length);
+    putInt(data, structTypes.size());
+    putInt(data, dataTypeUpload().length);
+    for(int i = 4; i < UPLOAD_INFO_SIZE / Integer.BYTES; i++)
+      putInt(data, 0); //Dynamic symbols
+    return 0;
+  }
+
+  /**
+  * Data type upload - AdsDatatypeEntry of every structure type with its fields
+  */
+  private long dataTypeUploadTo(ByteBuffer data) {
+    byte[] upload = dataTypeUpload();
+    if(data.remaining() < upload.length) return ADSERR_DEVICE_INVALIDSIZE;
+    data.put(upload);
+    return 0;
+  }
+
+  /**
+  * Symbol upload - AdsSymbolEntry of every symbol, all in PLC memory area
+  */
+  private long upload(ByteBuffer data) {
+    byte[] upload = symbolUpload();
+    if(data.remaining() < upload.length) return ADSERR_DEVICE_INVALIDSIZE;
+    data.put(upload);
+    return 0;
+  }
+
+  /**
+  * Method for getting encoded symbol table, encoded again after symbols changed
+  * @return AdsSymbolEntry records one after another
+  */
+  private byte[] symbolUpload() {
+    if(symbolUpload != null) return symbolUpload;
+
+    int size = 0;
+    for(Symbol sym : symbols.values())
+      size += entryLength(sym);
+    ByteBuffer upload = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    for(Symbol sym : symbols.values()) {
+      int start = upload.position();
+      int entryLength = entryLength(sym);
+      upload.putInt(entryLength).putInt((int)ADSIGRP_PLC_MEMORY).putInt(sym.offset).putInt(sym.size);
+      upload.putInt(adsDataType(sym.type)).putInt(0); //Flags
+      upload.putShort((short)sym.name.length()).putShort((short)sym.type.length()).putShort((short)0); //No comment
+      upload.put(sym.name.getBytes(StandardCharsets.ISO_8859_1)).put((byte)0);
+      upload.put(sym.type.getBytes(StandardCharsets.ISO_8859_1)).put((byte)0);
+      upload.put((byte)0);
+      upload.position(start + entryLength); //Padding
+    }
+    symbolUpload = upload.array();
+    return symbolUpload;
+  }
+
+  /**
+  * Method for getting length of symbol upload entry, padded to 4 bytes as by TwinCAT
+  * @return Entry length in bytes
+  * @param sym Symbol
+  */
+  private static int entryLength(Symbol sym) {
+    int length = SYMBOL_ENTRY_HEADER + sym.name.length() + 1 + sym.type.length() + 1 + 1;
+    return (length + 3) & ~3;
+  }
+
+  /**
+  * Method for getting encoded data types, encoded again after types changed
+  * @return AdsDatatypeEntry records one after another
+  */
+  private byte[] dataTypeUpload() {
+    if(dataTypeUpload != null) return dataTypeUpload;
+
+    int size = 0;
+    for(StructType type : structTypes.values())
+      size += dataTypeEntryLength(type);
+    ByteBuffer upload = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    for(StructType type : structTypes.values()) {
+      int start = upload.position();
+      int entryLength = dataTypeEntryLength(type);
+      putDataTypeHeader(upload, entryLength, type.size, 0, ADST_BIGTYPE, ADSDATATYPEFLAG_DATATYPE,
+                        type.name, "", 0, type.fields.length);
+      for(Field field : type.fields) {
+        int fieldStart = upload.position();
+        int fieldLength = fieldEntryLength(field);
+        putDataTypeHeader(upload, fieldLength, field.size, field.offset, field.adsType, ADSDATATYPEFLAG_DATAITEM,
+                          field.name, field.type, field.lengths.length, 0);
+        for(int dim = 0; dim < field.lengths.length; dim++)
+          upload.putInt(field.lowerBounds[dim]).putInt(field.lengths[dim]);
+        upload.position(fieldStart + fieldLength); //Padding
+      }
+      upload.position(start + entryLength);
+    }
+    dataTypeUpload = upload.array();
+    return dataTypeUpload;
+  }
+
+  /**
+  * Method for putting AdsDatatypeEntry header with its strings (no comment)
+  */
+  private static void putDataTypeHeader(ByteBuffer upload, int entryLength, int size, int offset, int adsType,
+                                        int flags, String name, String type, int arrayDims, int subItems) {
+    upload.putInt(entryLength).putInt(1).putInt(0).putInt(0); //Version, hash values
+    upload.putInt(size).putInt(offset).putInt(adsType).putInt(flags);
+    upload.putShort((short)name.length()).putShort((short)type.length()).putShort((short)0);
+    upload.putShort((short)arrayDims).putShort((short)subItems);
+    upload.put(name.getBytes(StandardCharsets.ISO_8859_1)).put((byte)0);
+    upload.put(type.getBytes(StandardCharsets.ISO_8859_1)).put((byte)0);
+    upload.put((byte)0);
+  }
+
+  private static int dataTypeEntryLength(StructType type) {
+    int length = DATATYPE_ENTRY_HEADER + type.name.length() + 3;
+    length = (length + 3) & ~3;
+    for(Field field : type.fields)
+      length += fieldEntryLength(field);
+    return length;
+  }
+
+  private static int fieldEntryLength(Field field) {
+    int length = DATATYPE_ENTRY_HEADER + field.name.length() + field.type.length() + 3 + 8 * field.lengths.length;
+    return (length + 3) & ~3;
+  }
+
+  /**
+  * Method for parsing array bounds of type name, e.g. "ARRAY [1..10, 0..2] OF INT"
+  * @return Lower bounds and lengths of every dimension, null if type is not an array
+  * @param type PLC type name
+  */
+  private static int[][] arrayBounds(String type) {
+    String upper = type.toUpperCase();
+    if(!upper.startsWith("ARRAY")) return null;
+    int open = upper.indexOf('[');
+    int close = upper.indexOf(']');
+    if(open < 0 || close < open || upper.indexOf(" OF ", close) < 0)
+      throw new IllegalArgumentException("Malformed array type: " + type);
+
+    String[] dims = upper.substring(open + 1, close).split(",");
+    int[][] bounds = new int[2][dims.length];
+    for(int dim = 0; dim < dims.length; dim++) {
+      String[] range = dims[dim].split("\\.\\.");
+      bounds[0][dim] = Integer.parseInt(range[0].trim());
+      bounds[1][dim] = Integer.parseInt(range[1].trim()) - bounds[0][dim] + 1;
+    }
+    return bounds;
+  }
+
+  /**
+  * Method for getting length of STRING(n) or WSTRING(n) type
+  * @return Maximum number of characters
+  * @param type String type name
+  */
+  private static int stringLength(String type) {
+    int open = type.indexOf('(');
+    if(open < 0) return DEFAULT_STRING_LENGTH;
+    return Integer.parseInt(type.substring(open + 1, type.indexOf(')', open)).trim());
+  }
+
+  /**
+  * Method for getting alignment of field type with TwinCAT 3 default packing
+  * @return Alignment in bytes
+  * @param type Element type name
+  */
+  private int typeAlignment(String type) {
+    String upper = type.toUpperCase();
+    if(upper.startsWith("STRING")) return 1;
+    if(upper.startsWith("WSTRING")) return 2;
+    StructType struct = structTypes.get(upper);
+    if(struct != null) return struct.alignment;
+    return Math.min(typeSize(type), 8);
+  }
+
+  /**
+  * Method for getting ADS data type ID of field element type
+  * @return ADS data type ID
+  * @param type Element type name
+  */
+  private static int fieldAdsType(String type) {
+    String upper = type.toUpperCase();
+    if(upper.startsWith("STRING")) return ADST_STRING;
+    if(upper.startsWith("WSTRING")) return ADST_WSTRING;
+    return adsDataType(type);
+  }
+
+  /**
+  * Method for getting ADS data type ID of PLC type name
+  * @return ADS data type ID (ADST_...), ADST_BIGTYPE for arrays, strings and structures
+  * @param type PLC data type name
+  */
+  private static int adsDataType(String type) {
+    switch(type.toUpperCase()) {
+      case "BOOL": return 33;
+      case "SINT": return 16;
+      case "BYTE": case "USINT": return 17;
+      case "INT": return 2;
+      case "WORD": case "UINT": return 18;
+      case "DINT": return 3;
+      case "DWORD": case "UDINT": return 19;
+      case "LINT": return 20;
+      case "LWORD": case "ULINT": return 21;
+      case "REAL": return 4;
+      case "LREAL": return 5;
+      default: return 65;
+    }
+  }
+
+  /**
+  * Method for putting little-endian int without changing byte order of the buffer
+  * @param buff Target buffer
+  * @param value Value to be put
+  */
+  private static void putInt(ByteBuffer buff, int value) {
+    buff.put((byte)value).put((byte)(value >> 8)).put((byte)(value >> 16)).put((byte)(value >> 24));
+  }
+
+  /**
+  * Sum read - error IDs of all sub-requests followed by their data
+  */
+  private long sumRead(int count, ByteBuffer req, ByteBuffer readData) {
+    ByteBuffer resp = readData.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    int dataPos = resp.position() + count * 4;
+    for(int i = 0; i < count; i++) {
+      long ig = Integer.toUnsignedLong(req.getInt());
+      long io = Integer.toUnsignedLong(req.getInt());
+      int length = req.getInt();
+      if(dataPos + length > resp.limit()) return ADSERR_DEVICE_INVALIDSIZE;
+
+      ByteBuffer item = resp.duplicate();
+      item.position(dataPos).limit(dataPos + length);
+      resp.putInt((int)readArea(ig, io, item));
+      dataPos += length;
+    }
+    readData.position(dataPos);
+    return 0;
+  }
+
+  /**
+  * Sum write - error IDs of all sub-requests
+  */
+  private long sumWrite(int count, ByteBuffer req, ByteBuffer readData) {
+    int dataPos = req.position() + count * 12;
+    for(int i = 0; i < count; i++) {
+      long ig = Integer.toUnsignedLong(req.getInt());
+      long io = Integer.toUnsignedLong(req.getInt());
+      int length = req.getInt();
+      if(dataPos + length > req.limit()) return ADSERR_DEVICE_INVALIDSIZE;
+
+      ByteBuffer item = req.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+      item.position(dataPos).limit(dataPos + length);
+      putInt(readData, (int)writeArea(ig, io, item));
+      dataPos += length;
+    }
+    return 0;
+  }
+
+  /**
+  * Sum read-write - error ID and returned length of all sub-requests followed by returned data
+  */
+  private long sumReadWrite(int count, ByteBuffer req, ByteBuffer readData) {
+    ByteBuffer resp = readData.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    int writePos = req.position() + count * 16;
+    int dataPos = resp.position() + count * 8;
+    for(int i = 0; i < count; i++) {
+      long ig = Integer.toUnsignedLong(req.getInt());
+      long io = Integer.toUnsignedLong(req.getInt());
+      int readLength = req.getInt();
+      int writeLength = req.getInt();
+      if(writePos + writeLength > req.limit() || dataPos + readLength > resp.limit())
+        return ADSERR_DEVICE_INVALIDSIZE;
+
+      ByteBuffer in = req.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+      in.position(writePos).limit(writePos + writeLength);
+      ByteBuffer out = resp.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+      out.position(dataPos).limit(dataPos + readLength);
+      long errId = (ig == ADSIGRP_SYM_HNDBYNAME) ? readWriteArea(ig, io, out, in)
+                                                   : readArea(ig, io, out);
+      int returned = (errId == 0) ? out.position() - dataPos : 0;
+      resp.putInt((int)errId).putInt(returned);
+      //Returned data is packed - move it right after previous one
+      dataPos += returned;
+      writePos += writeLength;
+    }
+    readData.position(dataPos);
+    return 0;
+  }
+}
@@ -0,0 +1,302 @@
+package adssim;
+
+import adstransport.AmsPacket;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+* AMS/TCP server exposing AdsSimulator on local TCP port, so AmsTcpTransport
+* can be exercised without a real TwinCAT runtime. Requests of one connection are
+* answered after the configured latency without blocking following requests,
+* which makes pipelining observable.
+* Class is thread-safe.
+*/
+public class AmsTcpSimulatorServer implements AutoCloseable {
+  private static final int DEV_NAME_SIZE = 16;
+
+  private final AdsSimulator simulator;
+  private final ServerSocketChannel server;
+  private final Set<SocketChannel> clients = ConcurrentHashMap.newKeySet();
+  private final ScheduledExecutorService delayer = Executors.newScheduledThreadPool(1, r -> {
+    Thread t = new Thread(r, "ams-sim-latency");
+    t.setDaemon(true);
+    return t;
+  });
+
+  /**
+  * Client connection with its notifications
+  */
+  private final class Connection {
+    final SocketChannel channel;
+    final Map<Long, Boolean> notifications = new ConcurrentHashMap<>();
+
+    Connection(SocketChannel channel) { this.channel = channel;}
+
+    /**
+    * Method for sending frame, frames of one connection are never interleaved
+    * @param frame Frame positioned at its end
+    */
+    void send(ByteBuffer frame) {
+      frame.flip();
+      synchronized(this) {
+        try {
+          while(frame.hasRemaining())
+            channel.write(frame);
+        } catch(IOException e) {
+          close();
+        }
+      }
+    }
+
+    void close() {
+      clients.remove(channel);
+      for(Long handle : notifications.keySet())
+        simulator.deleteNotification(handle);
+      try {
+        channel.close();
+      } catch(IOException e) {
+        //Connection is abandoned anyway
+      }
+    }
+  }
+
+  /**
+  * Class constructor. Starts listening immediately
+  * @param simulator Simulated ADS device
+  * @param tcpPort Local TCP port (0 - any free port)
+  * @exception IOException On fail to bind the port
+  */
+  public AmsTcpSimulatorServer(AdsSimulator simulator, int tcpPort) throws IOException {
+    this.simulator = simulator;
+    this.server = ServerSocketChannel.open();
+    server.bind(new InetSocketAddress("127.0.0.1", tcpPort));
+
+    Thread acceptor = new Thread(this::acceptLoop, "ams-sim-acceptor");
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  /**
+  * Method for getting local TCP port the server listens on
+  * @return TCP port
+  */
+  public int getPort() {
+    return server.socket().getLocalPort();
+  }
+
+  /**
+  * Method for stopping the server and closing all connections
+  */
+  @Override
+  public void close() {
+    try {
+      server.close();
+    } catch(IOException e) {
+      //Server is abandoned anyway
+    }
+    for(SocketChannel ch : clients) {
+      try {
+        ch.close();
+      } catch(IOException e) {
+        //Connection is abandoned anyway
+      }
+    }
+    delayer.shutdownNow();
+  }
+
+  private void acceptLoop() {
+    try {
+      while(server.isOpen()) {
+        SocketChannel ch = server.accept();
+        ch.socket().setTcpNoDelay(true);
+        clients.add(ch);
+        Connection conn = new Connection(ch);
+        Thread t = new Thread(() -> serve(conn), "ams-sim-connection");
+        t.setDaemon(true);
+        t.start();
+      }
+    } catch(IOException e) {
+      //Server closed
+    }
+  }
+
+  /**
+  * Connection loop - receives request frames and schedules their responses
+  */
+  private void serve(Connection conn) {
+    ByteBuffer rxBuff = AmsPacket.allocate(64 * 1024);
+    try {
+      while(conn.channel.isOpen()) {
+        rxBuff.clear().limit(AmsPacket.TCP_HEADER_SIZE);
+        fill(conn.channel, rxBuff);
+        int length = AmsPacket.TCP_HEADER_SIZE + AmsPacket.length(rxBuff);
+        if(length > rxBuff.capacity()) {
+          ByteBuffer bigger = AmsPacket.allocate(length);
+          rxBuff.flip();
+          bigger.put(rxBuff);
+          rxBuff = bigger;
+        }
+        rxBuff.limit(length);
+        fill(conn.channel, rxBuff);
+        if(AmsPacket.isResponse(rxBuff)) continue;
+
+        ByteBuffer frame = handle(conn, rxBuff);
+        long latency = simulator.getLatencyNanos();
+        if(latency > 0) delayer.schedule(() -> conn.send(frame), latency, TimeUnit.NANOSECONDS);
+        else conn.send(frame);
+      }
+    } catch(IOException e) {
+      //Connection closed by client
+    }
+    conn.close();
+  }
+
+  /**
+  * Method for serving request frame
+  * @return Response frame positioned at its end
+  * @param conn Client connection
+  * @param req Request frame
+  */
+  private ByteBuffer handle(Connection conn, ByteBuffer req) {
+    int commandId = AmsPacket.commandId(req);
+    ByteBuffer data = req.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    data.position(AmsPacket.HEADER_SIZE);
+    ByteBuffer resp;
+
+    switch(commandId) {
+      case AmsPacket.CMD_READ: {
+        long ig = Integer.toUnsignedLong(data.getInt());
+        long io = Integer.toUnsignedLong(data.getInt());
+        int len = data.getInt();
+        resp = response(req, 8 + len);
+        ByteBuffer out = resp.duplicate();
+        out.position(resp.position() + 8).limit(resp.position() + 8 + len);
+        long errId = simulator.read(ig, io, out);
+        int returned = (errId == 0) ? len : 0;
+        resp.putInt((int)errId).putInt(returned).position(resp.position() + returned);
+        break;
+      }
+      case AmsPacket.CMD_WRITE: {
+        long ig = Integer.toUnsignedLong(data.getInt());
+        long io = Integer.toUnsignedLong(data.getInt());
+        int len = data.getInt();
+        data.limit(data.position() + len);
+        resp = response(req, 4);
+        resp.putInt((int)simulator.write(ig, io, data));
+        break;
+      }
+      case AmsPacket.CMD_READ_WRITE: {
+        long ig = Integer.toUnsignedLong(data.getInt());
+        long io = Integer.toUnsignedLong(data.getInt());
+        int readLen = data.getInt();
+        int writeLen = data.getInt();
+        data.limit(data.position() + writeLen);
+        resp = response(req, 8 + readLen);
+        ByteBuffer out = resp.duplicate();
+        int start = resp.position() + 8;
+        out.position(start).limit(start + readLen);
+        long errId = simulator.readWrite(ig, io, out, data);
+        int returned = (errId == 0) ? out.position() - start : 0;
+        resp.putInt((int)errId).putInt(returned).position(start + returned);
+        break;
+      }
+      case AmsPacket.CMD_READ_STATE: {
+        int state = simulator.readState();
+        resp = response(req, 8);
+        resp.putInt(0).putShort((short)state).putShort((short)(state >>> 16));
+        break;
+      }
+      case AmsPacket.CMD_READ_DEVICE_INFO: {
+        int[] version = simulator.getDeviceVersion();
+        byte[] name = new byte[DEV_NAME_SIZE];
+        byte[] devName = simulator.readDeviceInfo().getBytes(StandardCharsets.ISO_8859_1);
+        System.arraycopy(devName, 0, name, 0, Math.min(devName.length, DEV_NAME_SIZE - 1));
+        resp = response(req, 8 + DEV_NAME_SIZE);
+        resp.putInt(0).put((byte)version[0]).put((byte)version[1]).putShort((short)version[2]).put(name);
+        break;
+      }
+      case AmsPacket.CMD_ADD_NOTIFICATION: {
+        long ig = Integer.toUnsignedLong(data.getInt());
+        long io = Integer.toUnsignedLong(data.getInt());
+        int len = data.getInt();
+        int transMode = data.getInt();
+        data.getInt(); //Max delay - notifications are sent every PLC cycle
+        long cycleTime = Integer.toUnsignedLong(data.getInt()) / 10000; //100 ns ticks to ms
+        //Notification frames go back the way of this request
+        byte[] clientNetId = AmsPacket.netId(req, true);
+        byte[] serverNetId = AmsPacket.netId(req, false);
+        int clientPort = AmsPacket.sourcePort(req);
+        int serverPort = AmsPacket.targetPort(req);
+        long[] handle = new long[1];
+        handle[0] = simulator.addNotification(ig, io, len, transMode, cycleTime,
+                                              (timeStamp, value) -> notify(conn, clientNetId, clientPort,
+                                                                           serverNetId, serverPort,
+                                                                           handle[0], timeStamp, value));
+        if(handle[0] != 0) conn.notifications.put(handle[0], Boolean.TRUE);
+        resp = response(req, 8);
+        resp.putInt(handle[0] != 0 ? 0 : (int)AdsSimulator.ADSERR_DEVICE_INVALIDOFFSET).putInt((int)handle[0]);
+        break;
+      }
+      case AmsPacket.CMD_DEL_NOTIFICATION: {
+        long handle = Integer.toUnsignedLong(data.getInt());
+        conn.notifications.remove(handle);
+        resp = response(req, 4);
+        resp.putInt((int)simulator.deleteNotification(handle));
+        break;
+      }
+      default:
+        resp = response(req, 4);
+        resp.putInt((int)AdsSimulator.ADSERR_DEVICE_SRVNOTSUPP);
+    }
+    AmsPacket.setDataLength(resp, resp.position() - AmsPacket.HEADER_SIZE);
+    return resp;
+  }
+
+  /**
+  * Method for sending device notification frame with single sample
+  */
+  private void notify(Connection conn, byte[] clientNetId, int clientPort, byte[] serverNetId, int serverPort,
+                      long handle, long timeStamp, byte[] value) {
+    if(!conn.notifications.containsKey(handle)) return;
+
+    int dataLength = 4 + 4 + 8 + 4 + 8 + value.length;
+    ByteBuffer frame = AmsPacket.allocate(AmsPacket.HEADER_SIZE + dataLength);
+    AmsPacket.putHeader(frame, clientNetId, clientPort, serverNetId, serverPort,
+                        AmsPacket.CMD_NOTIFICATION, AmsPacket.STATE_REQUEST, dataLength, 0, 0);
+    frame.putInt(dataLength - 4).putInt(1); //Length, stamps
+    frame.putLong(timeStamp).putInt(1); //Timestamp, samples
+    frame.putInt((int)handle).putInt(value.length).put(value);
+    conn.send(frame);
+  }
+
+  /**
+  * Method for starting response frame to request
+  * @return Response frame positioned at the beginning of ADS data
+  * @param req Request frame
+  * @param maxDataLength Maximum length of ADS data in bytes
+  */
+  private static ByteBuffer response(ByteBuffer req, int maxDataLength) {
+    ByteBuffer resp = AmsPacket.allocate(AmsPacket.HEADER_SIZE + maxDataLength);
+    AmsPacket.putHeader(resp, AmsPacket.netId(req, true), AmsPacket.sourcePort(req),
+                        AmsPacket.netId(req, false), AmsPacket.targetPort(req),
+                        AmsPacket.commandId(req), AmsPacket.STATE_RESPONSE, 0, 0, AmsPacket.invokeId(req));
+    return resp;
+  }
+
+  private static void fill(SocketChannel ch, ByteBuffer buff) throws IOException {
+    while(buff.hasRemaining())
+      if(ch.read(buff) < 0) throw new EOFException();
+  }
+}
@@ -0,0 +1,108 @@
+package adssim;
+
+import java.util.Arrays;
+
+/**
+* Hash table of simulated symbol handles keyed by primitive int, so looking up
+* a handle does not box it. Open addressing with linear probing; removal shifts
+* following entries back instead of leaving deleted markers.
+* Class is not thread-safe, AdsSimulator guards it with its monitor.
+*/
+final class HandleTable<V> {
+  private static final int FREE = 0; //Handle 0 is never issued
+
+  private int[] keys = new int[64];
+  private Object[] values = new Object[64];
+  private int size;
+
+  /**
+  * Method for getting value of handle
+  * @return Value or null if handle is unknown
+  * @param handle Handle
+  */
+  @SuppressWarnings("unchecked")
+  V get(int handle) {
+    if(handle == FREE) return null;
+    int mask = keys.length - 1;
+    for(int i = mix(handle) & mask; keys[i] != FREE; i = (i + 1) & mask)
+      if(keys[i] == handle) return (V)values[i];
+    return null;
+  }
+
+  /**
+  * Method for adding handle
+  * @param handle Handle, must not be 0
+  * @param value Value
+  */
+  void put(int handle, V value) {
+    if(handle == FREE) throw new IllegalArgumentException("Handle 0 is reserved");
+    if(2 * (size + 1) > keys.length) grow();
+    int mask = keys.length - 1;
+    int i = mix(handle) & mask;
+    while(keys[i] != FREE && keys[i] != handle)
+      i = (i + 1) & mask;
+    if(keys[i] == FREE) size++;
+    keys[i] = handle;
+    values[i] = value;
+  }
+
+  /**
+  * Method for removing handle
+  * @return Removed value or null if handle is unknown
+  * @param handle Handle
+  */
+  @SuppressWarnings("unchecked")
+  V remove(int handle) {
+    if(handle == FREE) return null;
+    int mask = keys.length - 1;
+    int i = mix(handle) & mask;
+    while(keys[i] != handle) {
+      if(keys[i] == FREE) return null;
+      i = (i + 1) & mask;
+    }
+    V removed = (V)values[i];
+
+    //Shift back entries of the probe chain behind the removed one
+    int gap = i;
+    for(int j = (i + 1) & mask; keys[j] != FREE; j = (j + 1) & mask) {
+      int home = mix(keys[j]) & mask;
+      if(((j - home) & mask) >= ((j - gap) & mask)) {
+        keys[gap] = keys[j];
+        values[gap] = values[j];
+        gap = j;
+      }
+    }
+    keys[gap] = FREE;
+    values[gap] = null;
+    size--;
+    return removed;
+  }
+
+  int size() {
+    return size;
+  }
+
+  void clear() {
+    Arrays.fill(keys, FREE);
+    Arrays.fill(values, null);
+    size = 0;
+  }
+
+  private void grow() {
+    int[] oldKeys = keys;
+    Object[] oldValues = values;
+    keys = new int[2 * oldKeys.length];
+    values = new Object[2 * oldValues.length];
+    size = 0;
+    for(int i = 0; i < oldKeys.length; i++)
+      if(oldKeys[i] != FREE) {
+        @SuppressWarnings("unchecked")
+        V value = (V)oldValues[i];
+        put(oldKeys[i], value);
+      }
+  }
+
+  private static int mix(int handle) {
+    return handle * 0x9E3779B9; //Odd multiplier scatters neighbouring handles
+  }
+}
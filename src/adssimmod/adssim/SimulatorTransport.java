@@ -0,0 +1,235 @@
+package adssim;
+
+import de.beckhoff.jni.tcads.AdsDevName;
+import de.beckhoff.jni.tcads.AdsState;
+import de.beckhoff.jni.tcads.AdsVersion;
+import adsexceptions.AdsException;
+import adstransport.AsyncAdsTransport;
+import adstransport.NotificationSink;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+* ADS transport serving requests from in-process AdsSimulator.
+* Blocking requests wait for the configured latency on the calling thread,
+* asynchronous ones complete after the latency without blocking the caller.
+* Class is thread-safe.
+*/
+public class SimulatorTransport implements AsyncAdsTransport {
+  public static final int SIMULATOR_ADS_PORT = 30000;
+  static final long ADSERR_CLIENT_PORTNOTOPEN = 0x748;
+
+  private final AdsSimulator simulator;
+  private final String netId;
+  private final AtomicLong roundTrips = new AtomicLong();
+  private volatile int amsPort;
+  private volatile boolean open;
+  private ScheduledExecutorService delayer;
+
+  /**
+  * Class constructor
+  * @param simulator Simulated ADS device
+  */
+  public SimulatorTransport(AdsSimulator simulator) {
+    this(simulator, "127.0.0.1.1.1");
+  }
+
+  /**
+  * Class constructor
+  * @param simulator Simulated ADS device
+  * @param netId AMS net ID reported for the simulated device
+  */
+  public SimulatorTransport(AdsSimulator simulator, String netId) {
+    this.simulator = simulator;
+    this.netId = netId;
+  }
+
+  /**
+  * Method for getting simulated device
+  * @return Simulator serving this transport
+  */
+  public AdsSimulator getSimulator() {
+    return simulator;
+  }
+
+  /**
+  * Method for getting number of requests sent through this transport
+  * @return Number of ADS round trips
+  */
+  public long getRoundTrips() {
+    return roundTrips.get();
+  }
+
+  /**
+  * Method for resetting round trip counter
+  */
+  public void resetRoundTrips() {
+    roundTrips.set(0);
+  }
+
+  @Override
+  public synchronized long open(int amsPort) throws AdsException {
+    this.amsPort = amsPort;
+    open = true;
+    return SIMULATOR_ADS_PORT;
+  }
+
+  @Override
+  public synchronized long close() {
+    open = false;
+    if(delayer != null) delayer.shutdownNow();
+    delayer = null;
+    return 0;
+  }
+
+  @Override
+  public String getNetId() {
+    return netId;
+  }
+
+  @Override
+  public int getAmsPort() {
+    return amsPort;
+  }
+
+  @Override
+  public long read(long indexGroup, long indexOffset, ByteBuffer data) {
+    long errId = admit(); //No lambda - reads and writes do not allocate
+    return (errId != 0) ? errId : simulator.read(indexGroup, indexOffset, data);
+  }
+
+  @Override
+  public long write(long indexGroup, long indexOffset, ByteBuffer data) {
+    long errId = admit(); //No lambda - reads and writes do not allocate
+    return (errId != 0) ? errId : simulator.write(indexGroup, indexOffset, data);
+  }
+
+  @Override
+  public long readWrite(long indexGroup, long indexOffset, ByteBuffer readData, ByteBuffer writeData) {
+    long errId = admit(); //No lambda - reads and writes do not allocate
+    return (errId != 0) ? errId : simulator.readWrite(indexGroup, indexOffset, readData, writeData);
+  }
+
+  @Override
+  public long readState(AdsState adsStateBuff, AdsState adsDevStateBuff) {
+    return serve(() -> {
+      int state = simulator.readState();
+      adsStateBuff.setState((short)state);
+      adsDevStateBuff.setState((short)(state >>> 16));
+      return 0L;
+    });
+  }
+
+  @Override
+  public long readDeviceInfo(AdsDevName devName, AdsVersion adsVersion) {
+    return serve(() -> {
+      int[] version = simulator.getDeviceVersion();
+      devName.setDevName(simulator.readDeviceInfo());
+      adsVersion.setVersion((byte)version[0]);
+      adsVersion.setRevision((byte)version[1]);
+      adsVersion.setBuild((short)version[2]);
+      return 0L;
+    });
+  }
+
+  @Override
+  public long setTimeout(long adsTimeout) {
+    return 0;
+  }
+
+  @Override
+  public long addNotification(long indexGroup, long indexOffset, int length, int transMode,
+                              long maxDelay, long cycleTime, NotificationSink sink) throws AdsException {
+    if(!open) throw new AdsException(ADSERR_CLIENT_PORTNOTOPEN);
+
+    roundTrips.incrementAndGet();
+    long handle = simulator.addNotification(indexGroup, indexOffset, length, transMode, cycleTime, sink);
+    if(handle == 0) throw new AdsException(AdsSimulator.ADSERR_DEVICE_INVALIDOFFSET);
+    return handle;
+  }
+
+  @Override
+  public long deleteNotification(long notificationHandle) {
+    return serve(() -> simulator.deleteNotification(notificationHandle));
+  }
+
+  @Override
+  public CompletableFuture<Long> readAsync(long indexGroup, long indexOffset, ByteBuffer data) {
+    return serveAsync(() -> simulator.read(indexGroup, indexOffset, data));
+  }
+
+  @Override
+  public CompletableFuture<Long> writeAsync(long indexGroup, long indexOffset, ByteBuffer data) {
+    return serveAsync(() -> simulator.write(indexGroup, indexOffset, data));
+  }
+
+  @Override
+  public CompletableFuture<Long> readWriteAsync(long indexGroup, long indexOffset, ByteBuffer readData,
+                                                ByteBuffer writeData) {
+    return serveAsync(() -> simulator.readWrite(indexGroup, indexOffset, readData, writeData));
+  }
+
+  /**
+  * Method for serving blocking request after simulated latency
+  * @return ADS error ID
+  * @param request Request served by simulator
+  */
+  private long serve(LongSupplier request) {
+    long errId = admit();
+    return (errId != 0) ? errId : request.getAsLong();
+  }
+
+  /**
+  * Method for starting blocking request - counts round trip and waits for simulated latency
+  * @return ADS error ID (0 - request may be served)
+  */
+  private long admit() {
+    if(!open) return ADSERR_CLIENT_PORTNOTOPEN;
+
+    roundTrips.incrementAndGet();
+    long latency = simulator.getLatencyNanos();
+    if(latency > 0) LockSupport.parkNanos(latency);
+    return 0;
+  }
+
+  /**
+  * Method for serving asynchronous request after simulated latency
+  * @return Future completed with ADS error ID
+  * @param request Request served by simulator
+  */
+  private CompletableFuture<Long> serveAsync(Supplier<Long> request) {
+    if(!open) return CompletableFuture.completedFuture(ADSERR_CLIENT_PORTNOTOPEN);
+
+    roundTrips.incrementAndGet();
+    long latency = simulator.getLatencyNanos();
+    if(latency <= 0) return CompletableFuture.completedFuture(request.get());
+
+    CompletableFuture<Long> future = new CompletableFuture<>();
+    delayer().schedule(() -> {
+      if(!future.isDone()) future.complete(request.get()); //Cancelled requests are not served
+    }, latency, TimeUnit.NANOSECONDS);
+    return future;
+  }
+
+  /**
+  * Method for getting scheduler of delayed responses
+  * @return Scheduled executor
+  */
+  private synchronized ScheduledExecutorService delayer() {
+    if(delayer == null) {
+      delayer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ads-sim-latency");
+        t.setDaemon(true);
+        return t;
+      });
+    }
+    return delayer;
+  }
+}
@@ -0,0 +1,7 @@
+/**
+* In-process ADS device simulator for testing and benchmarking
+*/
+module adssimmod {
+  requires transitive adscommod;
+  exports adssim;
+}
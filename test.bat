@@ -0,0 +1,9 @@
+//@ECHO OFF
+//Plain unit tests of test\ - no test framework needed, failed tests are reported as FAIL
+//Test classes are named as arguments to run only them, e.g.: test.bat adscom.SymbolTableTest
+dir /B /S src\*.java > src.txt
+javac -d out -p lib\TcJavaToAds.jar --module-source-path src @src.txt
+dir /B /S test\*.java > test.txt
+javac -d out\test -cp out\adscommod;out\adssimmod;out\adsgenmod;lib\TcJavaToAds.jar @test.txt
+java -cp out\test;out\adscommod;out\adssimmod;out\adsgenmod;lib\TcJavaToAds.jar adstest.RunTests %*
+pause
@@ -0,0 +1,8 @@
+#!/bin/sh
+#Plain unit tests of test/ - no test framework needed, exit status 1 if any test failed
+#Test classes are named as arguments to run only them, e.g.: ./test.sh adscom.SymbolTableTest
+set -e
+cd "$(dirname "$0")"
+javac -d out -p lib/TcJavaToAds.jar --module-source-path src $(find src -name '*.java')
+javac -d out/test -cp "out/adscommod:out/adssimmod:out/adsgenmod:lib/TcJavaToAds.jar" $(find test -name '*.java')
+exec java -cp "out/test:out/adscommod:out/adssimmod:out/adsgenmod:lib/TcJavaToAds.jar" adstest.RunTests "$@"
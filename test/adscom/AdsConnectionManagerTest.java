@@ -0,0 +1,146 @@
+package adscom;
+
+import adsexceptions.AdsException;
+import adssim.AdsSimulator;
+import adssim.SimulatorTransport;
+import adstest.Check;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+* Tests of AdsConnectionManager lifecycle: one connection per device shared by concurrent
+* connects, failed opens retried, connections closed on disconnect and on close
+*/
+public final class AdsConnectionManagerTest {
+  private static final String NET_ID = "5.16.32.64.1.1";
+  private static final String OTHER_NET_ID = "5.16.32.65.1.1";
+  private static final int CALLS = 8;
+
+  private AdsConnectionManagerTest() {}
+
+  /**
+  * Transport failing to open while told so
+  */
+  private static final class FailingOpenTransport extends SimulatorTransport {
+    private final AtomicInteger failures;
+
+    FailingOpenTransport(AdsSimulator sim, String netId, AtomicInteger failures) {
+      super(sim, netId);
+      this.failures = failures;
+    }
+
+    @Override
+    public synchronized long open(int amsPort) throws AdsException {
+      if(failures.getAndDecrement() > 0) throw new AdsException(0x6);
+      return super.open(amsPort);
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    AdsSimulator sim = new AdsSimulator();
+    sim.addSymbol("MAIN.nValue", "DINT");
+    sim.setValue("MAIN.nValue", new byte[] {42, 0, 0, 0});
+    try {
+      connectsOnce(sim);
+      sharesConcurrentConnect(sim);
+      retriesFailedOpen(sim);
+      disconnects(sim);
+      closesAll(sim);
+    } finally {
+      sim.close();
+    }
+  }
+
+  private static void connectsOnce(AdsSimulator sim) {
+    AtomicInteger created = new AtomicInteger();
+    try(AdsConnectionManager connections = new AdsConnectionManager(netId -> {
+      created.incrementAndGet();
+      return new SimulatorTransport(sim, netId);
+    })) {
+      Check.isTrue(connections.get(NET_ID, 851) == null, "Not connected before connect");
+      AdsManager ads = connections.connect(NET_ID, 851);
+      Check.isTrue(ads.getPort() != 0, "Port opened");
+      Check.equal(NET_ID, ads.getAmsAddr(), "Connection to requested device");
+      Check.equal(851, ads.getAmsPort(), "Connection to requested AMS port");
+      Check.equal(42, ads.readDInt("MAIN.nValue"), "Value read through connection");
+
+      Check.isTrue(connections.connect(NET_ID, 851) == ads, "Repeated connect returns same connection");
+      Check.isTrue(connections.connect(NET_ID) == ads, "Default AMS port is 851");
+      Check.isTrue(connections.get(NET_ID, 851) == ads, "Opened connection got");
+      Check.equal(1, created.get(), "One transport per device");
+
+      AdsManager other = connections.connect(NET_ID, 852);
+      Check.isTrue(other != ads, "Other AMS port gets own connection");
+      Check.isTrue(connections.connect(OTHER_NET_ID, 851) != ads, "Other device gets own connection");
+      Check.equal(3, connections.size(), "Connections opened");
+      Check.equal(3, connections.getConnections().size(), "Connections listed");
+      Check.fails(UnsupportedOperationException.class, () -> connections.getConnections().clear(),
+                  "Listed connections unmodifiable");
+    }
+  }
+
+  private static void sharesConcurrentConnect(AdsSimulator sim) throws Exception {
+    AtomicInteger created = new AtomicInteger();
+    sim.setLatency(20, TimeUnit.MILLISECONDS);
+    try(AdsConnectionManager connections = new AdsConnectionManager(netId -> {
+      created.incrementAndGet();
+      return new SimulatorTransport(sim, netId);
+    })) {
+      List<CompletableFuture<AdsManager>> connects = new ArrayList<>();
+      for(int i = 0; i < CALLS; i++)
+        connects.add(CompletableFuture.supplyAsync(() -> connections.connect(NET_ID, 851)));
+      AdsManager ads = connects.get(0).get(5, TimeUnit.SECONDS);
+      for(CompletableFuture<AdsManager> connect : connects)
+        Check.isTrue(connect.get(5, TimeUnit.SECONDS) == ads, "Concurrent connects share connection");
+      Check.equal(1, created.get(), "One transport for concurrent connects");
+      Check.equal(1, connections.size(), "One connection");
+    } finally {
+      sim.setLatency(0, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private static void retriesFailedOpen(AdsSimulator sim) {
+    AtomicInteger failures = new AtomicInteger(1);
+    try(AdsConnectionManager connections = new AdsConnectionManager(netId -> new FailingOpenTransport(sim, netId, failures))) {
+      AdsException e = Check.fails(AdsException.class, () -> connections.connect(NET_ID, 851), "Failed open");
+      Check.equal(0x6, e.getErrId(), "Error of failed open");
+      Check.equal(0, connections.size(), "Failed connection removed");
+      Check.isTrue(connections.get(NET_ID, 851) == null, "Failed connection not got");
+
+      AdsManager ads = connections.connect(NET_ID, 851);
+      Check.equal(42, ads.readDInt("MAIN.nValue"), "Value read after retried open");
+    }
+  }
+
+  private static void disconnects(AdsSimulator sim) {
+    try(AdsConnectionManager connections = new AdsConnectionManager(netId -> new SimulatorTransport(sim, netId))) {
+      AdsManager ads = connections.connect(NET_ID, 851);
+      ads.readDInt("MAIN.nValue"); //Handle cached
+      int handles = sim.getHandleCount();
+      Check.isTrue(connections.disconnect(NET_ID, 851), "Disconnected");
+      Check.equal(0, ads.getPort(), "Port closed");
+      Check.equal(handles - 1, sim.getHandleCount(), "Cached handle released");
+      Check.equal(0, connections.size(), "Connection removed");
+      Check.isTrue(connections.get(NET_ID, 851) == null, "Disconnected connection not got");
+      Check.isTrue(!connections.disconnect(NET_ID, 851), "Second disconnect");
+
+      AdsManager again = connections.connect(NET_ID, 851);
+      Check.isTrue(again != ads, "New connection after disconnect");
+      Check.equal(42, again.readDInt("MAIN.nValue"), "Value read through new connection");
+    }
+  }
+
+  private static void closesAll(AdsSimulator sim) {
+    AdsConnectionManager connections = new AdsConnectionManager(netId -> new SimulatorTransport(sim, netId));
+    AdsManager ads = connections.connect(NET_ID, 851);
+    AdsManager other = connections.connect(OTHER_NET_ID, 851);
+    connections.close();
+    Check.equal(0, connections.size(), "Connections removed");
+    Check.isTrue(connections.getConnections().isEmpty(), "No connection listed");
+    Check.equal(0, ads.getPort(), "Port of first connection closed");
+    Check.equal(0, other.getPort(), "Port of second connection closed");
+  }
+}
@@ -0,0 +1,71 @@
+package adscom;
+
+import adssim.AdsSimulator;
+import adssim.SimulatorTransport;
+import adstest.Check;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+/**
+* Allocation test of reads into caller's buffer: after warm-up, readByHandle and
+* readBySymbol with cached handle allocate nothing per read. Allocated bytes of the
+* reading thread are counted by ThreadMXBean, so no profiler is needed
+*/
+public final class AllocationTest {
+  private static final int WARM_UP = 50000;
+  private static final int READS = 10000;
+  private static final long BUDGET = READS / 10; //Allowed bytes of all reads - one object per read exceeds it
+
+  private AllocationTest() {}
+
+  public static void main(String[] args) throws Exception {
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+    Check.isTrue(threads.isThreadAllocatedMemorySupported(), "Allocated memory measurement supported");
+    threads.setThreadAllocatedMemoryEnabled(true);
+
+    AdsSimulator sim = new AdsSimulator();
+    sim.addSymbol("MAIN.nCounter", "DINT");
+    try(AdsManager ads = AdsManager.newInstance(new SimulatorTransport(sim))) {
+      ads.openPort();
+      long handle = ads.getHandle("MAIN.nCounter");
+      ByteBuffer heap = ByteBuffer.allocate(4);
+      ByteBuffer direct = ByteBuffer.allocateDirect(4);
+
+      for(int i = 0; i < WARM_UP; i++) {
+        readByHandle(ads, handle, heap);
+        readByHandle(ads, handle, direct);
+        readBySymbol(ads, heap);
+      }
+
+      long id = Thread.currentThread().getId();
+      long start = threads.getThreadAllocatedBytes(id);
+      for(int i = 0; i < READS; i++)
+        readByHandle(ads, handle, heap);
+      long handleHeap = threads.getThreadAllocatedBytes(id) - start;
+
+      start = threads.getThreadAllocatedBytes(id);
+      for(int i = 0; i < READS; i++)
+        readByHandle(ads, handle, direct);
+      long handleDirect = threads.getThreadAllocatedBytes(id) - start;
+
+      start = threads.getThreadAllocatedBytes(id);
+      for(int i = 0; i < READS; i++)
+        readBySymbol(ads, heap);
+      long symbol = threads.getThreadAllocatedBytes(id) - start;
+
+      Check.isTrue(handleHeap <= BUDGET, "readByHandle into heap buffer allocated " + handleHeap + " bytes");
+      Check.isTrue(handleDirect <= BUDGET, "readByHandle into direct buffer allocated " + handleDirect + " bytes");
+      Check.isTrue(symbol <= BUDGET, "readBySymbol with cached handle allocated " + symbol + " bytes");
+    }
+  }
+
+  private static void readByHandle(AdsManager ads, long handle, ByteBuffer dst) throws Exception {
+    dst.clear();
+    ads.readByHandle(handle, dst);
+  }
+
+  private static void readBySymbol(AdsManager ads, ByteBuffer dst) throws Exception {
+    dst.clear();
+    ads.readBySymbol("MAIN.nCounter", dst);
+  }
+}
@@ -0,0 +1,118 @@
+package adscom;
+
+import adsexceptions.AdsException;
+import adsexceptions.AdsPortClosedException;
+import adssim.AdsSimulator;
+import adssim.SimulatorTransport;
+import adstest.Check;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+* Tests of the asynchronous API of AdsManager: reads by handle and by name, one handle
+* request shared by concurrent cache misses, sum reads, errors and timeouts
+*/
+public final class AsyncTest {
+  private static final int CALLS = 10;
+
+  private AsyncTest() {}
+
+  public static void main(String[] args) throws Exception {
+    AdsSimulator sim = new AdsSimulator();
+    for(int i = 0; i < 3; i++) {
+      sim.addSymbol("MAIN.n" + i, "DINT");
+      sim.setValue("MAIN.n" + i, new byte[] {(byte)(10 + i), 0, 0, 0});
+    }
+    try(AdsManager ads = AdsManager.newInstance(new SimulatorTransport(sim))) {
+      failsClosedPort(ads);
+      ads.openPort();
+      readsByHandle(ads, sim);
+      readsBySymbol(ads);
+      sharesHandleRequest(ads, sim);
+      readsMany(ads);
+      timesOut(ads, sim);
+    }
+  }
+
+  private static void failsClosedPort(AdsManager ads) {
+    Check.isTrue(cause(ads.readAsync(1, 4)) instanceof AdsPortClosedException, "Read by handle of closed port");
+    Check.isTrue(cause(ads.readBySymbolAsync("MAIN.n0", 4)) instanceof AdsPortClosedException,
+                 "Read by name of closed port");
+  }
+
+  private static void readsByHandle(AdsManager ads, AdsSimulator sim) throws Exception {
+    long handle = ads.getHandle("MAIN.n0");
+    Check.equal(10, PlcTypes.getDInt(ads.readAsync(handle, 4).get(5, TimeUnit.SECONDS), 0), "Value read by handle");
+
+    sim.failNext(0x745, 1);
+    Throwable e = cause(ads.readAsync(handle, 4));
+    Check.isTrue(e instanceof AdsException && ((AdsException)e).getErrId() == 0x745, "ADS error of read");
+    ads.releaseHandle(handle);
+  }
+
+  private static void readsBySymbol(AdsManager ads) throws Exception {
+    Check.equal(11, PlcTypes.getDInt(ads.readBySymbolAsync("MAIN.n1", 4).get(5, TimeUnit.SECONDS), 0),
+                "Value read by name");
+    Check.equal(11, PlcTypes.getDInt(ads.readBySymbolAsync("MAIN.n1", 4).get(5, TimeUnit.SECONDS), 0),
+                "Value read by cached handle");
+    Throwable e = cause(ads.readBySymbolAsync("MAIN.missing", 4));
+    Check.isTrue(e instanceof AdsException && ((AdsException)e).getErrId() == AdsSimulator.ADSERR_DEVICE_SYMBOLNOTFOUND,
+                 "Unknown symbol");
+  }
+
+  private static void sharesHandleRequest(AdsManager ads, AdsSimulator sim) throws Exception {
+    sim.setLatency(20, TimeUnit.MILLISECONDS); //Keeps the handle request pending for all calls
+    try {
+      sim.resetRequestCount();
+      List<CompletableFuture<byte[]>> reads = new ArrayList<>();
+      for(int i = 0; i < CALLS; i++)
+        reads.add(ads.readBySymbolAsync("MAIN.n2", 4));
+      for(CompletableFuture<byte[]> read : reads)
+        Check.equal(12, PlcTypes.getDInt(read.get(5, TimeUnit.SECONDS), 0), "Value of concurrent read");
+      Check.equal(CALLS + 1, sim.getRequestCount(), "One handle request for concurrent cache misses");
+    } finally {
+      sim.setLatency(0, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private static void readsMany(AdsManager ads) throws Exception {
+    long[] handles = {ads.getHandle("MAIN.n0"), ads.getHandle("MAIN.n1"), 0x7FFF_FFFF, ads.getHandle("MAIN.n2")};
+    SumResult result = ads.readManyAsync(handles, new int[] {4, 4, 4, 4}).get(5, TimeUnit.SECONDS);
+    Check.equal(4, result.size(), "Sum read results");
+    Check.equal(10, PlcTypes.getDInt(result.getData(0), 0), "First value");
+    Check.equal(11, PlcTypes.getDInt(result.getData(1), 0), "Second value");
+    Check.isTrue(!result.isOk(2), "Error of invalid handle");
+    Check.equal(12, PlcTypes.getDInt(result.getData(3), 0), "Value after failed sub-request");
+    Check.fails(IllegalArgumentException.class, () -> ads.readManyAsync(handles, new int[] {4}), "Sizes differ");
+    for(int i : new int[] {0, 1, 3})
+      ads.releaseHandle(handles[i]);
+  }
+
+  private static void timesOut(AdsManager ads, AdsSimulator sim) throws Exception {
+    long handle = ads.getHandle("MAIN.n0");
+    sim.setLatency(500, TimeUnit.MILLISECONDS);
+    ads.setAsyncTimeout(50);
+    try {
+      Check.isTrue(cause(ads.readAsync(handle, 4)) instanceof TimeoutException, "Read timed out");
+    } finally {
+      ads.setAsyncTimeout(AdsManager.DEFAULT_ASYNC_TIMEOUT);
+      sim.setLatency(0, TimeUnit.MILLISECONDS);
+    }
+    Check.equal(10, PlcTypes.getDInt(ads.readAsync(handle, 4).get(5, TimeUnit.SECONDS), 0), "Read after timeout");
+  }
+
+  private static Throwable cause(CompletableFuture<?> future) {
+    try {
+      future.get(5, TimeUnit.SECONDS);
+    } catch(ExecutionException e) {
+      return e.getCause();
+    } catch(Exception e) {
+      throw new AssertionError("Future not failed: " + e, e);
+    }
+    throw new AssertionError("Future not failed");
+  }
+}
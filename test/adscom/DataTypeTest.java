@@ -0,0 +1,116 @@
+package adscom;
+
+import adssim.AdsSimulator;
+import adssim.SimulatorTransport;
+import adstest.Check;
+
+/**
+* Tests of DataType and DataTypeTable parsing, of StructCodec compiled from them and
+* of uploaded data types outdated by online change
+*/
+public final class DataTypeTest {
+  private DataTypeTest() {}
+
+  public static void main(String[] args) throws InterruptedException {
+    DataTypeTable table = parse(simulator());
+    parsesTypes(table);
+    compilesCodec(table);
+    codesValues(table);
+    refusesMalformedEntry();
+    outdatedByOnlineChange();
+  }
+
+  private static void parsesTypes(DataTypeTable table) {
+    Check.equal(2, table.size(), "Data type count");
+    DataType axis = table.get("st_axis");
+    Check.equal("ST_Axis", axis.getName(), "Type found case-insensitively");
+    Check.equal(4, axis.getFields().size(), "Field count");
+
+    DataType pos = axis.getField("fPos");
+    Check.equal("LREAL", pos.getType(), "Field type");
+    Check.equal(8, pos.getOffset(), "Field offset aligned to 8 bytes");
+    DataType raw = axis.getField("aRaw");
+    Check.equal(1, raw.getArrayDims(), "Array dimensions");
+    Check.equal(1, raw.getLowerBound(0), "Array lower bound");
+    Check.equal(3, raw.getLength(0), "Array length");
+    Check.equal(3, raw.getElementCount(), "Array elements");
+    Check.isTrue(table.get("ST_Unknown") == null, "Unknown type");
+  }
+
+  private static void compilesCodec(DataTypeTable table) {
+    StructCodec codec = table.getCodec("ST_Machine");
+    Check.isTrue(table.getCodec("st_machine") == codec, "Codec compiled once");
+    Check.equal(table.get("ST_Machine").getSize(), codec.getSize(), "Codec size");
+
+    int fPos = codec.fieldIndex("aAxes[1].fPos");
+    Check.isTrue(fPos >= 0, "Nested field flattened by path");
+    Check.equal(table.get("ST_Axis").getSize() + 8 + 8, codec.getFieldOffset(fPos), "Offset of nested field");
+    Check.equal(fPos, codec.fieldIndex("AAXES[1].FPOS"), "Path found case-insensitively");
+    Check.equal(-1, codec.fieldIndex("aAxes[2].fPos"), "Element out of bounds");
+    Check.isTrue(codec.fieldIndex("aAxes[0].aRaw") >= 0, "Array of elementary type kept as one field");
+  }
+
+  private static void codesValues(DataTypeTable table) {
+    StructCodec codec = table.getCodec("ST_Machine");
+    Object[] values = codec.decode(new byte[codec.getSize()], 0);
+    values[codec.fieldIndex("nId")] = 42;
+    values[codec.fieldIndex("aAxes[1].bEnabled")] = true;
+    values[codec.fieldIndex("aAxes[1].fPos")] = 3.5;
+    values[codec.fieldIndex("aAxes[0].sName")] = "axis";
+    values[codec.fieldIndex("aAxes[0].aRaw")] = new int[] {1, 2, 3};
+
+    byte[] data = new byte[codec.getSize() + 2];
+    codec.encode(values, data, 2);
+    Object[] decoded = codec.decode(data, 2);
+    Check.equal(values, decoded, "Values decoded as encoded");
+    Check.equal(42, PlcTypes.getDInt(data, 2), "First field at value offset");
+
+    values[codec.fieldIndex("aAxes[0].aRaw")] = new int[4];
+    Check.fails(IllegalArgumentException.class, () -> codec.encode(values, data, 0), "Array exceeding field");
+    Check.fails(IndexOutOfBoundsException.class, () -> codec.decode(data, 3), "Value exceeding data");
+  }
+
+  private static void refusesMalformedEntry() {
+    byte[] data = Uploads.read(simulator(), AdsSimulator.ADSIGRP_SYM_DT_UPLOAD);
+    Check.fails(IllegalArgumentException.class, () -> DataTypeTable.parse(data, data.length - 1, 2, 1),
+                "Truncated entry");
+    Check.fails(IllegalArgumentException.class, () -> DataType.parse(data, 0, DataType.ENTRY_HEADER - 1),
+                "Truncated header");
+  }
+
+  private static void outdatedByOnlineChange() throws InterruptedException {
+    AdsSimulator sim = simulator();
+    try(AdsManager ads = AdsManager.newInstance(new SimulatorTransport(sim))) {
+      ads.openPort();
+      DataTypeTable table = ads.uploadDataTypes();
+      Check.equal(sim.getSymbolVersion(), table.getVersion(), "Version of upload");
+      Check.isTrue(ads.getDataTypes() == table, "Uploaded data types current");
+      ads.uploadSymbols();
+      ads.discardSymbols();
+      Check.isTrue(ads.getDataTypes() == table, "Data types kept watching version after symbols discarded");
+
+      sim.onlineChange();
+      long deadline = System.nanoTime() + 5_000_000_000L;
+      while(ads.getDataTypes() != null && System.nanoTime() < deadline)
+        Thread.sleep(1);
+      Check.isTrue(ads.getDataTypes() == null, "Data types outdated by online change");
+
+      table = ads.uploadDataTypes();
+      Check.equal(sim.getSymbolVersion(), table.getVersion(), "Version of new upload");
+      Check.isTrue(ads.getDataTypes() == table, "New upload current");
+    }
+  }
+
+  private static AdsSimulator simulator() {
+    AdsSimulator sim = new AdsSimulator();
+    sim.addStructType("ST_Axis", "bEnabled : BOOL", "fPos : LREAL", "sName : STRING(20)",
+                      "aRaw : ARRAY [1..3] OF DINT");
+    sim.addStructType("ST_Machine", "nId : DINT", "aAxes : ARRAY [0..1] OF ST_Axis");
+    return sim;
+  }
+
+  private static DataTypeTable parse(AdsSimulator sim) {
+    byte[] data = Uploads.read(sim, AdsSimulator.ADSIGRP_SYM_DT_UPLOAD);
+    return DataTypeTable.parse(data, data.length, Uploads.info(sim)[Uploads.DATA_TYPES], 1);
+  }
+}
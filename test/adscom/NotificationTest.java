@@ -0,0 +1,153 @@
+package adscom;
+
+import adsexceptions.AdsException;
+import adsexceptions.AdsPortClosedException;
+import adssim.AdsSimulator;
+import adssim.SimulatorTransport;
+import adstest.Check;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+* Tests of notifications against the simulator: values delivered on change and cyclically
+* on the notification thread, none delivered after unsubscribe or closing the port,
+* handles of subscriptions by name released
+*/
+public final class NotificationTest {
+  private static final long CYCLE = 10;
+  private static final long QUIET = 200; //Milliseconds without any expected delivery
+
+  private NotificationTest() {}
+
+  /**
+  * Listener collecting notified values
+  */
+  private static final class Values implements NotificationListener {
+    final BlockingQueue<byte[]> received = new LinkedBlockingQueue<>();
+    volatile long timeStamp;
+    volatile Thread thread;
+
+    @Override
+    public void onNotification(long timeStamp, byte[] data) {
+      this.timeStamp = timeStamp;
+      this.thread = Thread.currentThread();
+      received.add(data);
+    }
+
+    int next() throws InterruptedException {
+      byte[] data = received.poll(5, TimeUnit.SECONDS);
+      Check.isTrue(data != null, "Notification delivered");
+      return PlcTypes.getDInt(data, 0);
+    }
+
+    /**
+    * Method for checking that nothing is delivered after subscription ended,
+    * notifications in flight when it ended are dropped first
+    */
+    void checkQuiet(String message) throws InterruptedException {
+      Thread.sleep(CYCLE * 5);
+      received.clear();
+      Check.isTrue(received.poll(QUIET, TimeUnit.MILLISECONDS) == null, message);
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    AdsSimulator sim = new AdsSimulator();
+    sim.setCycleTime(CYCLE);
+    sim.addSymbol("MAIN.nValue", "DINT");
+    sim.addSymbol("MAIN.nCount", "DINT");
+    sim.setValue("MAIN.nValue", new byte[] {42, 0, 0, 0});
+    try(AdsManager ads = AdsManager.newInstance(new SimulatorTransport(sim))) {
+      Check.fails(AdsPortClosedException.class, () -> ads.subscribe(AdsSimulator.ADSIGRP_PLC_MEMORY, 0, 4, TransMode.ON_CHANGE,
+                                                                       0, CYCLE, (t, d) -> {}), "Subscribe on closed port");
+      ads.openPort();
+      deliversOnChange(ads, sim);
+      deliversCyclic(ads, sim);
+      unsubscribesBySymbol(ads, sim);
+      failsUnknownSymbol(ads, sim);
+      unsubscribesOnClosePort(ads, sim);
+    } finally {
+      sim.close();
+    }
+  }
+
+  private static void deliversOnChange(AdsManager ads, AdsSimulator sim) throws Exception {
+    Values values = new Values();
+    try(Subscription sub = ads.subscribe(AdsSimulator.ADSIGRP_PLC_MEMORY, sim.getIndexOffset("MAIN.nValue"), 4,
+                                         TransMode.ON_CHANGE, 0, CYCLE, values)) {
+      Check.isTrue(sub.isActive(), "Subscription active");
+      Check.isTrue(sub.getNotificationHandle() != 0, "Notification handle");
+      Check.equal(42, values.next(), "Initial value");
+      Check.equal("ads-notification", values.thread.getName(), "Listener runs on notification thread");
+      long now = (System.currentTimeMillis() + 11644473600000L) * 10000; //100 ns ticks since 1601
+      Check.isTrue(Math.abs(values.timeStamp - now) < TimeUnit.SECONDS.toNanos(5) / 100, "ADS timestamp");
+
+      Check.isTrue(values.received.poll(QUIET, TimeUnit.MILLISECONDS) == null, "Unchanged value not notified");
+      sim.setValue("MAIN.nValue", new byte[] {43, 0, 0, 0});
+      Check.equal(43, values.next(), "Changed value");
+      sim.setValue("MAIN.nValue", new byte[] {44, 0, 0, 0});
+      Check.equal(44, values.next(), "Changed again");
+
+      sub.close();
+      Check.isTrue(!sub.isActive(), "Subscription closed");
+      Check.isTrue(!ads.unsubscribe(sub), "Second unsubscribe");
+      sim.setValue("MAIN.nValue", new byte[] {45, 0, 0, 0});
+      values.checkQuiet("No notification after unsubscribe");
+    }
+  }
+
+  private static void deliversCyclic(AdsManager ads, AdsSimulator sim) throws Exception {
+    Values values = new Values();
+    try(Subscription sub = ads.subscribe(AdsSimulator.ADSIGRP_PLC_MEMORY, sim.getIndexOffset("MAIN.nCount"), 4,
+                                         TransMode.CYCLIC, 0, CYCLE, values)) {
+      for(int i = 0; i < 3; i++)
+        Check.equal(0, values.next(), "Unchanged value notified every cycle");
+      sub.close();
+      values.checkQuiet("No cyclic notification after unsubscribe");
+    }
+  }
+
+  private static void unsubscribesBySymbol(AdsManager ads, AdsSimulator sim) throws Exception {
+    Values values = new Values();
+    int handles = sim.getHandleCount();
+    Subscription sub = ads.subscribeBySymbol("MAIN.nValue", 4, TransMode.ON_CHANGE, 0, CYCLE, values);
+    Check.equal(handles + 1, sim.getHandleCount(), "Own handle of subscription");
+    Check.equal(45, values.next(), "Initial value by name");
+    sim.setValue("MAIN.nValue", new byte[] {46, 0, 0, 0});
+    Check.equal(46, values.next(), "Changed value by name");
+
+    sub.close();
+    Check.isTrue(!sub.isActive(), "Subscription by name closed");
+    Check.equal(handles, sim.getHandleCount(), "Handle of subscription released");
+    sim.setValue("MAIN.nValue", new byte[] {47, 0, 0, 0});
+    values.checkQuiet("No notification by name after unsubscribe");
+  }
+
+  private static void failsUnknownSymbol(AdsManager ads, AdsSimulator sim) {
+    int handles = sim.getHandleCount();
+    AdsException e = Check.fails(AdsException.class, () -> ads.subscribeBySymbol("MAIN.missing", 4, TransMode.ON_CHANGE,
+                                                                                  0, CYCLE, (t, d) -> {}), "Unknown symbol");
+    Check.equal(AdsSimulator.ADSERR_DEVICE_SYMBOLNOTFOUND, e.getErrId(), "Error of unknown symbol");
+    e = Check.fails(AdsException.class, () -> ads.subscribe(AdsSimulator.ADSIGRP_PLC_MEMORY, 0x7FFF_0000L, 4,
+                                                            TransMode.ON_CHANGE, 0, CYCLE, (t, d) -> {}), "Invalid area");
+    Check.equal(AdsSimulator.ADSERR_DEVICE_INVALIDOFFSET, e.getErrId(), "Error of invalid area");
+    Check.equal(handles, sim.getHandleCount(), "No handle left by failed subscriptions");
+  }
+
+  private static void unsubscribesOnClosePort(AdsManager ads, AdsSimulator sim) throws Exception {
+    Values values = new Values(), named = new Values();
+    Subscription sub = ads.subscribe(AdsSimulator.ADSIGRP_PLC_MEMORY, sim.getIndexOffset("MAIN.nValue"), 4,
+                                     TransMode.ON_CHANGE, 0, CYCLE, values);
+    Subscription byName = ads.subscribeBySymbol("MAIN.nValue", 4, TransMode.ON_CHANGE, 0, CYCLE, named);
+    Check.equal(47, values.next(), "Initial value");
+    Check.equal(47, named.next(), "Initial value by name");
+
+    Check.isTrue(ads.closePort(), "Port closed");
+    Check.isTrue(!sub.isActive() && !byName.isActive(), "Subscriptions closed with port");
+    Check.equal(0, sim.getHandleCount(), "Handles released with port");
+    sim.setValue("MAIN.nValue", new byte[] {48, 0, 0, 0});
+    values.checkQuiet("No notification after port closed");
+    named.checkQuiet("No notification by name after port closed");
+  }
+}
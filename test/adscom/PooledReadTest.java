@@ -0,0 +1,76 @@
+package adscom;
+
+import adsexceptions.AdsException;
+import adssim.AdsSimulator;
+import adssim.SimulatorTransport;
+import adstest.Check;
+import adstransport.InstrumentedTransport;
+import java.nio.ByteBuffer;
+
+/**
+* Tests of pooled transfer buffers of typed reads and handle requests: short reads fail
+* with 0x705 and buffers of failed requests are returned to the pool
+*/
+public final class PooledReadTest {
+  private PooledReadTest() {}
+
+  /**
+  * Transport reading fewer bytes than requested
+  */
+  private static final class ShortReadTransport extends InstrumentedTransport {
+    volatile int shortBy; //Bytes missing in responses of reads
+
+    ShortReadTransport(AdsSimulator sim) {
+      super(new SimulatorTransport(sim));
+    }
+
+    @Override
+    public long read(long indexGroup, long indexOffset, ByteBuffer data) {
+      int limit = data.limit();
+      data.limit(limit - shortBy);
+      try {
+        return super.read(indexGroup, indexOffset, data);
+      } finally {
+        data.limit(limit);
+      }
+    }
+  }
+
+  public static void main(String[] args) {
+    AdsSimulator sim = new AdsSimulator();
+    sim.addSymbol("MAIN.nValue", "DINT");
+    sim.setValue("MAIN.nValue", new byte[] {7, 0, 0, 0});
+    ShortReadTransport transport = new ShortReadTransport(sim);
+    try(AdsManager ads = AdsManager.newInstance(transport)) {
+      ads.openPort();
+      failsShortRead(ads, transport);
+      releasesFailedHandleRequest(ads);
+    }
+  }
+
+  private static void failsShortRead(AdsManager ads, ShortReadTransport transport) {
+    long handle = ads.getHandle("MAIN.nValue");
+    Check.equal(7, ads.readDInt(handle), "Value read");
+    Check.equal(7, ads.readDInt("MAIN.nValue"), "Value read by name"); //Handle cached
+    long misses = ads.getBufferPoolStats().get("misses");
+
+    transport.shortBy = 1;
+    AdsException e = Check.fails(AdsException.class, () -> ads.readDInt(handle), "Short read by handle");
+    Check.equal(0x705, e.getErrId(), "Short read error");
+    e = Check.fails(AdsException.class, () -> ads.readDInt("MAIN.nValue"), "Short read by name");
+    Check.equal(0x705, e.getErrId(), "Short read error");
+    transport.shortBy = 0;
+
+    Check.equal(7, ads.readDInt(handle), "Value read after short read");
+    Check.equal(misses, ads.getBufferPoolStats().get("misses"), "Buffers of short reads returned to pool");
+  }
+
+  private static void releasesFailedHandleRequest(AdsManager ads) {
+    ads.releaseHandle(ads.getHandle("MAIN.nValue"));
+    long misses = ads.getBufferPoolStats().get("misses");
+    AdsException e = Check.fails(AdsException.class, () -> ads.getHandle("MAIN.missing"), "Handle of missing symbol");
+    Check.equal(AdsSimulator.ADSERR_DEVICE_SYMBOLNOTFOUND, e.getErrId(), "Missing symbol error");
+    ads.releaseHandle(ads.getHandle("MAIN.nValue"));
+    Check.equal(misses, ads.getBufferPoolStats().get("misses"), "Buffer of failed handle request returned to pool");
+  }
+}
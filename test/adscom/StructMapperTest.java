@@ -0,0 +1,136 @@
+package adscom;
+
+import adssim.AdsSimulator;
+import adssim.SimulatorTransport;
+import adstest.Check;
+import java.lang.invoke.MethodHandles;
+
+/**
+* Tests of StructMapper: records and classes mapped by uploaded data types or by
+* annotations, nested structures, array length checks and writes of partial mappings
+*/
+public final class StructMapperTest {
+  private StructMapperTest() {}
+
+  record Limits(double fMin, double fMax) {}
+
+  record Axis(boolean bEnabled, double fPos, String sName, int[] aRaw, Limits stLim) {}
+
+  record Position(double fPos) {}
+
+  @PlcStruct
+  static final class AxisClass {
+    boolean bEnabled;
+    @PlcField("fPos") double position;
+    String sName;
+    int[] aRaw;
+    Limits stLim;
+    transient int ignored;
+  }
+
+  @PlcStruct(size = 24)
+  record Annotated(@PlcField(offset = 0) short nState, @PlcField(offset = 4) float fSpeed,
+                   @PlcField(offset = 8, length = 3) byte[] aFlags, @PlcField(offset = 12, length = 7) String sTag,
+                   @PlcField(offset = 20) Nested stNested) {}
+
+  @PlcStruct(size = 4)
+  record Nested(@PlcField(offset = 2) short nValue) {}
+
+  record WrongType(int fPos) {}
+
+  record NoOffset(short nState) {}
+
+  public static void main(String[] args) {
+    AdsSimulator sim = new AdsSimulator();
+    sim.addStructType("ST_Limits", "fMin : LREAL", "fMax : LREAL");
+    sim.addStructType("ST_Axis", "bEnabled : BOOL", "fPos : LREAL", "sName : STRING(20)",
+                      "aRaw : ARRAY [1..3] OF DINT", "stLim : ST_Limits");
+    sim.addSymbol("MAIN.stAxis", "ST_Axis");
+    try(AdsManager ads = AdsManager.newInstance(new SimulatorTransport(sim))) {
+      ads.openPort();
+      StructCodec codec = ads.uploadDataTypes().getCodec("ST_Axis");
+      mapsRecord(ads, codec);
+      mapsClass(ads, codec);
+      keepsFieldsNotMapped(ads, codec);
+      refusesMismatch(codec);
+    }
+    mapsAnnotatedLayout();
+  }
+
+  private static void mapsRecord(AdsManager ads, StructCodec codec) {
+    StructMapper<Axis> mapper = StructMapper.of(MethodHandles.lookup(), Axis.class, codec);
+    Check.isTrue(mapper.isComplete(), "Every field mapped");
+    Check.equal(codec.getSize(), mapper.getSize(), "Size of the PLC type");
+
+    Axis axis = new Axis(true, 12.5, "x axis", new int[] {1, 2, 3}, new Limits(-1, 99));
+    Check.isTrue(ads.writeStruct("MAIN.stAxis", mapper, axis), "Record written");
+    Axis read = ads.readStruct("MAIN.stAxis", mapper);
+    Check.isTrue(read.bEnabled(), "BOOL field");
+    Check.equal(12.5, read.fPos(), "LREAL field");
+    Check.equal("x axis", read.sName(), "STRING field");
+    Check.equal(new int[] {1, 2, 3}, read.aRaw(), "ARRAY field");
+    Check.equal(new Limits(-1, 99), read.stLim(), "Nested record");
+  }
+
+  private static void mapsClass(AdsManager ads, StructCodec codec) {
+    StructMapper<AxisClass> mapper = StructMapper.of(MethodHandles.lookup(), AxisClass.class, codec);
+    AxisClass axis = ads.readStruct("MAIN.stAxis", mapper);
+    Check.equal(12.5, axis.position, "Field renamed by PlcField");
+    Check.equal("x axis", axis.sName, "STRING field");
+    Check.equal(new Limits(-1, 99), axis.stLim, "Nested record");
+
+    axis.position = -3;
+    axis.aRaw = new int[] {4, 5};
+    Check.isTrue(ads.writeStruct("MAIN.stAxis", mapper, axis), "Class written");
+    Axis read = ads.readStruct("MAIN.stAxis", StructMapper.of(MethodHandles.lookup(), Axis.class, codec));
+    Check.equal(-3.0, read.fPos(), "Written field");
+    Check.equal(new int[] {4, 5, 0}, read.aRaw(), "Shorter array padded with zeros");
+
+    axis.aRaw = new int[4];
+    Check.fails(IllegalArgumentException.class, () -> ads.writeStruct("MAIN.stAxis", mapper, axis),
+                "Array longer than PLC field");
+  }
+
+  private static void keepsFieldsNotMapped(AdsManager ads, StructCodec codec) {
+    StructMapper<Position> mapper = StructMapper.of(MethodHandles.lookup(), Position.class, codec);
+    Check.isTrue(!mapper.isComplete(), "Partial mapping");
+    Check.isTrue(ads.writeStruct("MAIN.stAxis", mapper, new Position(7.25)), "Partial record written");
+
+    Axis read = ads.readStruct("MAIN.stAxis", StructMapper.of(MethodHandles.lookup(), Axis.class, codec));
+    Check.equal(7.25, read.fPos(), "Mapped field written");
+    Check.equal("x axis", read.sName(), "Field not mapped kept");
+    Check.equal(new Limits(-1, 99), read.stLim(), "Nested structure not mapped kept");
+  }
+
+  private static void refusesMismatch(StructCodec codec) {
+    Check.fails(IllegalArgumentException.class, () -> StructMapper.of(MethodHandles.lookup(), WrongType.class, codec),
+                "Java type not matching PLC type");
+    Check.fails(IllegalArgumentException.class, () -> StructMapper.of(MethodHandles.lookup(), Nested.class, codec),
+                "Field missing in PLC type");
+    Check.fails(IllegalArgumentException.class, () -> StructMapper.of(MethodHandles.lookup(), NoOffset.class),
+                "Annotation layout without offset");
+  }
+
+  private static void mapsAnnotatedLayout() {
+    StructMapper<Annotated> mapper = StructMapper.of(MethodHandles.lookup(), Annotated.class);
+    Check.equal(24, mapper.getSize(), "Size of PlcStruct");
+    Check.isTrue(!mapper.isComplete(), "Annotation layout never complete");
+
+    byte[] data = new byte[26];
+    java.util.Arrays.fill(data, (byte)0x55);
+    mapper.encode(new Annotated((short)-2, 1.5f, new byte[] {1, 2}, "tag", new Nested((short)300)), data, 2);
+    Check.equal(-2, PlcTypes.getInt(data, 2), "INT at offset 0");
+    Check.equal(1.5f, PlcTypes.getReal(data, 6), "REAL at offset 4");
+    Check.equal(0x55, data[4], "Gap between fields left unchanged");
+    Check.equal(300, PlcTypes.getInt(data, 24), "Nested field at offset 20 + 2");
+
+    Annotated read = mapper.decode(data, 2);
+    Check.equal(new byte[] {1, 2, 0x55}, read.aFlags(), "Array of annotated length");
+    Check.equal("tag", read.sTag(), "STRING of annotated length");
+    Check.equal(new Nested((short)300), read.stNested(), "Nested record");
+    Check.fails(IllegalArgumentException.class,
+                () -> mapper.encode(new Annotated((short)0, 0, new byte[4], "", new Nested((short)0)), data, 0),
+                "Array longer than annotated length");
+    Check.fails(IndexOutOfBoundsException.class, () -> mapper.decode(data, 3), "Structure exceeding data");
+  }
+}
@@ -0,0 +1,96 @@
+package adscom;
+
+import adstest.Check;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+* Tests of SymbolHandleCache: LRU eviction, pinning and handing handles back exactly once
+*/
+public final class SymbolHandleCacheTest {
+  private SymbolHandleCacheTest() {}
+
+  public static void main(String[] args) {
+    evictsLeastRecentlyUsed();
+    handsBackPinnedHandleOnUnpin();
+    keepsFirstHandleOfVariable();
+    removesOnlyStaleEntry();
+    dropsPinnedHandlesOnClear();
+    refusesInvalidCapacity();
+  }
+
+  private static void evictsLeastRecentlyUsed() {
+    SymbolHandleCache cache = new SymbolHandleCache(2);
+    List<SymbolHandleCache.Entry> released = new ArrayList<>();
+    SymbolHandleCache.Entry a = cache.add(entry("A", 1), released);
+    SymbolHandleCache.Entry b = cache.add(entry("B", 2), released);
+    cache.unpin(a);
+    cache.unpin(b);
+    cache.unpin(cache.acquire("A")); //A is now the most recently used
+
+    SymbolHandleCache.Entry c = cache.add(entry("C", 3), released);
+    cache.unpin(c);
+    Check.equal(1, released.size(), "Evicted handles");
+    Check.isTrue(released.get(0) == b, "Least recently used handle evicted");
+    Check.isTrue(cache.acquire("B") == null, "Evicted variable not cached");
+    Check.equal(2, (long)cache.stats().get("size"), "Cache size");
+    Check.equal(1, (long)cache.stats().get("hits"), "Cache hits");
+    Check.equal(1, (long)cache.stats().get("misses"), "Cache misses");
+  }
+
+  private static void handsBackPinnedHandleOnUnpin() {
+    SymbolHandleCache cache = new SymbolHandleCache(1);
+    List<SymbolHandleCache.Entry> released = new ArrayList<>();
+    SymbolHandleCache.Entry a = cache.add(entry("A", 1), released);
+    cache.unpin(cache.add(entry("B", 2), released));
+    Check.isTrue(released.isEmpty(), "Pinned handle not handed back on eviction");
+    Check.isTrue(cache.unpin(a), "Evicted handle handed back on unpin");
+    Check.isTrue(!cache.pin(a), "Handed back entry cannot be pinned");
+  }
+
+  private static void keepsFirstHandleOfVariable() {
+    SymbolHandleCache cache = new SymbolHandleCache(4);
+    List<SymbolHandleCache.Entry> released = new ArrayList<>();
+    SymbolHandleCache.Entry first = cache.add(entry("A", 1), released);
+    SymbolHandleCache.Entry second = entry("A", 2);
+    Check.isTrue(cache.add(second, released) == first, "Cached handle kept");
+    Check.equal(List.of(second), released, "Duplicate handle handed back");
+    Check.isTrue(!cache.unpin(first), "Cached handle still in use");
+    Check.isTrue(!cache.unpin(first), "Cached handle not handed back");
+  }
+
+  private static void removesOnlyStaleEntry() {
+    SymbolHandleCache cache = new SymbolHandleCache(4);
+    List<SymbolHandleCache.Entry> released = new ArrayList<>();
+    SymbolHandleCache.Entry stale = cache.add(entry("A", 1), released);
+    Check.isTrue(!cache.remove(stale), "Pinned stale handle kept until unpinned");
+    Check.isTrue(cache.unpin(stale), "Stale handle handed back on unpin");
+
+    SymbolHandleCache.Entry fresh = cache.add(entry("A", 2), released);
+    cache.unpin(fresh);
+    Check.isTrue(!cache.remove(stale), "Stale handle handed back only once");
+    Check.isTrue(cache.acquire("A") == fresh, "Newer handle left in cache");
+    cache.unpin(fresh);
+    Check.isTrue(cache.remove("A") == fresh, "Removed by name");
+    Check.isTrue(cache.remove("A") == null, "Removed only once");
+  }
+
+  private static void dropsPinnedHandlesOnClear() {
+    SymbolHandleCache cache = new SymbolHandleCache(4);
+    List<SymbolHandleCache.Entry> released = new ArrayList<>();
+    SymbolHandleCache.Entry pinned = cache.add(entry("A", 1), released);
+    SymbolHandleCache.Entry idle = cache.add(entry("B", 2), released);
+    cache.unpin(idle);
+    Check.equal(List.of(idle), cache.clear(true), "Idle handles handed back on clear");
+    Check.isTrue(!cache.unpin(pinned), "Dropped handle never handed back");
+    Check.equal(0, (long)cache.stats().get("size"), "Cache size after clear");
+  }
+
+  private static void refusesInvalidCapacity() {
+    Check.fails(IllegalArgumentException.class, () -> new SymbolHandleCache(0), "Zero capacity");
+  }
+
+  private static SymbolHandleCache.Entry entry(String varName, long handle) {
+    return new SymbolHandleCache.Entry(varName, varName.getBytes(), handle);
+  }
+}
@@ -0,0 +1,80 @@
+package adscom;
+
+import adssim.AdsSimulator;
+import adstest.Check;
+
+/**
+* Tests of SymbolTable: parsing of AdsSymbolEntry records and lookup by name
+*/
+public final class SymbolTableTest {
+  private SymbolTableTest() {}
+
+  public static void main(String[] args) {
+    parsesEntries();
+    findsEverySymbol();
+    stopsAtReportedCount();
+    refusesMalformedEntry();
+  }
+
+  private static void parsesEntries() {
+    AdsSimulator sim = new AdsSimulator();
+    sim.addSymbol("MAIN.nCounter", "DINT");
+    sim.addSymbol("GVL.aValues", "ARRAY [1..10] OF REAL");
+    sim.addSymbol("MAIN.sText", "STRING(20)");
+    SymbolTable table = parse(sim, 7);
+
+    Check.equal(3, table.size(), "Symbol count");
+    Check.equal(7, table.getVersion(), "Symbol version");
+    int sym = table.indexOf("gvl.AVALUES");
+    Check.equal("GVL.aValues", table.getName(sym), "Name found case-insensitively");
+    Check.equal(AdsSimulator.ADSIGRP_PLC_MEMORY, table.getIndexGroup(sym), "Index group");
+    Check.equal(sim.getIndexOffset("GVL.aValues"), table.getIndexOffset(sym), "Index offset");
+    Check.equal(40, table.getSize(sym), "Size");
+    Check.equal("ARRAY [1..10] OF REAL", table.getType(sym), "Type");
+    Check.equal("STRING(20)", table.getType(table.indexOf("MAIN.sText")), "Type of string");
+    Check.equal(-1, table.indexOf("MAIN.nCount"), "Unknown symbol");
+    Check.equal(-1, table.indexOf("MAIN.nCounter\u20AC"), "Name outside ISO-8859-1");
+    Check.isTrue(!table.contains(""), "Empty name");
+  }
+
+  private static void findsEverySymbol() {
+    AdsSimulator sim = new AdsSimulator();
+    for(int i = 0; i < 5000; i++)
+      sim.addSymbol("GVL.nValue" + i, "INT");
+    SymbolTable table = parse(sim, 1);
+
+    Check.equal(5000, table.size(), "Symbol count");
+    for(int i = 0; i < 5000; i++) {
+      int sym = table.indexOf("gvl.nvalue" + i);
+      Check.isTrue(sym >= 0, "Symbol " + i + " found");
+      Check.equal("GVL.nValue" + i, table.getName(sym), "Name of symbol " + i);
+      Check.equal(sim.getIndexOffset("GVL.nValue" + i), table.getIndexOffset(sym), "Offset of symbol " + i);
+    }
+  }
+
+  private static void stopsAtReportedCount() {
+    AdsSimulator sim = new AdsSimulator();
+    sim.addSymbol("MAIN.a", "BOOL").addSymbol("MAIN.b", "BOOL");
+    byte[] data = Uploads.read(sim, AdsSimulator.ADSIGRP_SYM_UPLOAD);
+    SymbolTable table = SymbolTable.parse(data, data.length, 1, 1);
+    Check.equal(1, table.size(), "Symbols parsed up to reported count");
+    Check.isTrue(!table.contains("MAIN.b"), "Symbol past count skipped");
+  }
+
+  private static void refusesMalformedEntry() {
+    AdsSimulator sim = new AdsSimulator();
+    sim.addSymbol("MAIN.nCounter", "DINT");
+    byte[] data = Uploads.read(sim, AdsSimulator.ADSIGRP_SYM_UPLOAD);
+    Check.fails(IllegalArgumentException.class, () -> SymbolTable.parse(data, data.length - 1, 1, 1),
+                "Truncated entry");
+    byte[] shortEntry = data.clone();
+    PlcTypes.putDInt(shortEntry, 0, SymbolTable.ENTRY_HEADER);
+    Check.fails(IllegalArgumentException.class, () -> SymbolTable.parse(shortEntry, shortEntry.length, 1, 1),
+                "Entry shorter than its names");
+  }
+
+  private static SymbolTable parse(AdsSimulator sim, int version) {
+    byte[] data = Uploads.read(sim, AdsSimulator.ADSIGRP_SYM_UPLOAD);
+    return SymbolTable.parse(data, data.length, Uploads.info(sim)[Uploads.SYMBOLS], version);
+  }
+}
@@ -0,0 +1,144 @@
+package adscom;
+
+import adsexceptions.AdsException;
+import adssim.AdsSimulator;
+import adssim.SimulatorTransport;
+import adstest.Check;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+* Tests of typed accessors of AdsManager: values of every elementary type and array written
+* and read back by handle and by name with extreme values, bytes laid out little endian,
+* sizes checked and scalar reads allocating nothing after warm-up
+*/
+public final class TypedAccessTest {
+  private static final int WARM_UP = 50000;
+  private static final int CALLS = 10000;
+  private static final long BUDGET = CALLS / 10; //Allowed bytes of all calls - one object per call exceeds it
+
+  private TypedAccessTest() {}
+
+  public static void main(String[] args) throws Exception {
+    AdsSimulator sim = new AdsSimulator();
+    for(String type : new String[] {"BOOL", "BYTE", "INT", "DINT", "LINT", "REAL", "LREAL"})
+      sim.addSymbol("MAIN.v" + type, type);
+    sim.addSymbol("MAIN.aValues", 64);
+    try(AdsManager ads = AdsManager.newInstance(new SimulatorTransport(sim))) {
+      ads.openPort();
+      roundTripsScalars(ads, sim);
+      roundTripsArrays(ads, sim);
+      checksSize(ads);
+      allocatesNothing(ads);
+    }
+  }
+
+  private static void roundTripsScalars(AdsManager ads, AdsSimulator sim) {
+    long handle = ads.getHandle("MAIN.vBOOL");
+    Check.isTrue(ads.writeBool(handle, true) && ads.readBool(handle), "BOOL by handle");
+    Check.isTrue(ads.writeBool("MAIN.vBOOL", false) && !ads.readBool("MAIN.vBOOL"), "BOOL by name");
+    sim.setValue("MAIN.vBOOL", new byte[] {2});
+    Check.isTrue(ads.readBool("MAIN.vBOOL"), "BOOL of any non-zero byte");
+    ads.releaseHandle(handle);
+
+    handle = ads.getHandle("MAIN.vBYTE");
+    Check.isTrue(ads.writeByte(handle, (byte)-128), "BYTE written");
+    Check.equal(-128, ads.readByte(handle), "BYTE by handle");
+    Check.isTrue(ads.writeByte("MAIN.vBYTE", (byte)0x7F), "BYTE written by name");
+    Check.equal(0x7F, ads.readByte("MAIN.vBYTE"), "BYTE by name");
+    ads.releaseHandle(handle);
+
+    handle = ads.getHandle("MAIN.vINT");
+    Check.isTrue(ads.writeInt(handle, (short)-2), "INT written");
+    Check.equal(-2, ads.readInt(handle), "INT by handle");
+    Check.isTrue(ads.writeInt("MAIN.vINT", (short)0x1234), "INT written by name");
+    Check.equal(0x1234, ads.readInt("MAIN.vINT"), "INT by name");
+    Check.isTrue(Arrays.equals(new byte[] {0x34, 0x12}, sim.getValue("MAIN.vINT")), "INT little endian");
+    ads.releaseHandle(handle);
+
+    handle = ads.getHandle("MAIN.vDINT");
+    Check.isTrue(ads.writeDInt(handle, Integer.MIN_VALUE), "DINT written");
+    Check.equal(Integer.MIN_VALUE, ads.readDInt(handle), "DINT by handle");
+    Check.isTrue(ads.writeDInt("MAIN.vDINT", 0x12345678), "DINT written by name");
+    Check.equal(0x12345678, ads.readDInt("MAIN.vDINT"), "DINT by name");
+    Check.isTrue(Arrays.equals(new byte[] {0x78, 0x56, 0x34, 0x12}, sim.getValue("MAIN.vDINT")), "DINT little endian");
+    ads.releaseHandle(handle);
+
+    handle = ads.getHandle("MAIN.vLINT");
+    Check.isTrue(ads.writeLInt(handle, Long.MIN_VALUE + 1), "LINT written");
+    Check.equal(Long.MIN_VALUE + 1, ads.readLInt(handle), "LINT by handle");
+    Check.isTrue(ads.writeLInt("MAIN.vLINT", 0x0102030405060708L), "LINT written by name");
+    Check.equal(0x0102030405060708L, ads.readLInt("MAIN.vLINT"), "LINT by name");
+    Check.isTrue(Arrays.equals(new byte[] {8, 7, 6, 5, 4, 3, 2, 1}, sim.getValue("MAIN.vLINT")), "LINT little endian");
+    ads.releaseHandle(handle);
+
+    handle = ads.getHandle("MAIN.vREAL");
+    Check.isTrue(ads.writeReal(handle, -1.5f), "REAL written");
+    Check.isTrue(ads.readReal(handle) == -1.5f, "REAL by handle");
+    Check.isTrue(ads.writeReal("MAIN.vREAL", Float.MIN_VALUE), "REAL written by name");
+    Check.isTrue(ads.readReal("MAIN.vREAL") == Float.MIN_VALUE, "REAL by name");
+    ads.writeReal(handle, Float.NaN);
+    Check.isTrue(Float.isNaN(ads.readReal(handle)), "REAL NaN");
+    ads.releaseHandle(handle);
+
+    handle = ads.getHandle("MAIN.vLREAL");
+    Check.isTrue(ads.writeLReal(handle, -Double.MAX_VALUE), "LREAL written");
+    Check.isTrue(ads.readLReal(handle) == -Double.MAX_VALUE, "LREAL by handle");
+    Check.isTrue(ads.writeLReal("MAIN.vLREAL", 1.0 / 3), "LREAL written by name");
+    Check.isTrue(ads.readLReal("MAIN.vLREAL") == 1.0 / 3, "LREAL by name");
+    Check.equal(Double.doubleToRawLongBits(1.0 / 3), PlcTypes.getLInt(sim.getValue("MAIN.vLREAL"), 0), "LREAL bits");
+    ads.releaseHandle(handle);
+  }
+
+  private static void roundTripsArrays(AdsManager ads, AdsSimulator sim) {
+    long handle = ads.getHandle("MAIN.aValues");
+    boolean[] bools = {true, false, true};
+    Check.isTrue(ads.writeBoolArray(handle, bools), "ARRAY OF BOOL written");
+    Check.isTrue(Arrays.equals(bools, ads.readBoolArray("MAIN.aValues", 3)), "ARRAY OF BOOL");
+    short[] ints = {-1, 2, Short.MAX_VALUE};
+    Check.isTrue(ads.writeIntArray("MAIN.aValues", ints), "ARRAY OF INT written");
+    Check.isTrue(Arrays.equals(ints, ads.readIntArray(handle, 3)), "ARRAY OF INT");
+    int[] dints = {Integer.MIN_VALUE, 0, 7};
+    Check.isTrue(ads.writeDIntArray(handle, dints), "ARRAY OF DINT written");
+    Check.isTrue(Arrays.equals(dints, ads.readDIntArray("MAIN.aValues", 3)), "ARRAY OF DINT");
+    long[] lints = {Long.MAX_VALUE, -3};
+    Check.isTrue(ads.writeLIntArray("MAIN.aValues", lints), "ARRAY OF LINT written");
+    Check.isTrue(Arrays.equals(lints, ads.readLIntArray(handle, 2)), "ARRAY OF LINT");
+    float[] reals = {0.5f, -0f, Float.MAX_VALUE};
+    Check.isTrue(ads.writeRealArray(handle, reals), "ARRAY OF REAL written");
+    Check.isTrue(Arrays.equals(reals, ads.readRealArray("MAIN.aValues", 3)), "ARRAY OF REAL");
+    double[] lreals = {Math.PI, -0.0, Double.MIN_VALUE};
+    Check.isTrue(ads.writeLRealArray("MAIN.aValues", lreals), "ARRAY OF LREAL written");
+    Check.isTrue(Arrays.equals(lreals, ads.readLRealArray(handle, 3)), "ARRAY OF LREAL");
+    Check.equal(0, ads.readDIntArray(handle, 0).length, "Empty array");
+    Check.isTrue(Arrays.equals(Arrays.copyOf(sim.getValue("MAIN.aValues"), 8),
+                               Arrays.copyOf(PlcTypes.encodeLReals(new double[] {Math.PI}), 8)), "Array layout");
+    ads.releaseHandle(handle);
+  }
+
+  private static void checksSize(AdsManager ads) {
+    AdsException e = Check.fails(AdsException.class, () -> ads.readLInt("MAIN.vDINT"), "LINT read of DINT");
+    Check.equal(0x705, e.getErrId(), "Size error of scalar");
+    e = Check.fails(AdsException.class, () -> ads.readDIntArray("MAIN.aValues", 17), "Array read past the variable");
+    Check.equal(0x705, e.getErrId(), "Size error of array");
+  }
+
+  private static void allocatesNothing(AdsManager ads) {
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+    Check.isTrue(threads.isThreadAllocatedMemorySupported(), "Allocated memory measurement supported");
+    threads.setThreadAllocatedMemoryEnabled(true);
+    long handle = ads.getHandle("MAIN.vLREAL");
+    double sum = 0;
+    for(int i = 0; i < WARM_UP; i++)
+      sum += ads.readLReal(handle) + ads.readDInt("MAIN.vDINT");
+
+    long id = Thread.currentThread().getId();
+    long start = threads.getThreadAllocatedBytes(id);
+    for(int i = 0; i < CALLS; i++) //Writes not measured - the simulator copies written buffers
+      sum += ads.readLReal(handle) + ads.readDInt("MAIN.vDINT");
+    long allocated = threads.getThreadAllocatedBytes(id) - start;
+    Check.isTrue(sum != 0, "Values read");
+    Check.isTrue(allocated <= BUDGET, "Typed reads allocated " + allocated + " bytes");
+    ads.releaseHandle(handle);
+  }
+}
@@ -0,0 +1,41 @@
+package adscom;
+
+import adssim.AdsSimulator;
+import adstest.Check;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+* Upload data of the simulator, as AdsManager reads it from a device
+*/
+final class Uploads {
+  static final int SYMBOLS = 0; //Index of symbol count in upload info
+  static final int DATA_TYPES = 2; //Index of data type count in upload info
+
+  private Uploads() {}
+
+  /**
+  * Method for reading upload info (ADSIGRP_SYM_UPLOADINFO2)
+  * @return Symbol count, symbol upload size, data type count and data type upload size
+  * @param sim Simulator
+  */
+  static int[] info(AdsSimulator sim) {
+    ByteBuffer info = ByteBuffer.allocate(24).order(ByteOrder.LITTLE_ENDIAN);
+    Check.equal(0L, sim.read(AdsSimulator.ADSIGRP_SYM_UPLOADINFO2, 0, info), "Upload info error");
+    return new int[] {info.getInt(0), info.getInt(4), info.getInt(8), info.getInt(12)};
+  }
+
+  /**
+  * Method for reading upload data
+  * @return Upload data
+  * @param sim Simulator
+  * @param indexGroup ADSIGRP_SYM_UPLOAD or ADSIGRP_SYM_DT_UPLOAD
+  */
+  static byte[] read(AdsSimulator sim, long indexGroup) {
+    int[] info = info(sim);
+    int size = (indexGroup == AdsSimulator.ADSIGRP_SYM_UPLOAD) ? info[1] : info[3];
+    ByteBuffer data = ByteBuffer.allocate(size);
+    Check.equal(0L, sim.read(indexGroup, 0, data), "Upload error");
+    return data.array();
+  }
+}
@@ -0,0 +1,111 @@
+package adsgen;
+
+import adscom.AdsManager;
+import adssim.AdsSimulator;
+import adssim.SimulatorTransport;
+import adstest.Check;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/**
+* Tests of TmcGenerator on test/adsgen/Sample.tmc: emitted sources are checked, compiled
+* and run against the simulator, writes of structures with skipped sub items keep them
+*/
+public final class TmcGeneratorTest {
+  private static final Path SAMPLE = Path.of("test", "adsgen", "Sample.tmc");
+
+  private TmcGeneratorTest() {}
+
+  public static void main(String[] args) throws Exception {
+    TmcGenerator generator = new TmcGenerator(SAMPLE, "plc");
+    Map<String, String> sources = generator.generate();
+    Check.equal(List.of("Skipped ST_Flags.nMode - not on a byte boundary"), generator.getWarnings(), "Warnings");
+    checksSources(sources);
+    Path dir = Files.createTempDirectory("tmcgen");
+    try {
+      compile(sources, dir);
+      try(URLClassLoader loader = new URLClassLoader(new URL[] {dir.toUri().toURL()}, TmcGeneratorTest.class.getClassLoader())) {
+        runsAccessors(loader);
+      }
+    } finally {
+      try(Stream<Path> files = Files.walk(dir)) {
+        for(Path file : (Iterable<Path>)files.sorted(Comparator.reverseOrder())::iterator) Files.delete(file);
+      }
+    }
+  }
+
+  private static void checksSources(Map<String, String> sources) {
+    Check.isTrue(sources.keySet().containsAll(List.of("PlcSymbols", "ST_Axis", "ST_Limits", "ST_Flags", "ST_Station")), "Generated units");
+    String symbols = sources.get("PlcSymbols");
+    Check.isTrue(symbols.contains("byte[] data = new byte[MAIN_stAxis_SIZE];"), "Complete structure written from zero");
+    Check.isTrue(symbols.contains("byte[] data = manager.readBySymbol(MAIN_stFlags, MAIN_stFlags_SIZE);\n    value.encode(data, 0);"),
+                 "Partial structure read first");
+    Check.isTrue(symbols.contains("byte[] data = manager.readBySymbol(MAIN_stStation, MAIN_stStation_SIZE);"),
+                 "Structure with partial nested structure read first");
+    Check.isTrue(!sources.get("ST_Flags").contains("nMode"), "Skipped sub item not in record");
+    Check.isTrue(sources.get("ST_Flags").contains("encode() leaves their bytes as they are"), "Partial record documented");
+  }
+
+  private static void compile(Map<String, String> sources, Path dir) throws IOException {
+    List<String> options = new ArrayList<>(List.of("-d", dir.toString(), "-cp", System.getProperty("java.class.path")));
+    for(Map.Entry<String, String> e : sources.entrySet()) {
+      Path file = dir.resolve(e.getKey() + ".java");
+      Files.writeString(file, e.getValue());
+      options.add(file.toString());
+    }
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    Check.isTrue(compiler != null, "Java compiler available");
+    Check.equal(0, compiler.run(null, null, null, options.toArray(new String[0])), "Generated sources compile");
+  }
+
+  private static void runsAccessors(ClassLoader loader) throws Exception {
+    AdsSimulator sim = new AdsSimulator();
+    sim.addStructType("ST_Limits", "fMin : LREAL", "fMax : LREAL");
+    sim.addStructType("ST_Axis", "bEnabled : BOOL", "nState : INT", "fPos : LREAL", "sName : STRING(15)", "stLim : ST_Limits");
+    sim.addSymbol("MAIN.stAxis", "ST_Axis");
+    sim.addSymbol("MAIN.stFlags", 8);
+    sim.addSymbol("MAIN.stStation", 16);
+    sim.setValue("MAIN.stFlags", new byte[] {0x1D, 0, 0, 0, 0, 0, 0, 0});
+    sim.setValue("MAIN.stStation", new byte[] {0, 0, 0, 0, 0, 0, 0, 0, 0x1C, 0, 0, 0, 0, 0, 0, 0});
+    try(AdsManager ads = AdsManager.newInstance(new SimulatorTransport(sim))) {
+      ads.openPort();
+      Class<?> symbolsClass = loader.loadClass("plc.PlcSymbols");
+      Object symbols = symbolsClass.getConstructor(AdsManager.class).newInstance(ads);
+
+      Object limits = create(loader, "plc.ST_Limits", -1.5, 2.5);
+      Object axis = create(loader, "plc.ST_Axis", true, (short)3, 12.25, "x axis", limits);
+      Check.isTrue((Boolean)symbolsClass.getMethod("writeMAIN_stAxis", axis.getClass()).invoke(symbols, axis), "Axis written");
+      Check.equal(axis, symbolsClass.getMethod("readMAIN_stAxis").invoke(symbols), "Axis read back");
+
+      //bRun and bErr are bits 0 and 1, skipped nMode holds bits 2..9
+      Object flags = create(loader, "plc.ST_Flags", false, true, 7);
+      Check.isTrue((Boolean)symbolsClass.getMethod("writeMAIN_stFlags", flags.getClass()).invoke(symbols, flags), "Flags written");
+      byte[] raw = sim.getValue("MAIN.stFlags");
+      Check.equal(0x1E, raw[0], "Skipped bits kept");
+      Check.equal(7, raw[4], "Count written");
+      Check.equal(flags, symbolsClass.getMethod("readMAIN_stFlags").invoke(symbols), "Flags read back");
+
+      Object station = create(loader, "plc.ST_Station", 42, create(loader, "plc.ST_Flags", true, false, 1));
+      symbolsClass.getMethod("writeMAIN_stStation", station.getClass()).invoke(symbols, station);
+      raw = sim.getValue("MAIN.stStation");
+      Check.equal(42, raw[0], "Station id written");
+      Check.equal(0x1D, raw[8], "Skipped bits of nested structure kept");
+    }
+  }
+
+  private static Object create(ClassLoader loader, String name, Object... values) throws Exception {
+    Constructor<?> ctor = loader.loadClass(name).getDeclaredConstructors()[0];
+    return ctor.newInstance(values);
+  }
+}
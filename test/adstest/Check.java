@@ -0,0 +1,75 @@
+package adstest;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+* Assertions of the plain unit tests. A failed check throws AssertionError,
+* which ends the test class and is reported by RunTests
+*/
+public final class Check {
+  private Check() {}
+
+  /**
+  * Method for checking condition
+  * @param condition Condition expected to hold
+  * @param message Description of the check
+  */
+  public static void isTrue(boolean condition, String message) {
+    if(!condition) throw new AssertionError(message);
+  }
+
+  /**
+  * Method for checking numeric value
+  * @param expected Expected value
+  * @param actual Actual value
+  * @param message Description of the check
+  */
+  public static void equal(long expected, long actual, String message) {
+    if(expected != actual) throw new AssertionError(message + ": expected " + expected + ", got " + actual);
+  }
+
+  /**
+  * Method for checking boxed numeric value, e.g. result of a future or statistics
+  * @param expected Expected value
+  * @param actual Actual value
+  * @param message Description of the check
+  */
+  public static void equal(long expected, Long actual, String message) {
+    if(actual == null || expected != actual)
+      throw new AssertionError(message + ": expected " + expected + ", got " + actual);
+  }
+
+  /**
+  * Method for checking value, arrays are compared by content
+  * @param expected Expected value
+  * @param actual Actual value
+  * @param message Description of the check
+  */
+  public static void equal(Object expected, Object actual, String message) {
+    if(!Objects.deepEquals(expected, actual))
+      throw new AssertionError(message + ": expected " + text(expected) + ", got " + text(actual));
+  }
+
+  /**
+  * Method for checking that code throws
+  * @return Thrown exception
+  * @param type Expected exception type
+  * @param code Code expected to throw
+  * @param message Description of the check
+  */
+  public static <T extends Throwable> T fails(Class<T> type, Runnable code, String message) {
+    try {
+      code.run();
+    } catch(Throwable e) {
+      if(type.isInstance(e)) return type.cast(e);
+      throw new AssertionError(message + ": expected " + type.getSimpleName() + ", got " + e, e);
+    }
+    throw new AssertionError(message + ": expected " + type.getSimpleName());
+  }
+
+  private static String text(Object value) {
+    String text = Arrays.deepToString(new Object[] {value}); //Formats arrays by content
+    return text.substring(1, text.length() - 1);
+  }
+}
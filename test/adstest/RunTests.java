@@ -0,0 +1,52 @@
+package adstest;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+* Runner of the plain unit tests. Every test class has main method running its
+* checks and throwing on the first failed one. Without arguments all tests are run,
+* otherwise only the named ones, e.g.: RunTests adscom.SymbolTableTest
+* Exit status is 1 if any test failed.
+*/
+public final class RunTests {
+  private static final String[] TESTS = {
+    "adscom.SymbolHandleCacheTest",
+    "adscom.AllocationTest",
+    "adstransport.SumCommandTest",
+    "adstransport.AmsPacketTest",
+    "adscom.SymbolTableTest",
+    "adscom.DataTypeTest",
+    "adstransport.SingleOwnerTransportTest",
+    "adscom.StructMapperTest",
+    "adsgen.TmcGeneratorTest",
+    "adscom.PooledReadTest",
+    "adstransport.HandoffTransportTest",
+    "adscom.AsyncTest",
+    "adstransport.AmsTcpTransportTest",
+    "adscom.AdsConnectionManagerTest",
+    "adscom.NotificationTest",
+    "adscom.TypedAccessTest"
+  };
+
+  private RunTests() {}
+
+  public static void main(String[] args) {
+    String[] tests = (args.length > 0) ? args : TESTS;
+    int failed = 0;
+    for(String test : tests) {
+      try {
+        Class.forName(test).getMethod("main", String[].class).invoke(null, (Object)new String[0]);
+        System.out.println("PASS " + test);
+      } catch(InvocationTargetException e) {
+        failed++;
+        System.out.println("FAIL " + test);
+        e.getCause().printStackTrace(System.out);
+      } catch(ReflectiveOperationException e) {
+        failed++;
+        System.out.println("FAIL " + test + " - " + e);
+      }
+    }
+    System.out.println((tests.length - failed) + " of " + tests.length + " tests passed");
+    if(failed > 0) System.exit(1);
+  }
+}
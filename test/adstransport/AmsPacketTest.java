@@ -0,0 +1,64 @@
+package adstransport;
+
+import adstest.Check;
+import java.nio.ByteBuffer;
+
+/**
+* Tests of AmsPacket: AMS net IDs and AMS/TCP frame header layout
+*/
+public final class AmsPacketTest {
+  private AmsPacketTest() {}
+
+  public static void main(String[] args) {
+    parsesNetId();
+    writesHeader();
+    updatesDataLength();
+  }
+
+  private static void parsesNetId() {
+    byte[] netId = AmsPacket.parseNetId(" 5.16.32.255.1.1 ");
+    Check.equal(new byte[] {5, 16, 32, (byte)255, 1, 1}, netId, "Parsed net ID");
+    Check.equal("5.16.32.255.1.1", AmsPacket.formatNetId(netId), "Formatted net ID");
+    Check.fails(IllegalArgumentException.class, () -> AmsPacket.parseNetId("5.16.32.64.1"), "Too few parts");
+    Check.fails(IllegalArgumentException.class, () -> AmsPacket.parseNetId("5.16.32.64.1.256"), "Part over 255");
+    Check.fails(IllegalArgumentException.class, () -> AmsPacket.parseNetId("5.16.x.64.1.1"), "Part not a number");
+  }
+
+  private static void writesHeader() {
+    byte[] target = AmsPacket.parseNetId("5.16.32.64.1.1");
+    byte[] source = AmsPacket.parseNetId("192.168.0.10.1.1");
+    ByteBuffer frame = AmsPacket.allocate(AmsPacket.HEADER_SIZE + 12);
+    AmsPacket.putHeader(frame, target, 851, source, 32905, AmsPacket.CMD_READ, AmsPacket.STATE_REQUEST,
+                        12, 0, 0x12345678);
+
+    Check.equal(AmsPacket.HEADER_SIZE, frame.position(), "Positioned at ADS data");
+    Check.equal(0, frame.getShort(0), "Reserved AMS/TCP field");
+    Check.equal(AmsPacket.AMS_HEADER_SIZE + 12, AmsPacket.length(frame), "Frame length");
+    Check.equal(target, AmsPacket.netId(frame, false), "Target net ID");
+    Check.equal(source, AmsPacket.netId(frame, true), "Source net ID");
+    Check.equal(851, AmsPacket.targetPort(frame), "Target port");
+    Check.equal(32905, AmsPacket.sourcePort(frame), "Source port above 32767");
+    Check.equal(AmsPacket.CMD_READ, AmsPacket.commandId(frame), "Command ID");
+    Check.equal(12, AmsPacket.dataLength(frame), "Data length");
+    Check.equal(0, AmsPacket.errorCode(frame), "Error code");
+    Check.equal(0x12345678, AmsPacket.invokeId(frame), "Invoke ID");
+    Check.isTrue(!AmsPacket.isResponse(frame), "Request");
+    Check.equal(0x78, frame.get(34), "Little-endian invoke ID");
+
+    AmsPacket.putHeader(frame, source, 32905, target, 851, AmsPacket.CMD_READ, AmsPacket.STATE_RESPONSE,
+                        0, 0x745, 1);
+    Check.isTrue(AmsPacket.isResponse(frame), "Response");
+    Check.equal(0x745, AmsPacket.errorCode(frame), "Error code of response");
+  }
+
+  private static void updatesDataLength() {
+    ByteBuffer frame = AmsPacket.allocate(AmsPacket.HEADER_SIZE + 100);
+    AmsPacket.putHeader(frame, new byte[6], 851, new byte[6], 30000, AmsPacket.CMD_WRITE, AmsPacket.STATE_REQUEST,
+                        0, 0, 1);
+    frame.putInt(0x4020).putInt(0).putInt(4).putInt(42);
+    AmsPacket.setDataLength(frame, frame.position() - AmsPacket.HEADER_SIZE);
+    Check.equal(16, AmsPacket.dataLength(frame), "Data length");
+    Check.equal(AmsPacket.AMS_HEADER_SIZE + 16, AmsPacket.length(frame), "Frame length");
+    Check.equal(AmsPacket.HEADER_SIZE + 16, frame.position(), "Position untouched");
+  }
+}
@@ -0,0 +1,176 @@
+package adstransport;
+
+import adstest.Check;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+* Tests of AmsTcpTransport against a scripted device: responses matched by invoke ID
+* in any order, requests removed on timeout and writes bounded by the timeout
+*/
+public final class AmsTcpTransportTest {
+  private static final String TARGET = "5.16.32.64.1.1";
+  private static final String SOURCE = "192.168.0.10.1.1";
+  private static final long GROUP = 0x4020;
+
+  private AmsTcpTransportTest() {}
+
+  /**
+  * Device answering requests as the test tells it to
+  */
+  private static final class Device implements AutoCloseable {
+    private final ServerSocketChannel server;
+    private SocketChannel client;
+
+    Device() throws IOException {
+      server = ServerSocketChannel.open().bind(new InetSocketAddress("127.0.0.1", 0));
+    }
+
+    int getPort() throws IOException {
+      return ((InetSocketAddress)server.getLocalAddress()).getPort();
+    }
+
+    /**
+    * Method for receiving one request frame, the connection is accepted first
+    * @return Request frame
+    */
+    ByteBuffer receive() throws IOException {
+      if(client == null) client = server.accept();
+      ByteBuffer header = AmsPacket.allocate(AmsPacket.TCP_HEADER_SIZE);
+      fill(header);
+      ByteBuffer frame = AmsPacket.allocate(AmsPacket.TCP_HEADER_SIZE + AmsPacket.length(header));
+      frame.put(header.flip());
+      fill(frame);
+      return frame;
+    }
+
+    /**
+    * Method for answering read request
+    * @param req Request frame
+    * @param commandId Command ID of the response
+    * @param invokeId Invoke ID of the response
+    * @param value DINT value read
+    */
+    void respond(ByteBuffer req, int commandId, int invokeId, int value) throws IOException {
+      ByteBuffer resp = AmsPacket.allocate(AmsPacket.HEADER_SIZE + 12);
+      AmsPacket.putHeader(resp, AmsPacket.netId(req, true), AmsPacket.sourcePort(req), AmsPacket.netId(req, false),
+                          AmsPacket.targetPort(req), commandId, AmsPacket.STATE_RESPONSE, 12, 0, invokeId);
+      resp.putInt(0).putInt(Integer.BYTES).putInt(value).flip();
+      while(resp.hasRemaining())
+        client.write(resp);
+    }
+
+    void respond(ByteBuffer req, int value) throws IOException {
+      respond(req, AmsPacket.CMD_READ, AmsPacket.invokeId(req), value);
+    }
+
+    private void fill(ByteBuffer buff) throws IOException {
+      while(buff.hasRemaining())
+        if(client.read(buff) < 0) throw new EOFException();
+    }
+
+    @Override
+    public void close() throws IOException {
+      if(client != null) client.close();
+      server.close();
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    correlatesResponses();
+    removesTimedOutRequest();
+    boundsStuckWrite();
+  }
+
+  private static void correlatesResponses() throws Exception {
+    try(Device device = new Device()) {
+      AmsTcpTransport transport = transport(device);
+      try {
+        ByteBuffer first = value(), second = value(), third = value();
+        CompletableFuture<Long> firstRead = transport.readAsync(GROUP, 0, first);
+        CompletableFuture<Long> secondRead = transport.readAsync(GROUP, 4, second);
+        ByteBuffer firstReq = device.receive();
+        ByteBuffer secondReq = device.receive();
+        Check.isTrue(AmsPacket.invokeId(firstReq) != AmsPacket.invokeId(secondReq), "Invoke IDs differ");
+        Check.equal(2, transport.getPendingCount(), "Requests in flight");
+
+        device.respond(secondReq, AmsPacket.CMD_READ, AmsPacket.invokeId(secondReq) + 100, 99); //Unknown invoke ID
+        device.respond(secondReq, 2);
+        device.respond(firstReq, 1);
+        Check.equal(0, firstRead.get(5, TimeUnit.SECONDS), "First read");
+        Check.equal(0, secondRead.get(5, TimeUnit.SECONDS), "Second read");
+        Check.equal(1, first.getInt(0), "First read got its own response");
+        Check.equal(2, second.getInt(0), "Second read got its own response");
+
+        CompletableFuture<Long> thirdRead = transport.readAsync(GROUP, 8, third);
+        ByteBuffer thirdReq = device.receive();
+        device.respond(thirdReq, AmsPacket.CMD_WRITE, AmsPacket.invokeId(thirdReq), 3);
+        Check.equal(AmsTcpTransport.ADSERR_DEVICE_INVALIDSIZE, thirdRead.get(5, TimeUnit.SECONDS),
+                    "Response of another command");
+        Check.equal(0, transport.getPendingCount(), "No request left in flight");
+      } finally {
+        transport.close();
+      }
+    }
+  }
+
+  private static void removesTimedOutRequest() throws Exception {
+    try(Device device = new Device()) {
+      AmsTcpTransport transport = transport(device);
+      transport.setTimeout(100);
+      try {
+        ByteBuffer late = value();
+        Check.equal(AmsTcpTransport.ADSERR_CLIENT_SYNCTIMEOUT, transport.read(GROUP, 0, late), "Read timed out");
+        Check.equal(0, transport.getPendingCount(), "Timed out request removed");
+
+        ByteBuffer lateReq = device.receive();
+        device.respond(lateReq, 7); //Late response is dropped
+        ByteBuffer next = value();
+        CompletableFuture<Long> nextRead = transport.readAsync(GROUP, 4, next);
+        device.respond(device.receive(), 8);
+        Check.equal(0, nextRead.get(5, TimeUnit.SECONDS), "Read after timeout");
+        Check.equal(8, next.getInt(0), "Value of read after timeout");
+        Check.equal(0, late.position(), "Late response not written into timed out buffer");
+      } finally {
+        transport.close();
+      }
+    }
+  }
+
+  private static void boundsStuckWrite() throws Exception {
+    try(Device device = new Device()) {
+      AmsTcpTransport transport = transport(device);
+      transport.setTimeout(200);
+      try {
+        ByteBuffer big = ByteBuffer.allocate(64 * 1024 * 1024); //More than socket buffers hold, device never reads
+        long t0 = System.nanoTime();
+        CompletableFuture<Long> write = CompletableFuture.supplyAsync(() -> transport.write(GROUP, 0, big));
+        Check.equal(AmsTcpTransport.ADSERR_CLIENT_PORTNOTOPEN, write.get(10, TimeUnit.SECONDS),
+                    "Stuck write fails");
+        Check.isTrue(System.nanoTime() - t0 < TimeUnit.SECONDS.toNanos(5), "Write bounded by timeout");
+        Check.equal(0, transport.getPendingCount(), "No request left in flight");
+        Check.equal(AmsTcpTransport.ADSERR_CLIENT_PORTNOTOPEN, transport.read(GROUP, 0, value()),
+                    "Connection closed");
+      } finally {
+        transport.close();
+      }
+    }
+  }
+
+  private static AmsTcpTransport transport(Device device) throws IOException {
+    AmsTcpTransport transport = new AmsTcpTransport("127.0.0.1", device.getPort(), TARGET, SOURCE,
+                                                    AmsTcpTransport.DEFAULT_SOURCE_PORT);
+    transport.open(851);
+    return transport;
+  }
+
+  private static ByteBuffer value() {
+    return AmsPacket.allocate(Integer.BYTES);
+  }
+}
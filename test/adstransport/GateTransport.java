@@ -0,0 +1,152 @@
+package adstransport;
+
+import de.beckhoff.jni.tcads.AdsDevName;
+import de.beckhoff.jni.tcads.AdsState;
+import de.beckhoff.jni.tcads.AdsVersion;
+import adsexceptions.AdsException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+* Blocking test transport wrapping another transport. Requests can be held at the gate
+* to let callers queue up behind them, sum commands can fail or return short responses
+*/
+final class GateTransport implements AdsTransport {
+  private final AdsTransport delegate;
+  private volatile CountDownLatch gate; //Requests wait while set
+  private volatile CountDownLatch entered;
+  private final AtomicInteger sumRequests = new AtomicInteger();
+  volatile long sumError; //Error ID of sum commands, 0 - passed on
+  volatile int sumShortBy; //Bytes missing in responses of sum commands
+  volatile Thread caller; //Thread of the last request
+  private final AtomicInteger requests = new AtomicInteger();
+
+  GateTransport(AdsTransport delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+  * Method for holding the next requests at the gate until released
+  */
+  void hold() {
+    entered = new CountDownLatch(1);
+    gate = new CountDownLatch(1);
+  }
+
+  /**
+  * Method for waiting until a request is held at the gate
+  * @exception InterruptedException When interrupted
+  */
+  void awaitHeld() throws InterruptedException {
+    if(!entered.await(5, TimeUnit.SECONDS)) throw new AssertionError("No request reached the gate");
+  }
+
+  /**
+  * Method for releasing held requests
+  */
+  void release() {
+    CountDownLatch g = gate;
+    gate = null;
+    if(g != null) g.countDown();
+  }
+
+  int getSumRequests() { return sumRequests.get();}
+  int getRequests() { return requests.get();}
+
+  private void pass() {
+    caller = Thread.currentThread();
+    requests.incrementAndGet();
+    CountDownLatch g = gate;
+    if(g == null) return;
+    entered.countDown();
+    boolean interrupted = false;
+    while(true) {
+      try {
+        g.await();
+        break;
+      } catch(InterruptedException e) {
+        interrupted = true; //Request already running, as in a native call
+      }
+    }
+    if(interrupted) Thread.currentThread().interrupt();
+  }
+
+  @Override
+  public long open(int amsPort) throws AdsException {
+    pass();
+    return delegate.open(amsPort);
+  }
+
+  @Override
+  public long close() {
+    pass();
+    return delegate.close();
+  }
+
+  @Override
+  public String getNetId() { return delegate.getNetId();}
+
+  @Override
+  public int getAmsPort() { return delegate.getAmsPort();}
+
+  @Override
+  public long read(long indexGroup, long indexOffset, ByteBuffer data) {
+    pass();
+    return delegate.read(indexGroup, indexOffset, data);
+  }
+
+  @Override
+  public long write(long indexGroup, long indexOffset, ByteBuffer data) {
+    pass();
+    return delegate.write(indexGroup, indexOffset, data);
+  }
+
+  @Override
+  public long readWrite(long indexGroup, long indexOffset, ByteBuffer readData, ByteBuffer writeData) {
+    pass();
+    if(indexGroup < SumCommand.ADSIGRP_SUMUP_READ || indexGroup > SumCommand.ADSIGRP_SUMUP_READWRITE)
+      return delegate.readWrite(indexGroup, indexOffset, readData, writeData);
+
+    sumRequests.incrementAndGet();
+    if(sumError != 0) return sumError;
+    ByteBuffer resp = ByteBuffer.allocate(readData.remaining());
+    long errId = delegate.readWrite(indexGroup, indexOffset, resp, writeData);
+    resp.flip();
+    resp.limit(Math.max(0, resp.limit() - sumShortBy));
+    readData.put(resp);
+    return errId;
+  }
+
+  @Override
+  public long readState(AdsState adsStateBuff, AdsState adsDevStateBuff) {
+    pass();
+    return delegate.readState(adsStateBuff, adsDevStateBuff);
+  }
+
+  @Override
+  public long readDeviceInfo(AdsDevName devName, AdsVersion adsVersion) {
+    pass();
+    return delegate.readDeviceInfo(devName, adsVersion);
+  }
+
+  @Override
+  public long setTimeout(long adsTimeout) {
+    pass();
+    return delegate.setTimeout(adsTimeout);
+  }
+
+  @Override
+  public long addNotification(long indexGroup, long indexOffset, int length, int transMode,
+                              long maxDelay, long cycleTime, NotificationSink sink) throws AdsException {
+    pass();
+    return delegate.addNotification(indexGroup, indexOffset, length, transMode, maxDelay, cycleTime, sink);
+  }
+
+  @Override
+  public long deleteNotification(long notificationHandle) {
+    pass();
+    return delegate.deleteNotification(notificationHandle);
+  }
+}
@@ -0,0 +1,135 @@
+package adstransport;
+
+import adssim.AdsSimulator;
+import adssim.SimulatorTransport;
+import adstest.Check;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+* Tests of HandoffTransport: every request, opening and closing the port included,
+* runs on an I/O thread, interrupted callers drop queued requests and wait for
+* running ones
+*/
+public final class HandoffTransportTest {
+  private HandoffTransportTest() {}
+
+  public static void main(String[] args) throws Exception {
+    runsOnIoThreads();
+    dropsQueuedRequestOnInterrupt();
+    waitsForRunningRequestOnInterrupt();
+  }
+
+  private static void runsOnIoThreads() {
+    AdsSimulator sim = simulator();
+    GateTransport gate = new GateTransport(new SimulatorTransport(sim));
+    HandoffTransport transport = new HandoffTransport(gate, 1);
+    try {
+      Check.isTrue(transport.open(851) != 0, "Port opened");
+      checkIoThread(gate, "open");
+      transport.setTimeout(1000);
+      checkIoThread(gate, "setTimeout");
+      Check.equal(0, transport.read(AdsSimulator.ADSIGRP_PLC_MEMORY, sim.getIndexOffset("MAIN.nValue"), value()), "Read");
+      checkIoThread(gate, "read");
+      Check.equal(0, transport.close(), "Close");
+      checkIoThread(gate, "close");
+    } finally {
+      transport.shutdown();
+      sim.close();
+    }
+  }
+
+  private static void dropsQueuedRequestOnInterrupt() throws Exception {
+    AdsSimulator sim = simulator();
+    GateTransport gate = new GateTransport(new SimulatorTransport(sim));
+    HandoffTransport transport = new HandoffTransport(gate, 1);
+    transport.open(851);
+    try {
+      long offset = sim.getIndexOffset("MAIN.nValue");
+      gate.hold();
+      CompletableFuture<Long> running = CompletableFuture.supplyAsync(() -> transport.read(AdsSimulator.ADSIGRP_PLC_MEMORY,
+                                                                                          offset, value()));
+      gate.awaitHeld(); //Only I/O thread busy
+      int requests = gate.getRequests();
+
+      CompletableFuture<Long> queued = new CompletableFuture<>();
+      CompletableFuture<Boolean> keptInterrupt = new CompletableFuture<>();
+      Thread caller = new Thread(() -> {
+        queued.complete(transport.read(AdsSimulator.ADSIGRP_PLC_MEMORY, offset, value()));
+        keptInterrupt.complete(Thread.currentThread().isInterrupted());
+      });
+      caller.start();
+      waitParked(caller);
+      caller.interrupt();
+      Check.equal(0x745, queued.get(5, TimeUnit.SECONDS), "Queued request dropped on interrupt");
+      Check.isTrue(keptInterrupt.get(5, TimeUnit.SECONDS), "Interrupt status kept");
+
+      gate.release();
+      Check.equal(0, running.get(5, TimeUnit.SECONDS), "Running request done");
+      Check.equal(0, transport.read(AdsSimulator.ADSIGRP_PLC_MEMORY, offset, value()), "Read after drop");
+      Check.equal(requests + 1, gate.getRequests(), "Dropped request not sent");
+    } finally {
+      gate.release();
+      transport.close();
+      transport.shutdown();
+      sim.close();
+    }
+  }
+
+  private static void waitsForRunningRequestOnInterrupt() throws Exception {
+    AdsSimulator sim = simulator();
+    GateTransport gate = new GateTransport(new SimulatorTransport(sim));
+    HandoffTransport transport = new HandoffTransport(gate, 1);
+    transport.open(851);
+    try {
+      ByteBuffer data = value();
+      CompletableFuture<Long> result = new CompletableFuture<>();
+      CompletableFuture<Boolean> keptInterrupt = new CompletableFuture<>();
+      gate.hold();
+      Thread caller = new Thread(() -> {
+        result.complete(transport.read(AdsSimulator.ADSIGRP_PLC_MEMORY, sim.getIndexOffset("MAIN.nValue"), data));
+        keptInterrupt.complete(Thread.currentThread().isInterrupted());
+      });
+      caller.start();
+      gate.awaitHeld();
+      caller.interrupt();
+      Thread.sleep(100);
+      Check.isTrue(!result.isDone(), "Caller waits for running request");
+
+      gate.release();
+      Check.equal(0, result.get(5, TimeUnit.SECONDS), "Running request completed");
+      Check.isTrue(keptInterrupt.get(5, TimeUnit.SECONDS), "Interrupt status kept");
+      Check.equal(42, data.getInt(0), "Value read into caller's buffer");
+    } finally {
+      gate.release();
+      transport.close();
+      transport.shutdown();
+      sim.close();
+    }
+  }
+
+  private static AdsSimulator simulator() {
+    AdsSimulator sim = new AdsSimulator();
+    sim.addSymbol("MAIN.nValue", "DINT");
+    sim.setValue("MAIN.nValue", new byte[] {42, 0, 0, 0});
+    return sim;
+  }
+
+  private static ByteBuffer value() {
+    return ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private static void checkIoThread(GateTransport gate, String request) {
+    Check.isTrue(gate.caller != Thread.currentThread() && gate.caller.getName().startsWith("ads-io-handoff-"),
+                 request + " runs on I/O thread");
+  }
+
+  private static void waitParked(Thread thread) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while(thread.getState() != Thread.State.WAITING && System.nanoTime() < deadline)
+      Thread.sleep(1);
+    Check.isTrue(thread.getState() == Thread.State.WAITING, "Caller parked");
+  }
+}
@@ -0,0 +1,120 @@
+package adstransport;
+
+import adssim.AdsSimulator;
+import adssim.SimulatorTransport;
+import adstest.Check;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+* Tests of SingleOwnerTransport: queued reads coalesced into sum reads, fallback
+* for targets without sum commands and short sum responses
+*/
+public final class SingleOwnerTransportTest {
+  private static final int READS = 10;
+
+  private SingleOwnerTransportTest() {}
+
+  public static void main(String[] args) throws Exception {
+    coalescesQueuedReads();
+    fallsBackWithoutSumCommands();
+    failsShortSumResponse();
+  }
+
+  private static void coalescesQueuedReads() throws Exception {
+    AdsSimulator sim = simulator();
+    GateTransport gate = new GateTransport(new SimulatorTransport(sim));
+    SingleOwnerTransport transport = new SingleOwnerTransport(gate);
+    transport.open(851);
+    try {
+      ByteBuffer[] values = new ByteBuffer[READS];
+      List<CompletableFuture<Long>> results = queueReads(sim, gate, transport, values);
+      for(int i = 0; i < READS; i++) {
+        Check.equal(0, results.get(i).get(5, TimeUnit.SECONDS), "Error ID of read " + i);
+        Check.equal(100 + i, values[i].getInt(0), "Value of read " + i);
+      }
+      Check.equal(1, gate.getSumRequests(), "Queued reads sent as one sum read");
+      Check.equal(1, transport.getStats().get("sumReads"), "Sum reads");
+      Check.equal(READS, transport.getStats().get("coalescedReads"), "Coalesced reads");
+    } finally {
+      transport.close();
+      sim.close();
+    }
+  }
+
+  private static void fallsBackWithoutSumCommands() throws Exception {
+    AdsSimulator sim = simulator();
+    GateTransport gate = new GateTransport(new SimulatorTransport(sim));
+    gate.sumError = 0x701;
+    SingleOwnerTransport transport = new SingleOwnerTransport(gate);
+    transport.open(851);
+    try {
+      for(int round = 0; round < 2; round++) {
+        ByteBuffer[] values = new ByteBuffer[READS];
+        List<CompletableFuture<Long>> results = queueReads(sim, gate, transport, values);
+        for(int i = 0; i < READS; i++) {
+          Check.equal(0, results.get(i).get(5, TimeUnit.SECONDS), "Error ID of single read " + i);
+          Check.equal(100 + i, values[i].getInt(0), "Value of single read " + i);
+        }
+      }
+      Check.equal(1, gate.getSumRequests(), "Sum read not tried again after 0x701");
+      Check.equal(0, transport.getStats().get("sumReads"), "No sum reads");
+    } finally {
+      transport.close();
+      sim.close();
+    }
+  }
+
+  private static void failsShortSumResponse() throws Exception {
+    AdsSimulator sim = simulator();
+    GateTransport gate = new GateTransport(new SimulatorTransport(sim));
+    gate.sumShortBy = 4;
+    SingleOwnerTransport transport = new SingleOwnerTransport(gate);
+    transport.open(851);
+    try {
+      ByteBuffer[] values = new ByteBuffer[READS];
+      List<CompletableFuture<Long>> results = queueReads(sim, gate, transport, values);
+      for(int i = 0; i < READS; i++) {
+        Check.equal(0x705, results.get(i).get(5, TimeUnit.SECONDS), "Error ID of read " + i);
+        Check.equal(0, values[i].position(), "Nothing written into buffer of read " + i);
+      }
+    } finally {
+      transport.close();
+      sim.close();
+    }
+  }
+
+  /**
+  * Method for queueing reads of all symbols behind a read held at the gate
+  * @return Futures of the queued reads
+  */
+  private static List<CompletableFuture<Long>> queueReads(AdsSimulator sim, GateTransport gate,
+                                                          SingleOwnerTransport transport, ByteBuffer[] values)
+                                                          throws Exception {
+    gate.hold();
+    CompletableFuture<Long> held = transport.writeAsync(AdsTransport.ADSIGRP_PLC_MEMORY, 0,
+                                                        ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, 100));
+    gate.awaitHeld();
+    List<CompletableFuture<Long>> results = new ArrayList<>();
+    for(int i = 0; i < READS; i++) {
+      values[i] = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+      results.add(transport.readAsync(AdsTransport.ADSIGRP_PLC_MEMORY, sim.getIndexOffset("MAIN.n" + i), values[i]));
+    }
+    gate.release();
+    Check.equal(0, held.get(5, TimeUnit.SECONDS), "Error ID of held write");
+    return results;
+  }
+
+  private static AdsSimulator simulator() {
+    AdsSimulator sim = new AdsSimulator();
+    for(int i = 0; i < READS; i++) {
+      sim.addSymbol("MAIN.n" + i, "DINT");
+      sim.setValue("MAIN.n" + i, ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(100 + i).array());
+    }
+    return sim;
+  }
+}
@@ -0,0 +1,99 @@
+package adstransport;
+
+import adstest.Check;
+import java.nio.ByteBuffer;
+
+/**
+* Tests of SumCommand: chunking and encoding/decoding of ADS sum commands
+*/
+public final class SumCommandTest {
+  private SumCommandTest() {}
+
+  public static void main(String[] args) {
+    splitsChunks();
+    codesRead();
+    codesWrite();
+    codesReadWrite();
+  }
+
+  private static void splitsChunks() {
+    Check.equal(new int[0], SumCommand.chunkEnds(0, i -> 12, i -> 8), "No sub-requests");
+    Check.equal(new int[] {500, 1000, 1200}, SumCommand.chunkEnds(1200, i -> 12, i -> 8),
+                "Chunks limited by sub-request count");
+    Check.equal(new int[] {6, 12, 13}, SumCommand.chunkEnds(13, i -> 12, i -> 10000),
+                "Chunks limited by response frame size");
+    Check.equal(new int[] {6, 7}, SumCommand.chunkEnds(7, i -> 10000, i -> 4),
+                "Chunks limited by request frame size");
+    Check.equal(new int[] {1, 2}, SumCommand.chunkEnds(2, i -> 12, i -> SumCommand.MAX_FRAME_DATA + 1),
+                "Oversized sub-request sent alone");
+  }
+
+  private static void codesRead() {
+    long[] groups = {0x4020, 0xF005, 0x4020};
+    long[] offsets = {0, 0x80000001L, 16};
+    int[] sizes = {4, 2, 1};
+    byte[] req = SumCommand.encodeRead(groups, offsets, sizes, 1, 3);
+    Check.equal(2 * SumCommand.READ_HEADER, req.length, "Request size");
+    ByteBuffer buff = SumCommand.wrap(req);
+    Check.equal(0xF005, buff.getInt(0), "Index group");
+    Check.equal(0x80000001L, Integer.toUnsignedLong(buff.getInt(4)), "Index offset");
+    Check.equal(2, buff.getInt(8), "Size");
+    Check.equal(0x4020, buff.getInt(12), "Index group of next sub-request");
+
+    int size = SumCommand.readResponseSize(sizes, 1, 3);
+    Check.equal(2 * SumCommand.ERR_ID_SIZE + 3, size, "Response size");
+    ByteBuffer resp = SumCommand.allocate(size);
+    resp.putInt(0).putInt(0x710).putShort((short)0x1234).put((byte)7);
+    long[] errIds = new long[3];
+    byte[][] data = new byte[3][];
+    SumCommand.decodeRead(resp.array(), sizes, 1, 3, errIds, data);
+    Check.equal(new long[] {0, 0, 0x710}, errIds, "Error IDs");
+    Check.equal(new byte[] {0x34, 0x12}, data[1], "Data of first sub-request");
+    Check.equal(new byte[] {7}, data[2], "Data of second sub-request");
+    Check.isTrue(data[0] == null, "Sub-request outside range untouched");
+  }
+
+  private static void codesWrite() {
+    long[] groups = {0x4020, 0x4020};
+    long[] offsets = {8, 12};
+    byte[][] values = {{1, 2, 3, 4}, {5}};
+    byte[] req = SumCommand.encodeWrite(groups, offsets, values, 0, 2);
+    Check.equal(2 * SumCommand.READ_HEADER + 5, req.length, "Request size");
+    ByteBuffer buff = SumCommand.wrap(req);
+    Check.equal(12, buff.getInt(16), "Index offset of second header");
+    Check.equal(1, buff.getInt(20), "Length of second value");
+    Check.equal(1, buff.get(24), "Data after all headers");
+    Check.equal(5, buff.get(28), "Data of second sub-request");
+
+    ByteBuffer resp = SumCommand.allocate(8).putInt(0x705).putInt(0);
+    long[] errIds = new long[2];
+    SumCommand.decodeErrIds(resp.array(), 0, 2, errIds);
+    Check.equal(new long[] {0x705, 0}, errIds, "Error IDs");
+  }
+
+  private static void codesReadWrite() {
+    long[] groups = {0xF003, 0xF003};
+    long[] offsets = {0, 0};
+    int[] readSizes = {4, 4};
+    byte[][] values = {{'A'}, {'B', 'C'}};
+    byte[] req = SumCommand.encodeReadWrite(groups, offsets, readSizes, values, 0, 2);
+    Check.equal(2 * SumCommand.READWRITE_HEADER + 3, req.length, "Request size");
+    Check.equal(2, SumCommand.wrap(req).getInt(28), "Write length of second header");
+    Check.equal(2 * 2 * SumCommand.ERR_ID_SIZE + 8, SumCommand.readWriteResponseSize(readSizes, 0, 2),
+                "Response size");
+
+    ByteBuffer resp = SumCommand.allocate(SumCommand.readWriteResponseSize(readSizes, 0, 2));
+    resp.putInt(0).putInt(4).putInt(0x710).putInt(0);
+    Check.equal(-1, SumCommand.readWriteResponseLength(resp.duplicate().position(8), 2),
+                "Incomplete error IDs and lengths");
+    Check.equal(20, SumCommand.readWriteResponseLength(resp, 2), "Response length by returned lengths");
+    resp.putInt(0x11223344);
+
+    long[] errIds = new long[2];
+    byte[][] data = new byte[2][];
+    SumCommand.decodeReadWrite(resp.array(), 0, 2, errIds, data);
+    Check.equal(new long[] {0, 0x710}, errIds, "Error IDs");
+    Check.equal(new byte[] {0x44, 0x33, 0x22, 0x11}, data[0], "Returned data");
+    Check.equal(new byte[0], data[1], "No data of failed sub-request");
+  }
+}